@@ -0,0 +1,152 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * Copyright (c) 2014, Red Hat Inc. or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.  All third-party contributions are
+ * distributed under license by Red Hat Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.hibernate.test.resource.jdbc;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+import org.hibernate.resource.jdbc.spi.ParameterBindings;
+import org.hibernate.resource.jdbc.spi.ParameterBuffer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares binding parameters through a reused {@link ParameterBuffer} with the usual {@code Object[]} and
+ * {@link PreparedStatement#setObject} binding, against an in-memory H2 database: binding alone, and binding plus
+ * executing the query.
+ * <p/>
+ * Run it with {@code gradle jmh -PjmhArgs=ParameterBindingBenchmark}.
+ *
+ * @author Andrea Boriero
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ParameterBindingBenchmark {
+	private static final String QUERY = "select id from SOME_TABLE where id = ? and amount > ? and flag = ? and name = ?";
+	private static final String[] NAMES = new String[1000];
+
+	static {
+		for ( int i = 0; i < NAMES.length; i++ ) {
+			NAMES[i] = "name" + ( i + 1 );
+		}
+	}
+
+	private Connection connection;
+	private PreparedStatement query;
+	private ParameterBuffer buffer;
+	private long id;
+
+	@Setup
+	public void setUp() throws SQLException {
+		connection = DriverManager.getConnection( "jdbc:h2:mem:parameter_binding_benchmark" );
+		final Statement statement = connection.createStatement();
+		statement.execute( "create table SOME_TABLE (id bigint primary key, amount double, flag boolean, name varchar(20))" );
+		statement.execute( "insert into SOME_TABLE select x, x * 1.5, mod(x, 2) = 0, 'name' || x from system_range(1, 1000)" );
+		statement.close();
+
+		query = connection.prepareStatement( QUERY );
+		buffer = new ParameterBuffer( 4 );
+	}
+
+	@TearDown
+	public void tearDown() throws SQLException {
+		query.close();
+		connection.close();
+	}
+
+	@Benchmark
+	public void bindObject() throws SQLException {
+		objectBindings( nextId() ).bindParameters( query );
+	}
+
+	@Benchmark
+	public void bindBuffer() throws SQLException {
+		bufferBindings( nextId() ).bindParameters( query );
+	}
+
+	@Benchmark
+	public long bindObjectAndExecute() throws SQLException {
+		objectBindings( nextId() ).bindParameters( query );
+		return execute();
+	}
+
+	@Benchmark
+	public long bindBufferAndExecute() throws SQLException {
+		bufferBindings( nextId() ).bindParameters( query );
+		return execute();
+	}
+
+	private long nextId() {
+		id = id % 1000 + 1;
+		return id;
+	}
+
+	private static ParameterBindings objectBindings(long id) {
+		final Object[] values = new Object[] { id, 0d, id % 2 == 0, NAMES[(int) id - 1] };
+		return new ParameterBindings() {
+			@Override
+			public void bindParameters(PreparedStatement statement) throws SQLException {
+				for ( int position = 0; position < values.length; position++ ) {
+					statement.setObject( position + 1, values[position] );
+				}
+			}
+		};
+	}
+
+	private ParameterBindings bufferBindings(long id) {
+		return buffer.setLong( 1, id ).setDouble( 2, 0d ).setBoolean( 3, id % 2 == 0 ).setString( 4, NAMES[(int) id - 1] );
+	}
+
+	private long execute() throws SQLException {
+		final ResultSet resultSet = query.executeQuery();
+		try {
+			if ( !resultSet.next() ) {
+				throw new IllegalStateException( "Row not found" );
+			}
+			return resultSet.getLong( 1 );
+		}
+		finally {
+			resultSet.close();
+		}
+	}
+}
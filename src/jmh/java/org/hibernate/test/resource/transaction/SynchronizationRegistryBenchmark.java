@@ -0,0 +1,111 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * Copyright (c) 2014, Red Hat Inc. or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.  All third-party contributions are
+ * distributed under license by Red Hat Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.hibernate.test.resource.transaction;
+
+import java.util.concurrent.TimeUnit;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+
+import org.hibernate.resource.transaction.internal.SynchronizationRegistryCompactImpl;
+import org.hibernate.resource.transaction.internal.SynchronizationRegistryStandardImpl;
+import org.hibernate.resource.transaction.spi.SynchronizationRegistryImplementor;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the cost of a full transaction cycle (register, beforeCompletion, afterCompletion) against
+ * {@link SynchronizationRegistryStandardImpl} and {@link SynchronizationRegistryCompactImpl}, with the registry
+ * reused across transactions as the coordinators do.
+ * <p/>
+ * Run it with {@code gradle jmh -PjmhArgs=SynchronizationRegistryBenchmark}.
+ *
+ * @author Andrea Boriero
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class SynchronizationRegistryBenchmark {
+	@Param({ "0", "1", "5", "50" })
+	public int synchronizationCount;
+
+	private Synchronization[] synchronizations;
+	private SynchronizationRegistryImplementor standard;
+	private SynchronizationRegistryImplementor compact;
+
+	@Setup
+	public void setUp() {
+		synchronizations = new Synchronization[synchronizationCount];
+		for ( int i = 0; i < synchronizationCount; i++ ) {
+			synchronizations[i] = new CountingSynchronization();
+		}
+		standard = new SynchronizationRegistryStandardImpl();
+		compact = new SynchronizationRegistryCompactImpl();
+	}
+
+	@Benchmark
+	public void standard() {
+		transaction( standard );
+	}
+
+	@Benchmark
+	public void compact() {
+		transaction( compact );
+	}
+
+	private void transaction(SynchronizationRegistryImplementor registry) {
+		for ( Synchronization synchronization : synchronizations ) {
+			registry.registerSynchronization( synchronization );
+		}
+		registry.notifySynchronizationsBeforeTransactionCompletion();
+		registry.notifySynchronizationsAfterTransactionCompletion( Status.STATUS_COMMITTED );
+	}
+
+	private static class CountingSynchronization implements Synchronization {
+		// written on each notification, so that the notifications cannot be optimized away
+		private int count;
+
+		@Override
+		public void beforeCompletion() {
+			count++;
+		}
+
+		@Override
+		public void afterCompletion(int status) {
+			count += status;
+		}
+	}
+}
@@ -0,0 +1,65 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * Copyright (c) 2014, Red Hat Inc. or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.  All third-party contributions are
+ * distributed under license by Red Hat Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.hibernate.resource.jdbc;
+
+import java.util.Iterator;
+
+import org.hibernate.resource.jdbc.spi.BulkLoader;
+
+/**
+ * Specification of a bulk load of rows into a table.  The rows are streamed from an Iterator into the
+ * {@link BulkLoader}, so that they need not all be held in memory.
+ *
+ * @author Andrea Boriero
+ *
+ * @see JdbcSession#accept(BulkLoadOperationSpec)
+ */
+public interface BulkLoadOperationSpec extends OperationSpec {
+
+	public String getTableName();
+
+	public String[] getColumnNames();
+
+	/**
+	 * The rows to load, each holding the values of {@link #getColumnNames()}, in order.  The Iterator is consumed
+	 * by the load.
+	 *
+	 * @return The rows
+	 */
+	public Iterator<Object[]> getRows();
+
+	/**
+	 * The number of rows per batch, for BulkLoaders sending the rows in batches.
+	 *
+	 * @return The batch size
+	 */
+	public int getBatchSize();
+
+	/**
+	 * The BulkLoader to load the rows with.
+	 *
+	 * @return The BulkLoader; {@code null} loads the rows through JDBC batches.
+	 */
+	public BulkLoader getBulkLoader();
+}
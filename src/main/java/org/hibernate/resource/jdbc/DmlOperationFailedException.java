@@ -0,0 +1,82 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * Copyright (c) 2014, Red Hat Inc. or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.  All third-party contributions are
+ * distributed under license by Red Hat Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.hibernate.resource.jdbc;
+
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+
+import org.hibernate.HibernateException;
+
+/**
+ * Indicates DML operations, typically deferred by the write-behind buffer of the JdbcSession, failed or did not
+ * affect the expected number of rows.  The operations queued after the failed ones were not performed, and are
+ * reported along with them.
+ *
+ * @author Andrea Boriero
+ */
+public class DmlOperationFailedException extends HibernateException {
+	private final List<DmlOperationSpec> failedOperations;
+	private final List<DmlOperationSpec> unexecutedOperations;
+
+	public DmlOperationFailedException(String message, List<DmlOperationSpec> failedOperations) {
+		this( message, failedOperations, Collections.<DmlOperationSpec>emptyList(), null );
+	}
+
+	public DmlOperationFailedException(
+			String message,
+			List<DmlOperationSpec> failedOperations,
+			SQLException cause) {
+		this( message, failedOperations, Collections.<DmlOperationSpec>emptyList(), cause );
+	}
+
+	public DmlOperationFailedException(
+			String message,
+			List<DmlOperationSpec> failedOperations,
+			List<DmlOperationSpec> unexecutedOperations,
+			SQLException cause) {
+		super( message, cause );
+		this.failedOperations = failedOperations;
+		this.unexecutedOperations = unexecutedOperations;
+	}
+
+	/**
+	 * The operations which failed or did not affect the expected number of rows.  When the driver stops
+	 * executing a batch at its first failure, the operations of the batch it did not execute are included.
+	 *
+	 * @return The failed operations
+	 */
+	public List<DmlOperationSpec> getFailedOperations() {
+		return failedOperations;
+	}
+
+	/**
+	 * The operations queued after the failed ones, which were discarded without being performed.
+	 *
+	 * @return The operations not performed
+	 */
+	public List<DmlOperationSpec> getUnexecutedOperations() {
+		return unexecutedOperations;
+	}
+}
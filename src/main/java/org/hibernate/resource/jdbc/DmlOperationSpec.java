@@ -0,0 +1,48 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * Copyright (c) 2014, Red Hat Inc. or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.  All third-party contributions are
+ * distributed under license by Red Hat Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.hibernate.resource.jdbc;
+
+import org.hibernate.resource.jdbc.spi.ParameterBindings;
+
+/**
+ * Specification of a single-row INSERT, UPDATE or DELETE, which the JdbcSession may defer and batch with the
+ * other operations sharing its SQL.
+ *
+ * @author Andrea Boriero
+ *
+ * @see JdbcSession#accept(DmlOperationSpec)
+ */
+public interface DmlOperationSpec extends OperationSpec {
+
+	public String getSql();
+
+	public ParameterBindings getParameterBindings();
+
+	/**
+	 * The number of rows the operation is expected to affect.
+	 *
+	 * @return The expected row count; a negative value disables the check.
+	 */
+	public int getExpectedRowCount();
+}
@@ -0,0 +1,86 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * Copyright (c) 2014, Red Hat Inc. or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.  All third-party contributions are
+ * distributed under license by Red Hat Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.hibernate.resource.jdbc;
+
+import java.util.List;
+
+import org.hibernate.resource.jdbc.spi.InsertStatementBuilder;
+import org.hibernate.resource.jdbc.spi.ParameterBindings;
+
+/**
+ * Specification of an INSERT, of one or more rows, optionally returning the keys generated by the database for
+ * the inserted rows.
+ *
+ * @author Andrea Boriero
+ *
+ * @see JdbcSession#accept(InsertOperationSpec)
+ */
+public interface InsertOperationSpec extends OperationSpec {
+
+	public InsertStatementBuilder getInsertStatementBuilder();
+
+	public String getSql();
+
+	/**
+	 * The bindings of the rows to insert, one per row.
+	 *
+	 * @return The bindings of the rows
+	 */
+	public List<ParameterBindings> getParameterBindings();
+
+	/**
+	 * The maximum number of rows sent to the database in one JDBC batch.
+	 *
+	 * @return The batch size; a value {@code <= 1} executes the INSERT once per row.
+	 */
+	public int getBatchSize();
+
+	public int getQueryTimeout();
+
+	/**
+	 * Should batches be sent as multi-row {@code INSERT ... VALUES (...), (...), ...} statements rather than JDBC
+	 * batches?  Many drivers send each row of a JDBC batch as a message of its own.  Applies only to an INSERT made
+	 * of a single VALUES row at its end; the number of rows per statement is the largest power of 2 not exceeding
+	 * the batch size.
+	 *
+	 * @return {@code true} to rewrite batches as multi-row INSERTs; {@code false} otherwise.
+	 */
+	public boolean isMultiRowRewriteEnabled();
+
+	/**
+	 * Should the keys generated for the inserted rows be returned?  Requires
+	 * {@link org.hibernate.resource.jdbc.spi.JdbcSessionContext#isGetGeneratedKeysEnabled()}.
+	 *
+	 * @return {@code true} if the generated keys should be returned; {@code false} otherwise.
+	 */
+	public boolean isReturnGeneratedKeys();
+
+	/**
+	 * The names of the columns whose generated values are returned.  Only the first one is read, as a numeric
+	 * identifier.
+	 *
+	 * @return The column names; {@code null} lets the driver choose the column.
+	 */
+	public String[] getGeneratedKeyColumns();
+}
@@ -23,6 +23,8 @@
  */
 package org.hibernate.resource.jdbc;
 
+import java.util.List;
+
 import org.hibernate.resource.transaction.TransactionCoordinator;
 
 import static org.hibernate.resource.jdbc.ScrollableQueryOperationSpec.Result;
@@ -86,4 +88,81 @@ public interface JdbcSession {
 	public <R> R accept(PreparedStatementQueryOperationSpec<R> operation);
 
 	public Result accept(ScrollableQueryOperationSpec operation);
+
+	/**
+	 * Accept the specification of an INSERT to be performed within bounds of this JdbcSession.  Rows are sent to
+	 * the database in batches of {@link InsertOperationSpec#getBatchSize()} rows.
+	 * <p/>
+	 * Not all drivers return the keys generated by a batch of rows (some return the last one only); should the
+	 * driver return fewer keys than rows were inserted, the operation fails, leaving the rows inserted so far to
+	 * the transaction.
+	 *
+	 * @param operation The specification for the INSERT to perform
+	 *
+	 * @return The keys generated for the inserted rows, in the order of the rows; an empty array if the keys
+	 * were not requested.
+	 */
+	public long[] accept(InsertOperationSpec operation);
+
+	/**
+	 * Accept the specification of the query of one page of a keyset pagination to be performed within bounds of
+	 * this JdbcSession.
+	 *
+	 * @param operation The specification of the page to fetch
+	 * @param <T> The type of the rows
+	 *
+	 * @return The page, along with the continuation token to fetch the next page with
+	 */
+	public <T> KeysetPageOperationSpec.Page<T> accept(KeysetPageOperationSpec<T> operation);
+
+	/**
+	 * Accept the specifications of several independent queries to be performed within bounds of this
+	 * JdbcSession, in as few database round trips as possible.
+	 * <p/>
+	 * If query packing is enabled (see
+	 * {@link org.hibernate.resource.jdbc.spi.JdbcSessionContext#isQueryPackingEnabled()}) and the driver supports
+	 * multiple results from one execution, the queries which allow it (standard statement builder and executor,
+	 * forward-only read-only results, and no limit) are packed into a single statement, and each of its results is
+	 * handed to the ResultSetProcessor of its query.  The other queries, or all of them if packing is disabled,
+	 * unsupported or rejected by the driver, are performed one after the other.
+	 *
+	 * @param operations The specifications of the queries to perform
+	 *
+	 * @return The results of the queries, in the order of their specifications
+	 */
+	public List<Object> acceptAll(List<? extends PreparedStatementQueryOperationSpec<?>> operations);
+
+	/**
+	 * Accept the specification of a DML operation to be performed within bounds of this JdbcSession.
+	 * <p/>
+	 * With write-behind enabled (see
+	 * {@link org.hibernate.resource.jdbc.spi.JdbcSessionContext#getWriteBehindThreshold()}), the operation is only
+	 * queued, and performed along with the other queued operations of the same SQL as a JDBC batch: once the
+	 * threshold is reached, before any other operation is accepted, before transaction completion, on
+	 * {@link #flush()} or on {@link #close()}.  Failures are then reported by the call triggering the flush.  Only
+	 * operations queued within a transaction still active on close are discarded, along with the rest of the work of
+	 * that transaction.  Otherwise the operation is performed immediately.
+	 *
+	 * @param operation The specification for the DML operation to perform
+	 *
+	 * @throws DmlOperationFailedException if the operation failed, or did not affect the expected number of rows
+	 */
+	public void accept(DmlOperationSpec operation);
+
+	/**
+	 * Accept the specification of a bulk load to be performed within bounds of this JdbcSession, and of its
+	 * transaction if any.
+	 *
+	 * @param operation The specification for the bulk load to perform
+	 *
+	 * @return The number of rows loaded
+	 */
+	public long accept(BulkLoadOperationSpec operation);
+
+	/**
+	 * Perform the DML operations queued by the write-behind buffer, if any.
+	 *
+	 * @throws DmlOperationFailedException if operations failed, or did not affect the expected number of rows
+	 */
+	public void flush();
 }
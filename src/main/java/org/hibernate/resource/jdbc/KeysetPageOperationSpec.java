@@ -0,0 +1,85 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * Copyright (c) 2014, Red Hat Inc. or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.  All third-party contributions are
+ * distributed under license by Red Hat Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.hibernate.resource.jdbc;
+
+import java.util.List;
+
+import org.hibernate.resource.jdbc.spi.RowMapper;
+
+/**
+ * Specification of the query of one page of a keyset (seek) pagination.  Rather than skipping the rows of the
+ * previous pages, as an offset does, the query seeks past the sort key of the last row of the previous page, so
+ * that fetching a page takes the same time however deep it is (given an index on the key columns).
+ * <p/>
+ * The JdbcSession appends the seek predicate and the ORDER BY clause to {@link #getSql()}, which must thus have
+ * no ORDER BY clause and, if it has a WHERE clause, end with it.  The parameters of the seek predicate are bound
+ * after those bound by {@link #getParameterBindings()}.  {@link #getLimit()} is the page size.
+ *
+ * @param <T> The type of the rows
+ *
+ * @author Andrea Boriero
+ *
+ * @see JdbcSession#accept(KeysetPageOperationSpec)
+ */
+public interface KeysetPageOperationSpec<T> extends QueryOperationSpec {
+	/**
+	 * The columns the pages are sorted by, most significant first.  Together they must be unique, and not
+	 * nullable.  Their values are read from the selected columns of the same name (with any qualifier removed).
+	 *
+	 * @return The key columns
+	 */
+	public String[] getKeyColumns();
+
+	/**
+	 * Are the pages sorted in descending order of the key?
+	 *
+	 * @return {@code true} for descending order; {@code false} for ascending order.
+	 */
+	public boolean isDescending();
+
+	/**
+	 * The continuation token of the previous page.
+	 *
+	 * @return The token returned with the previous page; {@code null} for the first page.
+	 */
+	public Object[] getContinuationToken();
+
+	public RowMapper<T> getRowMapper();
+
+	/**
+	 * A page of rows.
+	 *
+	 * @param <T> The type of the rows
+	 */
+	public interface Page<T> {
+		public List<T> getRows();
+
+		/**
+		 * The token to fetch the next page with, i.e. the key values of the last row of this page.
+		 *
+		 * @return The continuation token; {@code null} if this is the last page.
+		 */
+		public Object[] getContinuationToken();
+	}
+}
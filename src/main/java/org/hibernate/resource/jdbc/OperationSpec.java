@@ -27,4 +27,12 @@ package org.hibernate.resource.jdbc;
  * @author Steve Ebersole
  */
 public interface OperationSpec {
+	/**
+	 * Can the operation safely be performed again after a transient failure?  Idempotent operations are retried
+	 * according to the {@link org.hibernate.resource.jdbc.spi.RetryPolicy} of the JdbcSession, provided no
+	 * transaction is in progress.
+	 *
+	 * @return {@code true} if the operation is idempotent; {@code false} otherwise.
+	 */
+	public boolean isIdempotent();
 }
@@ -53,6 +53,13 @@ public interface QueryOperationSpec extends OperationSpec {
 
 	public int getLimit();
 
+	/**
+	 * The JDBC fetch size to apply to the statement.
+	 *
+	 * @return The fetch size; a value {@code <= 0} uses the default of the JdbcSession.
+	 */
+	public int getFetchSize();
+
 	public enum ResultSetConcurrency {
 		READ_ONLY( ResultSet.CONCUR_READ_ONLY ),
 		UPDATABLE( ResultSet.CONCUR_UPDATABLE );
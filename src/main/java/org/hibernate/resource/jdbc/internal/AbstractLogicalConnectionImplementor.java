@@ -53,11 +53,19 @@ public abstract class AbstractLogicalConnectionImplementor implements LogicalCon
 
 	protected abstract Connection getConnectionForTransactionManagement();
 
+	private boolean transactionActive;
+
+	@Override
+	public boolean isActive() {
+		return transactionActive;
+	}
+
 	@Override
 	public void begin() {
 		try {
 			log.trace( "Preparing to begin transaction via JDBC Connection.setAutoCommit(false)" );
 			getConnectionForTransactionManagement().setAutoCommit( false );
+			transactionActive = true;
 			log.trace( "Transaction begun via JDBC Connection.setAutoCommit(false)" );
 		}
 		catch( SQLException e ) {
@@ -75,6 +83,9 @@ public abstract class AbstractLogicalConnectionImplementor implements LogicalCon
 		catch( SQLException e ) {
 			throw new TransactionException( "Unable to commit against JDBC Connection", e );
 		}
+		finally {
+			transactionActive = false;
+		}
 
 		afterCompletion();
 	}
@@ -107,6 +118,9 @@ public abstract class AbstractLogicalConnectionImplementor implements LogicalCon
 		catch( SQLException e ) {
 			throw new TransactionException( "Unable to rollback against JDBC Connection", e );
 		}
+		finally {
+			transactionActive = false;
+		}
 
 		afterCompletion();
 	}
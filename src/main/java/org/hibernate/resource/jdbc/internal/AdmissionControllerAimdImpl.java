@@ -0,0 +1,188 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * Copyright (c) 2014, Red Hat Inc. or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.  All third-party contributions are
+ * distributed under license by Red Hat Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.hibernate.resource.jdbc.internal;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.hibernate.resource.jdbc.OperationRejectedException;
+import org.hibernate.resource.jdbc.spi.AdmissionController;
+
+import org.jboss.logging.Logger;
+
+/**
+ * AdmissionController adapting its concurrency limit with the "additive increase / multiplicative decrease" scheme
+ * used by TCP congestion control.  Each operation completing within the latency threshold raises the limit by
+ * {@code 1 / limit} (so about one per limit-worth of operations), one exceeding it multiplies the limit by the
+ * backoff ratio.  As with TCP, the limit is lowered at most once per window: only an operation admitted after the
+ * last decrease lowers it again, so that a burst of slow operations observed under the old limit backs off once
+ * rather than collapsing the limit to its minimum.  The limit therefore settles around the concurrency at which the
+ * database latency starts to degrade, rather than letting the database collapse under overload.
+ * <p/>
+ * Failed operations do not raise the limit, but only latency lowers it: a failure is not necessarily a sign of
+ * overload.  Callers over the limit wait up to the maximum queue wait for a permit, and are rejected afterwards.
+ *
+ * @author Andrea Boriero
+ */
+public class AdmissionControllerAimdImpl implements AdmissionController {
+	private static final Logger log = Logger.getLogger( AdmissionControllerAimdImpl.class );
+
+	private static final double BACKOFF_RATIO = 0.9;
+
+	private final int minimumLimit;
+	private final int maximumLimit;
+	private final long latencyThresholdNanos;
+	private final long maximumQueueWaitNanos;
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition permitReleased = lock.newCondition();
+
+	// guarded by lock
+	private double limit;
+	private int inFlight;
+	private long lastDecrease = System.nanoTime();
+
+	/**
+	 * Creates the controller.
+	 *
+	 * @param initialLimit The initial concurrency limit
+	 * @param minimumLimit The lowest the limit may drop to
+	 * @param maximumLimit The highest the limit may grow to
+	 * @param latencyThreshold The latency, in milliseconds, above which an operation is a sign of overload
+	 * @param maximumQueueWait The time, in milliseconds, a caller over the limit waits for a permit
+	 */
+	public AdmissionControllerAimdImpl(
+			int initialLimit,
+			int minimumLimit,
+			int maximumLimit,
+			long latencyThreshold,
+			long maximumQueueWait) {
+		if ( minimumLimit <= 0 || minimumLimit > initialLimit || initialLimit > maximumLimit ) {
+			throw new IllegalArgumentException( "Limits must satisfy 0 < minimumLimit <= initialLimit <= maximumLimit" );
+		}
+		this.limit = initialLimit;
+		this.minimumLimit = minimumLimit;
+		this.maximumLimit = maximumLimit;
+		this.latencyThresholdNanos = TimeUnit.MILLISECONDS.toNanos( latencyThreshold );
+		this.maximumQueueWaitNanos = TimeUnit.MILLISECONDS.toNanos( maximumQueueWait );
+	}
+
+	@Override
+	public Permit acquire() {
+		lock.lock();
+		try {
+			long remainingNanos = maximumQueueWaitNanos;
+			while ( inFlight >= (int) limit ) {
+				if ( remainingNanos <= 0 ) {
+					throw new OperationRejectedException(
+							"Operation rejected, " + inFlight + " operations already in flight (limit " + (int) limit + ")"
+					);
+				}
+				try {
+					remainingNanos = permitReleased.awaitNanos( remainingNanos );
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new OperationRejectedException( "Interrupted while waiting for an operation permit" );
+				}
+			}
+			inFlight++;
+		}
+		finally {
+			lock.unlock();
+		}
+		return new PermitImpl( System.nanoTime() );
+	}
+
+	/**
+	 * The current concurrency limit
+	 *
+	 * @return The limit
+	 */
+	public int getLimit() {
+		lock.lock();
+		try {
+			return (int) limit;
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * The number of operations currently holding a permit
+	 *
+	 * @return The number of operations in flight
+	 */
+	public int getInFlight() {
+		lock.lock();
+		try {
+			return inFlight;
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	private void release(long start, boolean succeeded) {
+		final long now = System.nanoTime();
+		lock.lock();
+		try {
+			inFlight--;
+			if ( now - start > latencyThresholdNanos ) {
+				if ( start - lastDecrease > 0 ) {
+					limit = Math.max( minimumLimit, limit * BACKOFF_RATIO );
+					lastDecrease = now;
+					log.tracef( "Operation latency above threshold, concurrency limit lowered to %s", limit );
+				}
+			}
+			else if ( succeeded ) {
+				limit = Math.min( maximumLimit, limit + 1 / limit );
+			}
+			permitReleased.signalAll();
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	private class PermitImpl implements Permit {
+		private final long start;
+		private boolean released;
+
+		private PermitImpl(long start) {
+			this.start = start;
+		}
+
+		@Override
+		public void release(boolean succeeded) {
+			if ( released ) {
+				return;
+			}
+			released = true;
+			AdmissionControllerAimdImpl.this.release( start, succeeded );
+		}
+	}
+}
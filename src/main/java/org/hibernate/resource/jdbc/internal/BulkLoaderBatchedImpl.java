@@ -0,0 +1,115 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * Copyright (c) 2014, Red Hat Inc. or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.  All third-party contributions are
+ * distributed under license by Red Hat Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.hibernate.resource.jdbc.internal;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Iterator;
+
+import org.hibernate.HibernateException;
+import org.hibernate.resource.jdbc.BulkLoadOperationSpec;
+import org.hibernate.resource.jdbc.ResourceRegistry;
+import org.hibernate.resource.jdbc.spi.BulkLoader;
+import org.hibernate.resource.jdbc.spi.JdbcObserver;
+
+/**
+ * BulkLoader inserting the rows through JDBC batches of a plain INSERT; works with any database.
+ *
+ * @author Andrea Boriero
+ */
+public class BulkLoaderBatchedImpl implements BulkLoader {
+	/**
+	 * Singleton access
+	 */
+	public static final BulkLoaderBatchedImpl INSTANCE = new BulkLoaderBatchedImpl();
+
+	private BulkLoaderBatchedImpl() {
+	}
+
+	@Override
+	public long load(
+			Connection connection,
+			ResourceRegistry resourceRegistry,
+			JdbcObserver observer,
+			BulkLoadOperationSpec operation) throws SQLException {
+		final String[] columnNames = operation.getColumnNames();
+		final StringBuilder sql = new StringBuilder( "insert into " ).append( operation.getTableName() ).append( " (" );
+		final StringBuilder values = new StringBuilder( " values (" );
+		for ( int i = 0; i < columnNames.length; i++ ) {
+			if ( i > 0 ) {
+				sql.append( ", " );
+				values.append( ", " );
+			}
+			sql.append( columnNames[i] );
+			values.append( '?' );
+		}
+		sql.append( ')' ).append( values ).append( ')' );
+
+		final int batchSize = Math.max( 1, operation.getBatchSize() );
+		final PreparedStatement statement = connection.prepareStatement( sql.toString() );
+		try {
+			resourceRegistry.register( statement, true );
+			long count = 0;
+			int batched = 0;
+			final Iterator<Object[]> rows = operation.getRows();
+			while ( rows.hasNext() ) {
+				final Object[] row = rows.next();
+				if ( row.length != columnNames.length ) {
+					throw new HibernateException(
+							"Bulk load row [" + ( count + batched ) + "] has " + row.length + " values, but "
+									+ columnNames.length + " columns were given"
+					);
+				}
+				for ( int i = 0; i < columnNames.length; i++ ) {
+					statement.setObject( i + 1, row[i] );
+				}
+				statement.addBatch();
+				if ( ++batched == batchSize ) {
+					executeBatch( statement, observer );
+					count += batched;
+					batched = 0;
+				}
+			}
+			if ( batched > 0 ) {
+				executeBatch( statement, observer );
+				count += batched;
+			}
+			return count;
+		}
+		finally {
+			resourceRegistry.release( statement );
+		}
+	}
+
+	private static void executeBatch(PreparedStatement statement, JdbcObserver observer) throws SQLException {
+		observer.jdbcExecuteBatchStart();
+		try {
+			statement.executeBatch();
+		}
+		finally {
+			observer.jdbcExecuteBatchEnd();
+		}
+	}
+}
@@ -0,0 +1,190 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * Copyright (c) 2014, Red Hat Inc. or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.  All third-party contributions are
+ * distributed under license by Red Hat Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.hibernate.resource.jdbc.internal;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.UUID;
+
+import org.hibernate.HibernateException;
+import org.hibernate.resource.jdbc.BulkLoadOperationSpec;
+import org.hibernate.resource.jdbc.ResourceRegistry;
+import org.hibernate.resource.jdbc.spi.BulkLoader;
+import org.hibernate.resource.jdbc.spi.JdbcObserver;
+
+import org.jboss.logging.Logger;
+
+/**
+ * BulkLoader for H2, streaming the rows into a temporary CSV file which H2 then reads in a single
+ * {@code INSERT ... SELECT * FROM CSVREAD(...)} statement.  The file must be readable by the database, so the
+ * database must run in the same process, or on the same host.
+ * <p/>
+ * Character, numeric, boolean, {@link java.sql.Date}, {@link java.sql.Time}, {@link java.sql.Timestamp} and
+ * {@link UUID} values are written as their {@code toString()} form, which H2 converts to the type of their column;
+ * {@code byte[]} values are written hex-encoded, and a {@code null} value loads as SQL NULL.  Values of any other
+ * type are rejected, as their text form is not guaranteed to convert back to the same value.
+ *
+ * @author Andrea Boriero
+ */
+public class BulkLoaderH2CsvImpl implements BulkLoader {
+	private static final Logger log = Logger.getLogger( BulkLoaderH2CsvImpl.class );
+
+	/**
+	 * Singleton access
+	 */
+	public static final BulkLoaderH2CsvImpl INSTANCE = new BulkLoaderH2CsvImpl();
+
+	private BulkLoaderH2CsvImpl() {
+	}
+
+	@Override
+	public long load(
+			Connection connection,
+			ResourceRegistry resourceRegistry,
+			JdbcObserver observer,
+			BulkLoadOperationSpec operation) throws SQLException {
+		final File file;
+		try {
+			file = File.createTempFile( "hibernate-bulk-load", ".csv" );
+		}
+		catch (IOException e) {
+			throw new HibernateException( "Unable to create bulk load file", e );
+		}
+		try {
+			final int rowCount = writeRows( file, operation );
+			if ( rowCount == 0 ) {
+				return 0;
+			}
+
+			final String[] columnNames = operation.getColumnNames();
+			final StringBuilder columns = new StringBuilder();
+			for ( int i = 0; i < columnNames.length; i++ ) {
+				if ( i > 0 ) {
+					columns.append( ',' );
+				}
+				columns.append( columnNames[i] );
+			}
+			// CSVREAD only accepts literals
+			final String sql = "insert into " + operation.getTableName() + " (" + columns + ") select * from CSVREAD("
+					+ literal( file.getAbsolutePath() ) + ", " + literal( columns.toString() ) + ", 'UTF-8')";
+			final PreparedStatement statement = connection.prepareStatement( sql );
+			try {
+				resourceRegistry.register( statement, true );
+				observer.jdbcExecuteStatementStart();
+				try {
+					return statement.executeUpdate();
+				}
+				finally {
+					observer.jdbcExecuteStatementEnd();
+				}
+			}
+			finally {
+				resourceRegistry.release( statement );
+			}
+		}
+		finally {
+			if ( !file.delete() ) {
+				log.debugf( "Unable to delete bulk load file [%s]", file );
+			}
+		}
+	}
+
+	private static int writeRows(File file, BulkLoadOperationSpec operation) {
+		final String[] columnNames = operation.getColumnNames();
+		int rowCount = 0;
+		try {
+			final Writer writer = new BufferedWriter( new OutputStreamWriter( new FileOutputStream( file ), "UTF-8" ) );
+			try {
+				final Iterator<Object[]> rows = operation.getRows();
+				while ( rows.hasNext() ) {
+					final Object[] row = rows.next();
+					if ( row.length != columnNames.length ) {
+						throw new HibernateException(
+								"Bulk load row [" + rowCount + "] has " + row.length + " values, but "
+										+ columnNames.length + " columns were given"
+						);
+					}
+					for ( int i = 0; i < row.length; i++ ) {
+						if ( i > 0 ) {
+							writer.write( ',' );
+						}
+						if ( row[i] != null ) {
+							// quoted, so that an empty string is not read as NULL
+							writer.write( '"' );
+							writer.write( toText( row[i], columnNames[i] ).replace( "\"", "\"\"" ) );
+							writer.write( '"' );
+						}
+					}
+					writer.write( '\n' );
+					rowCount++;
+				}
+			}
+			finally {
+				writer.close();
+			}
+		}
+		catch (IOException e) {
+			throw new HibernateException( "Unable to write bulk load file", e );
+		}
+		return rowCount;
+	}
+
+	private static String toText(Object value, String columnName) {
+		if ( value instanceof byte[] ) {
+			// H2 reads binary values from their hex form
+			final byte[] bytes = (byte[]) value;
+			final StringBuilder hex = new StringBuilder( bytes.length * 2 );
+			for ( byte b : bytes ) {
+				hex.append( Character.forDigit( ( b >> 4 ) & 0xF, 16 ) ).append( Character.forDigit( b & 0xF, 16 ) );
+			}
+			return hex.toString();
+		}
+		if ( value instanceof CharSequence
+				|| value instanceof Number
+				|| value instanceof Boolean
+				|| value instanceof Character
+				|| value instanceof java.sql.Date
+				|| value instanceof java.sql.Time
+				|| value instanceof java.sql.Timestamp
+				|| value instanceof UUID ) {
+			return value.toString();
+		}
+		throw new HibernateException(
+				"Unsupported bulk load value of type [" + value.getClass().getName() + "] for column ["
+						+ columnName + "]"
+		);
+	}
+
+	private static String literal(String value) {
+		return '\'' + value.replace( "'", "''" ) + '\'';
+	}
+}
@@ -0,0 +1,121 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * Copyright (c) 2014, Red Hat Inc. or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.  All third-party contributions are
+ * distributed under license by Red Hat Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.hibernate.resource.jdbc.internal;
+
+import javax.transaction.Synchronization;
+
+import org.hibernate.resource.jdbc.JdbcSession;
+import org.hibernate.resource.jdbc.spi.ConnectionIntentResolver;
+import org.hibernate.resource.jdbc.spi.LogicalConnectionImplementor;
+import org.hibernate.resource.transaction.TransactionCoordinator;
+
+/**
+ * ConnectionIntentResolver which tracks the read/write state of the transactions of a JdbcSession.
+ * <p/>
+ * Work is assumed to write, and so is served by the primary, unless the transaction has been declared read-only via
+ * {@link #markReadOnly()}; marking such a transaction as written is an error.  {@link #markWritten()} records that a
+ * transaction writes, so that it can no longer be declared read-only.  Both states are reset on completion of the
+ * transaction, which is observed through a local Synchronization registered with the TransactionCoordinator.
+ * <p/>
+ * Since the routing decision is made as the Connection is acquired, a read-only transaction must be declared before
+ * it first uses the Connection.  On completion of a read-only transaction the Connection is evicted from the
+ * LogicalConnection, whatever the {@link org.hibernate.ConnectionReleaseMode}, so that the next transaction, which
+ * may write, acquires a Connection routed for it rather than reusing the replica one.
+ *
+ * @author Andrea Boriero
+ */
+public class ConnectionIntentResolverTransactionImpl implements ConnectionIntentResolver, Synchronization {
+	private TransactionCoordinator transactionCoordinator;
+	private LogicalConnectionImplementor logicalConnection;
+
+	private boolean readOnly;
+	private boolean written;
+	private boolean synchronizationRegistered;
+
+	/**
+	 * Specifies the JdbcSession whose transactions are tracked, usually just after it has been built.  Any state
+	 * tracked for the previous JdbcSession is discarded.
+	 *
+	 * @param jdbcSession The JdbcSession
+	 */
+	public void setJdbcSession(JdbcSession jdbcSession) {
+		this.transactionCoordinator = jdbcSession.getTransactionCoordinator();
+		this.logicalConnection = (LogicalConnectionImplementor) jdbcSession.getLogicalConnection();
+		readOnly = false;
+		written = false;
+		synchronizationRegistered = false;
+	}
+
+	/**
+	 * Declare the current transaction as read-only, allowing it to be served by a replica.
+	 */
+	public void markReadOnly() {
+		if ( written ) {
+			throw new IllegalStateException( "Current transaction was marked as written" );
+		}
+		readOnly = true;
+		registerSynchronizationIfNeeded();
+	}
+
+	/**
+	 * Indicate the current transaction writes (or is about to write), so that it cannot be declared read-only.
+	 */
+	public void markWritten() {
+		if ( readOnly ) {
+			throw new IllegalStateException( "Current transaction was declared read-only" );
+		}
+		written = true;
+		registerSynchronizationIfNeeded();
+	}
+
+	private void registerSynchronizationIfNeeded() {
+		if ( synchronizationRegistered || transactionCoordinator == null ) {
+			return;
+		}
+		transactionCoordinator.getLocalSynchronizations().registerSynchronization( this );
+		synchronizationRegistered = true;
+	}
+
+	@Override
+	public boolean isReadOnlyWork() {
+		return readOnly;
+	}
+
+	@Override
+	public void beforeCompletion() {
+	}
+
+	@Override
+	public void afterCompletion(int status) {
+		final boolean wasReadOnly = readOnly;
+		readOnly = false;
+		written = false;
+		synchronizationRegistered = false;
+
+		if ( wasReadOnly && logicalConnection.isOpen() && logicalConnection.isPhysicallyConnected() ) {
+			// the Connection may come from a replica
+			logicalConnection.evictPhysicalConnection();
+		}
+	}
+}
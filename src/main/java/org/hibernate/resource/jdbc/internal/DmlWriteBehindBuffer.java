@@ -0,0 +1,252 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * Copyright (c) 2014, Red Hat Inc. or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.  All third-party contributions are
+ * distributed under license by Red Hat Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.hibernate.resource.jdbc.internal;
+
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.hibernate.resource.jdbc.DmlOperationFailedException;
+import org.hibernate.resource.jdbc.DmlOperationSpec;
+import org.hibernate.resource.jdbc.ResourceRegistry;
+import org.hibernate.resource.jdbc.spi.JdbcObserver;
+
+/**
+ * Queues DML operations and performs them as JDBC batches, one per SQL string.
+ * <p/>
+ * By default operations are performed in the order they were queued: an operation only joins the last queued batch
+ * if it is of the same SQL, and starts a new batch otherwise.
+ * <p/>
+ * With reordering enabled, an operation joins the last queued batch of its SQL unless a batch queued after that one
+ * touches the same table, in which case it starts a new batch: operations on the same table are so performed in the
+ * order they were queued, while operations on different tables may be reordered.  This is unsafe when operations on
+ * different tables depend on each other, e.g. a child row inserted after its parent row may join an earlier batch
+ * of child rows, and so be inserted before its parent.  The table is taken from the SQL ({@code insert into},
+ * {@code update}, {@code delete from} or {@code merge into}); an operation whose table is not recognized is ordered
+ * against all the others.
+ *
+ * @author Andrea Boriero
+ */
+public class DmlWriteBehindBuffer {
+	private static final Pattern TABLE_PATTERN = Pattern.compile(
+			"^\\s*(?:insert\\s+into|update|delete\\s+from|merge\\s+into)\\s+([^\\s(]+)",
+			Pattern.CASE_INSENSITIVE
+	);
+
+	private final boolean reorderingEnabled;
+	private final List<Batch> batches = new ArrayList<Batch>();
+	private int size;
+
+	public DmlWriteBehindBuffer() {
+		this( false );
+	}
+
+	/**
+	 * Creates a buffer.
+	 *
+	 * @param reorderingEnabled Whether operations on different tables may be reordered to form fewer batches
+	 */
+	public DmlWriteBehindBuffer(boolean reorderingEnabled) {
+		this.reorderingEnabled = reorderingEnabled;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public void add(DmlOperationSpec operation) {
+		final String sql = operation.getSql();
+		final String table = tableOf( sql );
+		for ( int i = batches.size() - 1; i >= 0; i-- ) {
+			final Batch batch = batches.get( i );
+			if ( batch.sql.equals( sql ) ) {
+				batch.operations.add( operation );
+				size++;
+				return;
+			}
+			if ( !reorderingEnabled || batch.table == null || table == null || batch.table.equals( table ) ) {
+				break;
+			}
+		}
+		batches.add( new Batch( sql, table, operation ) );
+		size++;
+	}
+
+	/**
+	 * Discard the queued operations.
+	 */
+	public void clear() {
+		batches.clear();
+		size = 0;
+	}
+
+	/**
+	 * Perform, and dequeue, the queued operations.  Should a batch fail, the following ones are discarded, and
+	 * reported as {@link DmlOperationFailedException#getUnexecutedOperations() unexecuted}.
+	 *
+	 * @param connection The JDBC Connection
+	 * @param resourceRegistry The registry of the statements
+	 * @param observer The observer to notify of the batch executions
+	 *
+	 * @throws DmlOperationFailedException Indicates operations failed, or did not affect the expected number of rows
+	 */
+	public void flush(Connection connection, ResourceRegistry resourceRegistry, JdbcObserver observer) {
+		try {
+			for ( int i = 0; i < batches.size(); i++ ) {
+				final Batch batch = batches.get( i );
+				try {
+					final PreparedStatement statement = connection.prepareStatement( batch.sql );
+					try {
+						resourceRegistry.register( statement, true );
+						execute( batch, statement, observer );
+					}
+					finally {
+						resourceRegistry.release( statement );
+					}
+				}
+				catch (BatchUpdateException e) {
+					final List<DmlOperationSpec> failed = failedOperations( batch, e.getUpdateCounts() );
+					throw new DmlOperationFailedException(
+							failed.size() + " of " + batch.operations.size() + " batched operations failed [" + batch.sql + "]",
+							failed,
+							operationsAfter( i ),
+							e
+					);
+				}
+				catch (SQLException e) {
+					throw new DmlOperationFailedException(
+							"Unable to perform queued operations [" + batch.sql + "]",
+							Collections.unmodifiableList( batch.operations ),
+							operationsAfter( i ),
+							e
+					);
+				}
+				catch (DmlOperationFailedException e) {
+					throw new DmlOperationFailedException(
+							e.getMessage(),
+							e.getFailedOperations(),
+							operationsAfter( i ),
+							null
+					);
+				}
+			}
+		}
+		finally {
+			clear();
+		}
+	}
+
+	private static void execute(Batch batch, PreparedStatement statement, JdbcObserver observer)
+			throws SQLException {
+		final List<DmlOperationSpec> operations = batch.operations;
+		if ( operations.size() == 1 ) {
+			operations.get( 0 ).getParameterBindings().bindParameters( statement );
+			checkRowCounts( batch, new int[] { statement.executeUpdate() } );
+			return;
+		}
+
+		for ( DmlOperationSpec operation : operations ) {
+			operation.getParameterBindings().bindParameters( statement );
+			statement.addBatch();
+		}
+		final int[] rowCounts;
+		observer.jdbcExecuteBatchStart();
+		try {
+			rowCounts = statement.executeBatch();
+		}
+		finally {
+			observer.jdbcExecuteBatchEnd();
+		}
+		checkRowCounts( batch, rowCounts );
+	}
+
+	private static List<DmlOperationSpec> failedOperations(Batch batch, int[] updateCounts) {
+		final int[] partialRowCounts = updateCounts == null ? new int[0] : updateCounts;
+		final List<DmlOperationSpec> failed = new ArrayList<DmlOperationSpec>();
+		for ( int i = 0; i < batch.operations.size(); i++ ) {
+			// operations past the returned counts were not executed, the driver stopped at the first failure
+			if ( i >= partialRowCounts.length || partialRowCounts[i] == Statement.EXECUTE_FAILED ) {
+				failed.add( batch.operations.get( i ) );
+			}
+		}
+		return Collections.unmodifiableList( failed );
+	}
+
+	private List<DmlOperationSpec> operationsAfter(int batchIndex) {
+		final List<DmlOperationSpec> operations = new ArrayList<DmlOperationSpec>();
+		for ( int i = batchIndex + 1; i < batches.size(); i++ ) {
+			operations.addAll( batches.get( i ).operations );
+		}
+		return Collections.unmodifiableList( operations );
+	}
+
+	private static void checkRowCounts(Batch batch, int[] rowCounts) {
+		List<DmlOperationSpec> failed = null;
+		for ( int i = 0; i < rowCounts.length; i++ ) {
+			final int expected = batch.operations.get( i ).getExpectedRowCount();
+			if ( expected >= 0 && rowCounts[i] >= 0 && rowCounts[i] != expected ) {
+				if ( failed == null ) {
+					failed = new ArrayList<DmlOperationSpec>();
+				}
+				failed.add( batch.operations.get( i ) );
+			}
+		}
+		if ( failed != null ) {
+			throw new DmlOperationFailedException(
+					failed.size() + " of " + rowCounts.length + " operations did not affect the expected number of rows ["
+							+ batch.sql + "]",
+					Collections.unmodifiableList( failed )
+			);
+		}
+	}
+
+	private static String tableOf(String sql) {
+		final Matcher matcher = TABLE_PATTERN.matcher( sql );
+		return matcher.find() ? matcher.group( 1 ).toLowerCase( Locale.ROOT ) : null;
+	}
+
+	private static final class Batch {
+		private final String sql;
+		private final String table;
+		private final List<DmlOperationSpec> operations = new ArrayList<DmlOperationSpec>();
+
+		private Batch(String sql, String table, DmlOperationSpec operation) {
+			this.sql = sql;
+			this.table = table;
+			operations.add( operation );
+		}
+	}
+}
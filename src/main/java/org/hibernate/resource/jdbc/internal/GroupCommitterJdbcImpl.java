@@ -0,0 +1,280 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * Copyright (c) 2014, Red Hat Inc. or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.  All third-party contributions are
+ * distributed under license by Red Hat Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.hibernate.resource.jdbc.internal;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.hibernate.HibernateException;
+import org.hibernate.resource.jdbc.JdbcSession;
+import org.hibernate.resource.jdbc.Operation;
+import org.hibernate.resource.jdbc.spi.JdbcSessionFactory;
+import org.hibernate.resource.jdbc.spi.JdbcSessionOwner;
+import org.hibernate.resource.jdbc.spi.LogicalConnectionImplementor;
+import org.hibernate.resource.transaction.TransactionCoordinator;
+import org.hibernate.resource.transaction.backend.store.spi.GroupCommitter;
+
+import org.jboss.logging.Logger;
+
+/**
+ * GroupCommitter performing JDBC {@link Operation}s on a small number of dedicated JdbcSessions, each driven by its
+ * own thread.  A thread takes the pending local transactions (waiting up to {@code maximumDelay} for at least
+ * {@code maximumGroupSize} of them), performs them within one physical transaction, setting a savepoint before
+ * each local transaction so that a failing one is rolled back alone, and commits once.
+ * <p/>
+ * The owner of the dedicated JdbcSessions must use a plain resource-local TransactionCoordinatorBuilder (not one in
+ * group-commit mode).
+ *
+ * @author Andrea Boriero
+ */
+public class GroupCommitterJdbcImpl implements GroupCommitter<Operation<?>> {
+	private static final Logger log = Logger.getLogger( GroupCommitterJdbcImpl.class );
+
+	private final JdbcSessionOwner owner;
+	private final int maximumGroupSize;
+	private final long maximumDelayNanos;
+
+	private final BlockingQueue<Submission> pendingSubmissions = new LinkedBlockingQueue<Submission>();
+	private final Thread[] workers;
+
+	private volatile boolean closed;
+
+	/**
+	 * Creates the GroupCommitter, starting its threads.
+	 *
+	 * @param owner The owner of the dedicated JdbcSessions
+	 * @param numberOfConnections The number of dedicated JdbcSessions (and threads)
+	 * @param maximumGroupSize The maximum number of local transactions performed within one physical transaction
+	 * @param maximumDelay The time, in milliseconds, a thread waits for a group to fill up before committing it
+	 */
+	public GroupCommitterJdbcImpl(
+			JdbcSessionOwner owner,
+			int numberOfConnections,
+			int maximumGroupSize,
+			long maximumDelay) {
+		if ( numberOfConnections <= 0 ) {
+			throw new IllegalArgumentException( "Number of connections must be greater than 0" );
+		}
+		if ( maximumGroupSize <= 0 ) {
+			throw new IllegalArgumentException( "Maximum group size must be greater than 0" );
+		}
+		this.owner = owner;
+		this.maximumGroupSize = maximumGroupSize;
+		this.maximumDelayNanos = TimeUnit.MILLISECONDS.toNanos( maximumDelay );
+
+		this.workers = new Thread[numberOfConnections];
+		for ( int i = 0; i < numberOfConnections; i++ ) {
+			workers[i] = new Thread( new Worker(), "hibernate-group-commit-" + i );
+			workers[i].setDaemon( true );
+			workers[i].start();
+		}
+	}
+
+	@Override
+	public void submit(List<Operation<?>> workUnits, Callback callback) {
+		if ( closed ) {
+			callback.completed( new HibernateException( "GroupCommitter is closed" ) );
+			return;
+		}
+		final Submission submission = new Submission( workUnits, callback );
+		pendingSubmissions.add( submission );
+		if ( closed && pendingSubmissions.remove( submission ) ) {
+			// close() ran concurrently and may have missed it
+			submission.complete( new HibernateException( "GroupCommitter is closed" ) );
+		}
+	}
+
+	/**
+	 * Stop the threads, once the groups in progress are completed, and close the dedicated JdbcSessions.  The local
+	 * transactions not yet picked up are rolled back.
+	 */
+	public void close() {
+		closed = true;
+		for ( Thread worker : workers ) {
+			worker.interrupt();
+		}
+		for ( Thread worker : workers ) {
+			try {
+				worker.join();
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			}
+		}
+
+		Submission submission;
+		while ( ( submission = pendingSubmissions.poll() ) != null ) {
+			submission.complete( new HibernateException( "GroupCommitter is closed" ) );
+		}
+	}
+
+	private class Worker implements Runnable {
+		@Override
+		public void run() {
+			final JdbcSession jdbcSession = JdbcSessionFactory.INSTANCE.create( owner );
+			try {
+				while ( !closed ) {
+					final List<Submission> group;
+					try {
+						group = takeGroup();
+					}
+					catch (InterruptedException e) {
+						break;
+					}
+					performGroup( jdbcSession, group );
+				}
+			}
+			finally {
+				jdbcSession.close();
+			}
+		}
+	}
+
+	private List<Submission> takeGroup() throws InterruptedException {
+		final List<Submission> group = new ArrayList<Submission>( maximumGroupSize );
+		group.add( pendingSubmissions.take() );
+
+		final long deadline = System.nanoTime() + maximumDelayNanos;
+		while ( group.size() < maximumGroupSize ) {
+			final long remaining = deadline - System.nanoTime();
+			final Submission submission;
+			try {
+				submission = remaining > 0
+						? pendingSubmissions.poll( remaining, TimeUnit.NANOSECONDS )
+						: pendingSubmissions.poll();
+			}
+			catch (InterruptedException e) {
+				// closing; still perform the submissions already taken
+				Thread.currentThread().interrupt();
+				break;
+			}
+			if ( submission == null ) {
+				break;
+			}
+			group.add( submission );
+		}
+		return group;
+	}
+
+	private void performGroup(JdbcSession jdbcSession, List<Submission> group) {
+		final TransactionCoordinator.LocalInflow transaction = jdbcSession.getTransactionCoordinator()
+				.getTransactionDriverControl();
+		final Connection connection;
+		try {
+			transaction.begin();
+			connection = ( (LogicalConnectionImplementor) jdbcSession.getLogicalConnection() ).getPhysicalConnection();
+		}
+		catch (RuntimeException e) {
+			log.debugf( "Unable to begin group commit : %s", e.getMessage() );
+			completeAll( group, e );
+			return;
+		}
+
+		for ( Submission submission : group ) {
+			try {
+				perform( jdbcSession, connection, submission );
+			}
+			catch (SQLException e) {
+				// the savepoint could not be managed, so the physical transaction is in an unknown state
+				log.debugf( "Unable to isolate local transaction within group commit : %s", e.getMessage() );
+				rollback( transaction );
+				completeAll( group, e );
+				return;
+			}
+		}
+
+		try {
+			transaction.commit();
+		}
+		catch (RuntimeException e) {
+			log.debugf( "Group commit failed : %s", e.getMessage() );
+			rollback( transaction );
+			completeAll( group, e );
+			return;
+		}
+
+		log.tracef( "Group of %s local transactions committed", group.size() );
+		for ( Submission submission : group ) {
+			submission.complete( submission.failure );
+		}
+	}
+
+	private void perform(JdbcSession jdbcSession, Connection connection, Submission submission) throws SQLException {
+		final Savepoint savepoint = connection.setSavepoint();
+		try {
+			for ( Operation<?> workUnit : submission.workUnits ) {
+				jdbcSession.accept( workUnit );
+			}
+		}
+		catch (RuntimeException e) {
+			log.debugf( "Local transaction failed within group commit, rolling it back : %s", e.getMessage() );
+			connection.rollback( savepoint );
+			submission.failure = e;
+			return;
+		}
+		connection.releaseSavepoint( savepoint );
+	}
+
+	private static void rollback(TransactionCoordinator.LocalInflow transaction) {
+		try {
+			transaction.rollback();
+		}
+		catch (RuntimeException e) {
+			log.debugf( "Unable to rollback group commit : %s", e.getMessage() );
+		}
+	}
+
+	private static void completeAll(List<Submission> group, Throwable failure) {
+		for ( Submission submission : group ) {
+			submission.complete( submission.failure != null ? submission.failure : failure );
+		}
+	}
+
+	private static class Submission {
+		private final List<Operation<?>> workUnits;
+		private final Callback callback;
+		private Throwable failure;
+
+		private Submission(List<Operation<?>> workUnits, Callback callback) {
+			this.workUnits = workUnits;
+			this.callback = callback;
+		}
+
+		private void complete(Throwable failure) {
+			try {
+				callback.completed( failure );
+			}
+			catch (RuntimeException e) {
+				log.debugf( "Group commit callback failed : %s", e.getMessage() );
+			}
+		}
+	}
+}
@@ -0,0 +1,239 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * Copyright (c) 2014, Red Hat Inc. or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.  All third-party contributions are
+ * distributed under license by Red Hat Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.hibernate.resource.jdbc.internal;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.TimeUnit;
+
+import org.hibernate.resource.jdbc.spi.CircuitBreakerObserver;
+import org.hibernate.resource.jdbc.spi.JdbcConnectionAccess;
+
+import org.jboss.logging.Logger;
+
+import static org.hibernate.resource.jdbc.spi.CircuitBreakerObserver.State;
+
+/**
+ * JdbcConnectionAccess decorator implementing a circuit breaker around Connection acquisition, so that requests fail
+ * fast while the database is unreachable instead of each one waiting for the driver to time out.
+ * <p/>
+ * The circuit opens after {@code failureThreshold} consecutive failed acquisitions; an acquisition slower than
+ * {@code slowAcquisitionThreshold} counts as a failure too (the Connection is handed out nonetheless).  Once
+ * {@code openDuration} has elapsed the circuit becomes half-open: at most {@code halfOpenProbes} acquisitions are
+ * let through concurrently, and as many consecutive successful ones close the circuit, while any failure opens it
+ * again.  Acquisitions refused by the breaker fail with a {@link SQLTransientConnectionException}.
+ * <p/>
+ * Releasing Connections is always delegated.
+ *
+ * @author Andrea Boriero
+ */
+public class JdbcConnectionAccessCircuitBreakerImpl implements JdbcConnectionAccess {
+	private static final Logger log = Logger.getLogger( JdbcConnectionAccessCircuitBreakerImpl.class );
+
+	private static final String CONNECTION_FAILURE_SQL_STATE = "08001";
+
+	private final JdbcConnectionAccess delegate;
+	private final int failureThreshold;
+	private final long slowAcquisitionThresholdNanos;
+	private final long openDurationNanos;
+	private final int halfOpenProbes;
+	private final CircuitBreakerObserver observer;
+
+	// guarded by this
+	private State state = State.CLOSED;
+	private int consecutiveFailures;
+	private long openedAt;
+	private int probesInFlight;
+	private int successfulProbes;
+
+	/**
+	 * Creates the circuit breaker.
+	 *
+	 * @param delegate The guarded JdbcConnectionAccess
+	 * @param failureThreshold The number of consecutive failures opening the circuit
+	 * @param slowAcquisitionThreshold The acquisition time, in milliseconds, above which an acquisition counts as
+	 * failed; a value {@code <= 0} disables latency tracking
+	 * @param openDuration The time, in milliseconds, the circuit stays open before probing the database again
+	 * @param halfOpenProbes The number of probing acquisitions while half-open
+	 * @param observer The observer of state transitions; may be {@code null}
+	 */
+	public JdbcConnectionAccessCircuitBreakerImpl(
+			JdbcConnectionAccess delegate,
+			int failureThreshold,
+			long slowAcquisitionThreshold,
+			long openDuration,
+			int halfOpenProbes,
+			CircuitBreakerObserver observer) {
+		if ( delegate == null ) {
+			throw new IllegalArgumentException( "Delegate JdbcConnectionAccess cannot be null" );
+		}
+		if ( failureThreshold <= 0 ) {
+			throw new IllegalArgumentException( "Failure threshold must be greater than 0" );
+		}
+		if ( halfOpenProbes <= 0 ) {
+			throw new IllegalArgumentException( "Number of half-open probes must be greater than 0" );
+		}
+		this.delegate = delegate;
+		this.failureThreshold = failureThreshold;
+		this.slowAcquisitionThresholdNanos = TimeUnit.MILLISECONDS.toNanos( slowAcquisitionThreshold );
+		this.openDurationNanos = TimeUnit.MILLISECONDS.toNanos( openDuration );
+		this.halfOpenProbes = halfOpenProbes;
+		this.observer = observer;
+	}
+
+	@Override
+	public Connection obtainConnection() throws SQLException {
+		admit();
+
+		final long start = System.nanoTime();
+		final Connection connection;
+		try {
+			connection = delegate.obtainConnection();
+		}
+		catch (SQLException e) {
+			onFailure();
+			throw e;
+		}
+		catch (RuntimeException e) {
+			onFailure();
+			throw e;
+		}
+
+		if ( slowAcquisitionThresholdNanos > 0 && System.nanoTime() - start > slowAcquisitionThresholdNanos ) {
+			log.debug( "Slow JDBC Connection acquisition counted as failure" );
+			onFailure();
+		}
+		else {
+			onSuccess();
+		}
+		return connection;
+	}
+
+	@Override
+	public void releaseConnection(Connection connection) throws SQLException {
+		delegate.releaseConnection( connection );
+	}
+
+	/**
+	 * The current state of the circuit breaker
+	 *
+	 * @return The state
+	 */
+	public synchronized State getState() {
+		return state;
+	}
+
+	private void admit() throws SQLException {
+		State previous = null;
+		synchronized ( this ) {
+			if ( state == State.OPEN ) {
+				if ( System.nanoTime() - openedAt < openDurationNanos ) {
+					throw new SQLTransientConnectionException(
+							"Circuit breaker is open, not acquiring JDBC Connection",
+							CONNECTION_FAILURE_SQL_STATE
+					);
+				}
+				previous = transition( State.HALF_OPEN );
+			}
+			if ( state == State.HALF_OPEN ) {
+				if ( probesInFlight >= halfOpenProbes ) {
+					throw new SQLTransientConnectionException(
+							"Circuit breaker is half-open and all probes are in flight, not acquiring JDBC Connection",
+							CONNECTION_FAILURE_SQL_STATE
+					);
+				}
+				probesInFlight++;
+			}
+		}
+		notifyObserver( previous, State.HALF_OPEN );
+	}
+
+	private void onSuccess() {
+		State previous = null;
+		synchronized ( this ) {
+			if ( state == State.HALF_OPEN ) {
+				releaseProbe();
+				if ( ++successfulProbes >= halfOpenProbes ) {
+					previous = transition( State.CLOSED );
+				}
+			}
+			consecutiveFailures = 0;
+		}
+		notifyObserver( previous, State.CLOSED );
+	}
+
+	private void onFailure() {
+		State previous = null;
+		synchronized ( this ) {
+			if ( state == State.HALF_OPEN ) {
+				releaseProbe();
+				previous = transition( State.OPEN );
+			}
+			else if ( state == State.CLOSED && ++consecutiveFailures >= failureThreshold ) {
+				previous = transition( State.OPEN );
+			}
+		}
+		notifyObserver( previous, State.OPEN );
+	}
+
+	private void releaseProbe() {
+		// the acquisition may have been admitted before the circuit re-opened and became half-open again
+		if ( probesInFlight > 0 ) {
+			probesInFlight--;
+		}
+	}
+
+	/**
+	 * Must be called holding the lock
+	 *
+	 * @return The previous state
+	 */
+	private State transition(State newState) {
+		final State previous = state;
+		state = newState;
+		switch ( newState ) {
+			case OPEN: {
+				openedAt = System.nanoTime();
+				break;
+			}
+			case HALF_OPEN: {
+				probesInFlight = 0;
+				successfulProbes = 0;
+				break;
+			}
+			default: {
+				consecutiveFailures = 0;
+			}
+		}
+		log.debugf( "Circuit breaker state changed from %s to %s", previous, newState );
+		return previous;
+	}
+
+	private void notifyObserver(State previous, State newState) {
+		if ( previous != null && observer != null ) {
+			observer.circuitBreakerStateChanged( previous, newState );
+		}
+	}
+}
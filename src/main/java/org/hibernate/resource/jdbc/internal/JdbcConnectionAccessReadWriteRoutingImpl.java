@@ -0,0 +1,171 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * Copyright (c) 2014, Red Hat Inc. or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.  All third-party contributions are
+ * distributed under license by Red Hat Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.hibernate.resource.jdbc.internal;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.hibernate.resource.jdbc.spi.ConnectionIntentResolver;
+import org.hibernate.resource.jdbc.spi.JdbcConnectionAccess;
+import org.hibernate.resource.jdbc.spi.ReplicaLagProbe;
+import org.hibernate.resource.jdbc.spi.ReplicaSelectionStrategy;
+
+import org.jboss.logging.Logger;
+
+/**
+ * A JdbcConnectionAccess which routes read-only work to replicas of the primary database.
+ * <p/>
+ * The {@link ConnectionIntentResolver} is consulted each time a Connection is obtained.  Read-only work is handed
+ * to the replica chosen by the {@link ReplicaSelectionStrategy}; everything else, as well as read-only work for
+ * which no replica is eligible, is served by the primary.  Connections are always released back to the
+ * JdbcConnectionAccess they were obtained from.
+ * <p/>
+ * Note that the routing decision is made when the Connection is acquired, and the Connection is then held
+ * according to the {@link org.hibernate.ConnectionReleaseMode} in effect; see
+ * {@link ConnectionIntentResolverTransactionImpl} for a resolver which does not let a replica Connection outlive
+ * the read-only transaction it was acquired for.  Replicas are not eligible until their lag has been measured
+ * through {@link #refreshReplicaLag}.
+ *
+ * @author Andrea Boriero
+ */
+public class JdbcConnectionAccessReadWriteRoutingImpl implements JdbcConnectionAccess {
+	private static final Logger log = Logger.getLogger( JdbcConnectionAccessReadWriteRoutingImpl.class );
+
+	private final JdbcConnectionAccess primary;
+	private final List<ReplicaImpl> replicas;
+	private final ReplicaSelectionStrategy selectionStrategy;
+	private final ConnectionIntentResolver intentResolver;
+
+	private transient Map<Connection, JdbcConnectionAccess> connectionOrigins;
+
+	public JdbcConnectionAccessReadWriteRoutingImpl(
+			JdbcConnectionAccess primary,
+			List<JdbcConnectionAccess> replicas,
+			ReplicaSelectionStrategy selectionStrategy,
+			ConnectionIntentResolver intentResolver) {
+		if ( primary == null ) {
+			throw new IllegalArgumentException( "Primary JdbcConnectionAccess cannot be null" );
+		}
+		this.primary = primary;
+		this.replicas = new ArrayList<ReplicaImpl>( replicas.size() );
+		for ( JdbcConnectionAccess replica : replicas ) {
+			this.replicas.add( new ReplicaImpl( replica ) );
+		}
+		this.selectionStrategy = selectionStrategy;
+		this.intentResolver = intentResolver;
+	}
+
+	public List<? extends ReplicaSelectionStrategy.Replica> getReplicas() {
+		return Collections.unmodifiableList( replicas );
+	}
+
+	@Override
+	public Connection obtainConnection() throws SQLException {
+		final JdbcConnectionAccess target = determineTarget();
+		final Connection connection = target.obtainConnection();
+		if ( target != primary ) {
+			connectionOrigins().put( connection, target );
+		}
+		return connection;
+	}
+
+	private JdbcConnectionAccess determineTarget() {
+		if ( replicas.isEmpty() || !intentResolver.isReadOnlyWork() ) {
+			return primary;
+		}
+
+		final ReplicaSelectionStrategy.Replica replica = selectionStrategy.select( replicas );
+		if ( replica == null ) {
+			log.trace( "No replica eligible for read-only work; routing to primary" );
+			return primary;
+		}
+		return replica.getJdbcConnectionAccess();
+	}
+
+	@Override
+	public void releaseConnection(Connection connection) throws SQLException {
+		final JdbcConnectionAccess origin = connectionOrigins().remove( connection );
+		( origin == null ? primary : origin ).releaseConnection( connection );
+	}
+
+	/**
+	 * Re-measures the lag of every replica using the given probe.  Replicas whose lag cannot be measured are
+	 * flagged with a negative lag, which makes them ineligible under the lag-aware selection strategy.
+	 *
+	 * @param probe The probe used to measure the lag
+	 */
+	public void refreshReplicaLag(ReplicaLagProbe probe) {
+		for ( ReplicaImpl replica : replicas ) {
+			replica.refreshLag( probe );
+		}
+	}
+
+	private synchronized Map<Connection, JdbcConnectionAccess> connectionOrigins() {
+		if ( connectionOrigins == null ) {
+			connectionOrigins = Collections.synchronizedMap( new IdentityHashMap<Connection, JdbcConnectionAccess>() );
+		}
+		return connectionOrigins;
+	}
+
+	private static class ReplicaImpl implements ReplicaSelectionStrategy.Replica {
+		private final JdbcConnectionAccess jdbcConnectionAccess;
+		// not measured yet
+		private volatile long lag = -1;
+
+		private ReplicaImpl(JdbcConnectionAccess jdbcConnectionAccess) {
+			this.jdbcConnectionAccess = jdbcConnectionAccess;
+		}
+
+		@Override
+		public JdbcConnectionAccess getJdbcConnectionAccess() {
+			return jdbcConnectionAccess;
+		}
+
+		@Override
+		public long getLag() {
+			return lag;
+		}
+
+		private void refreshLag(ReplicaLagProbe probe) {
+			try {
+				final Connection connection = jdbcConnectionAccess.obtainConnection();
+				try {
+					lag = probe.measureLag( connection );
+				}
+				finally {
+					jdbcConnectionAccess.releaseConnection( connection );
+				}
+			}
+			catch (SQLException e) {
+				log.debugf( "Unable to measure replica lag [%s]", e.getMessage() );
+				lag = -1;
+			}
+		}
+	}
+}
@@ -4,22 +4,39 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 import org.jboss.logging.Logger;
 
 import org.hibernate.HibernateException;
+import org.hibernate.resource.jdbc.BulkLoadOperationSpec;
+import org.hibernate.resource.jdbc.DmlOperationSpec;
+import org.hibernate.resource.jdbc.InsertOperationSpec;
+import org.hibernate.resource.jdbc.KeysetPageOperationSpec;
 import org.hibernate.resource.jdbc.LogicalConnection;
 import org.hibernate.resource.jdbc.Operation;
+import org.hibernate.resource.jdbc.OperationSpec;
 import org.hibernate.resource.jdbc.PreparedStatementQueryOperationSpec;
 import org.hibernate.resource.jdbc.QueryOperationSpec;
 import org.hibernate.resource.jdbc.ResourceRegistry;
 import org.hibernate.resource.jdbc.ScrollableQueryOperationSpec;
+import org.hibernate.resource.jdbc.spi.AdmissionController;
+import org.hibernate.resource.jdbc.spi.BulkLoader;
 import org.hibernate.resource.jdbc.spi.JdbcSessionContext;
 import org.hibernate.resource.jdbc.spi.JdbcSessionImplementor;
 import org.hibernate.resource.jdbc.spi.LogicalConnectionImplementor;
+import org.hibernate.resource.jdbc.spi.ParameterBindings;
+import org.hibernate.resource.jdbc.spi.PreparedQuery;
+import org.hibernate.resource.jdbc.spi.RetryPolicy;
+import org.hibernate.resource.jdbc.spi.RowMapper;
+import org.hibernate.resource.transaction.SynchronizationRegistry;
 import org.hibernate.resource.transaction.TransactionCoordinator;
 import org.hibernate.resource.transaction.TransactionCoordinatorBuilder;
 import org.hibernate.resource.transaction.backend.store.spi.DataStoreTransaction;
+import org.hibernate.resource.transaction.spi.SynchronizationRegistryImplementor;
 import org.hibernate.resource.transaction.spi.TransactionCoordinatorOwner;
 
 import static org.hibernate.resource.jdbc.ScrollableQueryOperationSpec.Result;
@@ -32,17 +49,26 @@ public class JdbcSessionImpl
 				   TransactionCoordinatorOwner {
 	private static final Logger log = Logger.getLogger( JdbcSessionImpl.class );
 
+	private static final long[] NO_KEYS = new long[0];
+
 	private final JdbcSessionContext context;
 	private final LogicalConnectionImplementor logicalConnection;
 	private final TransactionCoordinator transactionCoordinator;
+	private final DmlWriteBehindBuffer writeBehindBuffer;
 
 	private boolean closed;
+	private Boolean queryPackingSupported;
+	private boolean queryPackingVerified;
+
+	private AdmissionController.Permit heldPermit;
+	private int permitDepth;
 
 	public JdbcSessionImpl(
 			JdbcSessionContext context,
 			LogicalConnectionImplementor logicalConnection,
 			TransactionCoordinatorBuilder transactionCoordinatorBuilder) {
 		this.context = context;
+		this.writeBehindBuffer = new DmlWriteBehindBuffer( context.isWriteBehindReorderingEnabled() );
 		this.logicalConnection = logicalConnection;
 		this.transactionCoordinator = transactionCoordinatorBuilder.buildTransactionCoordinator( this );
 	}
@@ -69,11 +95,68 @@ public class JdbcSessionImpl
 		}
 
 		try {
-			logicalConnection.close();
+			if ( !writeBehindBuffer.isEmpty() ) {
+				if ( transactionCoordinator.isJoined() || logicalConnection.getPhysicalJdbcTransaction().isActive() ) {
+					// the transaction will not commit, and the work done so far within it is lost anyway
+					log.warnf(
+							"Discarding %s DML operations queued for write-behind within a transaction left active on close",
+							writeBehindBuffer.size()
+					);
+					writeBehindBuffer.clear();
+				}
+				else {
+					flush();
+				}
+			}
 		}
 		finally {
-			closed = true;
+			try {
+				logicalConnection.close();
+			}
+			finally {
+				closed = true;
+			}
+		}
+	}
+
+	/**
+	 * Close the session, leaving it in a state from which {@link #reopen()} can hand it out again.
+	 * <p/>
+	 * A session is not reusable when it does not manage its own JDBC Connection, or when a transaction is still in
+	 * flight: the completion of that transaction would otherwise be reported to the next user of the session.
+	 *
+	 * @return {@code true} if the session can be reopened; {@code false} if it must be discarded.
+	 */
+	public boolean closeForReuse() {
+		if ( closed ) {
+			return false;
+		}
+
+		final boolean reusable = logicalConnection instanceof LogicalConnectionManagedImpl
+				&& !logicalConnection.getPhysicalJdbcTransaction().isActive()
+				&& !transactionCoordinator.isJoined();
+		close();
+
+		if ( reusable ) {
+			final SynchronizationRegistry synchronizations = transactionCoordinator.getLocalSynchronizations();
+			if ( synchronizations instanceof SynchronizationRegistryImplementor ) {
+				( (SynchronizationRegistryImplementor) synchronizations ).clearSynchronizations();
+			}
 		}
+		return reusable;
+	}
+
+	/**
+	 * Reopen a session previously closed through {@link #closeForReuse()}.  As a newly built session does, the
+	 * reopened session joins the current JTA transaction, if any and if auto-joining is enabled.
+	 */
+	public void reopen() {
+		if ( !closed ) {
+			throw new IllegalStateException( "JdbcSession is still open" );
+		}
+		( (LogicalConnectionManagedImpl) logicalConnection ).reopen();
+		closed = false;
+		transactionCoordinator.pulse();
 	}
 
 	@Override
@@ -86,8 +169,13 @@ public class JdbcSessionImpl
 	@Override
 	@SuppressWarnings("unchecked")
 	public <R> R accept(Operation<R> operation) {
+		flush();
+		final AdmissionController.Permit permit = acquirePermit();
+		boolean succeeded = false;
 		try {
-			return operation.perform( this );
+			final R result = operation.perform( this );
+			succeeded = true;
+			return result;
 		}
 		catch (SQLException e) {
 			throw context.getSqlExceptionHelper().convert( e, "Unable to release JDBC Connection" );
@@ -98,69 +186,734 @@ public class JdbcSessionImpl
 		catch (Exception e) {
 			throw new HibernateException( "Unexpected error performing JdbcOperation", e );
 		}
+		finally {
+			releasePermit( permit, succeeded );
+		}
 	}
 
 	@Override
-	public Result accept(ScrollableQueryOperationSpec operation) {
+	public Result accept(final ScrollableQueryOperationSpec operation) {
+		flush();
+		return executeWithRetry(
+				operation,
+				new Work<Result>() {
+					@Override
+					public Result execute() throws SQLException {
+						return doAccept( operation );
+					}
+				}
+		);
+	}
+
+	private Result doAccept(ScrollableQueryOperationSpec operation) throws SQLException {
+		final PreparedStatement statement = prepareStatement( operation );
+
+		final ResultSet resultSet;
+		boolean success = false;
 		try {
-			final PreparedStatement statement = prepareStatement( operation );
+			resultSet = operation.getStatementExecutor().execute( statement );
+			success = true;
+		}
+		finally {
+			if ( !success ) {
+				getResourceRegistry().release( statement );
+			}
+		}
 
-			final ResultSet resultSet = operation.getStatementExecutor().execute( statement );
+		register( resultSet, statement );
 
-			register( resultSet, statement );
+		return new Result() {
+			@Override
+			public void close() {
+				getResourceRegistry().release( resultSet, statement );
+			}
 
-			return new Result() {
-				@Override
-				public void close() {
-					getResourceRegistry().release( resultSet, statement );
+			@Override
+			public ResultSet getResultSet() {
+				return resultSet;
+			}
+		};
+	}
+
+	@Override
+	public <R> R accept(final PreparedStatementQueryOperationSpec<R> operation) {
+		flush();
+		return executeWithRetry(
+				operation,
+				new Work<R>() {
+					@Override
+					public R execute() throws SQLException {
+						return doAccept( operation );
+					}
 				}
+		);
+	}
+
+	private <R> R doAccept(PreparedStatementQueryOperationSpec<R> operation) throws SQLException {
+		PreparedStatement statement = null;
+		ResultSet resultSet = null;
+		try {
+			statement = prepareStatement( operation );
+
+			resultSet = operation.getStatementExecutor().execute( statement );
+
+			return operation.getResultSetProcessor().extractResults( resultSet );
+		}
+		finally {
+			if ( resultSet != null ) {
+				close( resultSet );
+			}
+			if ( statement != null ) {
+				getResourceRegistry().release( statement );
+			}
+		}
+	}
 
-				@Override
-				public ResultSet getResultSet() {
-					return resultSet;
+	@Override
+	public long[] accept(final InsertOperationSpec operation) {
+		if ( operation.isReturnGeneratedKeys() && !context.isGetGeneratedKeysEnabled() ) {
+			throw new HibernateException( "Generated keys requested, but not enabled for the JdbcSession" );
+		}
+		flush();
+		return executeWithRetry(
+				operation,
+				new Work<long[]>() {
+					@Override
+					public long[] execute() throws SQLException {
+						return doAccept( operation );
+					}
 				}
-			};
+		);
+	}
+
+	private long[] doAccept(InsertOperationSpec operation) throws SQLException {
+		final List<ParameterBindings> rows = operation.getParameterBindings();
+		if ( operation.isMultiRowRewriteEnabled() && operation.getBatchSize() > 1 && rows.size() > 1 ) {
+			final MultiRowInsert multiRowInsert = MultiRowInsert.parse( operation.getSql() );
+			if ( multiRowInsert != null ) {
+				return doAcceptMultiRow( operation, multiRowInsert );
+			}
+			log.debugf( "INSERT cannot be rewritten as a multi-row INSERT : %s", operation.getSql() );
 		}
-		catch (SQLException e) {
-			throw context.getSqlExceptionHelper().convert( e, "" );
+		final boolean returnGeneratedKeys = operation.isReturnGeneratedKeys();
+		final PreparedStatement statement = operation.getInsertStatementBuilder().buildInsertStatement(
+				logicalConnection.getPhysicalConnection(),
+				operation.getSql(),
+				returnGeneratedKeys,
+				operation.getGeneratedKeyColumns()
+		);
+		try {
+			getResourceRegistry().register( statement, true );
+			statement.setQueryTimeout( operation.getQueryTimeout() );
+
+			final long[] keys = returnGeneratedKeys ? new long[rows.size()] : NO_KEYS;
+			int keyCount = 0;
+			final int batchSize = operation.getBatchSize();
+			if ( batchSize > 1 && rows.size() > 1 ) {
+				int batched = 0;
+				for ( ParameterBindings row : rows ) {
+					row.bindParameters( statement );
+					statement.addBatch();
+					if ( ++batched == batchSize ) {
+						keyCount = executeBatch( statement, batched, keys, keyCount );
+						batched = 0;
+					}
+				}
+				if ( batched > 0 ) {
+					executeBatch( statement, batched, keys, keyCount );
+				}
+			}
+			else {
+				for ( ParameterBindings row : rows ) {
+					row.bindParameters( statement );
+					statement.executeUpdate();
+					if ( returnGeneratedKeys ) {
+						keyCount = extractGeneratedKeys( statement, 1, keys, keyCount );
+					}
+				}
+			}
+			return keys;
+		}
+		finally {
+			getResourceRegistry().release( statement );
+		}
+	}
+
+	private long[] doAcceptMultiRow(InsertOperationSpec operation, MultiRowInsert multiRowInsert)
+			throws SQLException {
+		final List<ParameterBindings> rows = operation.getParameterBindings();
+		final boolean returnGeneratedKeys = operation.isReturnGeneratedKeys();
+		final long[] keys = returnGeneratedKeys ? new long[rows.size()] : NO_KEYS;
+		final int maxRows = multiRowInsert.getMaxRows( operation.getBatchSize() );
+		// one statement per power of 2 up to maxRows, each reused for all the chunks of its size
+		final ParameterOffsetHandler[] statements = new ParameterOffsetHandler[Integer.numberOfTrailingZeros( maxRows ) + 1];
+		try {
+			int keyCount = 0;
+			int row = 0;
+			while ( row < rows.size() ) {
+				final int statementRows = MultiRowInsert.getStatementRows( rows.size() - row, maxRows );
+				final int bucket = Integer.numberOfTrailingZeros( statementRows );
+				if ( statements[bucket] == null ) {
+					final PreparedStatement statement = operation.getInsertStatementBuilder().buildInsertStatement(
+							logicalConnection.getPhysicalConnection(),
+							multiRowInsert.getSql( statementRows ),
+							returnGeneratedKeys,
+							operation.getGeneratedKeyColumns()
+					);
+					statements[bucket] = new ParameterOffsetHandler( statement );
+					getResourceRegistry().register( statement, true );
+					statement.setQueryTimeout( operation.getQueryTimeout() );
+				}
+
+				final ParameterOffsetHandler handler = statements[bucket];
+				for ( int i = 0; i < statementRows; i++ ) {
+					handler.setOffset( i * multiRowInsert.getParameterCount() );
+					rows.get( row + i ).bindParameters( handler.getStatement() );
+				}
+				handler.getTarget().executeUpdate();
+				if ( returnGeneratedKeys ) {
+					keyCount = extractGeneratedKeys( handler.getTarget(), statementRows, keys, keyCount );
+				}
+				row += statementRows;
+			}
+			return keys;
+		}
+		finally {
+			for ( ParameterOffsetHandler handler : statements ) {
+				if ( handler != null ) {
+					getResourceRegistry().release( handler.getTarget() );
+				}
+			}
+		}
+	}
+
+	private int executeBatch(PreparedStatement statement, int batched, long[] keys, int keyCount)
+			throws SQLException {
+		context.getObserver().jdbcExecuteBatchStart();
+		try {
+			statement.executeBatch();
+		}
+		finally {
+			context.getObserver().jdbcExecuteBatchEnd();
 		}
+		return keys == NO_KEYS ? keyCount : extractGeneratedKeys( statement, batched, keys, keyCount );
+	}
+
+	/**
+	 * Copy the keys generated by the last execution of the statement into {@code keys}, starting at
+	 * {@code keyCount}.
+	 *
+	 * @return The number of keys extracted so far
+	 */
+	private static int extractGeneratedKeys(PreparedStatement statement, int expected, long[] keys, int keyCount)
+			throws SQLException {
+		int extracted = 0;
+		final ResultSet generatedKeys = statement.getGeneratedKeys();
+		try {
+			while ( extracted < expected && generatedKeys.next() ) {
+				keys[keyCount + extracted++] = generatedKeys.getLong( 1 );
+			}
+		}
+		finally {
+			ResourceRegistryStandardImpl.close( generatedKeys );
+		}
+		if ( extracted < expected ) {
+			throw new HibernateException(
+					"The JDBC driver returned " + extracted + " generated keys for " + expected
+							+ " inserted rows; it may not return generated keys for batched statements"
+			);
+		}
+		return keyCount + extracted;
 	}
 
 	@Override
-	public <R> R accept(PreparedStatementQueryOperationSpec<R> operation) {
+	public <T> KeysetPageOperationSpec.Page<T> accept(final KeysetPageOperationSpec<T> operation) {
+		if ( operation.getLimit() <= 0 ) {
+			throw new HibernateException( "Keyset pagination requires a page size (limit)" );
+		}
+		final KeysetPageQuery query = new KeysetPageQuery( operation );
+		flush();
+		return executeWithRetry(
+				operation,
+				new Work<KeysetPageOperationSpec.Page<T>>() {
+					@Override
+					public KeysetPageOperationSpec.Page<T> execute() throws SQLException {
+						return doAccept( operation, query );
+					}
+				}
+		);
+	}
+
+	private <T> KeysetPageOperationSpec.Page<T> doAccept(
+			final KeysetPageOperationSpec<T> operation,
+			final KeysetPageQuery query) throws SQLException {
+		final int pageSize = operation.getLimit();
 		PreparedStatement statement = null;
 		ResultSet resultSet = null;
 		try {
-			statement = prepareStatement( operation );
+			statement = prepareStatement(
+					operation,
+					query.getSql(),
+					new ParameterBindings() {
+						@Override
+						public void bindParameters(PreparedStatement pageStatement) throws SQLException {
+							query.bindSeekParameters( pageStatement, operation.getContinuationToken() );
+							// one extra row tells whether there is a next page
+							pageStatement.setMaxRows( pageSize + 1 );
+						}
+					}
+			);
 
 			resultSet = operation.getStatementExecutor().execute( statement );
 
-			return operation.getResultSetProcessor().extractResults( resultSet );
-		}
-		catch (SQLException e) {
-			throw context.getSqlExceptionHelper().convert( e, "" );
+			final RowMapper<T> rowMapper = operation.getRowMapper();
+			final List<T> rows = new ArrayList<T>( Math.min( pageSize, 256 ) );
+			while ( rows.size() < pageSize && resultSet.next() ) {
+				rows.add( rowMapper.mapRow( resultSet ) );
+			}
+			Object[] continuationToken = null;
+			if ( rows.size() == pageSize ) {
+				// the key of the last row is only needed if there is a next page, but can no longer be read then
+				final Object[] lastKey = extractKey( resultSet, query );
+				if ( resultSet.next() ) {
+					continuationToken = lastKey;
+				}
+			}
+			return new KeysetPage<T>( Collections.unmodifiableList( rows ), continuationToken );
 		}
 		finally {
 			if ( resultSet != null ) {
 				close( resultSet );
 			}
-			getResourceRegistry().release( statement );
+			if ( statement != null ) {
+				getResourceRegistry().release( statement );
+			}
 		}
 	}
 
+	@Override
+	@SuppressWarnings("unchecked")
+	public List<Object> acceptAll(List<? extends PreparedStatementQueryOperationSpec<?>> operations) {
+		flush();
+		final Object[] results = new Object[operations.size()];
+		final boolean[] packed = new boolean[operations.size()];
+		int packedCount = 0;
+		if ( operations.size() > 1 && supportsQueryPacking() ) {
+			for ( int i = 0; i < operations.size(); i++ ) {
+				if ( isPackable( operations.get( i ) ) ) {
+					packed[i] = true;
+					packedCount++;
+				}
+			}
+		}
+
+		if ( packedCount <= 1 || !acceptPacked( operations, packed, results ) ) {
+			Arrays.fill( packed, false );
+		}
+		for ( int i = 0; i < operations.size(); i++ ) {
+			if ( !packed[i] ) {
+				results[i] = accept( (PreparedStatementQueryOperationSpec<Object>) operations.get( i ) );
+			}
+		}
+		return Arrays.asList( results );
+	}
+
+	@Override
+	public void accept(DmlOperationSpec operation) {
+		writeBehindBuffer.add( operation );
+		final int threshold = context.getWriteBehindThreshold();
+		if ( threshold <= 0 || writeBehindBuffer.size() >= threshold ) {
+			flush();
+		}
+	}
+
+	@Override
+	public long accept(BulkLoadOperationSpec operation) {
+		flush();
+		// let the coordinator join a transaction begun since, so that the load is part of it
+		transactionCoordinator.pulse();
+
+		final BulkLoader bulkLoader = operation.getBulkLoader() == null
+				? BulkLoaderBatchedImpl.INSTANCE
+				: operation.getBulkLoader();
+		// the rows are consumed by the first attempt, there is no retrying a load
+		final AdmissionController.Permit permit = acquirePermit();
+		boolean succeeded = false;
+		try {
+			final long count = bulkLoader.load(
+					logicalConnection.getPhysicalConnection(),
+					getResourceRegistry(),
+					context.getObserver(),
+					operation
+			);
+			succeeded = true;
+			return count;
+		}
+		catch (SQLException e) {
+			throw context.getSqlExceptionHelper().convert( e, "Unable to bulk load rows into " + operation.getTableName() );
+		}
+		finally {
+			releasePermit( permit, succeeded );
+		}
+	}
+
+	@Override
+	public void flush() {
+		if ( writeBehindBuffer.isEmpty() ) {
+			return;
+		}
+		final AdmissionController.Permit permit = acquirePermit();
+		boolean succeeded = false;
+		try {
+			writeBehindBuffer.flush(
+					logicalConnection.getPhysicalConnection(),
+					getResourceRegistry(),
+					context.getObserver()
+			);
+			succeeded = true;
+		}
+		finally {
+			releasePermit( permit, succeeded );
+		}
+	}
+
+	private boolean supportsQueryPacking() {
+		if ( !context.isQueryPackingEnabled() ) {
+			return false;
+		}
+		if ( queryPackingSupported == null ) {
+			try {
+				queryPackingSupported = logicalConnection.getPhysicalConnection()
+						.getMetaData()
+						.supportsMultipleResultSets();
+			}
+			catch (SQLException e) {
+				log.debugf( "Unable to determine support for multiple result sets : %s", e.getMessage() );
+				queryPackingSupported = false;
+			}
+		}
+		return queryPackingSupported;
+	}
+
+	private static boolean isPackable(PreparedStatementQueryOperationSpec<?> operation) {
+		return operation.getQueryStatementBuilder() == StandardQueryPreparedStatementBuilderImpl.INSTANCE
+				&& operation.getStatementExecutor() == PreparedQuery.EXECUTE_QUERY
+				&& ( operation.getResultSetType() == null
+						|| operation.getResultSetType() == QueryOperationSpec.ResultSetType.FORWARD_ONLY )
+				&& ( operation.getResultSetConcurrency() == null
+						|| operation.getResultSetConcurrency() == QueryOperationSpec.ResultSetConcurrency.READ_ONLY )
+				// max rows would apply to all the results
+				&& operation.getLimit() <= 0;
+	}
+
+	/**
+	 * Perform the packed queries as a single statement.
+	 *
+	 * @return {@code true} if the queries were performed; {@code false} if the driver rejected the packed statement,
+	 * in which case the queries must be performed one after the other.  A rejection is only assumed the first time
+	 * queries are packed; once a packed statement has been performed, any error is that of one of the queries.
+	 */
+	private boolean acceptPacked(
+			final List<? extends PreparedStatementQueryOperationSpec<?>> operations,
+			final boolean[] packed,
+			final Object[] results) {
+		boolean idempotent = true;
+		for ( int i = 0; i < operations.size(); i++ ) {
+			idempotent = idempotent && ( !packed[i] || operations.get( i ).isIdempotent() );
+		}
+		final boolean allIdempotent = idempotent;
+		final OperationSpec packedOperation = new OperationSpec() {
+			@Override
+			public boolean isIdempotent() {
+				return allIdempotent;
+			}
+		};
+
+		return executeWithRetry(
+				packedOperation,
+				new Work<Boolean>() {
+					@Override
+					public Boolean execute() throws SQLException {
+						return doAcceptPacked( operations, packed, results );
+					}
+				}
+		);
+	}
+
+	private boolean doAcceptPacked(
+			List<? extends PreparedStatementQueryOperationSpec<?>> operations,
+			boolean[] packed,
+			Object[] results) throws SQLException {
+		final StringBuilder sql = new StringBuilder();
+		int queryTimeout = 0;
+		int fetchSize = 0;
+		for ( int i = 0; i < operations.size(); i++ ) {
+			if ( packed[i] ) {
+				final PreparedStatementQueryOperationSpec<?> operation = operations.get( i );
+				if ( sql.length() > 0 ) {
+					sql.append( ";\n" );
+				}
+				sql.append( operation.getSql() );
+				queryTimeout = Math.max( queryTimeout, operation.getQueryTimeout() );
+				fetchSize = Math.max( fetchSize, operation.getFetchSize() );
+			}
+		}
+
+		PreparedStatement statement = null;
+		try {
+			boolean isResultSet;
+			try {
+				statement = StandardQueryPreparedStatementBuilderImpl.INSTANCE.buildQueryStatement(
+						logicalConnection.getPhysicalConnection(),
+						sql.toString(),
+						null,
+						null
+				);
+				getResourceRegistry().register( statement, true );
+				isResultSet = executePacked( statement, operations, packed, fetchSize, queryTimeout );
+			}
+			catch (SQLException e) {
+				if ( queryPackingVerified || !isSyntaxError( e ) ) {
+					throw e;
+				}
+				// the driver does not accept several statements at once (MySQL without allowMultiQueries e.g.)
+				log.debugf( "Packed queries rejected, performing them one after the other : %s", e.getMessage() );
+				queryPackingSupported = false;
+				return false;
+			}
+			queryPackingVerified = true;
+
+			for ( int i = 0; i < operations.size(); i++ ) {
+				if ( !packed[i] ) {
+					continue;
+				}
+				while ( !isResultSet ) {
+					if ( statement.getUpdateCount() == -1 ) {
+						throw new HibernateException( "Packed statement returned fewer results than it has queries" );
+					}
+					isResultSet = statement.getMoreResults();
+				}
+				final ResultSet resultSet = statement.getResultSet();
+				try {
+					results[i] = operations.get( i ).getResultSetProcessor().extractResults( resultSet );
+				}
+				finally {
+					close( resultSet );
+				}
+				isResultSet = statement.getMoreResults();
+			}
+			return true;
+		}
+		finally {
+			if ( statement != null ) {
+				getResourceRegistry().release( statement );
+			}
+		}
+	}
+
+	private boolean executePacked(
+			PreparedStatement statement,
+			List<? extends PreparedStatementQueryOperationSpec<?>> operations,
+			boolean[] packed,
+			int fetchSize,
+			int queryTimeout) throws SQLException {
+		int parameterOffset = 0;
+		for ( int i = 0; i < operations.size(); i++ ) {
+			if ( packed[i] ) {
+				final PreparedStatementQueryOperationSpec<?> operation = operations.get( i );
+				operation.getParameterBindings().bindParameters(
+						ParameterOffsetHandler.wrap( statement, parameterOffset )
+				);
+				parameterOffset += SqlStrings.countParameters( operation.getSql() );
+			}
+		}
+		statement.setQueryTimeout( queryTimeout );
+		fetchSize = fetchSize > 0 ? fetchSize : context.getFetchSize();
+		if ( fetchSize > 0 ) {
+			statement.setFetchSize( fetchSize );
+		}
+		return statement.execute();
+	}
+
+	private static boolean isSyntaxError(SQLException e) {
+		// syntax error or access rule violation (MySQL, H2), syntax error (PostgreSQL, H2); the other states of
+		// class 42 report missing tables, columns etc. of one of the queries
+		return "42000".equals( e.getSQLState() )
+				|| "42601".equals( e.getSQLState() )
+				|| "42001".equals( e.getSQLState() );
+	}
+
+	private static Object[] extractKey(ResultSet resultSet, KeysetPageQuery query) throws SQLException {
+		final String[] keyLabels = query.getKeyLabels();
+		final Object[] key = new Object[keyLabels.length];
+		for ( int i = 0; i < keyLabels.length; i++ ) {
+			key[i] = resultSet.getObject( keyLabels[i] );
+		}
+		return key;
+	}
+
+	/**
+	 * Acquire an admission permit for an operation.  Permits are re-entrant: an operation performed from within
+	 * another one (e.g. from {@link Operation#perform}) runs under the permit already held by the session, rather
+	 * than waiting for a second one the thread may never obtain.
+	 */
+	private AdmissionController.Permit acquirePermit() {
+		final AdmissionController admissionController = context.getAdmissionController();
+		if ( admissionController == null ) {
+			return null;
+		}
+		if ( permitDepth == 0 ) {
+			heldPermit = admissionController.acquire();
+		}
+		permitDepth++;
+		return heldPermit;
+	}
+
+	private void releasePermit(AdmissionController.Permit permit, boolean succeeded) {
+		if ( permit == null ) {
+			return;
+		}
+		if ( --permitDepth == 0 ) {
+			heldPermit = null;
+			permit.release( succeeded );
+		}
+	}
+
+	/**
+	 * JDBC work performed by {@link #executeWithRetry}.
+	 */
+	private interface Work<T> {
+		T execute() throws SQLException;
+	}
+
+	/**
+	 * Perform the work under an admission permit, performing it again on failure as long as the RetryPolicy allows.
+	 *
+	 * @param operation The operation the work performs, which tells whether it may be retried
+	 * @param work The work
+	 * @param <T> The result type
+	 *
+	 * @return The result of the work
+	 */
+	private <T> T executeWithRetry(OperationSpec operation, Work<T> work) {
+		int attempt = 0;
+		while ( true ) {
+			final AdmissionController.Permit permit = acquirePermit();
+			boolean succeeded = false;
+			SQLException failure;
+			try {
+				final T result = work.execute();
+				succeeded = true;
+				return result;
+			}
+			catch (SQLException e) {
+				failure = e;
+			}
+			finally {
+				releasePermit( permit, succeeded );
+			}
+			if ( !prepareRetry( operation, failure, ++attempt ) ) {
+				throw context.getSqlExceptionHelper().convert( failure, "" );
+			}
+		}
+	}
+
+	/**
+	 * Decide whether the failed operation should be performed again, and if so prepare the retry: replace the
+	 * Connection if it was lost, and wait for the delay prescribed by the RetryPolicy.
+	 *
+	 * @return {@code true} if the operation should be performed again; {@code false} otherwise.
+	 */
+	private boolean prepareRetry(OperationSpec operation, SQLException e, int attempt) {
+		final RetryPolicy retryPolicy = context.getRetryPolicy();
+		if ( retryPolicy == null || !operation.isIdempotent() || !retryPolicy.shouldRetry( e, attempt ) ) {
+			return false;
+		}
+		if ( transactionCoordinator.isJoined() || logicalConnection.getPhysicalJdbcTransaction().isActive() ) {
+			// the work done so far in the transaction is lost (or doomed), retrying the operation alone is unsafe
+			log.debugf( "Not retrying operation failed within a transaction : %s", e.getMessage() );
+			return false;
+		}
+		if ( retryPolicy.isConnectionLost( e ) && !logicalConnection.evictPhysicalConnection() ) {
+			log.debugf( "Not retrying operation, as the lost JDBC Connection cannot be replaced : %s", e.getMessage() );
+			return false;
+		}
+
+		final long delay = retryPolicy.getRetryDelay( attempt );
+		log.debugf( "Retrying operation (attempt %s) in %s ms after transient failure : %s", attempt, delay, e.getMessage() );
+		if ( delay > 0 ) {
+			try {
+				Thread.sleep( delay );
+			}
+			catch (InterruptedException interrupted) {
+				Thread.currentThread().interrupt();
+				return false;
+			}
+		}
+		context.getObserver().jdbcOperationRetry();
+		return true;
+	}
+
 	private PreparedStatement prepareStatement(QueryOperationSpec operation) throws SQLException {
+		return prepareStatement( operation, operation.getSql(), null );
+	}
+
+	/**
+	 * Builds, registers, binds and configures the statement of the operation; the statement is released if any of
+	 * these steps fails.
+	 *
+	 * @param operation The operation
+	 * @param sql The SQL to prepare, in place of the one of the operation
+	 * @param additionalBindings Bindings applied after the ones and the configuration of the operation, or
+	 * {@code null}
+	 */
+	private PreparedStatement prepareStatement(
+			QueryOperationSpec operation,
+			String sql,
+			ParameterBindings additionalBindings) throws SQLException {
 		final PreparedStatement statement = operation.getQueryStatementBuilder().buildQueryStatement(
 				logicalConnection.getPhysicalConnection(),
-				operation.getSql(),
+				sql,
 				operation.getResultSetType(),
 				operation.getResultSetConcurrency()
 		);
+		getResourceRegistry().register( statement, true );
+
+		boolean success = false;
+		try {
+			operation.getParameterBindings().bindParameters( statement );
+			configureStatement( operation, statement );
+			if ( additionalBindings != null ) {
+				additionalBindings.bindParameters( statement );
+			}
+			success = true;
+			return statement;
+		}
+		finally {
+			if ( !success ) {
+				getResourceRegistry().release( statement );
+			}
+		}
+	}
 
-		operation.getParameterBindings().bindParameters( statement );
+	private static class KeysetPage<T> implements KeysetPageOperationSpec.Page<T> {
+		private final List<T> rows;
+		private final Object[] continuationToken;
 
-		configureStatement( operation, statement );
+		private KeysetPage(List<T> rows, Object[] continuationToken) {
+			this.rows = rows;
+			this.continuationToken = continuationToken;
+		}
 
-		return statement;
+		@Override
+		public List<T> getRows() {
+			return rows;
+		}
+
+		@Override
+		public Object[] getContinuationToken() {
+			return continuationToken;
+		}
 	}
 
 	private void register(ResultSet resultSet, Statement statement) {
@@ -170,6 +923,15 @@ public class JdbcSessionImpl
 	private void configureStatement(QueryOperationSpec operation, Statement statement)
 			throws SQLException {
 		statement.setQueryTimeout( operation.getQueryTimeout() );
+
+		final int fetchSize = operation.getFetchSize() > 0 ? operation.getFetchSize() : context.getFetchSize();
+		if ( fetchSize > 0 ) {
+			statement.setFetchSize( fetchSize );
+		}
+		if ( operation.getLimit() > 0 ) {
+			// reset by ResourceRegistryStandardImpl#close(Statement)
+			statement.setMaxRows( operation.getLimit() );
+		}
 	}
 
 	private ResourceRegistry getResourceRegistry() {
@@ -190,16 +952,18 @@ public class JdbcSessionImpl
 
 	@Override
 	public void beforeTransactionCompletion() {
-		// todo : implement
-		// for now, just log...
 		log.trace( "JdbcSessionImpl#beforeTransactionCompletion" );
+		flush();
 	}
 
 	@Override
 	public void afterTransactionCompletion(boolean successful) {
-		// todo : implement
-		// for now, just log...
 		log.tracef( "JdbcSessionImpl#afterTransactionCompletion(%s)", successful );
+		if ( !writeBehindBuffer.isEmpty() ) {
+			// left over by a rollback; they must not leak into the next transaction
+			log.debugf( "Discarding %s DML operations queued for write-behind", writeBehindBuffer.size() );
+			writeBehindBuffer.clear();
+		}
 	}
 
 	private void close(ResultSet resultSet) {
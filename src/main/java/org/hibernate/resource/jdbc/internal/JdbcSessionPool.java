@@ -0,0 +1,164 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * Copyright (c) 2014, Red Hat Inc. or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.  All third-party contributions are
+ * distributed under license by Red Hat Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.hibernate.resource.jdbc.internal;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+
+import org.hibernate.resource.jdbc.spi.JdbcConnectionAccess;
+import org.hibernate.resource.jdbc.spi.JdbcSessionContext;
+import org.hibernate.resource.jdbc.spi.JdbcSessionOwner;
+import org.hibernate.resource.transaction.TransactionCoordinatorBuilder;
+
+import org.jboss.logging.Logger;
+
+/**
+ * Keeps closed {@link JdbcSessionImpl} graphs (session, logical connection, resource registry and transaction
+ * coordinator) for reuse by the next session created on the same thread.
+ * <p/>
+ * Idle sessions are kept per thread, so acquiring and releasing them needs no synchronization.  A session is only
+ * handed out again to an owner exposing the same JdbcSessionContext, JdbcConnectionAccess and
+ * TransactionCoordinatorBuilder as the owner it was built for.
+ *
+ * @author Andrea Boriero
+ */
+public class JdbcSessionPool {
+	private static final Logger log = Logger.getLogger( JdbcSessionPool.class );
+
+	private final int maxIdlePerThread;
+
+	private final ThreadLocal<ArrayDeque<Entry>> idleEntries = new ThreadLocal<ArrayDeque<Entry>>() {
+		@Override
+		protected ArrayDeque<Entry> initialValue() {
+			return new ArrayDeque<Entry>();
+		}
+	};
+
+	/**
+	 * Creates a pool.
+	 *
+	 * @param maxIdlePerThread The maximum number of idle sessions kept per thread
+	 */
+	public JdbcSessionPool(int maxIdlePerThread) {
+		if ( maxIdlePerThread <= 0 ) {
+			throw new IllegalArgumentException( "maxIdlePerThread must be greater than 0" );
+		}
+		this.maxIdlePerThread = maxIdlePerThread;
+	}
+
+	/**
+	 * Obtain an open session for the given owner, reusing an idle one of the current thread when possible.
+	 *
+	 * @param owner The session owner
+	 *
+	 * @return The pooled session
+	 */
+	public JdbcSessionPooledImpl acquire(JdbcSessionOwner owner) {
+		final JdbcSessionContext context = owner.getJdbcSessionContext();
+		final JdbcConnectionAccess jdbcConnectionAccess = owner.getJdbcConnectionAccess();
+		final TransactionCoordinatorBuilder transactionCoordinatorBuilder = owner.getTransactionCoordinatorBuilder();
+
+		final Iterator<Entry> idle = idleEntries.get().iterator();
+		while ( idle.hasNext() ) {
+			final Entry entry = idle.next();
+			if ( entry.context == context
+					&& entry.jdbcConnectionAccess == jdbcConnectionAccess
+					&& entry.transactionCoordinatorBuilder == transactionCoordinatorBuilder ) {
+				idle.remove();
+				log.trace( "Reusing idle JdbcSession" );
+				entry.session.reopen();
+				return new JdbcSessionPooledImpl( entry, this );
+			}
+		}
+
+		final LogicalConnectionManagedImpl logicalConnection = new LogicalConnectionManagedImpl(
+				jdbcConnectionAccess,
+				context
+		);
+		final JdbcSessionImpl session = new JdbcSessionImpl(
+				context,
+				logicalConnection,
+				transactionCoordinatorBuilder
+		);
+		return new JdbcSessionPooledImpl(
+				new Entry( session, context, jdbcConnectionAccess, transactionCoordinatorBuilder ),
+				this
+		);
+	}
+
+	/**
+	 * Make a closed session available to the current thread again.  Once the thread holds its maximum number of
+	 * idle sessions, the least recently released one is dropped.
+	 *
+	 * @param entry The closed session
+	 */
+	void release(Entry entry) {
+		final ArrayDeque<Entry> idle = idleEntries.get();
+		if ( idle.size() >= maxIdlePerThread ) {
+			idle.pollLast();
+		}
+		idle.addFirst( entry );
+	}
+
+	/**
+	 * The number of idle sessions held for the current thread.
+	 *
+	 * @return The number of idle sessions
+	 */
+	public int getIdleCount() {
+		return idleEntries.get().size();
+	}
+
+	/**
+	 * Drop the idle sessions held for the current thread, e.g. before returning it to a container-managed pool.
+	 */
+	public void clear() {
+		idleEntries.remove();
+	}
+
+	/**
+	 * A pooled session, along with the owner state it was built from.
+	 */
+	static final class Entry {
+		private final JdbcSessionImpl session;
+		private final JdbcSessionContext context;
+		private final JdbcConnectionAccess jdbcConnectionAccess;
+		private final TransactionCoordinatorBuilder transactionCoordinatorBuilder;
+
+		private Entry(
+				JdbcSessionImpl session,
+				JdbcSessionContext context,
+				JdbcConnectionAccess jdbcConnectionAccess,
+				TransactionCoordinatorBuilder transactionCoordinatorBuilder) {
+			this.session = session;
+			this.context = context;
+			this.jdbcConnectionAccess = jdbcConnectionAccess;
+			this.transactionCoordinatorBuilder = transactionCoordinatorBuilder;
+		}
+
+		JdbcSessionImpl getSession() {
+			return session;
+		}
+	}
+}
@@ -0,0 +1,299 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * Copyright (c) 2014, Red Hat Inc. or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.  All third-party contributions are
+ * distributed under license by Red Hat Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.hibernate.resource.jdbc.internal;
+
+import java.sql.Connection;
+import java.util.List;
+
+import org.hibernate.ResourceClosedException;
+import org.hibernate.resource.jdbc.BulkLoadOperationSpec;
+import org.hibernate.resource.jdbc.DmlOperationSpec;
+import org.hibernate.resource.jdbc.InsertOperationSpec;
+import org.hibernate.resource.jdbc.KeysetPageOperationSpec;
+import org.hibernate.resource.jdbc.LogicalConnection;
+import org.hibernate.resource.jdbc.Operation;
+import org.hibernate.resource.jdbc.PreparedStatementQueryOperationSpec;
+import org.hibernate.resource.jdbc.ResourceRegistry;
+import org.hibernate.resource.jdbc.ScrollableQueryOperationSpec;
+import org.hibernate.resource.jdbc.spi.JdbcSessionImplementor;
+import org.hibernate.resource.jdbc.spi.LogicalConnectionImplementor;
+import org.hibernate.resource.jdbc.spi.PhysicalJdbcTransaction;
+import org.hibernate.resource.transaction.SynchronizationRegistry;
+import org.hibernate.resource.transaction.TransactionCoordinator;
+import org.hibernate.resource.transaction.backend.store.spi.DataStoreTransaction;
+
+import static org.hibernate.resource.jdbc.ScrollableQueryOperationSpec.Result;
+
+/**
+ * The JdbcSession handed out by a {@link JdbcSessionPool}: a handle onto a pooled {@link JdbcSessionImpl}, valid
+ * until it is closed.
+ * <p/>
+ * Closing the handle closes the underlying session and, unless a transaction is still in flight, releases it to the
+ * pool.  Since the session may by then belong to another handle, every call made through a closed handle fails with
+ * a {@link ResourceClosedException}.  The LogicalConnection and TransactionCoordinator obtained from the handle are
+ * guarded views of those of the session, which fail the same way once the handle is closed; they are created once
+ * per handle, and only implement the {@link LogicalConnectionImplementor} and {@link TransactionCoordinator}
+ * contracts.
+ *
+ * @author Andrea Boriero
+ */
+public class JdbcSessionPooledImpl implements JdbcSessionImplementor {
+	private final JdbcSessionPool.Entry entry;
+	private final JdbcSessionPool pool;
+
+	private boolean closed;
+	private GuardedLogicalConnection logicalConnection;
+	private GuardedTransactionCoordinator transactionCoordinator;
+
+	JdbcSessionPooledImpl(JdbcSessionPool.Entry entry, JdbcSessionPool pool) {
+		this.entry = entry;
+		this.pool = pool;
+	}
+
+	private JdbcSessionImpl session() {
+		errorIfClosed();
+		return entry.getSession();
+	}
+
+	private void errorIfClosed() {
+		if ( closed ) {
+			throw new ResourceClosedException( "JdbcSession is closed" );
+		}
+	}
+
+	@Override
+	public boolean isOpen() {
+		return !closed;
+	}
+
+	@Override
+	public void close() {
+		if ( closed ) {
+			return;
+		}
+		closed = true;
+
+		if ( entry.getSession().closeForReuse() ) {
+			pool.release( entry );
+		}
+	}
+
+	@Override
+	public LogicalConnection getLogicalConnection() {
+		errorIfClosed();
+		if ( logicalConnection == null ) {
+			logicalConnection = new GuardedLogicalConnection(
+					(LogicalConnectionImplementor) entry.getSession().getLogicalConnection()
+			);
+		}
+		return logicalConnection;
+	}
+
+	@Override
+	public TransactionCoordinator getTransactionCoordinator() {
+		errorIfClosed();
+		if ( transactionCoordinator == null ) {
+			transactionCoordinator = new GuardedTransactionCoordinator( entry.getSession().getTransactionCoordinator() );
+		}
+		return transactionCoordinator;
+	}
+
+	@Override
+	public <R> R accept(Operation<R> operation) {
+		return session().accept( operation );
+	}
+
+	@Override
+	public <R> R accept(PreparedStatementQueryOperationSpec<R> operation) {
+		return session().accept( operation );
+	}
+
+	@Override
+	public Result accept(ScrollableQueryOperationSpec operation) {
+		return session().accept( operation );
+	}
+
+	@Override
+	public long[] accept(InsertOperationSpec operation) {
+		return session().accept( operation );
+	}
+
+	@Override
+	public <T> KeysetPageOperationSpec.Page<T> accept(KeysetPageOperationSpec<T> operation) {
+		return session().accept( operation );
+	}
+
+	@Override
+	public List<Object> acceptAll(List<? extends PreparedStatementQueryOperationSpec<?>> operations) {
+		return session().acceptAll( operations );
+	}
+
+	@Override
+	public void accept(DmlOperationSpec operation) {
+		session().accept( operation );
+	}
+
+	@Override
+	public long accept(BulkLoadOperationSpec operation) {
+		return session().accept( operation );
+	}
+
+	@Override
+	public void flush() {
+		session().flush();
+	}
+
+	@Override
+	public boolean isReadyToSerialize() {
+		return session().isReadyToSerialize();
+	}
+
+	@Override
+	public DataStoreTransaction getResourceLocalTransaction() {
+		return session().getResourceLocalTransaction();
+	}
+
+	/**
+	 * The LogicalConnection of the session, as seen through this handle
+	 */
+	private class GuardedLogicalConnection implements LogicalConnectionImplementor {
+		private final LogicalConnectionImplementor delegate;
+
+		private GuardedLogicalConnection(LogicalConnectionImplementor delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public boolean isOpen() {
+			return !closed && delegate.isOpen();
+		}
+
+		@Override
+		public Connection close() {
+			errorIfClosed();
+			return delegate.close();
+		}
+
+		@Override
+		public boolean isPhysicallyConnected() {
+			errorIfClosed();
+			return delegate.isPhysicallyConnected();
+		}
+
+		@Override
+		public ResourceRegistry getResourceRegistry() {
+			errorIfClosed();
+			return delegate.getResourceRegistry();
+		}
+
+		@Override
+		public Connection getPhysicalConnection() {
+			errorIfClosed();
+			return delegate.getPhysicalConnection();
+		}
+
+		@Override
+		public void afterStatement() {
+			errorIfClosed();
+			delegate.afterStatement();
+		}
+
+		@Override
+		public void afterTransaction() {
+			errorIfClosed();
+			delegate.afterTransaction();
+		}
+
+		@Override
+		public Connection manualDisconnect() {
+			errorIfClosed();
+			return delegate.manualDisconnect();
+		}
+
+		@Override
+		public void manualReconnect(Connection suppliedConnection) {
+			errorIfClosed();
+			delegate.manualReconnect( suppliedConnection );
+		}
+
+		@Override
+		public LogicalConnectionImplementor makeShareableCopy() {
+			errorIfClosed();
+			return delegate.makeShareableCopy();
+		}
+
+		@Override
+		public boolean evictPhysicalConnection() {
+			errorIfClosed();
+			return delegate.evictPhysicalConnection();
+		}
+
+		@Override
+		public PhysicalJdbcTransaction getPhysicalJdbcTransaction() {
+			errorIfClosed();
+			return delegate.getPhysicalJdbcTransaction();
+		}
+	}
+
+	/**
+	 * The TransactionCoordinator of the session, as seen through this handle
+	 */
+	private class GuardedTransactionCoordinator implements TransactionCoordinator {
+		private final TransactionCoordinator delegate;
+
+		private GuardedTransactionCoordinator(TransactionCoordinator delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public void explicitJoin() {
+			errorIfClosed();
+			delegate.explicitJoin();
+		}
+
+		@Override
+		public boolean isJoined() {
+			errorIfClosed();
+			return delegate.isJoined();
+		}
+
+		@Override
+		public void pulse() {
+			errorIfClosed();
+			delegate.pulse();
+		}
+
+		@Override
+		public LocalInflow getTransactionDriverControl() {
+			errorIfClosed();
+			return delegate.getTransactionDriverControl();
+		}
+
+		@Override
+		public SynchronizationRegistry getLocalSynchronizations() {
+			errorIfClosed();
+			return delegate.getLocalSynchronizations();
+		}
+	}
+}
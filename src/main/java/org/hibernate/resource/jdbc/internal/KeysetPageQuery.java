@@ -0,0 +1,145 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * Copyright (c) 2014, Red Hat Inc. or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.  All third-party contributions are
+ * distributed under license by Red Hat Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.hibernate.resource.jdbc.internal;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import org.hibernate.HibernateException;
+import org.hibernate.resource.jdbc.KeysetPageOperationSpec;
+
+/**
+ * The SQL of a {@link KeysetPageOperationSpec}, with its seek predicate and ORDER BY clause appended.  For the key
+ * columns {@code (a, b)} in ascending order, the seek predicate is
+ * {@code (a > ? or (a = ? and b > ?))}; row value comparisons would be shorter, but are not supported everywhere.
+ * An existing WHERE condition is parenthesized, so that the seek predicate applies to all of it.
+ *
+ * @author Andrea Boriero
+ */
+public class KeysetPageQuery {
+	private final String sql;
+	private final int parameterCount;
+	private final String[] keyLabels;
+
+	/**
+	 * Render the SQL of the page.
+	 *
+	 * @param operation The spec of the page
+	 */
+	public KeysetPageQuery(KeysetPageOperationSpec<?> operation) {
+		final String[] keyColumns = operation.getKeyColumns();
+		if ( keyColumns == null || keyColumns.length == 0 ) {
+			throw new HibernateException( "Keyset pagination requires at least one key column" );
+		}
+		final String sql = operation.getSql();
+		final Object[] token = operation.getContinuationToken();
+		if ( token != null && token.length != keyColumns.length ) {
+			throw new HibernateException(
+					"Continuation token has " + token.length + " values for " + keyColumns.length + " key columns"
+			);
+		}
+
+		final StringBuilder buffer = new StringBuilder( sql.length() + 64 * keyColumns.length );
+		if ( token == null ) {
+			buffer.append( sql );
+		}
+		else {
+			final int whereIndex = SqlStrings.indexOfTopLevel( sql, "where" );
+			if ( whereIndex >= 0 ) {
+				final int conditionIndex = whereIndex + "where".length();
+				buffer.append( sql, 0, conditionIndex )
+						.append( " (" )
+						.append( sql.substring( conditionIndex ).trim() )
+						.append( ") and (" );
+			}
+			else {
+				buffer.append( sql ).append( " where (" );
+			}
+			final String comparison = operation.isDescending() ? " < ?" : " > ?";
+			for ( int i = 0; i < keyColumns.length; i++ ) {
+				if ( i > 0 ) {
+					buffer.append( " or (" );
+				}
+				for ( int j = 0; j < i; j++ ) {
+					buffer.append( keyColumns[j] ).append( " = ? and " );
+				}
+				buffer.append( keyColumns[i] ).append( comparison );
+				if ( i > 0 ) {
+					buffer.append( ')' );
+				}
+			}
+			buffer.append( ')' );
+		}
+		buffer.append( " order by " );
+		for ( int i = 0; i < keyColumns.length; i++ ) {
+			if ( i > 0 ) {
+				buffer.append( ", " );
+			}
+			buffer.append( keyColumns[i] );
+			if ( operation.isDescending() ) {
+				buffer.append( " desc" );
+			}
+		}
+		this.sql = buffer.toString();
+		this.parameterCount = SqlStrings.countParameters( sql );
+
+		this.keyLabels = new String[keyColumns.length];
+		for ( int i = 0; i < keyColumns.length; i++ ) {
+			keyLabels[i] = keyColumns[i].substring( keyColumns[i].lastIndexOf( '.' ) + 1 );
+		}
+	}
+
+	public String getSql() {
+		return sql;
+	}
+
+	/**
+	 * The labels of the key columns, as selected.
+	 *
+	 * @return The key column labels
+	 */
+	public String[] getKeyLabels() {
+		return keyLabels;
+	}
+
+	/**
+	 * Bind the parameters of the seek predicate, after the parameters of the spec.
+	 *
+	 * @param statement The statement
+	 * @param token The continuation token; {@code null} for the first page
+	 *
+	 * @throws SQLException Indicates a problem binding the parameters
+	 */
+	public void bindSeekParameters(PreparedStatement statement, Object[] token) throws SQLException {
+		if ( token == null ) {
+			return;
+		}
+		int position = parameterCount + 1;
+		for ( int i = 0; i < token.length; i++ ) {
+			for ( int j = 0; j <= i; j++ ) {
+				statement.setObject( position++, token[j] );
+			}
+		}
+	}
+}
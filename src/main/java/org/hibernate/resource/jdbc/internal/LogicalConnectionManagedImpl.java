@@ -26,6 +26,7 @@ public class LogicalConnectionManagedImpl extends AbstractLogicalConnectionImple
 	private final JdbcObserver observer;
 	private final SqlExceptionHelper sqlExceptionHelper;
 	private final ConnectionReleaseMode connectionReleaseMode;
+	private final JdbcSessionContext.ConnectionAcquisitionMode connectionAcquisitionMode;
 
 	private Connection physicalConnection;
 	private boolean closed;
@@ -33,7 +34,14 @@ public class LogicalConnectionManagedImpl extends AbstractLogicalConnectionImple
 	public LogicalConnectionManagedImpl(
 			JdbcConnectionAccess jdbcConnectionAccess,
 			JdbcSessionContext jdbcSessionContext) {
-		this( jdbcConnectionAccess, jdbcSessionContext, new ResourceRegistryStandardImpl() );
+		this(
+				jdbcConnectionAccess,
+				jdbcSessionContext,
+				new ResourceRegistryStandardImpl(
+						jdbcSessionContext.getObserver(),
+						jdbcSessionContext.getStatementSoftTimeout()
+				)
+		);
 	}
 
 	public LogicalConnectionManagedImpl(
@@ -44,10 +52,11 @@ public class LogicalConnectionManagedImpl extends AbstractLogicalConnectionImple
 		this.observer = jdbcSessionContext.getObserver();
 		this.sqlExceptionHelper = jdbcSessionContext.getSqlExceptionHelper();
 		this.connectionReleaseMode = jdbcSessionContext.getConnectionReleaseMode();
+		this.connectionAcquisitionMode = jdbcSessionContext.getConnectionAcquisitionMode();
 		this.resourceRegistry = resourceRegistry;
 
-		if ( jdbcSessionContext.getConnectionAcquisitionMode() == JdbcSessionContext.ConnectionAcquisitionMode.IMMEDIATELY ) {
-			if ( jdbcSessionContext.getConnectionReleaseMode() != ConnectionReleaseMode.ON_CLOSE ) {
+		if ( connectionAcquisitionMode == JdbcSessionContext.ConnectionAcquisitionMode.IMMEDIATELY ) {
+			if ( connectionReleaseMode != ConnectionReleaseMode.ON_CLOSE ) {
 				throw new IllegalStateException(
 						"Illegal combination of ConnectionAcquisitionMode#IMMEDIATELY with !ConnectionReleaseMode.ON_CLOSE"
 				);
@@ -155,6 +164,35 @@ public class LogicalConnectionManagedImpl extends AbstractLogicalConnectionImple
 		}
 	}
 
+	@Override
+	public boolean evictPhysicalConnection() {
+		errorIfClosed();
+
+		if ( isActive() ) {
+			log.debug( "Cannot evict JDBC Connection while a transaction is in progress" );
+			return false;
+		}
+
+		getResourceRegistry().releaseResources();
+
+		if ( physicalConnection != null ) {
+			log.debug( "Evicting JDBC Connection after failure" );
+			observer.jdbcConnectionReleaseStart();
+			try {
+				jdbcConnectionAccess.releaseConnection( physicalConnection );
+			}
+			catch (SQLException e) {
+				// the Connection is most likely broken already
+				log.debugf( "Unable to release evicted JDBC Connection : %s", e.getMessage() );
+			}
+			finally {
+				physicalConnection = null;
+				observer.jdbcConnectionReleaseEnd();
+			}
+		}
+		return true;
+	}
+
 	@Override
 	public LogicalConnectionImplementor makeShareableCopy() {
 		errorIfClosed();
@@ -184,6 +222,25 @@ public class LogicalConnectionManagedImpl extends AbstractLogicalConnectionImple
 		return null;
 	}
 
+	/**
+	 * Reopen a closed logical connection, so that it (and its ResourceRegistry) can be used for another unit of
+	 * work.  The physical Connection released on close is forgotten; a new one is acquired according to the
+	 * ConnectionAcquisitionMode.
+	 */
+	public void reopen() {
+		if ( !closed ) {
+			throw new IllegalStateException( "Logical connection is still open" );
+		}
+
+		physicalConnection = null;
+		closed = false;
+		log.trace( "Logical connection reopened" );
+
+		if ( connectionAcquisitionMode == JdbcSessionContext.ConnectionAcquisitionMode.IMMEDIATELY ) {
+			acquireConnectionIfNeeded();
+		}
+	}
+
 
 	// PhysicalJdbcTransaction impl ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
 
@@ -93,6 +93,12 @@ public class LogicalConnectionProvidedImpl extends AbstractLogicalConnectionImpl
 		return new LogicalConnectionProvidedImpl( providedConnection );
 	}
 
+	@Override
+	public boolean evictPhysicalConnection() {
+		// the user supplied Connection cannot be replaced
+		return false;
+	}
+
 	@Override
 	public Connection manualDisconnect() {
 		errorIfClosed();
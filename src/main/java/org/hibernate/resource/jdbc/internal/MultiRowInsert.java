@@ -0,0 +1,137 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * Copyright (c) 2014, Red Hat Inc. or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.  All third-party contributions are
+ * distributed under license by Red Hat Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.hibernate.resource.jdbc.internal;
+
+/**
+ * The rewriting of a single-row {@code INSERT ... VALUES (...)} into multi-row
+ * {@code INSERT ... VALUES (...), (...), ...} statements.
+ * <p/>
+ * To keep the number of distinct statements, and so the statement caches, small, the number of rows of a
+ * rewritten statement is always a power of 2: a batch of 37 rows, with at most 16 rows per statement, is inserted
+ * by statements of 16, 16, 4 and 1 rows.  The number of rows is also bounded so that a statement does not exceed
+ * {@link #MAX_PARAMETERS} parameters, a limit most databases accept.
+ *
+ * @author Andrea Boriero
+ */
+public class MultiRowInsert {
+	/**
+	 * The maximum number of parameters of a rewritten statement.
+	 */
+	public static final int MAX_PARAMETERS = 2000;
+
+	private final String prefix;
+	private final String rowValues;
+	private final int parameterCount;
+
+	private MultiRowInsert(String prefix, String rowValues, int parameterCount) {
+		this.prefix = prefix;
+		this.rowValues = rowValues;
+		this.parameterCount = parameterCount;
+	}
+
+	/**
+	 * Parse the given INSERT.
+	 *
+	 * @param sql The SQL of the INSERT
+	 *
+	 * @return The rewriting, or {@code null} if the INSERT is not made of a single VALUES row, with parameters, at
+	 * its very end (e.g. {@code INSERT ... SELECT}, or an INSERT with an {@code ON CONFLICT} clause)
+	 */
+	public static MultiRowInsert parse(String sql) {
+		final String trimmed = sql.trim();
+		if ( !trimmed.regionMatches( true, 0, "insert", 0, 6 ) ) {
+			return null;
+		}
+		final int valuesIndex = SqlStrings.indexOfTopLevel( trimmed, "values" );
+		if ( valuesIndex < 0 ) {
+			return null;
+		}
+		final int openIndex = trimmed.indexOf( '(', valuesIndex );
+		if ( openIndex < 0 || trimmed.substring( valuesIndex + 6, openIndex ).trim().length() > 0 ) {
+			return null;
+		}
+		final int closeIndex = SqlStrings.indexOfClosingParenthesis( trimmed, openIndex );
+		if ( closeIndex != trimmed.length() - 1 ) {
+			return null;
+		}
+		final int parameterCount = SqlStrings.countParameters( trimmed, openIndex, closeIndex );
+		if ( parameterCount == 0 || parameterCount != SqlStrings.countParameters( trimmed ) ) {
+			return null;
+		}
+		return new MultiRowInsert(
+				trimmed.substring( 0, openIndex ),
+				trimmed.substring( openIndex ),
+				parameterCount
+		);
+	}
+
+	/**
+	 * The number of parameters of each row.
+	 *
+	 * @return The number of parameters per row
+	 */
+	public int getParameterCount() {
+		return parameterCount;
+	}
+
+	/**
+	 * The maximum number of rows of the rewritten statements.
+	 *
+	 * @param batchSize The requested maximum
+	 *
+	 * @return The largest power of 2 not exceeding the batch size nor {@link #MAX_PARAMETERS}
+	 */
+	public int getMaxRows(int batchSize) {
+		final int maxRows = Math.max( 1, Math.min( batchSize, MAX_PARAMETERS / parameterCount ) );
+		return Integer.highestOneBit( maxRows );
+	}
+
+	/**
+	 * The number of rows of the next statement.
+	 *
+	 * @param remainingRows The number of rows still to insert
+	 * @param maxRows The maximum number of rows, a power of 2
+	 *
+	 * @return The number of rows, a power of 2
+	 */
+	public static int getStatementRows(int remainingRows, int maxRows) {
+		return remainingRows >= maxRows ? maxRows : Integer.highestOneBit( remainingRows );
+	}
+
+	/**
+	 * The SQL inserting the given number of rows.
+	 *
+	 * @param rows The number of rows
+	 *
+	 * @return The SQL
+	 */
+	public String getSql(int rows) {
+		final StringBuilder buffer = new StringBuilder( prefix.length() + rows * ( rowValues.length() + 2 ) );
+		buffer.append( prefix ).append( rowValues );
+		for ( int i = 1; i < rows; i++ ) {
+			buffer.append( ", " ).append( rowValues );
+		}
+		return buffer.toString();
+	}
+}
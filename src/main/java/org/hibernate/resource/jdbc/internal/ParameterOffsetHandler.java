@@ -0,0 +1,107 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * Copyright (c) 2014, Red Hat Inc. or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.  All third-party contributions are
+ * distributed under license by Red Hat Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.hibernate.resource.jdbc.internal;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+
+/**
+ * Shifts the parameter positions passed to the {@code setXxx} methods of a PreparedStatement, so that
+ * ParameterBindings written for a statement of their own can bind their part of a statement packing several.
+ * The offset may be changed between bindings, so that one proxy serves all the parts of a statement.
+ *
+ * @author Andrea Boriero
+ */
+public class ParameterOffsetHandler implements InvocationHandler {
+	private final PreparedStatement statement;
+	private final PreparedStatement proxy;
+	private int offset;
+
+	public ParameterOffsetHandler(PreparedStatement statement) {
+		this.statement = statement;
+		this.proxy = (PreparedStatement) Proxy.newProxyInstance(
+				ParameterOffsetHandler.class.getClassLoader(),
+				new Class<?>[] { PreparedStatement.class },
+				this
+		);
+	}
+
+	/**
+	 * Wrap the statement so that parameter {@code n} is bound to position {@code n + offset}.
+	 *
+	 * @param statement The statement
+	 * @param offset The number of parameters preceding those to bind
+	 *
+	 * @return The wrapped statement, or the statement itself if the offset is 0
+	 */
+	public static PreparedStatement wrap(PreparedStatement statement, int offset) {
+		if ( offset == 0 ) {
+			return statement;
+		}
+		final ParameterOffsetHandler handler = new ParameterOffsetHandler( statement );
+		handler.setOffset( offset );
+		return handler.getStatement();
+	}
+
+	/**
+	 * The statement shifting the parameter positions.
+	 *
+	 * @return The proxied statement
+	 */
+	public PreparedStatement getStatement() {
+		return proxy;
+	}
+
+	/**
+	 * The statement whose parameter positions are shifted.
+	 *
+	 * @return The target statement
+	 */
+	public PreparedStatement getTarget() {
+		return statement;
+	}
+
+	public void setOffset(int offset) {
+		this.offset = offset;
+	}
+
+	@Override
+	public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+		if ( args != null
+				&& args.length > 1
+				&& method.getName().startsWith( "set" )
+				&& method.getParameterTypes()[0] == int.class ) {
+			args[0] = (Integer) args[0] + offset;
+		}
+		try {
+			return method.invoke( statement, args );
+		}
+		catch (InvocationTargetException e) {
+			throw e.getTargetException();
+		}
+	}
+}
@@ -0,0 +1,75 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * Copyright (c) 2014, Red Hat Inc. or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.  All third-party contributions are
+ * distributed under license by Red Hat Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.hibernate.resource.jdbc.internal;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+
+import org.hibernate.resource.jdbc.spi.ReplicaLagProbe;
+
+/**
+ * Measures replica lag by reading a heartbeat timestamp which is periodically written on the primary and
+ * replicated like any other data.  The lag is the difference between now and the replicated heartbeat.
+ *
+ * @author Andrea Boriero
+ */
+public class ReplicaLagProbeHeartbeatImpl implements ReplicaLagProbe {
+	private final String heartbeatQuery;
+
+	/**
+	 * Creates the probe.
+	 *
+	 * @param heartbeatQuery A query returning the latest heartbeat as a timestamp in the first column of a single row
+	 */
+	public ReplicaLagProbeHeartbeatImpl(String heartbeatQuery) {
+		this.heartbeatQuery = heartbeatQuery;
+	}
+
+	@Override
+	public long measureLag(Connection replicaConnection) throws SQLException {
+		final PreparedStatement statement = replicaConnection.prepareStatement( heartbeatQuery );
+		try {
+			final ResultSet resultSet = statement.executeQuery();
+			try {
+				if ( !resultSet.next() ) {
+					return -1;
+				}
+				final Timestamp heartbeat = resultSet.getTimestamp( 1 );
+				if ( heartbeat == null ) {
+					return -1;
+				}
+				return Math.max( 0, System.currentTimeMillis() - heartbeat.getTime() );
+			}
+			finally {
+				ResourceRegistryStandardImpl.close( resultSet );
+			}
+		}
+		finally {
+			ResourceRegistryStandardImpl.close( statement );
+		}
+	}
+}
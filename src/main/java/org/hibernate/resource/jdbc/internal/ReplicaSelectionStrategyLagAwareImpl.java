@@ -0,0 +1,63 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * Copyright (c) 2014, Red Hat Inc. or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.  All third-party contributions are
+ * distributed under license by Red Hat Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.hibernate.resource.jdbc.internal;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.hibernate.resource.jdbc.spi.ReplicaSelectionStrategy;
+
+/**
+ * Selects, round-robin, among the replicas whose last measured lag is within a configured bound.  When no replica
+ * is within the bound, read-only work goes to the primary.
+ *
+ * @author Andrea Boriero
+ */
+public class ReplicaSelectionStrategyLagAwareImpl implements ReplicaSelectionStrategy {
+	private final long maximumLag;
+	private final AtomicInteger counter = new AtomicInteger();
+
+	/**
+	 * Creates the strategy.
+	 *
+	 * @param maximumLag The maximum acceptable lag, in milliseconds
+	 */
+	public ReplicaSelectionStrategyLagAwareImpl(long maximumLag) {
+		this.maximumLag = maximumLag;
+	}
+
+	@Override
+	public Replica select(List<? extends Replica> replicas) {
+		final int size = replicas.size();
+		final int start = ( counter.getAndIncrement() & Integer.MAX_VALUE ) % Math.max( size, 1 );
+		for ( int i = 0; i < size; i++ ) {
+			final Replica candidate = replicas.get( ( start + i ) % size );
+			final long lag = candidate.getLag();
+			if ( lag >= 0 && lag <= maximumLag ) {
+				return candidate;
+			}
+		}
+		return null;
+	}
+}
@@ -19,6 +19,7 @@ import org.hibernate.JDBCException;
 import org.hibernate.internal.CoreLogging;
 import org.hibernate.internal.CoreMessageLogger;
 import org.hibernate.resource.jdbc.ResourceRegistry;
+import org.hibernate.resource.jdbc.spi.JdbcObserver;
 
 /**
  * @author Steve Ebersole
@@ -33,7 +34,29 @@ public class ResourceRegistryStandardImpl implements ResourceRegistry {
 	private List<Clob> clobs;
 	private List<NClob> nclobs;
 
-	private Statement lastQuery;
+	// may be cancelled from a thread other than the one using the registry
+	private volatile Statement lastQuery;
+
+	private final JdbcObserver observer;
+	private final long cancelableStatementTimeout;
+	private Map<Statement, StatementTimeoutWatchdog.Timeout> timeouts;
+
+	public ResourceRegistryStandardImpl() {
+		this( null, 0 );
+	}
+
+	/**
+	 * Creates a registry which hands statements registered as cancelable to the
+	 * {@link StatementTimeoutWatchdog}.
+	 *
+	 * @param observer The observer to notify of statements cancelled by the watchdog
+	 * @param cancelableStatementTimeout The soft deadline, in milliseconds, for cancelable statements.  A
+	 * value {@code <= 0} disables the watchdog.
+	 */
+	public ResourceRegistryStandardImpl(JdbcObserver observer, long cancelableStatementTimeout) {
+		this.observer = observer;
+		this.cancelableStatementTimeout = cancelableStatementTimeout;
+	}
 
 	@Override
 	public boolean hasRegisteredResources() {
@@ -54,6 +77,16 @@ public class ResourceRegistryStandardImpl implements ResourceRegistry {
 
 		if ( cancelable ) {
 			lastQuery = statement;
+
+			if ( cancelableStatementTimeout > 0 ) {
+				if ( timeouts == null ) {
+					timeouts = new HashMap<Statement, StatementTimeoutWatchdog.Timeout>();
+				}
+				timeouts.put(
+						statement,
+						StatementTimeoutWatchdog.INSTANCE.watch( statement, cancelableStatementTimeout, observer )
+				);
+			}
 		}
 	}
 
@@ -73,6 +106,7 @@ public class ResourceRegistryStandardImpl implements ResourceRegistry {
 			}
 			xref.remove( statement );
 		}
+		unwatch( statement );
 		close( statement );
 
 		if ( lastQuery == statement ) {
@@ -104,6 +138,16 @@ public class ResourceRegistryStandardImpl implements ResourceRegistry {
 		}
 	}
 
+	private void unwatch(Statement statement) {
+		if ( timeouts == null ) {
+			return;
+		}
+		final StatementTimeoutWatchdog.Timeout timeout = timeouts.remove( statement );
+		if ( timeout != null ) {
+			timeout.cancel();
+		}
+	}
+
 	protected void closeAll(Set<ResultSet> resultSets) {
 		for ( ResultSet resultSet : resultSets ) {
 			close( resultSet );
@@ -252,9 +296,10 @@ public class ResourceRegistryStandardImpl implements ResourceRegistry {
 
 	@Override
 	public void cancelLastQuery() {
+		final Statement query = lastQuery;
 		try {
-			if ( lastQuery != null ) {
-				lastQuery.cancel();
+			if ( query != null ) {
+				query.cancel();
 			}
 		}
 		catch (SQLException e) {
@@ -269,6 +314,13 @@ public class ResourceRegistryStandardImpl implements ResourceRegistry {
 	public void releaseResources() {
 		log.trace( "Releasing JDBC resources" );
 
+		if ( timeouts != null ) {
+			for ( StatementTimeoutWatchdog.Timeout timeout : timeouts.values() ) {
+				timeout.cancel();
+			}
+			timeouts.clear();
+		}
+
 		for ( Map.Entry<Statement, Set<ResultSet>> entry : xref.entrySet() ) {
 			if ( entry.getValue() != null ) {
 				closeAll( entry.getValue() );
@@ -0,0 +1,152 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * Copyright (c) 2014, Red Hat Inc. or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.  All third-party contributions are
+ * distributed under license by Red Hat Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.hibernate.resource.jdbc.internal;
+
+import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.SQLTransientException;
+import java.util.Random;
+
+import org.hibernate.resource.jdbc.spi.RetryPolicy;
+
+/**
+ * RetryPolicy classifying failures by SQLState:
+ * <ul>
+ *     <li>class {@code 08} (connection exception) means the Connection was lost</li>
+ *     <li>class {@code 40} (transaction rollback), which includes serialization failures ({@code 40001}) and
+ *     deadlock victims ({@code 40P01} on PostgreSQL), is transient</li>
+ * </ul>
+ * The JDBC 4 {@link SQLTransientException} and {@link SQLRecoverableException} hierarchies are honored as well.
+ * <p/>
+ * Timeouts and cancellations ({@link SQLTimeoutException}, SQLStates {@code 57014}, {@code HY008}, {@code HYT00},
+ * {@code HYT01} and {@code 70100}) are never retried, although transient: the operation was cut off for being slow,
+ * and retrying it would only multiply its latency.
+ * <p/>
+ * Delays grow exponentially from the base delay up to the maximum delay, with "full jitter": the actual delay is
+ * chosen at random below the exponential bound so that clients failing together do not retry together.
+ *
+ * @author Andrea Boriero
+ */
+public class RetryPolicyStandardImpl implements RetryPolicy {
+	private final int maximumRetries;
+	private final long baseDelay;
+	private final long maximumDelay;
+	private final Random random = new Random();
+
+	/**
+	 * Creates the policy.
+	 *
+	 * @param maximumRetries The maximum number of retries of an operation
+	 * @param baseDelay The delay bound of the first retry, in milliseconds
+	 * @param maximumDelay The delay bound of any retry, in milliseconds
+	 */
+	public RetryPolicyStandardImpl(int maximumRetries, long baseDelay, long maximumDelay) {
+		if ( maximumRetries < 0 ) {
+			throw new IllegalArgumentException( "Maximum number of retries cannot be negative" );
+		}
+		if ( baseDelay < 0 || maximumDelay < baseDelay ) {
+			throw new IllegalArgumentException( "Delays must satisfy 0 <= baseDelay <= maximumDelay" );
+		}
+		this.maximumRetries = maximumRetries;
+		this.baseDelay = baseDelay;
+		this.maximumDelay = maximumDelay;
+	}
+
+	@Override
+	public boolean shouldRetry(SQLException exception, int attempt) {
+		if ( attempt > maximumRetries || isTimeout( exception ) ) {
+			return false;
+		}
+		SQLException current = exception;
+		while ( current != null ) {
+			if ( current instanceof SQLTransientException
+					|| current instanceof SQLRecoverableException
+					|| isTransientSqlState( current.getSQLState() ) ) {
+				return true;
+			}
+			current = current.getNextException();
+		}
+		return false;
+	}
+
+	@Override
+	public boolean isConnectionLost(SQLException exception) {
+		SQLException current = exception;
+		while ( current != null ) {
+			if ( current instanceof SQLRecoverableException
+					|| current instanceof SQLTransientConnectionException
+					|| isConnectionSqlState( current.getSQLState() ) ) {
+				return true;
+			}
+			current = current.getNextException();
+		}
+		return false;
+	}
+
+	@Override
+	public long getRetryDelay(int attempt) {
+		long bound = baseDelay;
+		for ( int i = 1; i < attempt && bound < maximumDelay; i++ ) {
+			bound <<= 1;
+		}
+		bound = Math.min( bound, maximumDelay );
+		if ( bound <= 0 ) {
+			return 0;
+		}
+		synchronized ( random ) {
+			return (long) ( random.nextDouble() * ( bound + 1 ) );
+		}
+	}
+
+	private static boolean isTimeout(SQLException exception) {
+		SQLException current = exception;
+		while ( current != null ) {
+			if ( current instanceof SQLTimeoutException || isTimeoutSqlState( current.getSQLState() ) ) {
+				return true;
+			}
+			current = current.getNextException();
+		}
+		return false;
+	}
+
+	private static boolean isTimeoutSqlState(String sqlState) {
+		// query cancelled (PostgreSQL, DB2, H2), operation cancelled and timeouts expired (ODBC / SQL Server),
+		// query execution interrupted (MySQL)
+		return "57014".equals( sqlState )
+				|| "HY008".equals( sqlState )
+				|| "HYT00".equals( sqlState )
+				|| "HYT01".equals( sqlState )
+				|| "70100".equals( sqlState );
+	}
+
+	private static boolean isTransientSqlState(String sqlState) {
+		return isConnectionSqlState( sqlState ) || ( sqlState != null && sqlState.startsWith( "40" ) );
+	}
+
+	private static boolean isConnectionSqlState(String sqlState) {
+		return sqlState != null && sqlState.startsWith( "08" );
+	}
+}
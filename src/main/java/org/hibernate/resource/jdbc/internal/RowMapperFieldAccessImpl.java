@@ -0,0 +1,277 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * Copyright (c) 2014, Red Hat Inc. or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.  All third-party contributions are
+ * distributed under license by Red Hat Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.hibernate.resource.jdbc.internal;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.hibernate.HibernateException;
+import org.hibernate.resource.jdbc.spi.RowMapper;
+
+/**
+ * RowMapper writing each column to the matching field of the mapped class.  The columns, their fields and the
+ * typed getter to read each of them with are all resolved when the mapper is built.
+ *
+ * @author Andrea Boriero
+ *
+ * @see org.hibernate.resource.jdbc.spi.RowMapperFactory
+ */
+public class RowMapperFieldAccessImpl<T> implements RowMapper<T> {
+	private final Constructor<T> constructor;
+	private final String[] labels;
+	private final ColumnWriter[] writers;
+
+	public RowMapperFieldAccessImpl(Class<T> type, ResultSetMetaData metaData) throws SQLException {
+		try {
+			this.constructor = type.getDeclaredConstructor();
+		}
+		catch (NoSuchMethodException e) {
+			throw new HibernateException( "Class [" + type.getName() + "] has no no-argument constructor", e );
+		}
+		constructor.setAccessible( true );
+
+		final Map<String, Field> fields = resolveFields( type );
+		final int columnCount = metaData.getColumnCount();
+		this.labels = new String[columnCount];
+		final List<ColumnWriter> writers = new ArrayList<ColumnWriter>( columnCount );
+		for ( int i = 1; i <= columnCount; i++ ) {
+			labels[i - 1] = metaData.getColumnLabel( i );
+			// the first of several columns matching the same field wins
+			final Field field = fields.remove( normalize( labels[i - 1] ) );
+			if ( field != null ) {
+				writers.add( new ColumnWriter( i, field ) );
+			}
+		}
+		this.writers = writers.toArray( new ColumnWriter[writers.size()] );
+	}
+
+	private static Map<String, Field> resolveFields(Class<?> type) {
+		final Map<String, Field> fields = new HashMap<String, Field>();
+		for ( Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass() ) {
+			for ( Field field : current.getDeclaredFields() ) {
+				final int modifiers = field.getModifiers();
+				if ( Modifier.isStatic( modifiers ) || Modifier.isFinal( modifiers ) || Modifier.isTransient( modifiers ) ) {
+					continue;
+				}
+				final String name = normalize( field.getName() );
+				// a field hides the same-named fields of its superclasses
+				if ( !fields.containsKey( name ) ) {
+					field.setAccessible( true );
+					fields.put( name, field );
+				}
+			}
+		}
+		return fields;
+	}
+
+	private static String normalize(String name) {
+		return name.replace( "_", "" ).toUpperCase( Locale.ROOT );
+	}
+
+	@Override
+	public boolean fits(ResultSetMetaData metaData) throws SQLException {
+		if ( metaData.getColumnCount() != labels.length ) {
+			return false;
+		}
+		for ( int i = 0; i < labels.length; i++ ) {
+			if ( !labels[i].equals( metaData.getColumnLabel( i + 1 ) ) ) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public T mapRow(ResultSet resultSet) throws SQLException {
+		try {
+			final T target = constructor.newInstance();
+			for ( ColumnWriter writer : writers ) {
+				writer.write( resultSet, target );
+			}
+			return target;
+		}
+		catch (InstantiationException e) {
+			throw new HibernateException( "Unable to instantiate [" + constructor.getDeclaringClass().getName() + "]", e );
+		}
+		catch (InvocationTargetException e) {
+			throw new HibernateException(
+					"Unable to instantiate [" + constructor.getDeclaringClass().getName() + "]",
+					e.getTargetException()
+			);
+		}
+		catch (IllegalAccessException e) {
+			throw new HibernateException( "Unable to map row to [" + constructor.getDeclaringClass().getName() + "]", e );
+		}
+	}
+
+	private static final int STRING = 0;
+	private static final int BOOLEAN = 1;
+	private static final int BOOLEAN_WRAPPER = 2;
+	private static final int INT = 3;
+	private static final int INT_WRAPPER = 4;
+	private static final int LONG = 5;
+	private static final int LONG_WRAPPER = 6;
+	private static final int DOUBLE = 7;
+	private static final int DOUBLE_WRAPPER = 8;
+	private static final int BIG_DECIMAL = 9;
+	private static final int DATE = 10;
+	private static final int TIMESTAMP = 11;
+	private static final int BYTES = 12;
+	private static final int OBJECT = 13;
+
+	private static int typeCode(Class<?> type) {
+		if ( type == String.class ) {
+			return STRING;
+		}
+		if ( type == boolean.class ) {
+			return BOOLEAN;
+		}
+		if ( type == Boolean.class ) {
+			return BOOLEAN_WRAPPER;
+		}
+		if ( type == int.class ) {
+			return INT;
+		}
+		if ( type == Integer.class ) {
+			return INT_WRAPPER;
+		}
+		if ( type == long.class ) {
+			return LONG;
+		}
+		if ( type == Long.class ) {
+			return LONG_WRAPPER;
+		}
+		if ( type == double.class ) {
+			return DOUBLE;
+		}
+		if ( type == Double.class ) {
+			return DOUBLE_WRAPPER;
+		}
+		if ( type == BigDecimal.class ) {
+			return BIG_DECIMAL;
+		}
+		if ( type == java.sql.Date.class ) {
+			return DATE;
+		}
+		if ( type == Timestamp.class || type == java.util.Date.class ) {
+			return TIMESTAMP;
+		}
+		if ( type == byte[].class ) {
+			return BYTES;
+		}
+		return OBJECT;
+	}
+
+	/**
+	 * Reads one column with the getter matching the type of its field, and writes the field.  Primitive fields are
+	 * written without boxing; a SQL NULL leaves a primitive field at its default value.
+	 */
+	private static final class ColumnWriter {
+		private final int index;
+		private final Field field;
+		private final int typeCode;
+
+		private ColumnWriter(int index, Field field) {
+			this.index = index;
+			this.field = field;
+			this.typeCode = typeCode( field.getType() );
+		}
+
+		private void write(ResultSet resultSet, Object target) throws SQLException, IllegalAccessException {
+			switch ( typeCode ) {
+				case STRING: {
+					field.set( target, resultSet.getString( index ) );
+					break;
+				}
+				case BOOLEAN: {
+					field.setBoolean( target, resultSet.getBoolean( index ) );
+					break;
+				}
+				case BOOLEAN_WRAPPER: {
+					final boolean value = resultSet.getBoolean( index );
+					field.set( target, resultSet.wasNull() ? null : Boolean.valueOf( value ) );
+					break;
+				}
+				case INT: {
+					field.setInt( target, resultSet.getInt( index ) );
+					break;
+				}
+				case INT_WRAPPER: {
+					final int value = resultSet.getInt( index );
+					field.set( target, resultSet.wasNull() ? null : Integer.valueOf( value ) );
+					break;
+				}
+				case LONG: {
+					field.setLong( target, resultSet.getLong( index ) );
+					break;
+				}
+				case LONG_WRAPPER: {
+					final long value = resultSet.getLong( index );
+					field.set( target, resultSet.wasNull() ? null : Long.valueOf( value ) );
+					break;
+				}
+				case DOUBLE: {
+					field.setDouble( target, resultSet.getDouble( index ) );
+					break;
+				}
+				case DOUBLE_WRAPPER: {
+					final double value = resultSet.getDouble( index );
+					field.set( target, resultSet.wasNull() ? null : Double.valueOf( value ) );
+					break;
+				}
+				case BIG_DECIMAL: {
+					field.set( target, resultSet.getBigDecimal( index ) );
+					break;
+				}
+				case DATE: {
+					field.set( target, resultSet.getDate( index ) );
+					break;
+				}
+				case TIMESTAMP: {
+					field.set( target, resultSet.getTimestamp( index ) );
+					break;
+				}
+				case BYTES: {
+					field.set( target, resultSet.getBytes( index ) );
+					break;
+				}
+				default: {
+					field.set( target, resultSet.getObject( index ) );
+				}
+			}
+		}
+	}
+}
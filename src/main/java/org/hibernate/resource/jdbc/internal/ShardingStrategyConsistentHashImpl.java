@@ -0,0 +1,94 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * Copyright (c) 2014, Red Hat Inc. or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.  All third-party contributions are
+ * distributed under license by Red Hat Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.hibernate.resource.jdbc.internal;
+
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.hibernate.resource.jdbc.spi.ShardingStrategy;
+
+/**
+ * ShardingStrategy based on consistent hashing: each shard is placed on a hash ring a number of times (virtual
+ * nodes), and a key belongs to the first shard found clockwise from the key's own hash.  Adding a shard therefore
+ * only moves the keys falling between the new shard's nodes and their predecessors.
+ * <p/>
+ * Keys are hashed from their {@link Object#hashCode()}, which must be stable across JVMs for the mapping to be
+ * stable (as it is for Strings and the numeric wrappers).
+ *
+ * @author Andrea Boriero
+ */
+public class ShardingStrategyConsistentHashImpl implements ShardingStrategy {
+	private final int virtualNodes;
+
+	private transient int ringShardCount;
+	private transient TreeMap<Integer, Integer> ring;
+
+	public ShardingStrategyConsistentHashImpl() {
+		this( 128 );
+	}
+
+	public ShardingStrategyConsistentHashImpl(int virtualNodes) {
+		if ( virtualNodes <= 0 ) {
+			throw new IllegalArgumentException( "Number of virtual nodes must be greater than 0" );
+		}
+		this.virtualNodes = virtualNodes;
+	}
+
+	@Override
+	public int determineShard(Object shardKey, int numberOfShards) {
+		if ( shardKey == null ) {
+			throw new IllegalArgumentException( "Shard key cannot be null" );
+		}
+		final TreeMap<Integer, Integer> ring = ring( numberOfShards );
+		final SortedMap<Integer, Integer> tail = ring.tailMap( mix( shardKey.hashCode() ) );
+		return tail.isEmpty() ? ring.firstEntry().getValue() : tail.get( tail.firstKey() );
+	}
+
+	private synchronized TreeMap<Integer, Integer> ring(int numberOfShards) {
+		if ( ring == null || ringShardCount != numberOfShards ) {
+			final TreeMap<Integer, Integer> newRing = new TreeMap<Integer, Integer>();
+			for ( int shard = 0; shard < numberOfShards; shard++ ) {
+				for ( int node = 0; node < virtualNodes; node++ ) {
+					newRing.put( mix( shard * 0x9E3779B9 + node * 0x85EBCA6B ), shard );
+				}
+			}
+			ring = newRing;
+			ringShardCount = numberOfShards;
+		}
+		return ring;
+	}
+
+	/**
+	 * The Murmur3 32-bit finalizer, used to spread poorly distributed hash codes over the ring
+	 */
+	private static int mix(int hash) {
+		int h = hash;
+		h ^= h >>> 16;
+		h *= 0x85EBCA6B;
+		h ^= h >>> 13;
+		h *= 0xC2B2AE35;
+		h ^= h >>> 16;
+		return h;
+	}
+}
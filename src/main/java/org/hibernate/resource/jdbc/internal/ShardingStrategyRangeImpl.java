@@ -0,0 +1,85 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * Copyright (c) 2014, Red Hat Inc. or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.  All third-party contributions are
+ * distributed under license by Red Hat Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.hibernate.resource.jdbc.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.hibernate.resource.jdbc.spi.ShardingStrategy;
+
+/**
+ * ShardingStrategy assigning contiguous key ranges to shards.  Shard {@code i} holds the keys lower than the
+ * {@code i}-th (exclusive) upper bound; the last shard holds all keys greater than or equal to the last bound.
+ *
+ * @param <K> The type of the shard keys
+ *
+ * @author Andrea Boriero
+ */
+public class ShardingStrategyRangeImpl<K extends Comparable<? super K>> implements ShardingStrategy {
+	private final List<K> upperBounds;
+
+	/**
+	 * Creates the strategy.
+	 *
+	 * @param upperBounds The exclusive upper bound of every shard but the last, in ascending order
+	 */
+	public ShardingStrategyRangeImpl(List<? extends K> upperBounds) {
+		this.upperBounds = Collections.unmodifiableList( new ArrayList<K>( upperBounds ) );
+		for ( int i = 1; i < this.upperBounds.size(); i++ ) {
+			if ( this.upperBounds.get( i - 1 ).compareTo( this.upperBounds.get( i ) ) >= 0 ) {
+				throw new IllegalArgumentException( "Shard upper bounds must be in strictly ascending order" );
+			}
+		}
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public int determineShard(Object shardKey, int numberOfShards) {
+		if ( shardKey == null ) {
+			throw new IllegalArgumentException( "Shard key cannot be null" );
+		}
+		if ( upperBounds.size() != numberOfShards - 1 ) {
+			throw new IllegalStateException(
+					"Expecting " + ( numberOfShards - 1 ) + " shard upper bounds, but " + upperBounds.size()
+							+ " were given"
+			);
+		}
+
+		// a key of another type fails on compareTo
+		final K key = (K) shardKey;
+		int low = 0;
+		int high = upperBounds.size();
+		while ( low < high ) {
+			final int mid = ( low + high ) >>> 1;
+			if ( key.compareTo( upperBounds.get( mid ) ) < 0 ) {
+				high = mid;
+			}
+			else {
+				low = mid + 1;
+			}
+		}
+		return low;
+	}
+}
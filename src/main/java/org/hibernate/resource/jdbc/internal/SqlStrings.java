@@ -0,0 +1,118 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * Copyright (c) 2014, Red Hat Inc. or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.  All third-party contributions are
+ * distributed under license by Red Hat Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.hibernate.resource.jdbc.internal;
+
+/**
+ * Minimal lexical helpers for the SQL rewritten by the JdbcSession.  String literals are honored; comments and
+ * quoted identifiers are not.
+ *
+ * @author Andrea Boriero
+ */
+final class SqlStrings {
+	private SqlStrings() {
+	}
+
+	/**
+	 * Count the JDBC parameters of the given SQL, ignoring question marks within string literals.
+	 */
+	static int countParameters(String sql) {
+		return countParameters( sql, 0, sql.length() );
+	}
+
+	static int countParameters(String sql, int start, int end) {
+		int count = 0;
+		boolean quoted = false;
+		for ( int i = start; i < end; i++ ) {
+			final char c = sql.charAt( i );
+			if ( c == '\'' ) {
+				quoted = !quoted;
+			}
+			else if ( c == '?' && !quoted ) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Find the given keyword outside of any parentheses and string literal.
+	 *
+	 * @return The index of the keyword, or -1 if not found
+	 */
+	static int indexOfTopLevel(String sql, String keyword) {
+		int depth = 0;
+		boolean quoted = false;
+		for ( int i = 0; i < sql.length(); i++ ) {
+			final char c = sql.charAt( i );
+			if ( c == '\'' ) {
+				quoted = !quoted;
+			}
+			else if ( !quoted ) {
+				if ( c == '(' ) {
+					depth++;
+				}
+				else if ( c == ')' ) {
+					depth--;
+				}
+				else if ( depth == 0
+						&& sql.regionMatches( true, i, keyword, 0, keyword.length() )
+						&& !isIdentifierPart( sql, i - 1 )
+						&& !isIdentifierPart( sql, i + keyword.length() ) ) {
+					return i;
+				}
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Find the parenthesis closing the one at the given index.
+	 *
+	 * @return The index of the closing parenthesis, or -1 if not found
+	 */
+	static int indexOfClosingParenthesis(String sql, int openIndex) {
+		int depth = 0;
+		boolean quoted = false;
+		for ( int i = openIndex; i < sql.length(); i++ ) {
+			final char c = sql.charAt( i );
+			if ( c == '\'' ) {
+				quoted = !quoted;
+			}
+			else if ( !quoted ) {
+				if ( c == '(' ) {
+					depth++;
+				}
+				else if ( c == ')' && --depth == 0 ) {
+					return i;
+				}
+			}
+		}
+		return -1;
+	}
+
+	private static boolean isIdentifierPart(String sql, int index) {
+		return index >= 0 && index < sql.length()
+				&& ( Character.isLetterOrDigit( sql.charAt( index ) ) || sql.charAt( index ) == '_' );
+	}
+}
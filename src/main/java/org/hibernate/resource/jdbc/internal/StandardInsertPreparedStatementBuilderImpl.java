@@ -0,0 +1,59 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * Copyright (c) 2014, Red Hat Inc. or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.  All third-party contributions are
+ * distributed under license by Red Hat Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.hibernate.resource.jdbc.internal;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.hibernate.resource.jdbc.spi.InsertStatementBuilder;
+
+/**
+ * @author Andrea Boriero
+ */
+public class StandardInsertPreparedStatementBuilderImpl implements InsertStatementBuilder {
+
+	public static final StandardInsertPreparedStatementBuilderImpl INSTANCE = new StandardInsertPreparedStatementBuilderImpl();
+
+	private StandardInsertPreparedStatementBuilderImpl() {
+	}
+
+	@Override
+	public PreparedStatement buildInsertStatement(
+			Connection connection,
+			String sql,
+			boolean returnGeneratedKeys,
+			String[] generatedKeyColumns) throws SQLException {
+		if ( !returnGeneratedKeys ) {
+			return connection.prepareStatement( sql );
+		}
+		else if ( generatedKeyColumns != null && generatedKeyColumns.length > 0 ) {
+			return connection.prepareStatement( sql, generatedKeyColumns );
+		}
+		else {
+			return connection.prepareStatement( sql, Statement.RETURN_GENERATED_KEYS );
+		}
+	}
+}
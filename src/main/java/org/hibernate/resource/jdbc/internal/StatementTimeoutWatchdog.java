@@ -0,0 +1,281 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * Copyright (c) 2014, Red Hat Inc. or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.  All third-party contributions are
+ * distributed under license by Red Hat Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.hibernate.resource.jdbc.internal;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+
+import org.hibernate.resource.jdbc.spi.JdbcObserver;
+
+import org.jboss.logging.Logger;
+
+/**
+ * Cancels JDBC statements which outlive a millisecond-granular soft deadline.
+ * <p/>
+ * {@link Statement#setQueryTimeout} is only second-granular, and many drivers implement it poorly.  Here a single
+ * timer wheel, driven by one daemon thread, serves all sessions.  Registering and withdrawing a statement are
+ * cheap, lock-free calls; the watchdog thread parks whenever nothing is being watched.
+ * <p/>
+ * Statements are generally handed to the watchdog by {@link ResourceRegistryStandardImpl} when they are
+ * registered as cancelable, and withdrawn when they are released.
+ *
+ * @author Andrea Boriero
+ */
+public class StatementTimeoutWatchdog {
+	private static final Logger log = Logger.getLogger( StatementTimeoutWatchdog.class );
+
+	/**
+	 * Singleton access
+	 */
+	public static final StatementTimeoutWatchdog INSTANCE = new StatementTimeoutWatchdog( 10, 512 );
+
+	private final long tickNanos;
+	private final int mask;
+	private final Timeout[] wheel;
+
+	private final Queue<Timeout> pendingTimeouts = new ConcurrentLinkedQueue<Timeout>();
+
+	private volatile Thread workerThread;
+
+	// the following are only ever accessed from the worker thread
+	private long startTime;
+	private long tick;
+	private int size;
+
+	/**
+	 * Creates a watchdog.
+	 *
+	 * @param tickMillis The granularity of the wheel, in milliseconds
+	 * @param wheelSize The number of buckets in the wheel; rounded up to a power of 2
+	 */
+	public StatementTimeoutWatchdog(long tickMillis, int wheelSize) {
+		if ( tickMillis <= 0 ) {
+			throw new IllegalArgumentException( "tickMillis must be greater than 0" );
+		}
+		if ( wheelSize <= 0 ) {
+			throw new IllegalArgumentException( "wheelSize must be greater than 0" );
+		}
+		int normalizedWheelSize = 1;
+		while ( normalizedWheelSize < wheelSize ) {
+			normalizedWheelSize <<= 1;
+		}
+		this.tickNanos = TimeUnit.MILLISECONDS.toNanos( tickMillis );
+		this.mask = normalizedWheelSize - 1;
+		this.wheel = new Timeout[normalizedWheelSize];
+	}
+
+	/**
+	 * Start watching the given statement.
+	 *
+	 * @param statement The statement to cancel once the deadline expires
+	 * @param timeoutMillis The deadline, in milliseconds from now
+	 * @param observer The observer to notify of the cancellation; may be {@code null}
+	 *
+	 * @return The handle used to withdraw the statement again
+	 */
+	public Timeout watch(Statement statement, long timeoutMillis, JdbcObserver observer) {
+		if ( statement == null ) {
+			throw new IllegalArgumentException( "Statement to watch cannot be null" );
+		}
+		final Timeout timeout = new Timeout(
+				statement,
+				observer,
+				System.nanoTime() + TimeUnit.MILLISECONDS.toNanos( timeoutMillis )
+		);
+		pendingTimeouts.add( timeout );
+		LockSupport.unpark( ensureStarted() );
+		return timeout;
+	}
+
+	private Thread ensureStarted() {
+		Thread thread = workerThread;
+		if ( thread == null ) {
+			synchronized ( this ) {
+				thread = workerThread;
+				if ( thread == null ) {
+					thread = new Thread( new Worker(), "hibernate-statement-timeout-watchdog" );
+					thread.setDaemon( true );
+					workerThread = thread;
+					thread.start();
+				}
+			}
+		}
+		return thread;
+	}
+
+	private class Worker implements Runnable {
+		@Override
+		public void run() {
+			startTime = System.nanoTime();
+			while ( true ) {
+				if ( size == 0 && pendingTimeouts.isEmpty() ) {
+					// nothing to watch; park until the next registration and start the wheel over
+					LockSupport.park( this );
+					startTime = System.nanoTime();
+					tick = 0;
+					continue;
+				}
+
+				final long deadline = startTime + ( tick + 1 ) * tickNanos;
+				long sleepNanos = deadline - System.nanoTime();
+				while ( sleepNanos > 0 ) {
+					LockSupport.parkNanos( this, sleepNanos );
+					sleepNanos = deadline - System.nanoTime();
+				}
+
+				transferPendingTimeouts();
+				expireTimeouts( (int) ( tick & mask ), System.nanoTime() );
+				tick++;
+			}
+		}
+	}
+
+	private void transferPendingTimeouts() {
+		Timeout timeout;
+		while ( ( timeout = pendingTimeouts.poll() ) != null ) {
+			if ( timeout.state != Timeout.ST_PENDING ) {
+				continue;
+			}
+			final long calculatedTick = Math.max( ( timeout.deadline - startTime ) / tickNanos, tick );
+			timeout.remainingRounds = ( calculatedTick - tick ) / wheel.length;
+
+			final int bucket = (int) ( calculatedTick & mask );
+			timeout.next = wheel[bucket];
+			if ( wheel[bucket] != null ) {
+				wheel[bucket].prev = timeout;
+			}
+			wheel[bucket] = timeout;
+			size++;
+		}
+	}
+
+	private void expireTimeouts(int bucket, long now) {
+		Timeout timeout = wheel[bucket];
+		while ( timeout != null ) {
+			final Timeout next = timeout.next;
+			if ( timeout.state != Timeout.ST_PENDING ) {
+				remove( bucket, timeout );
+			}
+			else if ( timeout.remainingRounds <= 0 && timeout.deadline <= now ) {
+				remove( bucket, timeout );
+				timeout.expire();
+			}
+			else if ( timeout.remainingRounds > 0 ) {
+				timeout.remainingRounds--;
+			}
+			timeout = next;
+		}
+	}
+
+	private void remove(int bucket, Timeout timeout) {
+		if ( timeout.prev != null ) {
+			timeout.prev.next = timeout.next;
+		}
+		else {
+			wheel[bucket] = timeout.next;
+		}
+		if ( timeout.next != null ) {
+			timeout.next.prev = timeout.prev;
+		}
+		timeout.prev = null;
+		timeout.next = null;
+		size--;
+	}
+
+	/**
+	 * Handle to a statement being watched.
+	 */
+	public static final class Timeout {
+		private static final int ST_PENDING = 0;
+		private static final int ST_CANCELLED = 1;
+		private static final int ST_EXPIRED = 2;
+
+		private static final AtomicIntegerFieldUpdater<Timeout> STATE_UPDATER = AtomicIntegerFieldUpdater.newUpdater(
+				Timeout.class,
+				"state"
+		);
+
+		private final Statement statement;
+		private final JdbcObserver observer;
+		private final long deadline;
+
+		private volatile int state = ST_PENDING;
+
+		// the following are only ever accessed from the worker thread
+		private long remainingRounds;
+		private Timeout next;
+		private Timeout prev;
+
+		private Timeout(Statement statement, JdbcObserver observer, long deadline) {
+			this.statement = statement;
+			this.observer = observer;
+			this.deadline = deadline;
+		}
+
+		/**
+		 * Stop watching the statement.
+		 *
+		 * @return {@code true} if the statement was withdrawn before its deadline expired; {@code false} otherwise.
+		 */
+		public boolean cancel() {
+			return STATE_UPDATER.compareAndSet( this, ST_PENDING, ST_CANCELLED );
+		}
+
+		/**
+		 * Has the deadline expired (and the statement been cancelled)?
+		 *
+		 * @return {@code true} if the deadline expired; {@code false} otherwise.
+		 */
+		public boolean isExpired() {
+			return state == ST_EXPIRED;
+		}
+
+		private void expire() {
+			if ( !STATE_UPDATER.compareAndSet( this, ST_PENDING, ST_EXPIRED ) ) {
+				return;
+			}
+
+			log.debugf( "Cancelling JDBC statement [%s] after soft timeout expired", statement );
+			try {
+				statement.cancel();
+			}
+			catch (SQLException e) {
+				log.debugf( "Unable to cancel JDBC statement [%s]", e.getMessage() );
+			}
+			catch (Exception e) {
+				// the statement may be closed concurrently by its owner
+				log.debugf( "Unable to cancel JDBC statement [%s]", e.getMessage() );
+			}
+
+			if ( observer != null ) {
+				observer.jdbcStatementCancelledOnTimeout();
+			}
+		}
+	}
+}
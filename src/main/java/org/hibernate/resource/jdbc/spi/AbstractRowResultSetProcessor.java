@@ -0,0 +1,73 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * Copyright (c) 2014, Red Hat Inc. or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.  All third-party contributions are
+ * distributed under license by Red Hat Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.hibernate.resource.jdbc.spi;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+
+/**
+ * Base ResultSetProcessor extracting results through a {@link RowAccessor}, whose column indexes are resolved
+ * from the ResultSetMetaData on the first execution only and cached for the following ones.
+ * <p/>
+ * The cache belongs to the processor instance, so an instance is meant to serve a single statement shape; a
+ * processor held by a {@link PreparedQuery} does.  Each execution still compares the column labels of the
+ * ResultSet with the cached ones, and should they differ (a {@code select *} after a schema change, or a processor
+ * shared by several statements e.g.), the indexes are resolved again.  Instances are thread-safe as long as
+ * {@link #processRows} is.
+ *
+ * @param <R> The type of the result
+ *
+ * @author Andrea Boriero
+ */
+public abstract class AbstractRowResultSetProcessor<R> implements ResultSetProcessor<R> {
+	private volatile ColumnIndexes columnIndexes;
+
+	@Override
+	public final R extractResults(ResultSet resultSet) throws SQLException {
+		return processRows( new RowAccessor( resultSet, resolveColumnIndexes( resultSet ) ) );
+	}
+
+	private ColumnIndexes resolveColumnIndexes(ResultSet resultSet) throws SQLException {
+		final ResultSetMetaData metaData = resultSet.getMetaData();
+		ColumnIndexes resolved = columnIndexes;
+		if ( resolved == null || !resolved.matches( metaData ) ) {
+			// racing threads resolve the same indexes, whichever is kept does not matter
+			resolved = ColumnIndexes.resolve( metaData );
+			columnIndexes = resolved;
+		}
+		return resolved;
+	}
+
+	/**
+	 * Extract the result from the rows.
+	 *
+	 * @param rows Access to the rows, positioned before the first one
+	 *
+	 * @return The result
+	 *
+	 * @throws SQLException Indicates a problem accessing the rows
+	 */
+	protected abstract R processRows(RowAccessor rows) throws SQLException;
+}
@@ -0,0 +1,53 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * Copyright (c) 2014, Red Hat Inc. or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.  All third-party contributions are
+ * distributed under license by Red Hat Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.hibernate.resource.jdbc.spi;
+
+/**
+ * Bounds the number of operations performed against the database at the same time.  A JdbcSession asks for a
+ * permit before performing each operation, and returns it once the statement has been executed.
+ *
+ * @author Andrea Boriero
+ */
+public interface AdmissionController {
+	/**
+	 * Acquire a permit, waiting for one to become available if needed.
+	 *
+	 * @return The permit
+	 *
+	 * @throws org.hibernate.resource.jdbc.OperationRejectedException if no permit could be granted in time
+	 */
+	public Permit acquire();
+
+	/**
+	 * The permit to perform one operation
+	 */
+	public interface Permit {
+		/**
+		 * Return the permit.
+		 *
+		 * @param succeeded Did the operation succeed?
+		 */
+		public void release(boolean succeeded);
+	}
+}
@@ -0,0 +1,61 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * Copyright (c) 2014, Red Hat Inc. or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.  All third-party contributions are
+ * distributed under license by Red Hat Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.hibernate.resource.jdbc.spi;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import org.hibernate.resource.jdbc.BulkLoadOperationSpec;
+import org.hibernate.resource.jdbc.ResourceRegistry;
+
+/**
+ * Loads rows into a table, typically through a vendor-specific bulk-load facility ({@code COPY}, {@code CSVREAD},
+ * ...).
+ * <p/>
+ * Loaders run within the transaction of the JdbcSession, if any: they must not commit, nor change the
+ * auto-commit mode of the Connection.  The statements they create must be registered with the ResourceRegistry, and
+ * their executions reported to the JdbcObserver.  A row whose number of values differs from the number of columns
+ * is rejected with a {@link org.hibernate.HibernateException}.
+ *
+ * @author Andrea Boriero
+ */
+public interface BulkLoader {
+	/**
+	 * Load the rows of the given spec.
+	 *
+	 * @param connection The JDBC Connection
+	 * @param resourceRegistry The registry of the JDBC resources of the JdbcSession
+	 * @param observer The observer of the JDBC activity of the JdbcSession
+	 * @param operation The specification of the load
+	 *
+	 * @return The number of rows loaded
+	 *
+	 * @throws SQLException Indicates a problem loading the rows
+	 */
+	public long load(
+			Connection connection,
+			ResourceRegistry resourceRegistry,
+			JdbcObserver observer,
+			BulkLoadOperationSpec operation) throws SQLException;
+}
@@ -0,0 +1,58 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * Copyright (c) 2014, Red Hat Inc. or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.  All third-party contributions are
+ * distributed under license by Red Hat Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.hibernate.resource.jdbc.spi;
+
+/**
+ * Observer of the state transitions of a circuit breaker guarding JDBC Connection acquisition.
+ *
+ * @author Andrea Boriero
+ */
+public interface CircuitBreakerObserver {
+	/**
+	 * Notification of a state transition.  Called from the thread whose Connection acquisition (or attempt) caused
+	 * the transition.
+	 *
+	 * @param previousState The state before the transition
+	 * @param newState The state after the transition
+	 */
+	public void circuitBreakerStateChanged(State previousState, State newState);
+
+	/**
+	 * The states of a circuit breaker
+	 */
+	public static enum State {
+		/**
+		 * Connections are acquired normally
+		 */
+		CLOSED,
+		/**
+		 * Connection acquisition fails fast, without reaching the database
+		 */
+		OPEN,
+		/**
+		 * A limited number of probing acquisitions are let through to decide whether to close the circuit again
+		 */
+		HALF_OPEN
+	}
+}
@@ -0,0 +1,121 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * Copyright (c) 2014, Red Hat Inc. or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.  All third-party contributions are
+ * distributed under license by Red Hat Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.hibernate.resource.jdbc.spi;
+
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The (1-based) indexes of the columns of a ResultSet, by column label, resolved once from its
+ * {@link ResultSetMetaData}.  Labels are matched case-insensitively, like {@link java.sql.ResultSet#findColumn}
+ * does; a label used exactly as the driver reports it is found without any case conversion.  Immutable, and so
+ * safe to share between threads.
+ *
+ * @author Andrea Boriero
+ */
+public final class ColumnIndexes {
+	private final String[] labels;
+	private final Map<String, Integer> indexes;
+
+	private ColumnIndexes(String[] labels, Map<String, Integer> indexes) {
+		this.labels = labels;
+		this.indexes = indexes;
+	}
+
+	/**
+	 * Resolve the column indexes of a ResultSet.
+	 *
+	 * @param metaData The metadata of the ResultSet
+	 *
+	 * @return The resolved column indexes
+	 *
+	 * @throws SQLException Indicates a problem accessing the metadata
+	 */
+	public static ColumnIndexes resolve(ResultSetMetaData metaData) throws SQLException {
+		final int columnCount = metaData.getColumnCount();
+		final String[] labels = new String[columnCount];
+		final Map<String, Integer> indexes = new HashMap<String, Integer>( columnCount * 4 );
+		// iterate backwards so that, like findColumn, the first of several columns with the same label wins
+		for ( int i = columnCount; i > 0; i-- ) {
+			final String label = metaData.getColumnLabel( i );
+			labels[i - 1] = label;
+			indexes.put( label, i );
+			indexes.put( normalize( label ), i );
+		}
+		return new ColumnIndexes( labels, indexes );
+	}
+
+	public int getColumnCount() {
+		return labels.length;
+	}
+
+	/**
+	 * Do these indexes apply to a ResultSet?  That is the case when it has the same column labels, in the same order,
+	 * as the ResultSet these indexes were resolved from.
+	 *
+	 * @param metaData The metadata of the ResultSet
+	 *
+	 * @return {@code true} if the indexes apply; {@code false} if they must be resolved again.
+	 *
+	 * @throws SQLException Indicates a problem accessing the metadata
+	 */
+	public boolean matches(ResultSetMetaData metaData) throws SQLException {
+		if ( metaData.getColumnCount() != labels.length ) {
+			return false;
+		}
+		for ( int i = 0; i < labels.length; i++ ) {
+			if ( !labels[i].equals( metaData.getColumnLabel( i + 1 ) ) ) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * The index of the column with the given label.
+	 *
+	 * @param label The column label
+	 *
+	 * @return The (1-based) column index
+	 *
+	 * @throws SQLException If the ResultSet has no column with that label
+	 */
+	public int indexOf(String label) throws SQLException {
+		Integer index = indexes.get( label );
+		if ( index == null ) {
+			index = indexes.get( normalize( label ) );
+			if ( index == null ) {
+				throw new SQLException( "Column [" + label + "] not found in ResultSet" );
+			}
+		}
+		return index;
+	}
+
+	private static String normalize(String label) {
+		return label.toUpperCase( Locale.ROOT );
+	}
+}
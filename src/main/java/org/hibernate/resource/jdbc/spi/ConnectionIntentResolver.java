@@ -0,0 +1,39 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * Copyright (c) 2014, Red Hat Inc. or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.  All third-party contributions are
+ * distributed under license by Red Hat Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.hibernate.resource.jdbc.spi;
+
+/**
+ * Describes the intent of the work about to acquire a JDBC Connection, allowing {@link JdbcConnectionAccess}
+ * implementations to route read-only work (to replicas e.g.) differently from work which writes.
+ *
+ * @author Andrea Boriero
+ */
+public interface ConnectionIntentResolver {
+	/**
+	 * Can the work about to acquire a Connection be served by a read-only copy of the database?
+	 *
+	 * @return {@code true} if the work is known not to write; {@code false} if it writes or may write.
+	 */
+	public boolean isReadOnlyWork();
+}
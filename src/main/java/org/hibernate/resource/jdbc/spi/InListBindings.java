@@ -0,0 +1,263 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * Copyright (c) 2014, Red Hat Inc. or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.  All third-party contributions are
+ * distributed under license by Red Hat Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.hibernate.resource.jdbc.spi;
+
+import java.sql.Array;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.jboss.logging.Logger;
+
+/**
+ * ParameterBindings for an {@code IN} predicate over a (possibly large) list of values, rendering the predicate as
+ * well as binding the values.
+ * <p/>
+ * Rendering {@code column in (?, ?, ...)} with one parameter per value produces a different SQL string for each
+ * list size, which defeats statement caching.  Instead, an InListBindings either:<ul>
+ *     <li>binds the whole list as a single array parameter, when an {@link ArrayBinding} for the database is
+ *     given; there is then a single SQL shape, whatever the size of the list, or</li>
+ *     <li>pads the list, by repeating its last value, to the next power of two; there are then only a handful of
+ *     SQL shapes.</li>
+ * </ul>
+ * The predicate occupies the parameter positions {@code [firstPosition, firstPosition + getParameterCount())}; to
+ * bind other parameters of the statement as well, combine this with other ParameterBindings.
+ * <p/>
+ * An ArrayBinding may create a {@link Array} for each binding, which holds database resources until it is freed:
+ * call {@link #release()} once the statement has been executed.
+ *
+ * @author Andrea Boriero
+ */
+public final class InListBindings implements ParameterBindings {
+	private static final Logger log = Logger.getLogger( InListBindings.class );
+
+	private final Object[] values;
+	private final int firstPosition;
+	private final ArrayBinding arrayBinding;
+	private final int parameterCount;
+	private final List<Array> arrays = new ArrayList<Array>( 1 );
+
+	private InListBindings(Object[] values, int firstPosition, ArrayBinding arrayBinding) {
+		if ( firstPosition < 1 ) {
+			throw new IllegalArgumentException( "firstPosition must be greater than 0" );
+		}
+		this.values = values;
+		this.firstPosition = firstPosition;
+		this.arrayBinding = arrayBinding;
+		this.parameterCount = arrayBinding != null ? 1 : bucketSize( values.length );
+	}
+
+	/**
+	 * Creates InListBindings.
+	 *
+	 * @param values The values of the list
+	 * @param firstPosition The (1-based) position of the first parameter of the predicate
+	 * @param arrayBinding How to bind the list as an array; {@code null} to bind padded lists of parameters
+	 *
+	 * @return The InListBindings
+	 *
+	 * @see ArrayBinding#resolve(DatabaseMetaData, String)
+	 */
+	public static InListBindings create(Collection<?> values, int firstPosition, ArrayBinding arrayBinding) {
+		return new InListBindings( values.toArray(), firstPosition, arrayBinding );
+	}
+
+	/**
+	 * The number of parameters of a padded list of the given size: the next power of two.
+	 *
+	 * @param size The size of the list
+	 *
+	 * @return The number of parameters
+	 */
+	public static int bucketSize(int size) {
+		if ( size <= 1 ) {
+			return size;
+		}
+		return Integer.highestOneBit( size - 1 ) << 1;
+	}
+
+	/**
+	 * Render the predicate testing the given column against the list.
+	 *
+	 * @param column The column (or any SQL expression)
+	 *
+	 * @return The SQL of the predicate
+	 */
+	public String renderPredicate(String column) {
+		if ( arrayBinding != null ) {
+			return arrayBinding.renderPredicate( column );
+		}
+		if ( parameterCount == 0 ) {
+			// "in ()" is not valid SQL
+			return "1 = 0";
+		}
+		final StringBuilder predicate = new StringBuilder( column.length() + 6 + parameterCount * 3 );
+		predicate.append( column ).append( " in (?" );
+		for ( int i = 1; i < parameterCount; i++ ) {
+			predicate.append( ", ?" );
+		}
+		return predicate.append( ')' ).toString();
+	}
+
+	/**
+	 * The number of parameters of the rendered predicate
+	 *
+	 * @return The number of parameters
+	 */
+	public int getParameterCount() {
+		return parameterCount;
+	}
+
+	@Override
+	public void bindParameters(PreparedStatement statement) throws SQLException {
+		if ( arrayBinding != null ) {
+			final Array array = arrayBinding.bind( statement, firstPosition, values );
+			if ( array != null ) {
+				synchronized ( arrays ) {
+					arrays.add( array );
+				}
+			}
+			return;
+		}
+		for ( int i = 0; i < parameterCount; i++ ) {
+			// padding repeats the last value, which leaves the outcome of the predicate unchanged
+			statement.setObject( firstPosition + i, values[Math.min( i, values.length - 1 )] );
+		}
+	}
+
+	/**
+	 * Free the arrays created by the bindings so far; to be called once the statements they were bound to have been
+	 * executed.
+	 */
+	public void release() {
+		synchronized ( arrays ) {
+			for ( Array array : arrays ) {
+				try {
+					array.free();
+				}
+				catch (SQLException e) {
+					log.debugf( "Unable to free JDBC Array reference [%s]", e.getMessage() );
+				}
+			}
+			arrays.clear();
+		}
+	}
+
+	/**
+	 * How a database binds a list as a single array parameter
+	 */
+	public static abstract class ArrayBinding {
+		/**
+		 * Resolve the ArrayBinding for the database, if it is known to support one.
+		 *
+		 * @param metaData The metadata of the database
+		 * @param elementType The SQL type name of the elements, e.g. {@code BIGINT}
+		 *
+		 * @return The ArrayBinding; {@code null} if arrays are to be avoided
+		 *
+		 * @throws SQLException Indicates a problem accessing the metadata
+		 */
+		public static ArrayBinding resolve(DatabaseMetaData metaData, String elementType) throws SQLException {
+			final String productName = metaData.getDatabaseProductName();
+			if ( "H2".equals( productName ) ) {
+				return h2( elementType );
+			}
+			if ( "PostgreSQL".equals( productName ) ) {
+				return standard( elementType );
+			}
+			return null;
+		}
+
+		/**
+		 * ArrayBinding for H2: the values are bound as an {@code Object[]}, unnested through the TABLE function.
+		 *
+		 * @param elementType The SQL type name of the elements
+		 *
+		 * @return The ArrayBinding
+		 */
+		public static ArrayBinding h2(final String elementType) {
+			return new ArrayBinding() {
+				@Override
+				public String renderPredicate(String column) {
+					return column + " in (select x from table(x " + elementType + " = ?))";
+				}
+
+				@Override
+				public Array bind(PreparedStatement statement, int position, Object[] values) throws SQLException {
+					statement.setObject( position, values );
+					return null;
+				}
+			};
+		}
+
+		/**
+		 * ArrayBinding for databases supporting {@code = any(array)} and {@link java.sql.Connection#createArrayOf}.
+		 *
+		 * @param elementType The SQL type name of the elements
+		 *
+		 * @return The ArrayBinding
+		 */
+		public static ArrayBinding standard(final String elementType) {
+			return new ArrayBinding() {
+				@Override
+				public String renderPredicate(String column) {
+					return column + " = any(?)";
+				}
+
+				@Override
+				public Array bind(PreparedStatement statement, int position, Object[] values) throws SQLException {
+					final Array array = statement.getConnection().createArrayOf( elementType, values );
+					statement.setArray( position, array );
+					return array;
+				}
+			};
+		}
+
+		/**
+		 * Render the predicate testing the given column against the array parameter.
+		 *
+		 * @param column The column (or any SQL expression)
+		 *
+		 * @return The SQL of the predicate
+		 */
+		public abstract String renderPredicate(String column);
+
+		/**
+		 * Bind the values as an array.
+		 *
+		 * @param statement The statement
+		 * @param position The position of the array parameter
+		 * @param values The values
+		 *
+		 * @return The Array created to hold the values, to be freed once the statement has been executed;
+		 * {@code null} if none was created
+		 *
+		 * @throws SQLException Indicates a problem binding the array
+		 */
+		public abstract Array bind(PreparedStatement statement, int position, Object[] values) throws SQLException;
+	}
+}
@@ -0,0 +1,54 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * Copyright (c) 2014, Red Hat Inc. or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.  All third-party contributions are
+ * distributed under license by Red Hat Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.hibernate.resource.jdbc.spi;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * Builds the statements of {@link org.hibernate.resource.jdbc.InsertOperationSpec}s.
+ *
+ * @author Andrea Boriero
+ */
+public interface InsertStatementBuilder {
+	/**
+	 * Build the statement.
+	 *
+	 * @param connection The JDBC Connection
+	 * @param sql The INSERT statement
+	 * @param returnGeneratedKeys Should the statement return the keys generated for the inserted rows?
+	 * @param generatedKeyColumns The names of the columns whose generated values are returned; {@code null} lets
+	 * the driver choose them.
+	 *
+	 * @return The statement
+	 *
+	 * @throws SQLException Indicates a problem preparing the statement
+	 */
+	public PreparedStatement buildInsertStatement(
+			Connection connection,
+			String sql,
+			boolean returnGeneratedKeys,
+			String[] generatedKeyColumns) throws SQLException;
+}
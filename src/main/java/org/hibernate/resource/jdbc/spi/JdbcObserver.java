@@ -39,6 +39,21 @@ public interface JdbcObserver {
 	public void jdbcExecuteStatementStart();
 	public void jdbcExecuteStatementEnd();
 
+	/**
+	 * Notification that a statement was cancelled because it outlived its soft timeout.  Note that this is called
+	 * from the watchdog thread rather than the thread using the JdbcSession.
+	 *
+	 * @see org.hibernate.resource.jdbc.spi.JdbcSessionContext#getStatementSoftTimeout()
+	 */
+	public void jdbcStatementCancelledOnTimeout();
+
+	/**
+	 * Notification that an idempotent operation is about to be performed again after a transient failure.
+	 *
+	 * @see org.hibernate.resource.jdbc.spi.RetryPolicy
+	 */
+	public void jdbcOperationRetry();
+
 	public void jdbcExecuteBatchStart();
 	public void jdbcExecuteBatchEnd();
 }
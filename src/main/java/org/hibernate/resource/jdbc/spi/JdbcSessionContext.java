@@ -37,11 +37,65 @@ public interface JdbcSessionContext {
 	public boolean isGetGeneratedKeysEnabled();
 	public int getFetchSize();
 
+	/**
+	 * The soft deadline, in milliseconds, after which statements registered as cancelable are cancelled.  Unlike
+	 * {@link java.sql.Statement#setQueryTimeout}, this is enforced by a shared watchdog rather than by the driver.
+	 *
+	 * @return The soft statement timeout in milliseconds; a value {@code <= 0} disables it.
+	 */
+	public long getStatementSoftTimeout();
+
+	/**
+	 * The number of DML operations the write-behind buffer queues before performing them.  While write-behind is
+	 * enabled, {@link org.hibernate.resource.jdbc.DmlOperationSpec}s are queued and performed as JDBC batches
+	 * when the threshold is reached, before any other operation and before transaction completion.
+	 *
+	 * @return The write-behind threshold; a value {@code <= 0} disables write-behind.
+	 */
+	public int getWriteBehindThreshold();
+
+	/**
+	 * May the write-behind buffer batch an operation together with earlier operations of the same SQL even when
+	 * operations on other tables were queued in between?  This yields fewer batches, but moves the operation ahead
+	 * of those on other tables; it is only safe when operations on different tables do not depend on each other
+	 * (through foreign keys e.g.).  When disabled, all queued operations are performed in the order they were
+	 * queued, and only consecutive operations of the same SQL are batched.
+	 *
+	 * @return {@code true} if operations on different tables may be reordered; {@code false} otherwise.
+	 */
+	public boolean isWriteBehindReorderingEnabled();
+
+	/**
+	 * May {@link org.hibernate.resource.jdbc.JdbcSession#acceptAll} pack several queries into a single
+	 * {@code ;}-separated statement?  The driver must accept such statements, which some only do once configured to
+	 * (e.g. MySQL's {@code allowMultiQueries}).  Should the driver still reject the first packed statement of the
+	 * session as a syntax error, the queries are performed one after the other from then on; once a packed statement
+	 * has been performed, errors are reported as they are.
+	 *
+	 * @return {@code true} if queries may be packed; {@code false} otherwise.
+	 */
+	public boolean isQueryPackingEnabled();
+
 	public ConnectionReleaseMode getConnectionReleaseMode();
 	public ConnectionAcquisitionMode getConnectionAcquisitionMode();
 
 	public StatementInspector getStatementInspector();
 
+	/**
+	 * The policy for retrying idempotent operations after transient failures.
+	 *
+	 * @return The retry policy; {@code null} disables retries.
+	 */
+	public RetryPolicy getRetryPolicy();
+
+	/**
+	 * The controller bounding the number of operations performed at the same time.  To bound them across all the
+	 * JdbcSessions of a factory, the same controller must be returned by all their contexts.
+	 *
+	 * @return The admission controller; {@code null} disables admission control.
+	 */
+	public AdmissionController getAdmissionController();
+
 	public SqlExceptionHelper getSqlExceptionHelper();
 	public SqlStatementLogger getSqlStatementLogger();
 	public JdbcObserver getObserver();
@@ -70,5 +70,14 @@ public interface LogicalConnectionImplementor extends LogicalConnection {
 	 */
 	public LogicalConnectionImplementor makeShareableCopy();
 
+	/**
+	 * Discard the underlying JDBC Connection after a failure which left it unusable, so that the next
+	 * {@link #getPhysicalConnection()} call acquires a new one.  Any registered JDBC resources are released.
+	 *
+	 * @return {@code true} if the Connection was discarded; {@code false} if it cannot be replaced, e.g. because it
+	 * was supplied by the user.
+	 */
+	public boolean evictPhysicalConnection();
+
 	public PhysicalJdbcTransaction getPhysicalJdbcTransaction();
 }
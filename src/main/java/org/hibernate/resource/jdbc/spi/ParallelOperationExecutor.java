@@ -0,0 +1,336 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * Copyright (c) 2014, Red Hat Inc. or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.  All third-party contributions are
+ * distributed under license by Red Hat Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.hibernate.resource.jdbc.spi;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+import org.hibernate.HibernateException;
+import org.hibernate.resource.jdbc.JdbcSession;
+import org.hibernate.resource.jdbc.PreparedStatementQueryOperationSpec;
+import org.hibernate.resource.jdbc.QueryOperationSpec;
+
+import org.jboss.logging.Logger;
+
+/**
+ * Performs a number of independent queries in parallel, each one on its own JdbcSession, so that the overall
+ * wall-clock time approaches the one of the slowest query rather than the sum of them all.
+ * <p/>
+ * At most {@code maximumConcurrency} queries are performed at the same time, whatever the size of the
+ * ExecutorService; the JdbcSessions (created through {@link JdbcSessionFactory}) are pooled between queries and
+ * calls, and released by {@link #close()}.  When one of the queries fails, the queries still running are cancelled
+ * through {@link org.hibernate.resource.jdbc.ResourceRegistry#cancelLastQuery()} and the ones not started yet are
+ * skipped; a query whose statement was not registered yet when the failure happened is skipped right before its
+ * execution.
+ *
+ * @author Andrea Boriero
+ */
+public class ParallelOperationExecutor {
+	private static final Logger log = Logger.getLogger( ParallelOperationExecutor.class );
+
+	private final JdbcSessionOwner owner;
+	private final ExecutorService executorService;
+	private final Semaphore permits;
+	private final Queue<JdbcSession> idleSessions = new ConcurrentLinkedQueue<JdbcSession>();
+
+	private volatile boolean closed;
+
+	/**
+	 * Creates the executor.
+	 *
+	 * @param owner The owner of the JdbcSessions
+	 * @param executorService The executor running the queries
+	 * @param maximumConcurrency The maximum number of queries performed at the same time
+	 */
+	public ParallelOperationExecutor(JdbcSessionOwner owner, ExecutorService executorService, int maximumConcurrency) {
+		if ( maximumConcurrency <= 0 ) {
+			throw new IllegalArgumentException( "Maximum concurrency must be greater than 0" );
+		}
+		this.owner = owner;
+		this.executorService = executorService;
+		this.permits = new Semaphore( maximumConcurrency, true );
+	}
+
+	/**
+	 * Perform the given queries in parallel.
+	 * <p/>
+	 * The queries are performed by different threads, so their components must not share unsafe state.
+	 *
+	 * @param operations The queries to perform
+	 * @param <R> The result type
+	 *
+	 * @return The results, in the order of the queries
+	 */
+	public <R> List<R> execute(List<? extends PreparedStatementQueryOperationSpec<? extends R>> operations) {
+		if ( closed ) {
+			throw new IllegalStateException( "ParallelOperationExecutor is closed" );
+		}
+
+		final Execution execution = new Execution();
+		final List<Future<R>> futures = new ArrayList<Future<R>>( operations.size() );
+		for ( PreparedStatementQueryOperationSpec<? extends R> operation : operations ) {
+			futures.add( executorService.submit( new OperationTask<R>( operation, execution ) ) );
+		}
+
+		final List<R> results = new ArrayList<R>( operations.size() );
+		try {
+			for ( int i = 0; i < futures.size(); i++ ) {
+				results.add( awaitResult( futures.get( i ), i ) );
+			}
+		}
+		catch (RuntimeException e) {
+			execution.fail( e );
+			for ( Future<R> future : futures ) {
+				future.cancel( false );
+			}
+			// report the failure which caused the siblings to be cancelled or skipped
+			throw execution.failure;
+		}
+		return results;
+	}
+
+	/**
+	 * Close all the pooled JdbcSessions.
+	 */
+	public void close() {
+		closed = true;
+		JdbcSession jdbcSession;
+		while ( ( jdbcSession = idleSessions.poll() ) != null ) {
+			closeQuietly( jdbcSession );
+		}
+	}
+
+	private <R> R awaitResult(Future<R> future, int position) {
+		try {
+			return future.get();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new HibernateException( "Interrupted while waiting for the result of query [" + position + "]", e );
+		}
+		catch (ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if ( cause instanceof RuntimeException ) {
+				throw (RuntimeException) cause;
+			}
+			throw new HibernateException( "Query [" + position + "] failed", cause );
+		}
+	}
+
+	private JdbcSession acquireSession() {
+		final JdbcSession jdbcSession = idleSessions.poll();
+		return jdbcSession != null ? jdbcSession : JdbcSessionFactory.INSTANCE.create( owner );
+	}
+
+	private void releaseSession(JdbcSession jdbcSession, boolean reusable) {
+		if ( reusable ) {
+			idleSessions.add( jdbcSession );
+			// unless close() ran concurrently, and did not see the session
+			if ( !closed || !idleSessions.remove( jdbcSession ) ) {
+				return;
+			}
+		}
+		closeQuietly( jdbcSession );
+	}
+
+	private static void closeQuietly(JdbcSession jdbcSession) {
+		try {
+			if ( jdbcSession.isOpen() ) {
+				jdbcSession.close();
+			}
+		}
+		catch (RuntimeException e) {
+			log.debugf( "Unable to close JdbcSession : %s", e );
+		}
+	}
+
+	/**
+	 * The state shared by the queries of one {@link #execute} call
+	 */
+	private static class Execution {
+		private final Set<JdbcSession> activeSessions = Collections.newSetFromMap(
+				new ConcurrentHashMap<JdbcSession, Boolean>()
+		);
+		private volatile boolean failed;
+		private volatile RuntimeException failure;
+
+		private void fail(RuntimeException cause) {
+			synchronized ( this ) {
+				if ( failed ) {
+					return;
+				}
+				failure = cause;
+				failed = true;
+			}
+			for ( JdbcSession jdbcSession : activeSessions ) {
+				try {
+					jdbcSession.getLogicalConnection().getResourceRegistry().cancelLastQuery();
+				}
+				catch (RuntimeException e) {
+					log.debugf( "Unable to cancel sibling query : %s", e );
+				}
+			}
+		}
+	}
+
+	private class OperationTask<R> implements Callable<R> {
+		private final PreparedStatementQueryOperationSpec<? extends R> operation;
+		private final Execution execution;
+
+		private OperationTask(PreparedStatementQueryOperationSpec<? extends R> operation, Execution execution) {
+			this.operation = operation;
+			this.execution = execution;
+		}
+
+		@Override
+		public R call() throws Exception {
+			permits.acquire();
+			try {
+				if ( execution.failed ) {
+					throw new HibernateException( "Query skipped, as a sibling query failed" );
+				}
+
+				final JdbcSession jdbcSession = acquireSession();
+				boolean success = false;
+				execution.activeSessions.add( jdbcSession );
+				try {
+					if ( execution.failed ) {
+						throw new HibernateException( "Query skipped, as a sibling query failed" );
+					}
+					final R result = jdbcSession.accept( new GuardedOperation<R>( operation, execution ) );
+					success = true;
+					return result;
+				}
+				catch (RuntimeException e) {
+					execution.fail( e );
+					throw e;
+				}
+				finally {
+					execution.activeSessions.remove( jdbcSession );
+					releaseSession( jdbcSession, success );
+				}
+			}
+			finally {
+				permits.release();
+			}
+		}
+	}
+
+	/**
+	 * Delegates to the operation, but skips its execution if a sibling query failed in the meantime, as
+	 * {@link Execution#fail} cannot cancel a statement it does not see yet.
+	 */
+	private static class GuardedOperation<R> implements PreparedStatementQueryOperationSpec<R> {
+		private final PreparedStatementQueryOperationSpec<? extends R> operation;
+		private final Execution execution;
+
+		private GuardedOperation(PreparedStatementQueryOperationSpec<? extends R> operation, Execution execution) {
+			this.operation = operation;
+			this.execution = execution;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public ResultSetProcessor<R> getResultSetProcessor() {
+			return (ResultSetProcessor<R>) operation.getResultSetProcessor();
+		}
+
+		@Override
+		public StatementExecutor getStatementExecutor() {
+			final StatementExecutor statementExecutor = operation.getStatementExecutor();
+			return new StatementExecutor() {
+				@Override
+				public ResultSet execute(PreparedStatement statement) throws SQLException {
+					if ( execution.failed ) {
+						throw new HibernateException( "Query skipped, as a sibling query failed" );
+					}
+					return statementExecutor.execute( statement );
+				}
+			};
+		}
+
+		@Override
+		public QueryStatementBuilder<? extends PreparedStatement> getQueryStatementBuilder() {
+			return operation.getQueryStatementBuilder();
+		}
+
+		@Override
+		public ParameterBindings getParameterBindings() {
+			return operation.getParameterBindings();
+		}
+
+		@Override
+		public QueryOperationSpec.ResultSetType getResultSetType() {
+			return operation.getResultSetType();
+		}
+
+		@Override
+		public QueryOperationSpec.ResultSetConcurrency getResultSetConcurrency() {
+			return operation.getResultSetConcurrency();
+		}
+
+		@Override
+		public int getQueryTimeout() {
+			return operation.getQueryTimeout();
+		}
+
+		@Override
+		public String getSql() {
+			return operation.getSql();
+		}
+
+		@Override
+		public int getOffset() {
+			return operation.getOffset();
+		}
+
+		@Override
+		public int getLimit() {
+			return operation.getLimit();
+		}
+
+		@Override
+		public int getFetchSize() {
+			return operation.getFetchSize();
+		}
+
+		@Override
+		public boolean isIdempotent() {
+			return operation.isIdempotent();
+		}
+	}
+}
@@ -0,0 +1,220 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * Copyright (c) 2014, Red Hat Inc. or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.  All third-party contributions are
+ * distributed under license by Red Hat Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.hibernate.resource.jdbc.spi;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+
+/**
+ * ParameterBindings holding typed parameter values, bound through the matching typed JDBC setters.
+ * <p/>
+ * Primitive values are kept in primitive slots, so nothing is boxed, and the driver does not need to infer types
+ * the way it does for {@link PreparedStatement#setObject}.  A buffer is meant to be reused across executions (of
+ * a {@link PreparedQuery}, say): set the values, execute, set the next values, and so on.  Values stay set until
+ * overwritten or {@link #clear() cleared}.
+ * <p/>
+ * A ParameterBuffer is not thread-safe; use one per thread.
+ *
+ * @author Andrea Boriero
+ */
+public final class ParameterBuffer implements ParameterBindings {
+	private static final byte UNSET = 0;
+	private static final byte NULL = 1;
+	private static final byte BOOLEAN = 2;
+	private static final byte INT = 3;
+	private static final byte LONG = 4;
+	private static final byte DOUBLE = 5;
+	private static final byte STRING = 6;
+	private static final byte BIG_DECIMAL = 7;
+	private static final byte DATE = 8;
+	private static final byte TIMESTAMP = 9;
+	private static final byte BYTES = 10;
+	private static final byte OBJECT = 11;
+
+	private final byte[] types;
+	// the values of the primitive types (booleans as 0/1, doubles as raw long bits) and the SQL type of nulls
+	private final long[] primitives;
+	private final Object[] references;
+
+	/**
+	 * Creates a buffer.
+	 *
+	 * @param parameterCount The number of parameters of the statements the buffer is bound to
+	 */
+	public ParameterBuffer(int parameterCount) {
+		if ( parameterCount < 0 ) {
+			throw new IllegalArgumentException( "parameterCount cannot be negative" );
+		}
+		this.types = new byte[parameterCount];
+		this.primitives = new long[parameterCount];
+		this.references = new Object[parameterCount];
+	}
+
+	public int getParameterCount() {
+		return types.length;
+	}
+
+	public ParameterBuffer setNull(int position, int sqlType) {
+		primitives[slot( position )] = sqlType;
+		return set( position, NULL, null );
+	}
+
+	public ParameterBuffer setBoolean(int position, boolean value) {
+		primitives[slot( position )] = value ? 1L : 0L;
+		return set( position, BOOLEAN, null );
+	}
+
+	public ParameterBuffer setInt(int position, int value) {
+		primitives[slot( position )] = value;
+		return set( position, INT, null );
+	}
+
+	public ParameterBuffer setLong(int position, long value) {
+		primitives[slot( position )] = value;
+		return set( position, LONG, null );
+	}
+
+	public ParameterBuffer setDouble(int position, double value) {
+		primitives[slot( position )] = Double.doubleToRawLongBits( value );
+		return set( position, DOUBLE, null );
+	}
+
+	public ParameterBuffer setString(int position, String value) {
+		return value == null ? setNull( position, Types.VARCHAR ) : set( position, STRING, value );
+	}
+
+	public ParameterBuffer setBigDecimal(int position, BigDecimal value) {
+		return value == null ? setNull( position, Types.DECIMAL ) : set( position, BIG_DECIMAL, value );
+	}
+
+	public ParameterBuffer setDate(int position, Date value) {
+		return value == null ? setNull( position, Types.DATE ) : set( position, DATE, value );
+	}
+
+	public ParameterBuffer setTimestamp(int position, Timestamp value) {
+		return value == null ? setNull( position, Types.TIMESTAMP ) : set( position, TIMESTAMP, value );
+	}
+
+	public ParameterBuffer setBytes(int position, byte[] value) {
+		return value == null ? setNull( position, Types.VARBINARY ) : set( position, BYTES, value );
+	}
+
+	/**
+	 * Set a value of a type without a dedicated setter, bound through {@link PreparedStatement#setObject}.
+	 *
+	 * @param position The (1-based) parameter position
+	 * @param value The value; may be {@code null}
+	 *
+	 * @return {@code this}, for method chaining
+	 */
+	public ParameterBuffer setObject(int position, Object value) {
+		return value == null ? setNull( position, Types.NULL ) : set( position, OBJECT, value );
+	}
+
+	/**
+	 * Unset all the values.
+	 */
+	public void clear() {
+		for ( int i = 0; i < types.length; i++ ) {
+			types[i] = UNSET;
+			references[i] = null;
+		}
+	}
+
+	@Override
+	public void bindParameters(PreparedStatement statement) throws SQLException {
+		for ( int i = 0; i < types.length; i++ ) {
+			final int position = i + 1;
+			switch ( types[i] ) {
+				case NULL: {
+					statement.setNull( position, (int) primitives[i] );
+					break;
+				}
+				case BOOLEAN: {
+					statement.setBoolean( position, primitives[i] != 0L );
+					break;
+				}
+				case INT: {
+					statement.setInt( position, (int) primitives[i] );
+					break;
+				}
+				case LONG: {
+					statement.setLong( position, primitives[i] );
+					break;
+				}
+				case DOUBLE: {
+					statement.setDouble( position, Double.longBitsToDouble( primitives[i] ) );
+					break;
+				}
+				case STRING: {
+					statement.setString( position, (String) references[i] );
+					break;
+				}
+				case BIG_DECIMAL: {
+					statement.setBigDecimal( position, (BigDecimal) references[i] );
+					break;
+				}
+				case DATE: {
+					statement.setDate( position, (Date) references[i] );
+					break;
+				}
+				case TIMESTAMP: {
+					statement.setTimestamp( position, (Timestamp) references[i] );
+					break;
+				}
+				case BYTES: {
+					statement.setBytes( position, (byte[]) references[i] );
+					break;
+				}
+				case OBJECT: {
+					statement.setObject( position, references[i] );
+					break;
+				}
+				default: {
+					throw new IllegalStateException( "No value set for parameter " + position );
+				}
+			}
+		}
+	}
+
+	private ParameterBuffer set(int position, byte type, Object reference) {
+		final int slot = slot( position );
+		types[slot] = type;
+		references[slot] = reference;
+		return this;
+	}
+
+	private int slot(int position) {
+		if ( position < 1 || position > types.length ) {
+			throw new IndexOutOfBoundsException(
+					"Parameter position " + position + " out of range [1, " + types.length + "]"
+			);
+		}
+		return position - 1;
+	}
+}
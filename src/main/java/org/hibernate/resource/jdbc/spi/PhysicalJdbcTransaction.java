@@ -31,4 +31,10 @@ import org.hibernate.resource.transaction.backend.store.spi.DataStoreTransaction
  * @author Steve Ebersole
  */
 public interface PhysicalJdbcTransaction extends DataStoreTransaction {
+	/**
+	 * Is a transaction begun through this PhysicalJdbcTransaction still in progress?
+	 *
+	 * @return {@code true} between {@link #begin()} and the completion of the transaction; {@code false} otherwise.
+	 */
+	public boolean isActive();
 }
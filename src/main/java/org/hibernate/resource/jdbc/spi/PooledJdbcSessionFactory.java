@@ -0,0 +1,93 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * Copyright (c) 2014, Red Hat Inc. or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.  All third-party contributions are
+ * distributed under license by Red Hat Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.hibernate.resource.jdbc.spi;
+
+import org.hibernate.resource.jdbc.JdbcSession;
+import org.hibernate.resource.jdbc.internal.JdbcSessionPool;
+
+/**
+ * Creates JdbcSessions whose object graph (session, logical connection, resource registry and transaction
+ * coordinator) is recycled on {@link JdbcSession#close()} rather than left to the garbage collector.  Meant for
+ * workloads creating a great many short-lived sessions.
+ * <p/>
+ * Closed sessions are kept in a small per-thread pool and handed out again by the next {@link #create} on the same
+ * thread.  Every JdbcSession returned is a distinct handle: once closed, any further use of it fails with a
+ * {@link org.hibernate.ResourceClosedException}, even if the underlying session has since been handed out again.
+ * Sessions closed while a transaction is in flight are discarded instead of recycled.
+ * <p/>
+ * Sessions are only recycled for owners exposing the very same JdbcSessionContext, JdbcConnectionAccess and
+ * TransactionCoordinatorBuilder instances, so those should be shared (typically per SessionFactory) for the
+ * pool to be effective.
+ *
+ * @author Andrea Boriero
+ */
+public class PooledJdbcSessionFactory {
+	/**
+	 * The number of idle sessions kept per thread, unless specified otherwise.
+	 */
+	public static final int DEFAULT_MAX_IDLE_PER_THREAD = 4;
+
+	private final JdbcSessionPool pool;
+
+	public PooledJdbcSessionFactory() {
+		this( DEFAULT_MAX_IDLE_PER_THREAD );
+	}
+
+	/**
+	 * Creates a factory.
+	 *
+	 * @param maxIdlePerThread The maximum number of idle sessions kept per thread
+	 */
+	public PooledJdbcSessionFactory(int maxIdlePerThread) {
+		this.pool = new JdbcSessionPool( maxIdlePerThread );
+	}
+
+	/**
+	 * Create a JdbcSession, reusing a session closed earlier on the current thread when possible.
+	 *
+	 * @param owner The session owner
+	 *
+	 * @return The JdbcSession
+	 */
+	public JdbcSession create(JdbcSessionOwner owner) {
+		return pool.acquire( owner );
+	}
+
+	/**
+	 * The number of closed sessions held for reuse by the current thread.
+	 *
+	 * @return The number of idle sessions
+	 */
+	public int getIdleCount() {
+		return pool.getIdleCount();
+	}
+
+	/**
+	 * Drop the closed sessions held for reuse by the current thread.  Should be called before a thread which
+	 * outlives this factory (e.g. a container-managed worker thread) moves on to unrelated work.
+	 */
+	public void clear() {
+		pool.clear();
+	}
+}
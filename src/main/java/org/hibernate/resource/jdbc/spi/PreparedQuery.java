@@ -0,0 +1,403 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * Copyright (c) 2014, Red Hat Inc. or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.  All third-party contributions are
+ * distributed under license by Red Hat Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.hibernate.resource.jdbc.spi;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.hibernate.resource.jdbc.PreparedStatementQueryOperationSpec;
+import org.hibernate.resource.jdbc.ScrollableQueryOperationSpec;
+import org.hibernate.resource.jdbc.internal.StandardQueryPreparedStatementBuilderImpl;
+
+import static org.hibernate.resource.jdbc.QueryOperationSpec.ResultSetConcurrency;
+import static org.hibernate.resource.jdbc.QueryOperationSpec.ResultSetType;
+
+/**
+ * An immutable, thread-safe template of a query: everything about a PreparedStatementQueryOperationSpec but its
+ * parameter values.  A PreparedQuery is meant to be built once, typically at startup, and executed many times,
+ * concurrently if need be, by binding it to the parameter values of each execution:
+ * <pre>
+ * PreparedQuery&lt;Long&gt; countQuery = PreparedQuery.builder( "select count(*) from T where x = ?", processor )
+ *         .setQueryTimeout( 5 )
+ *         .build();
+ * ...
+ * Long count = jdbcSession.accept( countQuery.bind( bindings ) );
+ * </pre>
+ * Binding allocates a single, small spec object; with reusable ParameterBindings nothing else is allocated per
+ * execution.
+ *
+ * @param <R> The type of the result of the query
+ *
+ * @author Andrea Boriero
+ */
+public final class PreparedQuery<R> {
+	/**
+	 * StatementExecutor calling {@link PreparedStatement#executeQuery()}; the default.
+	 */
+	public static final StatementExecutor EXECUTE_QUERY = new StatementExecutor() {
+		@Override
+		public ResultSet execute(PreparedStatement statement) throws SQLException {
+			return statement.executeQuery();
+		}
+	};
+
+	private final String sql;
+	private final ResultSetProcessor<R> resultSetProcessor;
+	private final QueryStatementBuilder<? extends PreparedStatement> queryStatementBuilder;
+	private final StatementExecutor statementExecutor;
+	private final ResultSetType resultSetType;
+	private final ResultSetConcurrency resultSetConcurrency;
+	private final int queryTimeout;
+	private final int fetchSize;
+	private final int limit;
+	private final boolean idempotent;
+
+	private PreparedQuery(Builder<R> builder) {
+		this.sql = builder.sql;
+		this.resultSetProcessor = builder.resultSetProcessor;
+		this.queryStatementBuilder = builder.queryStatementBuilder;
+		this.statementExecutor = builder.statementExecutor;
+		this.resultSetType = builder.resultSetType;
+		this.resultSetConcurrency = builder.resultSetConcurrency;
+		this.queryTimeout = builder.queryTimeout;
+		this.fetchSize = builder.fetchSize;
+		this.limit = builder.limit;
+		this.idempotent = builder.idempotent;
+	}
+
+	/**
+	 * Start building a PreparedQuery.
+	 *
+	 * @param sql The SQL of the query
+	 * @param resultSetProcessor The processor extracting the result; must be thread-safe, as it is shared by all
+	 * executions
+	 * @param <R> The type of the result of the query
+	 *
+	 * @return The builder
+	 */
+	public static <R> Builder<R> builder(String sql, ResultSetProcessor<R> resultSetProcessor) {
+		return new Builder<R>( sql, resultSetProcessor );
+	}
+
+	/**
+	 * Bind this template to the parameter values of one execution.
+	 *
+	 * @param parameterBindings The parameter bindings of the execution
+	 *
+	 * @return The spec to pass to {@link org.hibernate.resource.jdbc.JdbcSession#accept(PreparedStatementQueryOperationSpec)}
+	 */
+	public PreparedStatementQueryOperationSpec<R> bind(ParameterBindings parameterBindings) {
+		if ( parameterBindings == null ) {
+			throw new IllegalArgumentException( "ParameterBindings cannot be null" );
+		}
+		return new BoundQuery<R>( this, parameterBindings );
+	}
+
+	/**
+	 * Bind this template to the given parameter values, bound through {@link PreparedStatement#setObject}.
+	 *
+	 * @param parameterValues The parameter values, in order
+	 *
+	 * @return The spec to pass to {@link org.hibernate.resource.jdbc.JdbcSession#accept(PreparedStatementQueryOperationSpec)}
+	 */
+	public PreparedStatementQueryOperationSpec<R> bind(final Object... parameterValues) {
+		return bind(
+				new ParameterBindings() {
+					@Override
+					public void bindParameters(PreparedStatement statement) throws SQLException {
+						for ( int i = 0; i < parameterValues.length; i++ ) {
+							statement.setObject( i + 1, parameterValues[i] );
+						}
+					}
+				}
+		);
+	}
+
+	/**
+	 * Bind this template to the parameter values of one execution whose ResultSet is handed back to the caller
+	 * rather than to the ResultSetProcessor.
+	 *
+	 * @param parameterBindings The parameter bindings of the execution
+	 *
+	 * @return The spec to pass to {@link org.hibernate.resource.jdbc.JdbcSession#accept(ScrollableQueryOperationSpec)}
+	 */
+	public ScrollableQueryOperationSpec bindScrollable(ParameterBindings parameterBindings) {
+		if ( parameterBindings == null ) {
+			throw new IllegalArgumentException( "ParameterBindings cannot be null" );
+		}
+		return new BoundQuery<R>( this, parameterBindings );
+	}
+
+	public String getSql() {
+		return sql;
+	}
+
+	public ResultSetProcessor<R> getResultSetProcessor() {
+		return resultSetProcessor;
+	}
+
+	public QueryStatementBuilder<? extends PreparedStatement> getQueryStatementBuilder() {
+		return queryStatementBuilder;
+	}
+
+	public StatementExecutor getStatementExecutor() {
+		return statementExecutor;
+	}
+
+	public ResultSetType getResultSetType() {
+		return resultSetType;
+	}
+
+	public ResultSetConcurrency getResultSetConcurrency() {
+		return resultSetConcurrency;
+	}
+
+	public int getQueryTimeout() {
+		return queryTimeout;
+	}
+
+	public int getFetchSize() {
+		return fetchSize;
+	}
+
+	public int getLimit() {
+		return limit;
+	}
+
+	public boolean isIdempotent() {
+		return idempotent;
+	}
+
+	/**
+	 * Builds {@link PreparedQuery} instances.  A builder is not thread-safe, the queries it builds are.
+	 *
+	 * @param <R> The type of the result of the query
+	 */
+	public static final class Builder<R> {
+		private final String sql;
+		private final ResultSetProcessor<R> resultSetProcessor;
+		private QueryStatementBuilder<? extends PreparedStatement> queryStatementBuilder = StandardQueryPreparedStatementBuilderImpl.INSTANCE;
+		private StatementExecutor statementExecutor = EXECUTE_QUERY;
+		private ResultSetType resultSetType = ResultSetType.FORWARD_ONLY;
+		private ResultSetConcurrency resultSetConcurrency = ResultSetConcurrency.READ_ONLY;
+		private int queryTimeout;
+		private int fetchSize;
+		private int limit;
+		private boolean idempotent;
+
+		private Builder(String sql, ResultSetProcessor<R> resultSetProcessor) {
+			if ( sql == null ) {
+				throw new IllegalArgumentException( "SQL cannot be null" );
+			}
+			if ( resultSetProcessor == null ) {
+				throw new IllegalArgumentException( "ResultSetProcessor cannot be null" );
+			}
+			this.sql = sql;
+			this.resultSetProcessor = resultSetProcessor;
+		}
+
+		/**
+		 * Specifies how the statement is prepared; by default through {@link java.sql.Connection#prepareStatement}.
+		 *
+		 * @param queryStatementBuilder The statement builder
+		 *
+		 * @return {@code this}, for method chaining
+		 */
+		public Builder<R> setQueryStatementBuilder(QueryStatementBuilder<? extends PreparedStatement> queryStatementBuilder) {
+			this.queryStatementBuilder = queryStatementBuilder;
+			return this;
+		}
+
+		/**
+		 * Specifies how the statement is executed; by default through {@link PreparedStatement#executeQuery()}.
+		 *
+		 * @param statementExecutor The statement executor
+		 *
+		 * @return {@code this}, for method chaining
+		 */
+		public Builder<R> setStatementExecutor(StatementExecutor statementExecutor) {
+			this.statementExecutor = statementExecutor;
+			return this;
+		}
+
+		/**
+		 * Specifies the type of the ResultSet; {@link ResultSetType#FORWARD_ONLY} by default.
+		 *
+		 * @param resultSetType The ResultSet type
+		 *
+		 * @return {@code this}, for method chaining
+		 */
+		public Builder<R> setResultSetType(ResultSetType resultSetType) {
+			this.resultSetType = resultSetType;
+			return this;
+		}
+
+		/**
+		 * Specifies the concurrency of the ResultSet; {@link ResultSetConcurrency#READ_ONLY} by default.
+		 *
+		 * @param resultSetConcurrency The ResultSet concurrency
+		 *
+		 * @return {@code this}, for method chaining
+		 */
+		public Builder<R> setResultSetConcurrency(ResultSetConcurrency resultSetConcurrency) {
+			this.resultSetConcurrency = resultSetConcurrency;
+			return this;
+		}
+
+		/**
+		 * Specifies the query timeout, per {@link java.sql.Statement#setQueryTimeout}.
+		 *
+		 * @param queryTimeout The timeout in seconds; 0 (the default) for none
+		 *
+		 * @return {@code this}, for method chaining
+		 */
+		public Builder<R> setQueryTimeout(int queryTimeout) {
+			this.queryTimeout = queryTimeout;
+			return this;
+		}
+
+		/**
+		 * Specifies the JDBC fetch size.
+		 *
+		 * @param fetchSize The fetch size; 0 (the default) uses the default of the JdbcSession
+		 *
+		 * @return {@code this}, for method chaining
+		 */
+		public Builder<R> setFetchSize(int fetchSize) {
+			this.fetchSize = fetchSize;
+			return this;
+		}
+
+		/**
+		 * Specifies the maximum number of rows the query returns.
+		 *
+		 * @param limit The maximum number of rows; 0 (the default) for no limit
+		 *
+		 * @return {@code this}, for method chaining
+		 */
+		public Builder<R> setLimit(int limit) {
+			this.limit = limit;
+			return this;
+		}
+
+		/**
+		 * Specifies whether executions may be retried after transient failures; {@code false} by default.
+		 *
+		 * @param idempotent {@code true} if the query is idempotent
+		 *
+		 * @return {@code this}, for method chaining
+		 *
+		 * @see org.hibernate.resource.jdbc.OperationSpec#isIdempotent()
+		 */
+		public Builder<R> setIdempotent(boolean idempotent) {
+			this.idempotent = idempotent;
+			return this;
+		}
+
+		public PreparedQuery<R> build() {
+			if ( queryStatementBuilder == null ) {
+				throw new IllegalStateException( "QueryStatementBuilder cannot be null" );
+			}
+			if ( statementExecutor == null ) {
+				throw new IllegalStateException( "StatementExecutor cannot be null" );
+			}
+			return new PreparedQuery<R>( this );
+		}
+	}
+
+	/**
+	 * A PreparedQuery bound to the parameter values of one execution
+	 */
+	private static final class BoundQuery<R>
+			implements PreparedStatementQueryOperationSpec<R>, ScrollableQueryOperationSpec {
+		private final PreparedQuery<R> template;
+		private final ParameterBindings parameterBindings;
+
+		private BoundQuery(PreparedQuery<R> template, ParameterBindings parameterBindings) {
+			this.template = template;
+			this.parameterBindings = parameterBindings;
+		}
+
+		@Override
+		public ResultSetProcessor<R> getResultSetProcessor() {
+			return template.resultSetProcessor;
+		}
+
+		@Override
+		public QueryStatementBuilder<? extends PreparedStatement> getQueryStatementBuilder() {
+			return template.queryStatementBuilder;
+		}
+
+		@Override
+		public ParameterBindings getParameterBindings() {
+			return parameterBindings;
+		}
+
+		@Override
+		public StatementExecutor getStatementExecutor() {
+			return template.statementExecutor;
+		}
+
+		@Override
+		public ResultSetType getResultSetType() {
+			return template.resultSetType;
+		}
+
+		@Override
+		public ResultSetConcurrency getResultSetConcurrency() {
+			return template.resultSetConcurrency;
+		}
+
+		@Override
+		public int getQueryTimeout() {
+			return template.queryTimeout;
+		}
+
+		@Override
+		public String getSql() {
+			return template.sql;
+		}
+
+		@Override
+		public int getOffset() {
+			return 0;
+		}
+
+		@Override
+		public int getLimit() {
+			return template.limit;
+		}
+
+		@Override
+		public int getFetchSize() {
+			return template.fetchSize;
+		}
+
+		@Override
+		public boolean isIdempotent() {
+			return template.idempotent;
+		}
+	}
+}
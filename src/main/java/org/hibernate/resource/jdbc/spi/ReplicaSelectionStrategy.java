@@ -0,0 +1,62 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * Copyright (c) 2014, Red Hat Inc. or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.  All third-party contributions are
+ * distributed under license by Red Hat Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.hibernate.resource.jdbc.spi;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Strategy for choosing which replica serves read-only work.
+ *
+ * @author Andrea Boriero
+ */
+public interface ReplicaSelectionStrategy extends Serializable {
+	/**
+	 * Select the replica to use.
+	 *
+	 * @param replicas The known replicas
+	 *
+	 * @return The selected replica, or {@code null} to indicate that the work should go to the primary instead.
+	 */
+	public Replica select(List<? extends Replica> replicas);
+
+	/**
+	 * Models a replica of the primary database.
+	 */
+	public interface Replica {
+		/**
+		 * Access to the replica's Connections.
+		 *
+		 * @return The JdbcConnectionAccess of the replica
+		 */
+		public JdbcConnectionAccess getJdbcConnectionAccess();
+
+		/**
+		 * The most recently measured replication lag.
+		 *
+		 * @return The lag in milliseconds; a negative value indicates the lag could not be measured.
+		 */
+		public long getLag();
+	}
+}
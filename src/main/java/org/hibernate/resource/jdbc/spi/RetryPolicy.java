@@ -0,0 +1,62 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * Copyright (c) 2014, Red Hat Inc. or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.  All third-party contributions are
+ * distributed under license by Red Hat Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.hibernate.resource.jdbc.spi;
+
+import java.sql.SQLException;
+
+/**
+ * Policy for retrying idempotent operations which failed because of a transient condition (connection reset,
+ * deadlock victim, serialization failure...).
+ *
+ * @author Andrea Boriero
+ */
+public interface RetryPolicy {
+	/**
+	 * Should the operation which failed with the given exception be performed again?
+	 *
+	 * @param exception The failure
+	 * @param attempt The number of the retry being considered, starting at 1
+	 *
+	 * @return {@code true} if the operation should be retried; {@code false} otherwise.
+	 */
+	public boolean shouldRetry(SQLException exception, int attempt);
+
+	/**
+	 * Did the given failure leave the JDBC Connection unusable, so that it must be replaced before retrying?
+	 *
+	 * @param exception The failure
+	 *
+	 * @return {@code true} if the Connection must be replaced; {@code false} otherwise.
+	 */
+	public boolean isConnectionLost(SQLException exception);
+
+	/**
+	 * The time to wait before the given retry.
+	 *
+	 * @param attempt The number of the retry, starting at 1
+	 *
+	 * @return The delay in milliseconds
+	 */
+	public long getRetryDelay(int attempt);
+}
@@ -0,0 +1,149 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * Copyright (c) 2014, Red Hat Inc. or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.  All third-party contributions are
+ * distributed under license by Red Hat Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.hibernate.resource.jdbc.spi;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+
+/**
+ * Typed access to the rows of a ResultSet, by column index or by column label.  Labels are resolved through
+ * {@link ColumnIndexes} rather than by the driver; for the tightest loops, resolve the indexes once through
+ * {@link #indexOf} and use the index-based getters.
+ *
+ * @author Andrea Boriero
+ *
+ * @see AbstractRowResultSetProcessor
+ */
+public final class RowAccessor {
+	private final ResultSet resultSet;
+	private final ColumnIndexes columnIndexes;
+
+	public RowAccessor(ResultSet resultSet, ColumnIndexes columnIndexes) {
+		this.resultSet = resultSet;
+		this.columnIndexes = columnIndexes;
+	}
+
+	public ResultSet getResultSet() {
+		return resultSet;
+	}
+
+	public ColumnIndexes getColumnIndexes() {
+		return columnIndexes;
+	}
+
+	public int indexOf(String label) throws SQLException {
+		return columnIndexes.indexOf( label );
+	}
+
+	public boolean next() throws SQLException {
+		return resultSet.next();
+	}
+
+	public boolean wasNull() throws SQLException {
+		return resultSet.wasNull();
+	}
+
+	public String getString(int index) throws SQLException {
+		return resultSet.getString( index );
+	}
+
+	public String getString(String label) throws SQLException {
+		return resultSet.getString( columnIndexes.indexOf( label ) );
+	}
+
+	public boolean getBoolean(int index) throws SQLException {
+		return resultSet.getBoolean( index );
+	}
+
+	public boolean getBoolean(String label) throws SQLException {
+		return resultSet.getBoolean( columnIndexes.indexOf( label ) );
+	}
+
+	public int getInt(int index) throws SQLException {
+		return resultSet.getInt( index );
+	}
+
+	public int getInt(String label) throws SQLException {
+		return resultSet.getInt( columnIndexes.indexOf( label ) );
+	}
+
+	public long getLong(int index) throws SQLException {
+		return resultSet.getLong( index );
+	}
+
+	public long getLong(String label) throws SQLException {
+		return resultSet.getLong( columnIndexes.indexOf( label ) );
+	}
+
+	public double getDouble(int index) throws SQLException {
+		return resultSet.getDouble( index );
+	}
+
+	public double getDouble(String label) throws SQLException {
+		return resultSet.getDouble( columnIndexes.indexOf( label ) );
+	}
+
+	public BigDecimal getBigDecimal(int index) throws SQLException {
+		return resultSet.getBigDecimal( index );
+	}
+
+	public BigDecimal getBigDecimal(String label) throws SQLException {
+		return resultSet.getBigDecimal( columnIndexes.indexOf( label ) );
+	}
+
+	public Date getDate(int index) throws SQLException {
+		return resultSet.getDate( index );
+	}
+
+	public Date getDate(String label) throws SQLException {
+		return resultSet.getDate( columnIndexes.indexOf( label ) );
+	}
+
+	public Timestamp getTimestamp(int index) throws SQLException {
+		return resultSet.getTimestamp( index );
+	}
+
+	public Timestamp getTimestamp(String label) throws SQLException {
+		return resultSet.getTimestamp( columnIndexes.indexOf( label ) );
+	}
+
+	public byte[] getBytes(int index) throws SQLException {
+		return resultSet.getBytes( index );
+	}
+
+	public byte[] getBytes(String label) throws SQLException {
+		return resultSet.getBytes( columnIndexes.indexOf( label ) );
+	}
+
+	public Object getObject(int index) throws SQLException {
+		return resultSet.getObject( index );
+	}
+
+	public Object getObject(String label) throws SQLException {
+		return resultSet.getObject( columnIndexes.indexOf( label ) );
+	}
+}
@@ -0,0 +1,63 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * Copyright (c) 2014, Red Hat Inc. or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.  All third-party contributions are
+ * distributed under license by Red Hat Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.hibernate.resource.jdbc.spi;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+
+/**
+ * Maps the current row of a ResultSet to an object.
+ *
+ * @param <T> The type of the mapped objects
+ *
+ * @author Andrea Boriero
+ *
+ * @see RowMapperFactory
+ */
+public interface RowMapper<T> {
+	/**
+	 * Map the row the ResultSet is currently positioned on.
+	 *
+	 * @param resultSet The ResultSet, positioned on the row to map
+	 *
+	 * @return The mapped object
+	 *
+	 * @throws SQLException Indicates a problem accessing the row
+	 */
+	T mapRow(ResultSet resultSet) throws SQLException;
+
+	/**
+	 * Does this mapper fit the given results?  A mapper built for results of a given shape only fits results with
+	 * the same column labels, in the same order.
+	 *
+	 * @param metaData The metadata of the results
+	 *
+	 * @return {@code true} if the mapper fits the results, which is always the case for a mapper that does not
+	 * depend on their shape; {@code false} otherwise.
+	 *
+	 * @throws SQLException Indicates a problem accessing the metadata
+	 */
+	boolean fits(ResultSetMetaData metaData) throws SQLException;
+}
@@ -0,0 +1,142 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * Copyright (c) 2014, Red Hat Inc. or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.  All third-party contributions are
+ * distributed under license by Red Hat Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.hibernate.resource.jdbc.spi;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.hibernate.resource.jdbc.internal.RowMapperFieldAccessImpl;
+
+/**
+ * Builds {@link RowMapper}s writing the columns of a row to the same-named fields of a class, and caches them per
+ * (class, SQL) pair.
+ * <p/>
+ * All the reflective work - matching column labels to fields, choosing the typed getter for each field and
+ * making the fields accessible - happens once, when the mapper is built; mapping a row is then a straight
+ * sequence of typed {@code ResultSet} getter calls and field writes.  A column label matches a field if both are
+ * equal once underscores are removed and case is ignored ({@code FIRST_NAME} matches {@code firstName});
+ * columns without a matching field are ignored.  The class needs a no-argument constructor, which may be
+ * private.
+ * <p/>
+ * The cache lives as long as the factory, and is not bounded: keep a factory along with the set of SQL templates
+ * it maps the results of, e.g. one per persistence unit, rather than using one for ad-hoc SQL or sharing one
+ * across class loaders.
+ *
+ * @author Andrea Boriero
+ */
+public class RowMapperFactory {
+	private final ConcurrentMap<Key, RowMapper<?>> rowMappers = new ConcurrentHashMap<Key, RowMapper<?>>();
+
+	/**
+	 * Get the RowMapper of the given class for the results of the given SQL, building it on first use.  Should the
+	 * cached mapper no longer {@link RowMapper#fits fit} the results, it is built again.
+	 *
+	 * @param type The class of the mapped objects
+	 * @param sql The SQL whose results are mapped
+	 * @param metaData The metadata of the results
+	 * @param <T> The type of the mapped objects
+	 *
+	 * @return The RowMapper
+	 *
+	 * @throws SQLException Indicates a problem accessing the metadata
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> RowMapper<T> getRowMapper(Class<T> type, String sql, ResultSetMetaData metaData) throws SQLException {
+		final Key key = new Key( type, sql );
+		RowMapper<T> rowMapper = (RowMapper<T>) rowMappers.get( key );
+		if ( rowMapper == null || !rowMapper.fits( metaData ) ) {
+			// racing threads build equivalent mappers, whichever is kept does not matter
+			rowMapper = new RowMapperFieldAccessImpl<T>( type, metaData );
+			rowMappers.put( key, rowMapper );
+		}
+		return rowMapper;
+	}
+
+	/**
+	 * Build a ResultSetProcessor mapping all the rows of the results of the given SQL to a List of objects of the
+	 * given class.  The processor looks its RowMapper up on first execution, and then again only if the results no
+	 * longer fit it, so it is best kept along with the statement, e.g. in a {@link PreparedQuery}.
+	 *
+	 * @param type The class of the mapped objects
+	 * @param sql The SQL whose results are mapped
+	 * @param <T> The type of the mapped objects
+	 *
+	 * @return The ResultSetProcessor
+	 */
+	public <T> ResultSetProcessor<List<T>> listProcessor(final Class<T> type, final String sql) {
+		return new ResultSetProcessor<List<T>>() {
+			private volatile RowMapper<T> rowMapper;
+
+			@Override
+			public List<T> extractResults(ResultSet resultSet) throws SQLException {
+				final ResultSetMetaData metaData = resultSet.getMetaData();
+				RowMapper<T> mapper = rowMapper;
+				if ( mapper == null || !mapper.fits( metaData ) ) {
+					mapper = getRowMapper( type, sql, metaData );
+					rowMapper = mapper;
+				}
+
+				final List<T> results = new ArrayList<T>();
+				while ( resultSet.next() ) {
+					results.add( mapper.mapRow( resultSet ) );
+				}
+				return results;
+			}
+		};
+	}
+
+	private static final class Key {
+		private final Class<?> type;
+		private final String sql;
+		private final int hashCode;
+
+		private Key(Class<?> type, String sql) {
+			this.type = type;
+			this.sql = sql;
+			this.hashCode = 31 * type.hashCode() + sql.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if ( this == o ) {
+				return true;
+			}
+			if ( !( o instanceof Key ) ) {
+				return false;
+			}
+			final Key other = (Key) o;
+			return type == other.type && sql.equals( other.sql );
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+	}
+}
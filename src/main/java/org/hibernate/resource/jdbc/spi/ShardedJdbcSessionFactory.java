@@ -0,0 +1,282 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * Copyright (c) 2014, Red Hat Inc. or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.  All third-party contributions are
+ * distributed under license by Red Hat Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.hibernate.resource.jdbc.spi;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.hibernate.HibernateException;
+import org.hibernate.resource.jdbc.JdbcSession;
+import org.hibernate.resource.jdbc.PreparedStatementQueryOperationSpec;
+import org.hibernate.resource.jdbc.internal.JdbcSessionImpl;
+import org.hibernate.resource.jdbc.internal.LogicalConnectionManagedImpl;
+
+import org.jboss.logging.Logger;
+
+/**
+ * Creates JdbcSessions against one of a number of shards, each shard being represented by its own
+ * {@link JdbcConnectionAccess}.  The shard is selected from a shard key through a pluggable {@link ShardingStrategy}.
+ * <p/>
+ * The JdbcConnectionAccess of the {@link JdbcSessionOwner} is ignored; all other owner state (context, transaction
+ * coordinator builder) is shared by the sessions of every shard.
+ *
+ * @author Andrea Boriero
+ */
+public class ShardedJdbcSessionFactory {
+	private static final Logger log = Logger.getLogger( ShardedJdbcSessionFactory.class );
+
+	private final List<JdbcConnectionAccess> shards;
+	private final ShardingStrategy shardingStrategy;
+
+	public ShardedJdbcSessionFactory(List<JdbcConnectionAccess> shards, ShardingStrategy shardingStrategy) {
+		if ( shards == null || shards.isEmpty() ) {
+			throw new IllegalArgumentException( "At least one shard must be specified" );
+		}
+		if ( shardingStrategy == null ) {
+			throw new IllegalArgumentException( "ShardingStrategy cannot be null" );
+		}
+		this.shards = Collections.unmodifiableList( new ArrayList<JdbcConnectionAccess>( shards ) );
+		this.shardingStrategy = shardingStrategy;
+	}
+
+	public int getNumberOfShards() {
+		return shards.size();
+	}
+
+	/**
+	 * Determine the shard holding the given key.
+	 *
+	 * @param shardKey The shard key
+	 *
+	 * @return The (zero-based) index of the shard
+	 */
+	public int determineShard(Object shardKey) {
+		final int shard = shardingStrategy.determineShard( shardKey, shards.size() );
+		if ( shard < 0 || shard >= shards.size() ) {
+			throw new HibernateException(
+					"ShardingStrategy [" + shardingStrategy + "] returned unknown shard [" + shard + "]"
+			);
+		}
+		return shard;
+	}
+
+	/**
+	 * Create a JdbcSession against the shard holding the given key.
+	 *
+	 * @param owner The session owner
+	 * @param shardKey The shard key
+	 *
+	 * @return The JdbcSession
+	 */
+	public JdbcSession create(JdbcSessionOwner owner, Object shardKey) {
+		return createForShard( owner, determineShard( shardKey ) );
+	}
+
+	/**
+	 * Create a JdbcSession against the given shard.
+	 *
+	 * @param owner The session owner
+	 * @param shard The (zero-based) index of the shard
+	 *
+	 * @return The JdbcSession
+	 */
+	public JdbcSession createForShard(JdbcSessionOwner owner, int shard) {
+		final LogicalConnectionManagedImpl logicalConnection = new LogicalConnectionManagedImpl(
+				shards.get( shard ),
+				owner.getJdbcSessionContext()
+		);
+		return new JdbcSessionImpl(
+				owner.getJdbcSessionContext(),
+				logicalConnection,
+				owner.getTransactionCoordinatorBuilder()
+		);
+	}
+
+	/**
+	 * Open a cache of per-shard JdbcSessions for a unit of work.  Sessions are created lazily, the first time
+	 * a shard is addressed, and closed together by {@link ShardSessions#close()}.
+	 *
+	 * @param owner The session owner
+	 *
+	 * @return The per-shard session cache
+	 */
+	public ShardSessions openShardSessions(JdbcSessionOwner owner) {
+		return new ShardSessions( owner );
+	}
+
+	/**
+	 * Perform the same query against every shard, in parallel, using a fresh JdbcSession per shard.
+	 * <p/>
+	 * The operation is shared by all the executing threads, so it (and its bindings, builder, executor and
+	 * processor) must be safe for concurrent use.
+	 *
+	 * @param owner The session owner
+	 * @param operation The query to perform
+	 * @param executorService The executor running the per-shard queries
+	 * @param <R> The per-shard result type
+	 *
+	 * @return The per-shard results, in shard order
+	 */
+	public <R> List<R> scatterGather(
+			final JdbcSessionOwner owner,
+			final PreparedStatementQueryOperationSpec<R> operation,
+			ExecutorService executorService) {
+		final List<Future<R>> futures = new ArrayList<Future<R>>( shards.size() );
+		for ( int i = 0; i < shards.size(); i++ ) {
+			final int shard = i;
+			futures.add(
+					executorService.submit(
+							new Callable<R>() {
+								@Override
+								public R call() throws Exception {
+									final JdbcSession jdbcSession = createForShard( owner, shard );
+									try {
+										return jdbcSession.accept( operation );
+									}
+									finally {
+										jdbcSession.close();
+									}
+								}
+							}
+					)
+			);
+		}
+
+		final List<R> results = new ArrayList<R>( shards.size() );
+		try {
+			for ( int i = 0; i < futures.size(); i++ ) {
+				results.add( awaitShardResult( futures.get( i ), i ) );
+			}
+		}
+		catch (RuntimeException e) {
+			for ( Future<R> future : futures ) {
+				future.cancel( true );
+			}
+			throw e;
+		}
+		return results;
+	}
+
+	/**
+	 * Perform the same query against every shard, in parallel, and merge the per-shard results.
+	 *
+	 * @param owner The session owner
+	 * @param operation The query to perform
+	 * @param executorService The executor running the per-shard queries
+	 * @param merger The merger of the per-shard results
+	 * @param <R> The per-shard result type
+	 * @param <T> The merged result type
+	 *
+	 * @return The merged result
+	 *
+	 * @see #scatterGather(JdbcSessionOwner, PreparedStatementQueryOperationSpec, ExecutorService)
+	 */
+	public <R, T> T scatterGather(
+			JdbcSessionOwner owner,
+			PreparedStatementQueryOperationSpec<R> operation,
+			ExecutorService executorService,
+			ShardResultMerger<R, T> merger) {
+		return merger.merge( scatterGather( owner, operation, executorService ) );
+	}
+
+	private <R> R awaitShardResult(Future<R> future, int shard) {
+		try {
+			return future.get();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new HibernateException( "Interrupted while waiting for the result of shard [" + shard + "]", e );
+		}
+		catch (ExecutionException e) {
+			final Throwable cause = e.getCause();
+			log.debugf( "Query against shard [%s] failed : %s", shard, cause );
+			if ( cause instanceof RuntimeException ) {
+				throw (RuntimeException) cause;
+			}
+			throw new HibernateException( "Query against shard [" + shard + "] failed", cause );
+		}
+	}
+
+	/**
+	 * The per-shard JdbcSessions of a unit of work.
+	 */
+	public class ShardSessions {
+		private final JdbcSessionOwner owner;
+		private final JdbcSession[] sessions;
+
+		private ShardSessions(JdbcSessionOwner owner) {
+			this.owner = owner;
+			this.sessions = new JdbcSession[shards.size()];
+		}
+
+		/**
+		 * Get (creating if needed) the JdbcSession against the shard holding the given key.
+		 *
+		 * @param shardKey The shard key
+		 *
+		 * @return The JdbcSession
+		 */
+		public JdbcSession getSession(Object shardKey) {
+			return getSessionForShard( determineShard( shardKey ) );
+		}
+
+		/**
+		 * Get (creating if needed) the JdbcSession against the given shard.
+		 *
+		 * @param shard The (zero-based) index of the shard
+		 *
+		 * @return The JdbcSession
+		 */
+		public JdbcSession getSessionForShard(int shard) {
+			if ( sessions[shard] == null ) {
+				sessions[shard] = createForShard( owner, shard );
+			}
+			return sessions[shard];
+		}
+
+		/**
+		 * Close all the JdbcSessions opened so far.
+		 */
+		public void close() {
+			for ( int i = 0; i < sessions.length; i++ ) {
+				if ( sessions[i] != null ) {
+					try {
+						if ( sessions[i].isOpen() ) {
+							sessions[i].close();
+						}
+					}
+					catch (RuntimeException e) {
+						log.debugf( "Unable to close JdbcSession against shard [%s] : %s", i, e );
+					}
+					sessions[i] = null;
+				}
+			}
+		}
+	}
+}
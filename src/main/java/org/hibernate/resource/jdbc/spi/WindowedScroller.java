@@ -0,0 +1,210 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * Copyright (c) 2014, Red Hat Inc. or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.  All third-party contributions are
+ * distributed under license by Red Hat Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.hibernate.resource.jdbc.spi;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hibernate.JDBCException;
+import org.hibernate.resource.jdbc.JdbcSession;
+import org.hibernate.resource.jdbc.ScrollableQueryOperationSpec;
+
+/**
+ * Scrolls, in both directions, through the rows of a keyset-ordered query while holding a bounded number of them.
+ * <p/>
+ * Rows are read forward only, so the query is best executed with a {@code FORWARD_ONLY} ResultSet and a fetch
+ * size: drivers then stream the rows in fetch-size chunks rather than materializing the whole result on the
+ * client, as many do for {@code SCROLL_INSENSITIVE} ResultSets.  The last {@code windowSize} rows read are kept
+ * in a ring; the key of every {@code windowSize}-th row is kept as a checkpoint.  Scrolling back past the ring
+ * re-executes the query from the nearest preceding checkpoint, through a keyset predicate ({@code key >= ?}), and
+ * reads forward again.  Memory is so bounded by {@code windowSize} rows plus one key per {@code windowSize} rows
+ * visited.
+ * <p/>
+ * Positions are computed as the rows are read; should rows be inserted or deleted concurrently, rows re-read
+ * after scrolling back may be shifted accordingly.  Not thread-safe.
+ *
+ * @param <K> The type of the key the query is ordered by
+ * @param <T> The type of the rows
+ *
+ * @author Andrea Boriero
+ */
+public final class WindowedScroller<K, T> {
+	/**
+	 * The query scrolled through.
+	 *
+	 * @param <K> The type of the key the query is ordered by
+	 * @param <T> The type of the rows
+	 */
+	public interface KeysetSource<K, T> {
+		/**
+		 * Build the query returning the rows ordered by their (unique) key, starting at the row with the given key.
+		 *
+		 * @param fromKey The key of the first row to return, inclusive; {@code null} to return all the rows
+		 *
+		 * @return The query
+		 */
+		public ScrollableQueryOperationSpec buildQuery(K fromKey);
+
+		public T mapRow(ResultSet resultSet) throws SQLException;
+
+		public K extractKey(T row);
+	}
+
+	private final JdbcSession jdbcSession;
+	private final KeysetSource<K, T> source;
+	private final Object[] window;
+	private final List<K> checkpoints = new ArrayList<K>();
+
+	private ScrollableQueryOperationSpec.Result result;
+	// the position of the first row held in the window
+	private int windowStart;
+	// the position of the row the result yields next; the window holds [windowStart, cursor)
+	private int cursor;
+	private boolean exhausted;
+	private int position = -1;
+
+	/**
+	 * Creates a scroller, positioned before the first row.  The query is executed on the first move.
+	 *
+	 * @param jdbcSession The JdbcSession executing the query
+	 * @param source The query
+	 * @param windowSize The number of rows held
+	 */
+	public WindowedScroller(JdbcSession jdbcSession, KeysetSource<K, T> source, int windowSize) {
+		if ( windowSize <= 0 ) {
+			throw new IllegalArgumentException( "windowSize must be greater than 0" );
+		}
+		this.jdbcSession = jdbcSession;
+		this.source = source;
+		this.window = new Object[windowSize];
+	}
+
+	public boolean next() {
+		return moveTo( position + 1 );
+	}
+
+	public boolean previous() {
+		return moveTo( position - 1 );
+	}
+
+	/**
+	 * Move to the given (0-based) position.
+	 *
+	 * @param target The position
+	 *
+	 * @return {@code true} if there is a row at that position; {@code false} if the position is before the first
+	 * or after the last row.
+	 */
+	public boolean moveTo(int target) {
+		if ( target < 0 ) {
+			position = -1;
+			return false;
+		}
+		if ( target >= windowStart && target < cursor ) {
+			position = target;
+			return true;
+		}
+		if ( target < windowStart || result == null ) {
+			reopen( target / window.length );
+		}
+		try {
+			while ( cursor <= target ) {
+				if ( exhausted || !read() ) {
+					position = cursor;
+					return false;
+				}
+			}
+		}
+		catch (SQLException e) {
+			throw new JDBCException( "Unable to read row " + cursor, e );
+		}
+		position = target;
+		return true;
+	}
+
+	/**
+	 * The row at the current position.
+	 *
+	 * @return The row
+	 *
+	 * @throws IllegalStateException If the scroller is positioned before the first or after the last row
+	 */
+	@SuppressWarnings("unchecked")
+	public T get() {
+		if ( position < windowStart || position >= cursor ) {
+			throw new IllegalStateException( "Not positioned on a row" );
+		}
+		return (T) window[position % window.length];
+	}
+
+	/**
+	 * The current (0-based) position; {@code -1} before the first row.
+	 *
+	 * @return The current position
+	 */
+	public int getPosition() {
+		return position;
+	}
+
+	public void close() {
+		if ( result != null ) {
+			result.close();
+			result = null;
+		}
+	}
+
+	private void reopen(int checkpoint) {
+		close();
+		// there is a checkpoint for every full window read so far
+		final int start = Math.min( checkpoint, checkpoints.size() - 1 );
+		if ( start < 0 ) {
+			result = jdbcSession.accept( source.buildQuery( null ) );
+			cursor = 0;
+		}
+		else {
+			result = jdbcSession.accept( source.buildQuery( checkpoints.get( start ) ) );
+			cursor = start * window.length;
+		}
+		windowStart = cursor;
+		exhausted = false;
+	}
+
+	private boolean read() throws SQLException {
+		final ResultSet resultSet = result.getResultSet();
+		if ( !resultSet.next() ) {
+			exhausted = true;
+			return false;
+		}
+		final T row = source.mapRow( resultSet );
+		if ( cursor % window.length == 0 && cursor / window.length == checkpoints.size() ) {
+			checkpoints.add( source.extractKey( row ) );
+		}
+		window[cursor % window.length] = row;
+		cursor++;
+		windowStart = Math.max( windowStart, cursor - window.length );
+		return true;
+	}
+}
@@ -0,0 +1,41 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * Copyright (c) 2014, Red Hat Inc. or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.  All third-party contributions are
+ * distributed under license by Red Hat Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.hibernate.resource.transaction;
+
+import javax.transaction.Synchronization;
+
+/**
+ * Marks a (local) {@link Synchronization} whose {@link #afterCompletion} may be notified asynchronously, after the
+ * transaction completed, rather than on the completing thread.  Meant for slow listeners, such as cache broadcast
+ * or event publishing, which should not add to commit latency.
+ * <p/>
+ * Asynchronous notification only happens when the TransactionCoordinator was built with an
+ * {@link org.hibernate.resource.transaction.spi.AfterCompletionDispatcher}; otherwise these Synchronizations are
+ * notified like any other.  Exceptions thrown by an asynchronously notified afterCompletion are logged, not
+ * propagated.  {@link #beforeCompletion} is always notified on the completing thread.
+ *
+ * @author Andrea Boriero
+ */
+public interface AsynchronousSynchronization extends Synchronization {
+}
@@ -28,16 +28,45 @@ import javax.transaction.Synchronization;
 
 /**
  * Manages a registry of (local) JTA {@link Synchronization} instances
+ * <p/>
+ * Synchronizations are registered into a phase.  Phases are notified in ascending order, both before and after
+ * completion; within a phase Synchronizations are notified in registration order.
  *
  * @author Steve Ebersole
  */
 public interface SynchronizationRegistry extends Serializable {
 	/**
-	 * Register a {@link Synchronization} callback for this transaction.
+	 * Phase for Synchronizations which must be notified before all others, e.g. cache invalidation.
+	 */
+	int EARLY_PHASE = -100;
+
+	/**
+	 * Phase used when none is specified.
+	 */
+	int DEFAULT_PHASE = 0;
+
+	/**
+	 * Phase for Synchronizations which should be notified after all others, e.g. audit logging.
+	 */
+	int LATE_PHASE = 100;
+
+	/**
+	 * Register a {@link Synchronization} callback for this transaction, in the {@link #DEFAULT_PHASE}.
 	 *
 	 * @param synchronization The synchronization callback to register.
 	 *
 	 * @throws NullSynchronizationException if the synchronization is {@code null}
 	 */
 	void registerSynchronization(Synchronization synchronization);
+
+	/**
+	 * Register a {@link Synchronization} callback for this transaction, in the given phase.  A Synchronization
+	 * already registered (in whatever phase) is not registered again.
+	 *
+	 * @param synchronization The synchronization callback to register.
+	 * @param phase The phase; lower phases are notified first
+	 *
+	 * @throws NullSynchronizationException if the synchronization is {@code null}
+	 */
+	void registerSynchronization(Synchronization synchronization, int phase);
 }
@@ -23,6 +23,8 @@
  */
 package org.hibernate.resource.transaction;
 
+import java.util.concurrent.Future;
+
 /**
  * Models the coordination of all transaction related flows.
  *
@@ -93,4 +95,40 @@ public interface TransactionCoordinator {
 		//
 		//		if
 	}
+
+	/**
+	 * The LocalInflow of a resource-local TransactionCoordinator in group-commit mode: rather than being performed
+	 * against the data store of the owner, the work of the transaction is enlisted and handed over to a
+	 * {@link org.hibernate.resource.transaction.backend.store.spi.GroupCommitter} upon commit.
+	 * <p/>
+	 * Before-completion callbacks are performed by the committing thread; after-completion callbacks by the thread of
+	 * the GroupCommitter, before the future returned by {@link #commitAsync()} completes.  A new transaction cannot
+	 * be begun until then.
+	 *
+	 * @param <W> The type of the work units
+	 */
+	public interface GroupCommitInflow<W> extends LocalInflow {
+		/**
+		 * Enlist a unit of work in the current transaction
+		 *
+		 * @param workUnit The work unit
+		 */
+		public void enlist(W workUnit);
+
+		/**
+		 * Hand the enlisted work over to the GroupCommitter.
+		 *
+		 * @return The future completing once the work was committed, or failing with a
+		 * {@link org.hibernate.TransactionException} if it was rolled back.
+		 */
+		public Future<Void> commitAsync();
+
+		/**
+		 * Hand the enlisted work over to the GroupCommitter and wait for it to be committed.
+		 *
+		 * @throws org.hibernate.TransactionException if the work was rolled back
+		 */
+		@Override
+		public void commit();
+	}
 }
@@ -24,6 +24,7 @@
 package org.hibernate.resource.transaction;
 
 import org.hibernate.engine.transaction.jta.platform.spi.JtaPlatform;
+import org.hibernate.resource.transaction.spi.AfterCompletionDispatcher;
 
 /**
  * A builder of TransactionCoordinator instances intended for use in JTA environments.
@@ -74,4 +75,14 @@ public interface TransactionCoordinatorJtaBuilder extends TransactionCoordinator
 	 * @return {@code this}, for method chaining
 	 */
 	public TransactionCoordinatorJtaBuilder setPerformJtaThreadTracking(boolean performJtaThreadTracking);
+
+	/**
+	 * Opt into asynchronous after-completion notification of {@link AsynchronousSynchronization}s.
+	 *
+	 * @param afterCompletionDispatcher The dispatcher; {@code null} (the default) notifies all local
+	 * Synchronizations on the completing thread
+	 *
+	 * @return {@code this}, for method chaining
+	 */
+	public TransactionCoordinatorJtaBuilder setAfterCompletionDispatcher(AfterCompletionDispatcher afterCompletionDispatcher);
 }
@@ -24,6 +24,8 @@
 package org.hibernate.resource.transaction;
 
 import org.hibernate.resource.transaction.backend.store.spi.DataStoreTransactionAccess;
+import org.hibernate.resource.transaction.backend.store.spi.GroupCommitter;
+import org.hibernate.resource.transaction.spi.AfterCompletionDispatcher;
 
 /**
  * A builder of TransactionCoordinator instances intended for use in resource-local mode (non-JTA transactions local
@@ -48,4 +50,20 @@ public interface TransactionCoordinatorResourceLocalBuilder extends TransactionC
 	 * @param dataStoreTransactionAccess Access
 	 */
 	public void setResourceLocalTransactionAccess(DataStoreTransactionAccess dataStoreTransactionAccess);
+
+	/**
+	 * Opt into group-commit mode: the TransactionCoordinators built hand the work of their transactions over to the
+	 * given GroupCommitter, and their LocalInflow is a {@link TransactionCoordinator.GroupCommitInflow}.
+	 *
+	 * @param groupCommitter The GroupCommitter; {@code null} (the default) disables group-commit mode
+	 */
+	public void setGroupCommitter(GroupCommitter<?> groupCommitter);
+
+	/**
+	 * Opt into asynchronous after-completion notification of {@link AsynchronousSynchronization}s.
+	 *
+	 * @param afterCompletionDispatcher The dispatcher; {@code null} (the default) notifies all local
+	 * Synchronizations on the completing thread
+	 */
+	public void setAfterCompletionDispatcher(AfterCompletionDispatcher afterCompletionDispatcher);
 }
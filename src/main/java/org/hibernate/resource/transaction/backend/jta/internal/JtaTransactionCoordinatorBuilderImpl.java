@@ -26,6 +26,7 @@ package org.hibernate.resource.transaction.backend.jta.internal;
 import org.hibernate.engine.transaction.jta.platform.spi.JtaPlatform;
 import org.hibernate.resource.transaction.TransactionCoordinatorJtaBuilder;
 import org.hibernate.resource.transaction.TransactionCoordinator;
+import org.hibernate.resource.transaction.spi.AfterCompletionDispatcher;
 import org.hibernate.resource.transaction.spi.TransactionCoordinatorOwner;
 
 /**
@@ -38,6 +39,7 @@ public class JtaTransactionCoordinatorBuilderImpl implements TransactionCoordina
 	private boolean autoJoinTransactions = true;
 	private boolean preferUserTransactions;
 	private boolean performJtaThreadTracking = true;
+	private AfterCompletionDispatcher afterCompletionDispatcher;
 
 	@Override
 	public TransactionCoordinatorJtaBuilder setJtaPlatform(JtaPlatform jtaPlatform) {
@@ -63,6 +65,12 @@ public class JtaTransactionCoordinatorBuilderImpl implements TransactionCoordina
 		return this;
 	}
 
+	@Override
+	public TransactionCoordinatorJtaBuilder setAfterCompletionDispatcher(AfterCompletionDispatcher afterCompletionDispatcher) {
+		this.afterCompletionDispatcher = afterCompletionDispatcher;
+		return this;
+	}
+
 	@Override
 	public TransactionCoordinator buildTransactionCoordinator(TransactionCoordinatorOwner owner) {
 		return new JtaTransactionCoordinatorImpl(
@@ -70,7 +78,8 @@ public class JtaTransactionCoordinatorBuilderImpl implements TransactionCoordina
 				jtaPlatform,
 				autoJoinTransactions,
 				preferUserTransactions,
-				performJtaThreadTracking
+				performJtaThreadTracking,
+				afterCompletionDispatcher
 		);
 	}
 }
@@ -9,7 +9,8 @@ import org.hibernate.engine.transaction.jta.platform.spi.JtaPlatform;
 import org.hibernate.resource.transaction.SynchronizationRegistry;
 import org.hibernate.resource.transaction.TransactionCoordinator;
 import org.hibernate.resource.transaction.spi.TransactionCoordinatorOwner;
-import org.hibernate.resource.transaction.internal.SynchronizationRegistryStandardImpl;
+import org.hibernate.resource.transaction.internal.SynchronizationRegistryCompactImpl;
+import org.hibernate.resource.transaction.spi.AfterCompletionDispatcher;
 import org.hibernate.resource.transaction.backend.jta.internal.synchronization.RegisteredSynchronization;
 import org.hibernate.resource.transaction.backend.jta.internal.synchronization.SynchronizationCallbackCoordinatorNonTrackingImpl;
 import org.hibernate.resource.transaction.backend.jta.internal.synchronization.SynchronizationCallbackCoordinatorTrackingImpl;
@@ -38,7 +39,7 @@ public class JtaTransactionCoordinatorImpl implements TransactionCoordinator, Sy
 	private SynchronizationCallbackCoordinator callbackCoordinator;
 	private TransactionDriverControlImpl physicalTransactionDelegate;
 
-	private final SynchronizationRegistryStandardImpl synchronizationRegistry = new SynchronizationRegistryStandardImpl();
+	private final SynchronizationRegistryCompactImpl synchronizationRegistry;
 
 	/**
 	 * Construct a JtaTransactionCoordinatorImpl instance.  package-protected to ensure access goes through
@@ -49,18 +50,22 @@ public class JtaTransactionCoordinatorImpl implements TransactionCoordinator, Sy
 	 * @param autoJoinTransactions Should JTA transactions be auto-joined?  Or should we wait for explicit join calls?
 	 * @param preferUserTransactions Should we prefer using UserTransaction, as opposed to TransactionManager?
 	 * @param performJtaThreadTracking Should we perform thread tracking?
+	 * @param afterCompletionDispatcher The dispatcher for asynchronous after-completion notifications; may be
+	 * {@code null}
 	 */
 	JtaTransactionCoordinatorImpl(
 			TransactionCoordinatorOwner owner,
 			JtaPlatform jtaPlatform,
 			boolean autoJoinTransactions,
 			boolean preferUserTransactions,
-			boolean performJtaThreadTracking) {
+			boolean performJtaThreadTracking,
+			AfterCompletionDispatcher afterCompletionDispatcher) {
 		this.owner = owner;
 		this.jtaPlatform = jtaPlatform;
 		this.autoJoinTransactions = autoJoinTransactions;
 		this.preferUserTransactions = preferUserTransactions;
 		this.performJtaThreadTracking = performJtaThreadTracking;
+		this.synchronizationRegistry = new SynchronizationRegistryCompactImpl( afterCompletionDispatcher );
 
 		synchronizationRegistered = false;
 
@@ -23,6 +23,8 @@
  */
 package org.hibernate.resource.transaction.backend.jta.internal.synchronization;
 
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
 import org.hibernate.HibernateException;
 import org.hibernate.engine.transaction.internal.jta.JtaStatusHelper;
 import org.hibernate.internal.CoreMessageLogger;
@@ -32,6 +34,12 @@ import static org.hibernate.internal.CoreLogging.messageLogger;
 /**
  * Extension of SynchronizationCallbackCoordinatorNonTrackingImpl that adds checking of whether a rollback comes from
  * a thread other than the application thread (thread used to register the Synchronization)
+ * <p/>
+ * All tracking state lives in a single field: no thread registered yet, the registration thread itself, or the
+ * marker of a delayed after-completion.  The field is only ever written through ordered (release) stores, and
+ * {@link #reset()} skips the store altogether when there is nothing to clear, so the common path of a transaction
+ * completing on its registration thread pays for no full memory fence.  Threads are compared by reference rather
+ * than by id.
  * 
  * @author Steve Ebersole
  * @author Brett Meyer
@@ -39,11 +47,14 @@ import static org.hibernate.internal.CoreLogging.messageLogger;
 public class SynchronizationCallbackCoordinatorTrackingImpl extends SynchronizationCallbackCoordinatorNonTrackingImpl {
 	private static final CoreMessageLogger log = messageLogger( SynchronizationCallbackCoordinatorTrackingImpl.class );
 
-	// magic number :(
-	private static final long NO_THREAD_ID = Long.MIN_VALUE;
+	// the state marking a rollback from a thread other than the registration thread, see HHH-7910
+	private static final Object DELAYED_COMPLETION = new Object();
+
+	private static final AtomicReferenceFieldUpdater<SynchronizationCallbackCoordinatorTrackingImpl, Object> STATE_UPDATER =
+			AtomicReferenceFieldUpdater.newUpdater( SynchronizationCallbackCoordinatorTrackingImpl.class, Object.class, "state" );
 
-	private volatile long registrationThreadId;
-	private volatile boolean delayedCompletionHandling;
+	// null, the registration Thread or DELAYED_COMPLETION; only written through STATE_UPDATER.lazySet
+	private volatile Object state;
 
 	public SynchronizationCallbackCoordinatorTrackingImpl(SynchronizationCallbackTarget target) {
 		super( target );
@@ -56,11 +67,12 @@ public class SynchronizationCallbackCoordinatorTrackingImpl extends Synchronizat
 		// 		1) on initialization, and
 		// 		2) after "after completion" handling is finished.
 		//
-		// Here we use that to "clear out" all 'delayed after-completion" state.  The registrationThreadId will
+		// Here we use that to "clear out" all 'delayed after-completion" state.  The registration thread will
 		// "lazily" be re-populated on the next synchronizationRegistered call to allow for the potential of the next Session transaction
 		// occurring on a different thread (though that transaction would need to completely operate on that thread).
-		delayedCompletionHandling = false;
-		registrationThreadId = NO_THREAD_ID;
+		if ( state != null ) {
+			STATE_UPDATER.lazySet( this, null );
+		}
 	}
 
 	@Override
@@ -73,12 +85,10 @@ public class SynchronizationCallbackCoordinatorTrackingImpl extends Synchronizat
 		// as accessing the current thread, we check that first
 		if ( JtaStatusHelper.isRollback( status ) ) {
 			// we are processing a rollback, see if it is the same thread
-			final long currentThreadId = Thread.currentThread().getId();
-			final boolean isRegistrationThread = currentThreadId == registrationThreadId;
-			if ( ! isRegistrationThread ) {
-				// so we do have the condition of a rollback initiated from a separate thread.  Set the flag here and
-				// check for it in SessionImpl. See HHH-7910.
-				delayedCompletionHandling = true;
+			if ( state != Thread.currentThread() ) {
+				// so we do have the condition of a rollback initiated from a separate thread.  Flag it here (the
+				// release store publishes it to the registration thread) and check for it in SessionImpl. See HHH-7910.
+				STATE_UPDATER.lazySet( this, DELAYED_COMPLETION );
 
 				// todo : update code to use message logger
 				//log.rollbackFromBackgroundThread( status );
@@ -93,15 +103,15 @@ public class SynchronizationCallbackCoordinatorTrackingImpl extends Synchronizat
 
 	@Override
 	public void synchronizationRegistered() {
-		// If this is the first call to synchronizationRegistered since an earlier call to reset, capture the current thread id
-		if ( registrationThreadId == NO_THREAD_ID ) {
-			registrationThreadId = Thread.currentThread().getId();
+		// If this is the first call to synchronizationRegistered since an earlier call to reset, capture the current thread
+		if ( state == null ) {
+			STATE_UPDATER.lazySet( this, Thread.currentThread() );
 		}
 	}
 
 	@Override
 	public void processAnyDelayedAfterCompletion() {
-		if ( delayedCompletionHandling ) {
+		if ( state == DELAYED_COMPLETION ) {
 			// false here because, as discussed above, the delayed logic should only ever occur during rollback
 			doAfterCompletion( false );
 			// NOTE : doAfterCompletion calls reset
@@ -0,0 +1,82 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * Copyright (c) 2014, Red Hat Inc. or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.  All third-party contributions are
+ * distributed under license by Red Hat Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.hibernate.resource.transaction.backend.store.internal;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * The Future of the work of a local transaction handed over to a GroupCommitter.  It cannot be cancelled, as the
+ * work may already be part of a physical transaction.
+ *
+ * @author Andrea Boriero
+ */
+class GroupCommitFuture implements Future<Void> {
+	private final CountDownLatch latch = new CountDownLatch( 1 );
+	private volatile Throwable failure;
+
+	void complete(Throwable failure) {
+		this.failure = failure;
+		latch.countDown();
+	}
+
+	@Override
+	public boolean cancel(boolean mayInterruptIfRunning) {
+		return false;
+	}
+
+	@Override
+	public boolean isCancelled() {
+		return false;
+	}
+
+	@Override
+	public boolean isDone() {
+		return latch.getCount() == 0;
+	}
+
+	@Override
+	public Void get() throws InterruptedException, ExecutionException {
+		latch.await();
+		return result();
+	}
+
+	@Override
+	public Void get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+		if ( !latch.await( timeout, unit ) ) {
+			throw new TimeoutException();
+		}
+		return result();
+	}
+
+	private Void result() throws ExecutionException {
+		if ( failure != null ) {
+			throw new ExecutionException( failure );
+		}
+		return null;
+	}
+}
@@ -26,6 +26,8 @@ package org.hibernate.resource.transaction.backend.store.internal;
 import org.hibernate.HibernateException;
 import org.hibernate.resource.transaction.TransactionCoordinator;
 import org.hibernate.resource.transaction.backend.store.spi.DataStoreTransactionAccess;
+import org.hibernate.resource.transaction.backend.store.spi.GroupCommitter;
+import org.hibernate.resource.transaction.spi.AfterCompletionDispatcher;
 import org.hibernate.resource.transaction.spi.TransactionCoordinatorOwner;
 import org.hibernate.resource.transaction.TransactionCoordinatorResourceLocalBuilder;
 
@@ -36,20 +38,42 @@ import org.hibernate.resource.transaction.TransactionCoordinatorResourceLocalBui
  */
 public class ResourceLocalTransactionCoordinatorBuilderImpl implements TransactionCoordinatorResourceLocalBuilder {
 	private DataStoreTransactionAccess providedDataStoreTransactionAccess;
+	private GroupCommitter<?> groupCommitter;
+	private AfterCompletionDispatcher afterCompletionDispatcher;
 
 	@Override
 	public void setResourceLocalTransactionAccess(DataStoreTransactionAccess dataStoreTransactionAccess) {
 		this.providedDataStoreTransactionAccess = dataStoreTransactionAccess;
 	}
 
+	@Override
+	public void setGroupCommitter(GroupCommitter<?> groupCommitter) {
+		this.groupCommitter = groupCommitter;
+	}
+
+	@Override
+	public void setAfterCompletionDispatcher(AfterCompletionDispatcher afterCompletionDispatcher) {
+		this.afterCompletionDispatcher = afterCompletionDispatcher;
+	}
+
 	@Override
 	public TransactionCoordinator buildTransactionCoordinator(TransactionCoordinatorOwner owner) {
 		if ( providedDataStoreTransactionAccess != null ) {
-			return new ResourceLocalTransactionCoordinatorImpl( owner, providedDataStoreTransactionAccess );
+			return new ResourceLocalTransactionCoordinatorImpl(
+					owner,
+					providedDataStoreTransactionAccess,
+					groupCommitter,
+					afterCompletionDispatcher
+			);
 		}
 		else {
 			if ( owner instanceof DataStoreTransactionAccess ) {
-				return new ResourceLocalTransactionCoordinatorImpl( owner, (DataStoreTransactionAccess) owner );
+				return new ResourceLocalTransactionCoordinatorImpl(
+						owner,
+						(DataStoreTransactionAccess) owner,
+						groupCommitter,
+						afterCompletionDispatcher
+				);
 			}
 		}
 
@@ -23,14 +23,21 @@
  */
 package org.hibernate.resource.transaction.backend.store.internal;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import javax.transaction.Status;
 
+import org.hibernate.TransactionException;
 import org.hibernate.internal.CoreMessageLogger;
 import org.hibernate.resource.transaction.backend.store.spi.DataStoreTransaction;
 import org.hibernate.resource.transaction.backend.store.spi.DataStoreTransactionAccess;
-import org.hibernate.resource.transaction.internal.SynchronizationRegistryStandardImpl;
+import org.hibernate.resource.transaction.backend.store.spi.GroupCommitter;
+import org.hibernate.resource.transaction.internal.SynchronizationRegistryCompactImpl;
 import org.hibernate.resource.transaction.SynchronizationRegistry;
 import org.hibernate.resource.transaction.TransactionCoordinator;
+import org.hibernate.resource.transaction.spi.AfterCompletionDispatcher;
 import org.hibernate.resource.transaction.spi.TransactionCoordinatorOwner;
 
 import static org.hibernate.internal.CoreLogging.messageLogger;
@@ -48,9 +55,11 @@ public class ResourceLocalTransactionCoordinatorImpl implements TransactionCoord
 
 	private final DataStoreTransactionAccess dataStoreTransactionAccess;
 	private final TransactionCoordinatorOwner owner;
-	private final SynchronizationRegistryStandardImpl synchronizationRegistry = new SynchronizationRegistryStandardImpl();
+	private final SynchronizationRegistryCompactImpl synchronizationRegistry;
+	private final GroupCommitter<Object> groupCommitter;
 
-	private TransactionDriverControlImpl physicalTransactionDelegate;
+	// in group-commit mode, invalidated from the GroupCommitter thread
+	private volatile TransactionDriverControlImpl physicalTransactionDelegate;
 
 	/**
 	 * Construct a ResourceLocalTransactionCoordinatorImpl instance.  package-protected to ensure access goes through
@@ -61,8 +70,29 @@ public class ResourceLocalTransactionCoordinatorImpl implements TransactionCoord
 	ResourceLocalTransactionCoordinatorImpl(
 			TransactionCoordinatorOwner owner,
 		DataStoreTransactionAccess dataStoreTransactionAccess) {
+		this( owner, dataStoreTransactionAccess, null, null );
+	}
+
+	/**
+	 * Construct a ResourceLocalTransactionCoordinatorImpl instance.  package-protected to ensure access goes through
+	 * builder.
+	 *
+	 * @param owner The owner
+	 * @param groupCommitter The GroupCommitter to hand the work of transactions over to; {@code null} to manage
+	 * transactions through the ResourceLocalTransaction
+	 * @param afterCompletionDispatcher The dispatcher for asynchronous after-completion notifications; may be
+	 * {@code null}
+	 */
+	@SuppressWarnings("unchecked")
+	ResourceLocalTransactionCoordinatorImpl(
+			TransactionCoordinatorOwner owner,
+			DataStoreTransactionAccess dataStoreTransactionAccess,
+			GroupCommitter<?> groupCommitter,
+			AfterCompletionDispatcher afterCompletionDispatcher) {
 		this.dataStoreTransactionAccess = dataStoreTransactionAccess;
 		this.owner = owner;
+		this.groupCommitter = (GroupCommitter<Object>) groupCommitter;
+		this.synchronizationRegistry = new SynchronizationRegistryCompactImpl( afterCompletionDispatcher );
 	}
 
 	@Override
@@ -71,7 +101,12 @@ public class ResourceLocalTransactionCoordinatorImpl implements TransactionCoord
 		// coordinator.  We lazily build it as we invalidate each delegate after each transaction (a delegate is
 		// valid for just one transaction)
 		if ( physicalTransactionDelegate == null ) {
-			physicalTransactionDelegate = new TransactionDriverControlImpl( dataStoreTransactionAccess.getResourceLocalTransaction() );
+			if ( groupCommitter != null ) {
+				physicalTransactionDelegate = new GroupCommitDriverControlImpl();
+			}
+			else {
+				physicalTransactionDelegate = new TransactionDriverControlImpl( dataStoreTransactionAccess.getResourceLocalTransaction() );
+			}
 		}
 		return physicalTransactionDelegate;
 	}
@@ -175,4 +210,106 @@ public class ResourceLocalTransactionCoordinatorImpl implements TransactionCoord
 			ResourceLocalTransactionCoordinatorImpl.this.afterCompletionCallback( false );
 		}
 	}
+
+	/**
+	 * The delegate of a coordinator in group-commit mode, enlisting the work of the transaction to hand it over to
+	 * the GroupCommitter upon commit.
+	 */
+	public class GroupCommitDriverControlImpl extends TransactionDriverControlImpl implements GroupCommitInflow<Object> {
+		private final List<Object> workUnits = new ArrayList<Object>();
+		private boolean active;
+		private GroupCommitFuture future;
+
+		public GroupCommitDriverControlImpl() {
+			// the work is performed by the GroupCommitter, never against the data store of the owner
+			super( null );
+		}
+
+		@Override
+		public void begin() {
+			errorIfInvalid();
+			if ( future != null ) {
+				throw new IllegalStateException( "Group commit of the previous transaction is still pending" );
+			}
+			if ( active ) {
+				throw new IllegalStateException( "Transaction already begun" );
+			}
+
+			active = true;
+			ResourceLocalTransactionCoordinatorImpl.this.afterBeginCallback();
+		}
+
+		@Override
+		public void enlist(Object workUnit) {
+			errorIfNotActive();
+			workUnits.add( workUnit );
+		}
+
+		@Override
+		public Future<Void> commitAsync() {
+			errorIfNotActive();
+			ResourceLocalTransactionCoordinatorImpl.this.beforeCompletionCallback();
+
+			active = false;
+			final GroupCommitFuture groupCommitFuture = new GroupCommitFuture();
+			future = groupCommitFuture;
+			groupCommitter.submit(
+					new ArrayList<Object>( workUnits ),
+					new GroupCommitter.Callback() {
+						@Override
+						public void completed(Throwable failure) {
+							Throwable outcome = failure == null
+									? null
+									: new TransactionException( "Work rolled back by group commit", failure );
+							try {
+								ResourceLocalTransactionCoordinatorImpl.this.afterCompletionCallback( failure == null );
+							}
+							catch (RuntimeException e) {
+								if ( outcome == null ) {
+									outcome = e;
+								}
+							}
+							finally {
+								groupCommitFuture.complete( outcome );
+							}
+						}
+					}
+			);
+			workUnits.clear();
+			return groupCommitFuture;
+		}
+
+		@Override
+		public void commit() {
+			try {
+				commitAsync().get();
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new TransactionException( "Interrupted while waiting for group commit", e );
+			}
+			catch (ExecutionException e) {
+				if ( e.getCause() instanceof RuntimeException ) {
+					throw (RuntimeException) e.getCause();
+				}
+				throw new TransactionException( "Group commit failed", e.getCause() );
+			}
+		}
+
+		@Override
+		public void rollback() {
+			errorIfNotActive();
+
+			active = false;
+			workUnits.clear();
+			ResourceLocalTransactionCoordinatorImpl.this.afterCompletionCallback( false );
+		}
+
+		private void errorIfNotActive() {
+			errorIfInvalid();
+			if ( !active ) {
+				throw new IllegalStateException( "Transaction not active" );
+			}
+		}
+	}
 }
@@ -0,0 +1,61 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * Copyright (c) 2014, Red Hat Inc. or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.  All third-party contributions are
+ * distributed under license by Red Hat Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.hibernate.resource.transaction.backend.store.spi;
+
+import java.util.List;
+
+/**
+ * Performs the work of many resource-local transactions together, within a small number of physical transactions
+ * each committed once ("group commit").  This trades a little latency for much fewer commits, which pays off
+ * for small transactions against databases whose commits are bound by disk flushes.
+ *
+ * @param <W> The type of the work units
+ *
+ * @author Andrea Boriero
+ *
+ * @see org.hibernate.resource.transaction.TransactionCoordinator.GroupCommitInflow
+ */
+public interface GroupCommitter<W> {
+	/**
+	 * Hand over the work units of one local transaction.  The units are performed in order; if one of them fails,
+	 * the work of this local transaction (and only this one) is rolled back.
+	 *
+	 * @param workUnits The work units of the local transaction
+	 * @param callback The callback to notify once the physical transaction the units were performed in completed
+	 */
+	public void submit(List<W> workUnits, Callback callback);
+
+	/**
+	 * Notified of the outcome of the work of a local transaction
+	 */
+	public interface Callback {
+		/**
+		 * Notification that the physical transaction completed.
+		 *
+		 * @param failure The reason the work of the local transaction was rolled back; {@code null} if it was
+		 * committed
+		 */
+		public void completed(Throwable failure);
+	}
+}
@@ -0,0 +1,193 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * Copyright (c) 2014, Red Hat Inc. or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.  All third-party contributions are
+ * distributed under license by Red Hat Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.hibernate.resource.transaction.internal;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import javax.transaction.Synchronization;
+
+import org.hibernate.internal.CoreLogging;
+import org.hibernate.internal.CoreMessageLogger;
+import org.hibernate.resource.transaction.spi.AfterCompletionDispatcher;
+
+/**
+ * AfterCompletionDispatcher notifying Synchronizations from a pool of daemon threads.
+ * <p/>
+ * The queue of dispatched, not yet notified transactions is bounded.  When it is full, the Synchronizations are
+ * notified on the dispatching thread instead: completing transactions slow down, rather than notifications being
+ * lost or piling up without limit.  Once closed, the dispatcher notifies on the dispatching thread as well.
+ *
+ * @author Andrea Boriero
+ */
+public class AfterCompletionDispatcherExecutorImpl implements AfterCompletionDispatcher {
+	private static final CoreMessageLogger log = CoreLogging.messageLogger( AfterCompletionDispatcherExecutorImpl.class );
+
+	private final ThreadPoolExecutor executor;
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition drained = lock.newCondition();
+	private int pending;
+
+	/**
+	 * Creates a dispatcher.
+	 *
+	 * @param numberOfThreads The number of notifying threads
+	 * @param queueCapacity The maximum number of transactions waiting to be notified
+	 */
+	public AfterCompletionDispatcherExecutorImpl(int numberOfThreads, int queueCapacity) {
+		if ( numberOfThreads <= 0 ) {
+			throw new IllegalArgumentException( "numberOfThreads must be greater than 0" );
+		}
+		if ( queueCapacity <= 0 ) {
+			throw new IllegalArgumentException( "queueCapacity must be greater than 0" );
+		}
+		this.executor = new ThreadPoolExecutor(
+				numberOfThreads,
+				numberOfThreads,
+				0L,
+				TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<Runnable>( queueCapacity ),
+				new DaemonThreadFactory(),
+				new CallerRunsHandler()
+		);
+	}
+
+	@Override
+	public void dispatch(List<Synchronization> synchronizations, int status) {
+		if ( synchronizations.isEmpty() ) {
+			return;
+		}
+
+		lock.lock();
+		try {
+			pending++;
+		}
+		finally {
+			lock.unlock();
+		}
+		executor.execute( new Notification( synchronizations, status ) );
+	}
+
+	@Override
+	public boolean flush(long timeout) throws InterruptedException {
+		long remaining = TimeUnit.MILLISECONDS.toNanos( timeout );
+		lock.lock();
+		try {
+			while ( pending > 0 ) {
+				if ( remaining <= 0 ) {
+					return false;
+				}
+				remaining = drained.awaitNanos( remaining );
+			}
+			return true;
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public boolean close(long timeout) {
+		executor.shutdown();
+		try {
+			return executor.awaitTermination( timeout, TimeUnit.MILLISECONDS );
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	/**
+	 * The notification of the asynchronous Synchronizations of one transaction
+	 */
+	private class Notification implements Runnable {
+		private final List<Synchronization> synchronizations;
+		private final int status;
+
+		private Notification(List<Synchronization> synchronizations, int status) {
+			this.synchronizations = synchronizations;
+			this.status = status;
+		}
+
+		@Override
+		public void run() {
+			try {
+				notifySynchronizations();
+			}
+			finally {
+				lock.lock();
+				try {
+					if ( --pending == 0 ) {
+						drained.signalAll();
+					}
+				}
+				finally {
+					lock.unlock();
+				}
+			}
+		}
+
+		private void notifySynchronizations() {
+			for ( Synchronization synchronization : synchronizations ) {
+				try {
+					synchronization.afterCompletion( status );
+				}
+				catch (Throwable t) {
+					// nobody left to propagate to
+					log.synchronizationFailed( synchronization, t );
+				}
+			}
+		}
+	}
+
+	/**
+	 * Notifies on the dispatching thread when the queue is full, and also once the executor is shut down (unlike
+	 * {@link ThreadPoolExecutor.CallerRunsPolicy}, which then discards the task) so no notification is ever lost.
+	 */
+	private static class CallerRunsHandler implements RejectedExecutionHandler {
+		@Override
+		public void rejectedExecution(Runnable runnable, ThreadPoolExecutor executor) {
+			runnable.run();
+		}
+	}
+
+	private static class DaemonThreadFactory implements ThreadFactory {
+		private final AtomicInteger threadNumber = new AtomicInteger();
+
+		@Override
+		public Thread newThread(Runnable runnable) {
+			final Thread thread = new Thread( runnable, "hibernate-after-completion-" + threadNumber.incrementAndGet() );
+			thread.setDaemon( true );
+			return thread;
+		}
+	}
+}
@@ -0,0 +1,261 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * Copyright (c) 2014, Red Hat Inc. or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.  All third-party contributions are
+ * distributed under license by Red Hat Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.hibernate.resource.transaction.internal;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.transaction.Synchronization;
+
+import org.hibernate.internal.CoreLogging;
+import org.hibernate.internal.CoreMessageLogger;
+import org.hibernate.resource.transaction.AsynchronousSynchronization;
+import org.hibernate.resource.transaction.LocalSynchronizationException;
+import org.hibernate.resource.transaction.NullSynchronizationException;
+import org.hibernate.resource.transaction.spi.AfterCompletionDispatcher;
+import org.hibernate.resource.transaction.spi.SynchronizationRegistryImplementor;
+
+/**
+ * A lower-overhead implementation of the SynchronizationRegistry contract.
+ * <p/>
+ * Synchronizations are kept in a small array, allocated on first registration and grown as needed, ordered by phase
+ * and then by registration.  Registrations into the highest phase so far (the usual case) simply append.  Clearing the
+ * registry keeps the array, so a registry reused by a coordinator across transactions does not allocate again.
+ * Duplicates are detected by identity : a linear scan for the handful of Synchronizations a transaction usually
+ * sees, and an identity index once that scan would get expensive.  Registration order and the
+ * {@link LocalSynchronizationException} semantics are those of {@link SynchronizationRegistryStandardImpl}.
+ * <p/>
+ * Like the standard implementation, this registry is not thread-safe; it is only ever accessed by the thread
+ * driving the transaction.
+ *
+ * @author Andrea Boriero
+ */
+public class SynchronizationRegistryCompactImpl implements SynchronizationRegistryImplementor {
+	private static final CoreMessageLogger log = CoreLogging.messageLogger( SynchronizationRegistryCompactImpl.class );
+
+	private static final int INITIAL_CAPACITY = 4;
+	// arrays grown beyond this size are not retained once cleared
+	private static final int MAX_RETAINED_CAPACITY = 64;
+	// beyond this many Synchronizations duplicates are detected through the identity index rather than a scan
+	private static final int INDEX_THRESHOLD = 8;
+
+	private final AfterCompletionDispatcher afterCompletionDispatcher;
+
+	private Synchronization[] synchronizations;
+	private int[] phases;
+	private int size;
+	// position of the Synchronization being notified of beforeCompletion; -1 outside of that notification
+	private int cursor = -1;
+	private Map<Synchronization, Boolean> index;
+
+	public SynchronizationRegistryCompactImpl() {
+		this( null );
+	}
+
+	/**
+	 * Creates a registry handing the afterCompletion notification of {@link AsynchronousSynchronization}s over to
+	 * the given dispatcher.
+	 *
+	 * @param afterCompletionDispatcher The dispatcher; {@code null} to notify all Synchronizations synchronously
+	 */
+	public SynchronizationRegistryCompactImpl(AfterCompletionDispatcher afterCompletionDispatcher) {
+		this.afterCompletionDispatcher = afterCompletionDispatcher;
+	}
+
+	/**
+	 * Intended for test access
+	 *
+	 * @return The number of Synchronizations registered
+	 */
+	public int getNumberOfRegisteredSynchronizations() {
+		return size;
+	}
+
+	@Override
+	public void registerSynchronization(Synchronization synchronization) {
+		registerSynchronization( synchronization, DEFAULT_PHASE );
+	}
+
+	@Override
+	public void registerSynchronization(Synchronization synchronization, int phase) {
+		if ( synchronization == null ) {
+			throw new NullSynchronizationException();
+		}
+
+		if ( synchronizations == null ) {
+			synchronizations = new Synchronization[INITIAL_CAPACITY];
+			phases = new int[INITIAL_CAPACITY];
+		}
+		else {
+			if ( isRegistered( synchronization ) ) {
+				log.synchronizationAlreadyRegistered( synchronization );
+				return;
+			}
+			if ( size == synchronizations.length ) {
+				final Synchronization[] grown = new Synchronization[size << 1];
+				System.arraycopy( synchronizations, 0, grown, 0, size );
+				synchronizations = grown;
+				final int[] grownPhases = new int[size << 1];
+				System.arraycopy( phases, 0, grownPhases, 0, size );
+				phases = grownPhases;
+			}
+		}
+
+		// insert after the last Synchronization of the same or a lower phase
+		int position = size;
+		while ( position > 0 && phases[position - 1] > phase ) {
+			position--;
+		}
+		if ( position < size ) {
+			System.arraycopy( synchronizations, position, synchronizations, position + 1, size - position );
+			System.arraycopy( phases, position, phases, position + 1, size - position );
+		}
+		synchronizations[position] = synchronization;
+		phases[position] = phase;
+		size++;
+		if ( position <= cursor ) {
+			// registered from a beforeCompletion call into a phase already notified
+			cursor++;
+		}
+
+		if ( index != null ) {
+			index.put( synchronization, Boolean.TRUE );
+		}
+	}
+
+	private boolean isRegistered(Synchronization synchronization) {
+		if ( index != null ) {
+			return index.containsKey( synchronization );
+		}
+		for ( int i = 0; i < size; i++ ) {
+			if ( synchronizations[i] == synchronization ) {
+				return true;
+			}
+		}
+		if ( size == INDEX_THRESHOLD ) {
+			index = new IdentityHashMap<Synchronization, Boolean>();
+			for ( int i = 0; i < size; i++ ) {
+				index.put( synchronizations[i], Boolean.TRUE );
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public void notifySynchronizationsBeforeTransactionCompletion() {
+		log.trace( "SynchronizationRegistryCompactImpl.notifySynchronizationsBeforeTransactionCompletion" );
+
+		// Synchronizations registered by a beforeCompletion call into the current or a later phase are notified
+		// as well; the cursor keeps track of the position should the array shift underneath
+		try {
+			for ( cursor = 0; cursor < size; cursor++ ) {
+				final Synchronization synchronization = synchronizations[cursor];
+				try {
+					synchronization.beforeCompletion();
+				}
+				catch (Throwable t) {
+					log.synchronizationFailed( synchronization, t );
+					throw new LocalSynchronizationException(
+							"Exception calling user Synchronization (beforeCompletion): " + synchronization.getClass().getName(),
+							t
+					);
+				}
+			}
+		}
+		finally {
+			cursor = -1;
+		}
+	}
+
+	@Override
+	public void notifySynchronizationsAfterTransactionCompletion(int status) {
+		log.tracef(
+				"SynchronizationRegistryCompactImpl.notifySynchronizationsAfterTransactionCompletion(%s)",
+				status
+		);
+
+		if ( size == 0 ) {
+			return;
+		}
+
+		// notified once the others were, so correctness-critical Synchronizations are never held up by them
+		List<Synchronization> asynchronous = null;
+		try {
+			for ( int i = 0; i < size; i++ ) {
+				final Synchronization synchronization = synchronizations[i];
+				if ( afterCompletionDispatcher != null && synchronization instanceof AsynchronousSynchronization ) {
+					if ( asynchronous == null ) {
+						asynchronous = new ArrayList<Synchronization>();
+					}
+					asynchronous.add( synchronization );
+					continue;
+				}
+				try {
+					synchronization.afterCompletion( status );
+				}
+				catch (Throwable t) {
+					log.synchronizationFailed( synchronization, t );
+					throw new LocalSynchronizationException(
+							"Exception calling user Synchronization (afterCompletion): " + synchronization.getClass().getName(),
+							t
+					);
+				}
+			}
+		}
+		finally {
+			try {
+				if ( asynchronous != null ) {
+					afterCompletionDispatcher.dispatch( asynchronous, status );
+				}
+			}
+			finally {
+				clearSynchronizations();
+			}
+		}
+	}
+
+	@Override
+	public void clearSynchronizations() {
+		log.debug( "Clearing local Synchronizations" );
+
+		if ( synchronizations == null ) {
+			return;
+		}
+		if ( synchronizations.length > MAX_RETAINED_CAPACITY ) {
+			synchronizations = null;
+			phases = null;
+			index = null;
+		}
+		else {
+			for ( int i = 0; i < size; i++ ) {
+				synchronizations[i] = null;
+			}
+			if ( index != null ) {
+				index.clear();
+			}
+		}
+		size = 0;
+	}
+}
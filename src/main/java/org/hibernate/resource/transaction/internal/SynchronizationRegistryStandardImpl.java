@@ -23,13 +23,19 @@
  */
 package org.hibernate.resource.transaction.internal;
 
+import java.util.ArrayList;
 import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 import javax.transaction.Synchronization;
 
 import org.hibernate.internal.CoreLogging;
 import org.hibernate.internal.CoreMessageLogger;
+import org.hibernate.resource.transaction.AsynchronousSynchronization;
 import org.hibernate.resource.transaction.LocalSynchronizationException;
 import org.hibernate.resource.transaction.NullSynchronizationException;
+import org.hibernate.resource.transaction.spi.AfterCompletionDispatcher;
 import org.hibernate.resource.transaction.spi.SynchronizationRegistryImplementor;
 
 /**
@@ -40,7 +46,24 @@ import org.hibernate.resource.transaction.spi.SynchronizationRegistryImplementor
 public class SynchronizationRegistryStandardImpl implements SynchronizationRegistryImplementor {
 	private static final CoreMessageLogger log = CoreLogging.messageLogger( SynchronizationRegistryStandardImpl.class );
 
-	private LinkedHashSet<Synchronization> synchronizations;
+	private final AfterCompletionDispatcher afterCompletionDispatcher;
+
+	// Synchronizations by phase, in ascending phase order
+	private TreeMap<Integer, LinkedHashSet<Synchronization>> synchronizations;
+
+	public SynchronizationRegistryStandardImpl() {
+		this( null );
+	}
+
+	/**
+	 * Creates a registry handing the afterCompletion notification of {@link AsynchronousSynchronization}s over to
+	 * the given dispatcher.
+	 *
+	 * @param afterCompletionDispatcher The dispatcher; {@code null} to notify all Synchronizations synchronously
+	 */
+	public SynchronizationRegistryStandardImpl(AfterCompletionDispatcher afterCompletionDispatcher) {
+		this.afterCompletionDispatcher = afterCompletionDispatcher;
+	}
 
 	/**
 	 * Intended for test access
@@ -48,20 +71,45 @@ public class SynchronizationRegistryStandardImpl implements SynchronizationRegis
 	 * @return The number of Synchronizations registered
 	 */
 	public int getNumberOfRegisteredSynchronizations() {
-		return synchronizations == null ? 0 : synchronizations.size();
+		if ( synchronizations == null ) {
+			return 0;
+		}
+		int count = 0;
+		for ( LinkedHashSet<Synchronization> phase : synchronizations.values() ) {
+			count += phase.size();
+		}
+		return count;
 	}
 
 	@Override
 	public void registerSynchronization(Synchronization synchronization) {
+		registerSynchronization( synchronization, DEFAULT_PHASE );
+	}
+
+	@Override
+	public void registerSynchronization(Synchronization synchronization, int phase) {
 		if ( synchronization == null ) {
 			throw new NullSynchronizationException();
 		}
 
 		if ( synchronizations == null ) {
-			synchronizations = new LinkedHashSet<Synchronization>();
+			synchronizations = new TreeMap<Integer, LinkedHashSet<Synchronization>>();
+		}
+
+		for ( Map.Entry<Integer, LinkedHashSet<Synchronization>> entry : synchronizations.entrySet() ) {
+			if ( entry.getKey() != phase && entry.getValue().contains( synchronization ) ) {
+				log.synchronizationAlreadyRegistered( synchronization );
+				return;
+			}
 		}
 
-		final boolean added = synchronizations.add( synchronization );
+		LinkedHashSet<Synchronization> phaseSynchronizations = synchronizations.get( phase );
+		if ( phaseSynchronizations == null ) {
+			phaseSynchronizations = new LinkedHashSet<Synchronization>();
+			synchronizations.put( phase, phaseSynchronizations );
+		}
+
+		final boolean added = phaseSynchronizations.add( synchronization );
 		if ( !added ) {
 			log.synchronizationAlreadyRegistered( synchronization );
 		}
@@ -72,16 +120,18 @@ public class SynchronizationRegistryStandardImpl implements SynchronizationRegis
 		log.trace( "SynchronizationRegistryStandardImpl.notifySynchronizationsBeforeTransactionCompletion" );
 
 		if ( synchronizations != null ) {
-			for ( Synchronization synchronization : synchronizations ) {
-				try {
-					synchronization.beforeCompletion();
-				}
-				catch (Throwable t) {
-					log.synchronizationFailed( synchronization, t );
-					throw new LocalSynchronizationException(
-							"Exception calling user Synchronization (beforeCompletion): " + synchronization.getClass().getName(),
-							t
-					);
+			for ( LinkedHashSet<Synchronization> phase : synchronizations.values() ) {
+				for ( Synchronization synchronization : phase ) {
+					try {
+						synchronization.beforeCompletion();
+					}
+					catch (Throwable t) {
+						log.synchronizationFailed( synchronization, t );
+						throw new LocalSynchronizationException(
+								"Exception calling user Synchronization (beforeCompletion): " + synchronization.getClass().getName(),
+								t
+						);
+					}
 				}
 			}
 		}
@@ -95,22 +145,40 @@ public class SynchronizationRegistryStandardImpl implements SynchronizationRegis
 		);
 
 		if ( synchronizations != null ) {
+			// notified once the others were, so correctness-critical Synchronizations are never held up by them
+			List<Synchronization> asynchronous = null;
 			try {
-				for ( Synchronization synchronization : synchronizations ) {
-					try {
-						synchronization.afterCompletion( status );
-					}
-					catch (Throwable t) {
-						log.synchronizationFailed( synchronization, t );
-						throw new LocalSynchronizationException(
-								"Exception calling user Synchronization (afterCompletion): " + synchronization.getClass().getName(),
-								t
-						);
+				for ( LinkedHashSet<Synchronization> phase : synchronizations.values() ) {
+					for ( Synchronization synchronization : phase ) {
+						if ( afterCompletionDispatcher != null && synchronization instanceof AsynchronousSynchronization ) {
+							if ( asynchronous == null ) {
+								asynchronous = new ArrayList<Synchronization>();
+							}
+							asynchronous.add( synchronization );
+							continue;
+						}
+						try {
+							synchronization.afterCompletion( status );
+						}
+						catch (Throwable t) {
+							log.synchronizationFailed( synchronization, t );
+							throw new LocalSynchronizationException(
+									"Exception calling user Synchronization (afterCompletion): " + synchronization.getClass().getName(),
+									t
+							);
+						}
 					}
 				}
 			}
 			finally {
-				clearSynchronizations();
+				try {
+					if ( asynchronous != null ) {
+						afterCompletionDispatcher.dispatch( asynchronous, status );
+					}
+				}
+				finally {
+					clearSynchronizations();
+				}
 			}
 		}
 	}
@@ -0,0 +1,68 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * Copyright (c) 2014, Red Hat Inc. or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.  All third-party contributions are
+ * distributed under license by Red Hat Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.hibernate.resource.transaction.spi;
+
+import java.util.List;
+import javax.transaction.Synchronization;
+
+/**
+ * Notifies {@link org.hibernate.resource.transaction.AsynchronousSynchronization}s of transaction completion off
+ * the completing thread.  A single dispatcher is generally shared by all the TransactionCoordinators of an
+ * application.
+ *
+ * @author Andrea Boriero
+ *
+ * @see org.hibernate.resource.transaction.TransactionCoordinatorResourceLocalBuilder#setAfterCompletionDispatcher
+ * @see org.hibernate.resource.transaction.TransactionCoordinatorJtaBuilder#setAfterCompletionDispatcher
+ */
+public interface AfterCompletionDispatcher {
+	/**
+	 * Hand over the Synchronizations of a completed transaction.  They are notified in order, by a single thread.
+	 *
+	 * @param synchronizations The Synchronizations to notify
+	 * @param status The transaction status, per {@link javax.transaction.Status} constants
+	 */
+	public void dispatch(List<Synchronization> synchronizations, int status);
+
+	/**
+	 * Wait for all the Synchronizations dispatched so far to have been notified.
+	 *
+	 * @param timeout The maximum time to wait, in milliseconds
+	 *
+	 * @return {@code true} if all were notified; {@code false} if the timeout elapsed first
+	 *
+	 * @throws InterruptedException If interrupted while waiting
+	 */
+	public boolean flush(long timeout) throws InterruptedException;
+
+	/**
+	 * Shut the dispatcher down gracefully: Synchronizations dispatched afterwards are notified on the dispatching
+	 * thread, and those already dispatched are given the chance to be notified.
+	 *
+	 * @param timeout The maximum time to wait for the Synchronizations already dispatched, in milliseconds
+	 *
+	 * @return {@code true} if all were notified; {@code false} if the timeout elapsed first
+	 */
+	public boolean close(long timeout);
+}
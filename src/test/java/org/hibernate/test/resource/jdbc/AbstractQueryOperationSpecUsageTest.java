@@ -47,8 +47,11 @@ import org.junit.Test;
 
 import org.hibernate.test.resource.jdbc.common.JdbcSessionOwnerTestingImpl;
 
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
@@ -153,6 +156,21 @@ public abstract class AbstractQueryOperationSpecUsageTest<T extends QueryOperati
 		verify( statementExecutor ).execute( statement );
 	}
 
+	@Test
+	public void statementIsReleasedWhenBindingParametersFails() throws SQLException {
+		doThrow( new SQLException( "binding failed on purpose" ) ).when( parameterBindings ).bindParameters( statement );
+
+		try {
+			jdbSessionAccept();
+			fail( "Expecting the binding failure to be reported" );
+		}
+		catch (RuntimeException expected) {
+		}
+
+		verify( statement ).close();
+		assertFalse( resourceRegistry.hasRegisteredResources() );
+	}
+
 	private void mockOperationMethods(
 			int queryTimeout,
 			String sql,
@@ -0,0 +1,211 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * Copyright (c) 2014, Red Hat Inc. or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.  All third-party contributions are
+ * distributed under license by Red Hat Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.hibernate.test.resource.jdbc;
+
+import java.sql.SQLException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.hibernate.resource.jdbc.JdbcSession;
+import org.hibernate.resource.jdbc.Operation;
+import org.hibernate.resource.jdbc.OperationRejectedException;
+import org.hibernate.resource.jdbc.internal.AdmissionControllerAimdImpl;
+import org.hibernate.resource.jdbc.spi.AdmissionController;
+import org.hibernate.resource.jdbc.spi.JdbcSessionFactory;
+
+import org.junit.After;
+import org.junit.Test;
+
+import org.hibernate.test.resource.jdbc.common.JdbcSessionContextStandardTestingImpl;
+import org.hibernate.test.resource.jdbc.common.JdbcSessionOwnerTestingImpl;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author Andrea Boriero
+ */
+public class AdmissionControlTest {
+	private final ExecutorService executorService = Executors.newSingleThreadExecutor();
+
+	@After
+	public void tearDown() {
+		executorService.shutdownNow();
+	}
+
+	@Test
+	public void limitGrowsWhileLatencyIsLow() {
+		final AdmissionControllerAimdImpl controller = new AdmissionControllerAimdImpl( 2, 1, 10, 1000, 0 );
+		for ( int i = 0; i < 20; i++ ) {
+			controller.acquire().release( true );
+		}
+
+		assertTrue( "Limit did not grow : " + controller.getLimit(), controller.getLimit() > 2 );
+		assertThat( controller.getInFlight(), is( 0 ) );
+	}
+
+	@Test
+	public void limitShrinksWhenLatencyExceedsThreshold() throws InterruptedException {
+		final AdmissionControllerAimdImpl controller = new AdmissionControllerAimdImpl( 8, 2, 10, 5, 0 );
+		for ( int i = 0; i < 20; i++ ) {
+			final AdmissionController.Permit permit = controller.acquire();
+			Thread.sleep( 10 );
+			permit.release( true );
+		}
+
+		assertThat( controller.getLimit(), is( 2 ) );
+	}
+
+	@Test
+	public void concurrentSlowOperationsLowerTheLimitOnce() throws InterruptedException {
+		final AdmissionControllerAimdImpl controller = new AdmissionControllerAimdImpl( 8, 2, 10, 5, 0 );
+		final AdmissionController.Permit[] permits = new AdmissionController.Permit[8];
+		for ( int i = 0; i < permits.length; i++ ) {
+			permits[i] = controller.acquire();
+		}
+		Thread.sleep( 10 );
+		for ( AdmissionController.Permit permit : permits ) {
+			permit.release( true );
+		}
+
+		// 8 * 0.9, rather than the minimum reached by backing off once per slow operation
+		assertThat( controller.getLimit(), is( 7 ) );
+	}
+
+	@Test
+	public void failuresDoNotRaiseTheLimit() {
+		final AdmissionControllerAimdImpl controller = new AdmissionControllerAimdImpl( 2, 1, 10, 1000, 0 );
+		for ( int i = 0; i < 20; i++ ) {
+			controller.acquire().release( false );
+		}
+
+		assertThat( controller.getLimit(), is( 2 ) );
+	}
+
+	@Test
+	public void operationsOverTheLimitAreRejectedAfterQueueing() throws Exception {
+		final AdmissionControllerAimdImpl controller = new AdmissionControllerAimdImpl( 1, 1, 1, 60000, 100 );
+		final JdbcSession first = createJdbcSession( controller );
+		final JdbcSession second = createJdbcSession( controller );
+		final CountDownLatch started = new CountDownLatch( 1 );
+		final CountDownLatch finish = new CountDownLatch( 1 );
+		try {
+			final Future<Void> blocking = executorService.submit(
+					new Callable<Void>() {
+						@Override
+						public Void call() throws Exception {
+							return first.accept(
+									new Operation<Void>() {
+										@Override
+										public Void perform(JdbcSession jdbcSession) throws SQLException {
+											started.countDown();
+											try {
+												finish.await();
+											}
+											catch (InterruptedException e) {
+												Thread.currentThread().interrupt();
+											}
+											return null;
+										}
+									}
+							);
+						}
+					}
+			);
+			started.await();
+
+			final long start = System.currentTimeMillis();
+			try {
+				second.accept( noOperation() );
+				fail( "Expecting the operation to be rejected" );
+			}
+			catch (OperationRejectedException expected) {
+			}
+			assertTrue( System.currentTimeMillis() - start >= 90 );
+
+			finish.countDown();
+			blocking.get( 5, TimeUnit.SECONDS );
+
+			second.accept( noOperation() );
+			assertThat( controller.getInFlight(), is( 0 ) );
+		}
+		finally {
+			finish.countDown();
+			first.close();
+			second.close();
+		}
+	}
+
+	@Test
+	public void nestedOperationsRunUnderTheHeldPermit() {
+		final AdmissionControllerAimdImpl controller = new AdmissionControllerAimdImpl( 1, 1, 1, 60000, 100 );
+		final JdbcSession jdbcSession = createJdbcSession( controller );
+		try {
+			final Integer inFlight = jdbcSession.accept(
+					new Operation<Integer>() {
+						@Override
+						public Integer perform(JdbcSession jdbcSession) throws SQLException {
+							jdbcSession.accept( noOperation() );
+							jdbcSession.accept( noOperation() );
+							return controller.getInFlight();
+						}
+					}
+			);
+
+			assertThat( inFlight, is( 1 ) );
+			assertThat( controller.getInFlight(), is( 0 ) );
+		}
+		finally {
+			jdbcSession.close();
+		}
+	}
+
+	private static JdbcSession createJdbcSession(final AdmissionController admissionController) {
+		final JdbcSessionOwnerTestingImpl owner = new JdbcSessionOwnerTestingImpl();
+		owner.setJdbcSessionContext(
+				new JdbcSessionContextStandardTestingImpl() {
+					@Override
+					public AdmissionController getAdmissionController() {
+						return admissionController;
+					}
+				}
+		);
+		return JdbcSessionFactory.INSTANCE.create( owner );
+	}
+
+	private static Operation<Void> noOperation() {
+		return new Operation<Void>() {
+			@Override
+			public Void perform(JdbcSession jdbcSession) throws SQLException {
+				return null;
+			}
+		};
+	}
+}
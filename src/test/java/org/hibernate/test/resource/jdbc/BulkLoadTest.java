@@ -0,0 +1,261 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * Copyright (c) 2014, Red Hat Inc. or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.  All third-party contributions are
+ * distributed under license by Red Hat Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.hibernate.test.resource.jdbc;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.hibernate.HibernateException;
+import org.hibernate.resource.jdbc.BulkLoadOperationSpec;
+import org.hibernate.resource.jdbc.JdbcSession;
+import org.hibernate.resource.jdbc.internal.BulkLoaderH2CsvImpl;
+import org.hibernate.resource.jdbc.spi.BulkLoader;
+import org.hibernate.resource.jdbc.spi.JdbcObserver;
+import org.hibernate.resource.jdbc.spi.JdbcSessionFactory;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.hibernate.test.resource.jdbc.common.JdbcObserverNoOpImpl;
+import org.hibernate.test.resource.jdbc.common.JdbcSessionContextStandardTestingImpl;
+import org.hibernate.test.resource.jdbc.common.JdbcSessionOwnerTestingImpl;
+import org.hibernate.test.resource.jdbc.common.UrlConnectionAccessTestingImpl;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * @author Andrea Boriero
+ */
+public class BulkLoadTest {
+	private static final int ROW_COUNT = 1000;
+	private static final Timestamp CREATED = Timestamp.valueOf( "2014-06-01 10:15:30.5" );
+	private static final byte[] DATA = new byte[] { 0, -1, -128, 1 };
+
+	private final UrlConnectionAccessTestingImpl connectionAccess = new UrlConnectionAccessTestingImpl(
+			"jdbc:h2:mem:bulk_load;DB_CLOSE_DELAY=-1"
+	);
+
+	private int batches;
+	private JdbcSession jdbcSession;
+
+	@Before
+	public void setUp() throws Exception {
+		execute( "create table SOME_TABLE (ID bigint primary key, NAME varchar(20), CREATED timestamp, DATA varbinary(4))" );
+		final JdbcObserver observer = new JdbcObserverNoOpImpl() {
+			@Override
+			public void jdbcExecuteBatchStart() {
+				batches++;
+			}
+		};
+		final JdbcSessionOwnerTestingImpl owner = new JdbcSessionOwnerTestingImpl();
+		owner.setJdbcConnectionAccess( connectionAccess );
+		owner.setJdbcSessionContext(
+				new JdbcSessionContextStandardTestingImpl() {
+					@Override
+					public JdbcObserver getObserver() {
+						return observer;
+					}
+				}
+		);
+		jdbcSession = JdbcSessionFactory.INSTANCE.create( owner );
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		jdbcSession.close();
+		execute( "drop table SOME_TABLE" );
+	}
+
+	@Test
+	public void testCsvBulkLoad() throws Exception {
+		assertLoad( BulkLoaderH2CsvImpl.INSTANCE );
+	}
+
+	@Test
+	public void testBatchedBulkLoad() throws Exception {
+		assertLoad( null );
+		assertThat( batches, is( ROW_COUNT / 100 ) );
+	}
+
+	@Test
+	public void testBulkLoadIsPartOfTheTransaction() throws Exception {
+		jdbcSession.getTransactionCoordinator().getTransactionDriverControl().begin();
+		assertThat( jdbcSession.accept( new BulkLoadSpec( BulkLoaderH2CsvImpl.INSTANCE ) ), is( (long) ROW_COUNT ) );
+		jdbcSession.getTransactionCoordinator().getTransactionDriverControl().rollback();
+
+		assertThat( queryString( "select count(*) from SOME_TABLE" ), is( "0" ) );
+	}
+
+	@Test
+	public void testCsvBulkLoadRejectsUnsupportedValues() throws Exception {
+		assertRejected( BulkLoaderH2CsvImpl.INSTANCE, new Object[] { 1, "name", new Date(), null } );
+	}
+
+	@Test
+	public void testCsvBulkLoadRejectsRowsOfTheWrongWidth() throws Exception {
+		assertRejected( BulkLoaderH2CsvImpl.INSTANCE, new Object[] { 1, "name" } );
+		assertRejected( BulkLoaderH2CsvImpl.INSTANCE, new Object[] { 1, "name", CREATED, DATA, "extra" } );
+	}
+
+	@Test
+	public void testBatchedBulkLoadRejectsRowsOfTheWrongWidth() throws Exception {
+		assertRejected( null, new Object[] { 1, "name" } );
+		assertRejected( null, new Object[] { 1, "name", CREATED, DATA, "extra" } );
+	}
+
+	private void assertRejected(BulkLoader bulkLoader, final Object[] row) throws Exception {
+		try {
+			jdbcSession.accept(
+					new BulkLoadSpec( bulkLoader ) {
+						@Override
+						public Iterator<Object[]> getRows() {
+							return Collections.singletonList( row ).iterator();
+						}
+					}
+			);
+			fail( "Expecting the row to be rejected" );
+		}
+		catch (HibernateException expected) {
+		}
+		assertThat( queryString( "select count(*) from SOME_TABLE" ), is( "0" ) );
+	}
+
+	private void assertLoad(BulkLoader bulkLoader) throws Exception {
+		assertThat( jdbcSession.accept( new BulkLoadSpec( bulkLoader ) ), is( (long) ROW_COUNT ) );
+		assertFalse( jdbcSession.getLogicalConnection().getResourceRegistry().hasRegisteredResources() );
+
+		assertThat( queryString( "select count(*) from SOME_TABLE" ), is( String.valueOf( ROW_COUNT ) ) );
+		assertThat( queryString( "select NAME from SOME_TABLE where ID = 1" ), is( "name \"1\", 'quoted'" ) );
+		assertThat( queryString( "select CREATED from SOME_TABLE where ID = 1" ), is( CREATED.toString() ) );
+		assertThat( queryString( "select DATA from SOME_TABLE where ID = 1" ), is( "00ff8001" ) );
+		assertThat( queryString( "select NAME from SOME_TABLE where ID = 3" ), is( nullValue() ) );
+		assertThat( queryString( "select CREATED from SOME_TABLE where ID = 3" ), is( nullValue() ) );
+		assertThat( queryString( "select NAME from SOME_TABLE where ID = 5" ), is( "" ) );
+	}
+
+	private String queryString(String sql) throws SQLException {
+		final Connection connection = connectionAccess.obtainConnection();
+		try {
+			final Statement statement = connection.createStatement();
+			final ResultSet resultSet = statement.executeQuery( sql );
+			resultSet.next();
+			final String value = resultSet.getString( 1 );
+			statement.close();
+			return value;
+		}
+		finally {
+			connectionAccess.releaseConnection( connection );
+		}
+	}
+
+	private void execute(String sql) throws SQLException {
+		final Connection connection = connectionAccess.obtainConnection();
+		try {
+			final Statement statement = connection.createStatement();
+			statement.execute( sql );
+			statement.close();
+		}
+		finally {
+			connectionAccess.releaseConnection( connection );
+		}
+	}
+
+	private static class BulkLoadSpec implements BulkLoadOperationSpec {
+		private final BulkLoader bulkLoader;
+
+		private BulkLoadSpec(BulkLoader bulkLoader) {
+			this.bulkLoader = bulkLoader;
+		}
+
+		@Override
+		public String getTableName() {
+			return "SOME_TABLE";
+		}
+
+		@Override
+		public String[] getColumnNames() {
+			return new String[] { "ID", "NAME", "CREATED", "DATA" };
+		}
+
+		@Override
+		public Iterator<Object[]> getRows() {
+			// generated on the fly, never held in memory all at once
+			return new Iterator<Object[]>() {
+				private int next = 1;
+
+				@Override
+				public boolean hasNext() {
+					return next <= ROW_COUNT;
+				}
+
+				@Override
+				public Object[] next() {
+					if ( !hasNext() ) {
+						throw new NoSuchElementException();
+					}
+					final int id = next++;
+					if ( id % 5 == 0 ) {
+						return new Object[] { id, "", CREATED, null };
+					}
+					if ( id % 3 == 0 ) {
+						return new Object[] { id, null, null, null };
+					}
+					return new Object[] { id, "name \"" + id + "\", 'quoted'", CREATED, DATA };
+				}
+
+				@Override
+				public void remove() {
+					throw new UnsupportedOperationException();
+				}
+			};
+		}
+
+		@Override
+		public int getBatchSize() {
+			return 100;
+		}
+
+		@Override
+		public BulkLoader getBulkLoader() {
+			return bulkLoader;
+		}
+
+		@Override
+		public boolean isIdempotent() {
+			return false;
+		}
+	}
+}
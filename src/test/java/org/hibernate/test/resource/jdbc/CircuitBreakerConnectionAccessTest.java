@@ -0,0 +1,191 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * Copyright (c) 2014, Red Hat Inc. or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.  All third-party contributions are
+ * distributed under license by Red Hat Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.hibernate.test.resource.jdbc;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hibernate.resource.jdbc.internal.JdbcConnectionAccessCircuitBreakerImpl;
+import org.hibernate.resource.jdbc.spi.CircuitBreakerObserver;
+import org.hibernate.resource.jdbc.spi.JdbcConnectionAccess;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.hibernate.test.resource.common.DatabaseConnectionInfo;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hibernate.resource.jdbc.spi.CircuitBreakerObserver.State;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * @author Andrea Boriero
+ */
+public class CircuitBreakerConnectionAccessTest {
+	private static final long OPEN_DURATION = 50;
+
+	private final UnreliableConnectionAccess database = new UnreliableConnectionAccess();
+	private final List<String> transitions = new ArrayList<String>();
+	private JdbcConnectionAccessCircuitBreakerImpl circuitBreaker;
+
+	@Before
+	public void setUp() {
+		circuitBreaker = new JdbcConnectionAccessCircuitBreakerImpl(
+				database,
+				3,
+				200,
+				OPEN_DURATION,
+				2,
+				new CircuitBreakerObserver() {
+					@Override
+					public void circuitBreakerStateChanged(State previousState, State newState) {
+						transitions.add( previousState + "->" + newState );
+					}
+				}
+		);
+	}
+
+	@Test
+	public void circuitOpensAfterConsecutiveFailuresAndFailsFast() throws SQLException {
+		database.down = true;
+		for ( int i = 0; i < 3; i++ ) {
+			expectFailure();
+		}
+		assertThat( circuitBreaker.getState(), is( State.OPEN ) );
+		assertThat( database.attempts, is( 3 ) );
+
+		try {
+			circuitBreaker.obtainConnection();
+			fail( "Expecting fail fast while open" );
+		}
+		catch (SQLTransientConnectionException expected) {
+		}
+		assertThat( database.attempts, is( 3 ) );
+		assertThat( transitions.toString(), is( "[CLOSED->OPEN]" ) );
+	}
+
+	@Test
+	public void successResetsTheFailureCount() throws SQLException {
+		database.down = true;
+		expectFailure();
+		expectFailure();
+		database.down = false;
+		release( circuitBreaker.obtainConnection() );
+		database.down = true;
+		expectFailure();
+		expectFailure();
+
+		assertThat( circuitBreaker.getState(), is( State.CLOSED ) );
+	}
+
+	@Test
+	public void successfulProbesCloseTheCircuit() throws Exception {
+		openCircuit();
+		database.down = false;
+		Thread.sleep( OPEN_DURATION * 2 );
+
+		final Connection firstProbe = circuitBreaker.obtainConnection();
+		assertThat( circuitBreaker.getState(), is( State.HALF_OPEN ) );
+		final Connection secondProbe = circuitBreaker.obtainConnection();
+		release( firstProbe );
+		release( secondProbe );
+
+		assertThat( circuitBreaker.getState(), is( State.CLOSED ) );
+		assertThat( transitions.toString(), is( "[CLOSED->OPEN, OPEN->HALF_OPEN, HALF_OPEN->CLOSED]" ) );
+	}
+
+	@Test
+	public void failedProbeReopensTheCircuit() throws Exception {
+		openCircuit();
+		Thread.sleep( OPEN_DURATION * 2 );
+
+		expectFailure();
+
+		assertThat( circuitBreaker.getState(), is( State.OPEN ) );
+		assertThat( transitions.toString(), is( "[CLOSED->OPEN, OPEN->HALF_OPEN, HALF_OPEN->OPEN]" ) );
+	}
+
+	@Test
+	public void slowAcquisitionsCountAsFailures() throws SQLException {
+		database.latency = 300;
+		for ( int i = 0; i < 3; i++ ) {
+			release( circuitBreaker.obtainConnection() );
+		}
+
+		assertThat( circuitBreaker.getState(), is( State.OPEN ) );
+	}
+
+	private void openCircuit() {
+		database.down = true;
+		for ( int i = 0; i < 3; i++ ) {
+			expectFailure();
+		}
+		assertThat( circuitBreaker.getState(), is( State.OPEN ) );
+	}
+
+	private void expectFailure() {
+		try {
+			circuitBreaker.obtainConnection();
+			fail( "Expecting the acquisition to fail" );
+		}
+		catch (SQLException expected) {
+		}
+	}
+
+	private void release(Connection connection) throws SQLException {
+		circuitBreaker.releaseConnection( connection );
+	}
+
+	private static class UnreliableConnectionAccess implements JdbcConnectionAccess {
+		private boolean down;
+		private long latency;
+		private int attempts;
+
+		@Override
+		public Connection obtainConnection() throws SQLException {
+			attempts++;
+			if ( down ) {
+				throw new SQLException( "database is down", "08001" );
+			}
+			if ( latency > 0 ) {
+				try {
+					Thread.sleep( latency );
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			return DatabaseConnectionInfo.INSTANCE.makeConnection();
+		}
+
+		@Override
+		public void releaseConnection(Connection connection) throws SQLException {
+			connection.close();
+		}
+	}
+}
@@ -0,0 +1,230 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * Copyright (c) 2014, Red Hat Inc. or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.  All third-party contributions are
+ * distributed under license by Red Hat Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.hibernate.test.resource.jdbc;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.hibernate.TransactionException;
+import org.hibernate.resource.jdbc.JdbcSession;
+import org.hibernate.resource.jdbc.Operation;
+import org.hibernate.resource.jdbc.internal.GroupCommitterJdbcImpl;
+import org.hibernate.resource.jdbc.spi.JdbcSessionFactory;
+import org.hibernate.resource.jdbc.spi.LogicalConnectionImplementor;
+import org.hibernate.resource.transaction.TransactionCoordinator;
+import org.hibernate.resource.transaction.TransactionCoordinatorBuilderFactory;
+import org.hibernate.resource.transaction.TransactionCoordinatorResourceLocalBuilder;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.hibernate.test.resource.common.SynchronizationCollectorImpl;
+import org.hibernate.test.resource.jdbc.common.JdbcSessionOwnerTestingImpl;
+import org.hibernate.test.resource.jdbc.common.UrlConnectionAccessTestingImpl;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * @author Andrea Boriero
+ */
+public class GroupCommitTest {
+	private static final String URL = "jdbc:h2:mem:group_commit;DB_CLOSE_DELAY=-1";
+
+	private final UrlConnectionAccessTestingImpl connectionAccess = new UrlConnectionAccessTestingImpl( URL );
+	private final Set<Object> physicalTransactions = Collections.synchronizedSet(
+			Collections.newSetFromMap( new IdentityHashMap<Object, Boolean>() )
+	);
+	private final List<JdbcSession> jdbcSessions = new ArrayList<JdbcSession>();
+
+	private GroupCommitterJdbcImpl groupCommitter;
+
+	@Before
+	public void setUp() throws SQLException {
+		final Connection connection = connectionAccess.obtainConnection();
+		try {
+			final Statement statement = connection.createStatement();
+			statement.execute( "drop table if exists item" );
+			statement.execute( "create table item (id integer primary key)" );
+			statement.close();
+		}
+		finally {
+			connectionAccess.releaseConnection( connection );
+		}
+
+		final JdbcSessionOwnerTestingImpl dedicatedOwner = new JdbcSessionOwnerTestingImpl();
+		dedicatedOwner.setJdbcConnectionAccess( connectionAccess );
+		groupCommitter = new GroupCommitterJdbcImpl( dedicatedOwner, 1, 10, 500 );
+	}
+
+	@After
+	public void tearDown() {
+		for ( JdbcSession jdbcSession : jdbcSessions ) {
+			jdbcSession.close();
+		}
+		groupCommitter.close();
+	}
+
+	@Test
+	public void localTransactionsAreCommittedTogether() throws Exception {
+		final List<Future<Void>> futures = new ArrayList<Future<Void>>();
+		final List<SynchronizationCollectorImpl> synchronizations = new ArrayList<SynchronizationCollectorImpl>();
+		for ( int i = 0; i < 10; i++ ) {
+			final TransactionCoordinator.GroupCommitInflow<Operation<?>> transaction = beginTransaction();
+			final SynchronizationCollectorImpl synchronization = new SynchronizationCollectorImpl();
+			synchronizations.add( synchronization );
+			jdbcSessions.get( i ).getTransactionCoordinator().getLocalSynchronizations().registerSynchronization(
+					synchronization
+			);
+
+			transaction.enlist( insert( i ) );
+			futures.add( transaction.commitAsync() );
+		}
+
+		for ( Future<Void> future : futures ) {
+			future.get( 10, TimeUnit.SECONDS );
+		}
+
+		assertThat( countItems(), is( 10 ) );
+		assertThat( physicalTransactions.size(), is( 1 ) );
+		for ( SynchronizationCollectorImpl synchronization : synchronizations ) {
+			assertThat( synchronization.getBeforeCompletionCount(), is( 1 ) );
+			assertThat( synchronization.getSuccessfulCompletionCount(), is( 1 ) );
+			assertThat( synchronization.getFailedCompletionCount(), is( 0 ) );
+		}
+	}
+
+	@Test
+	public void failingLocalTransactionIsRolledBackAlone() throws Exception {
+		final TransactionCoordinator.GroupCommitInflow<Operation<?>> first = beginTransaction();
+		first.enlist( insert( 1 ) );
+		final TransactionCoordinator.GroupCommitInflow<Operation<?>> failing = beginTransaction();
+		final SynchronizationCollectorImpl synchronization = new SynchronizationCollectorImpl();
+		jdbcSessions.get( 1 ).getTransactionCoordinator().getLocalSynchronizations().registerSynchronization(
+				synchronization
+		);
+		failing.enlist( insert( 100 ) );
+		failing.enlist( insert( 1 ) );
+		final TransactionCoordinator.GroupCommitInflow<Operation<?>> last = beginTransaction();
+		last.enlist( insert( 2 ) );
+
+		final Future<Void> firstFuture = first.commitAsync();
+		final Future<Void> failingFuture = failing.commitAsync();
+		last.commit();
+		firstFuture.get( 10, TimeUnit.SECONDS );
+		try {
+			failingFuture.get( 10, TimeUnit.SECONDS );
+			fail( "Expecting the duplicate key to roll the local transaction back" );
+		}
+		catch (ExecutionException e) {
+			assertThat( e.getCause(), instanceOf( TransactionException.class ) );
+		}
+
+		assertThat( countItems(), is( 2 ) );
+		assertThat( synchronization.getFailedCompletionCount(), is( 1 ) );
+	}
+
+	@Test
+	public void localRollbackDoesNotReachTheGroupCommitter() throws Exception {
+		final TransactionCoordinator.GroupCommitInflow<Operation<?>> transaction = beginTransaction();
+		transaction.enlist( insert( 1 ) );
+		transaction.rollback();
+
+		// the coordinator accepts a new transaction right away
+		final TransactionCoordinator.GroupCommitInflow<Operation<?>> next = groupCommitInflow( jdbcSessions.get( 0 ) );
+		next.begin();
+		next.enlist( insert( 2 ) );
+		next.commit();
+
+		assertThat( countItems(), is( 1 ) );
+	}
+
+	private TransactionCoordinator.GroupCommitInflow<Operation<?>> beginTransaction() {
+		final TransactionCoordinatorResourceLocalBuilder builder = TransactionCoordinatorBuilderFactory.INSTANCE.forResourceLocal();
+		builder.setGroupCommitter( groupCommitter );
+		final JdbcSessionOwnerTestingImpl owner = new JdbcSessionOwnerTestingImpl();
+		owner.setTransactionCoordinatorBuilder( builder );
+		final JdbcSession jdbcSession = JdbcSessionFactory.INSTANCE.create( owner );
+		jdbcSessions.add( jdbcSession );
+
+		final TransactionCoordinator.GroupCommitInflow<Operation<?>> transaction = groupCommitInflow( jdbcSession );
+		transaction.begin();
+		return transaction;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static TransactionCoordinator.GroupCommitInflow<Operation<?>> groupCommitInflow(JdbcSession jdbcSession) {
+		return (TransactionCoordinator.GroupCommitInflow<Operation<?>>) jdbcSession.getTransactionCoordinator()
+				.getTransactionDriverControl();
+	}
+
+	private Operation<Void> insert(final int id) {
+		return new Operation<Void>() {
+			@Override
+			public Void perform(JdbcSession jdbcSession) throws SQLException {
+				physicalTransactions.add( jdbcSession.getTransactionCoordinator().getTransactionDriverControl() );
+				final PreparedStatement statement = ( (LogicalConnectionImplementor) jdbcSession.getLogicalConnection() )
+						.getPhysicalConnection()
+						.prepareStatement( "insert into item values (?)" );
+				try {
+					statement.setInt( 1, id );
+					statement.executeUpdate();
+				}
+				finally {
+					statement.close();
+				}
+				return null;
+			}
+		};
+	}
+
+	private int countItems() throws SQLException {
+		final Connection connection = connectionAccess.obtainConnection();
+		try {
+			final Statement statement = connection.createStatement();
+			final ResultSet resultSet = statement.executeQuery( "select count(*) from item" );
+			resultSet.next();
+			final int count = resultSet.getInt( 1 );
+			statement.close();
+			return count;
+		}
+		finally {
+			connectionAccess.releaseConnection( connection );
+		}
+	}
+}
@@ -0,0 +1,235 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * Copyright (c) 2014, Red Hat Inc. or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.  All third-party contributions are
+ * distributed under license by Red Hat Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.hibernate.test.resource.jdbc;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.hibernate.resource.jdbc.JdbcSession;
+import org.hibernate.resource.jdbc.spi.InListBindings;
+import org.hibernate.resource.jdbc.spi.JdbcSessionFactory;
+import org.hibernate.resource.jdbc.spi.ParameterBindings;
+import org.hibernate.resource.jdbc.spi.PreparedQuery;
+import org.hibernate.resource.jdbc.spi.ResultSetProcessor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.hibernate.test.resource.jdbc.common.JdbcSessionOwnerTestingImpl;
+import org.hibernate.test.resource.jdbc.common.UrlConnectionAccessTestingImpl;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Andrea Boriero
+ */
+public class InListBindingsTest {
+	private static final ResultSetProcessor<Integer> COUNT = new ResultSetProcessor<Integer>() {
+		@Override
+		public Integer extractResults(ResultSet resultSet) throws SQLException {
+			resultSet.next();
+			return resultSet.getInt( 1 );
+		}
+	};
+
+	private final UrlConnectionAccessTestingImpl connectionAccess = new UrlConnectionAccessTestingImpl(
+			"jdbc:h2:mem:in_list;DB_CLOSE_DELAY=-1"
+	);
+
+	private JdbcSession jdbcSession;
+
+	@Before
+	public void setUp() throws Exception {
+		execute(
+				"create table SOME_TABLE (id bigint primary key, x integer)",
+				"insert into SOME_TABLE select x, mod(x, 2) from system_range(1, 5000)"
+		);
+		final JdbcSessionOwnerTestingImpl owner = new JdbcSessionOwnerTestingImpl();
+		owner.setJdbcConnectionAccess( connectionAccess );
+		jdbcSession = JdbcSessionFactory.INSTANCE.create( owner );
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		jdbcSession.close();
+		execute( "drop table SOME_TABLE" );
+	}
+
+	@Test
+	public void testArrayBinding() {
+		final InListBindings.ArrayBinding arrayBinding = InListBindings.ArrayBinding.h2( "bigint" );
+
+		assertThat( count( InListBindings.create( ids( 3000 ), 1, arrayBinding ) ), is( 3000 ) );
+		assertThat( count( InListBindings.create( ids( 7 ), 1, arrayBinding ) ), is( 7 ) );
+		assertThat( count( InListBindings.create( Collections.emptyList(), 1, arrayBinding ) ), is( 0 ) );
+
+		// a single SQL shape, whatever the size of the list
+		assertThat(
+				InListBindings.create( ids( 3000 ), 1, arrayBinding ).renderPredicate( "id" ),
+				is( InListBindings.create( ids( 1 ), 1, arrayBinding ).renderPredicate( "id" ) )
+		);
+	}
+
+	@Test
+	public void testCreatedArraysAreFreedOnRelease() throws SQLException {
+		final Array array = mock( Array.class );
+		final Connection connection = mock( Connection.class );
+		final PreparedStatement statement = mock( PreparedStatement.class );
+		final Object[] values = ids( 3 ).toArray();
+		when( statement.getConnection() ).thenReturn( connection );
+		when( connection.createArrayOf( "bigint", values ) ).thenReturn( array );
+
+		final InListBindings inList = InListBindings.create(
+				ids( 3 ),
+				1,
+				InListBindings.ArrayBinding.standard( "bigint" )
+		);
+		inList.bindParameters( statement );
+
+		verify( statement ).setArray( 1, array );
+		verify( array, never() ).free();
+
+		inList.release();
+		verify( array ).free();
+	}
+
+	@Test
+	public void testPaddedBinding() {
+		assertThat( count( InListBindings.create( ids( 1 ), 1, null ) ), is( 1 ) );
+		assertThat( count( InListBindings.create( ids( 5 ), 1, null ) ), is( 5 ) );
+		assertThat( count( InListBindings.create( ids( 1000 ), 1, null ) ), is( 1000 ) );
+		assertThat( count( InListBindings.create( Collections.emptyList(), 1, null ) ), is( 0 ) );
+
+		final Set<String> shapes = new HashSet<String>();
+		for ( int size = 1; size <= 1024; size++ ) {
+			shapes.add( InListBindings.create( ids( size ), 1, null ).renderPredicate( "id" ) );
+		}
+		assertThat( shapes.size(), is( 11 ) );
+	}
+
+	@Test
+	public void testOtherParametersAroundTheList() {
+		final InListBindings inList = InListBindings.create( ids( 10 ), 2, null );
+		final PreparedQuery<Integer> query = PreparedQuery.builder(
+				"select count(*) from SOME_TABLE where x = ? and " + inList.renderPredicate( "id" ) + " and id > ?",
+				COUNT
+		).build();
+		final int lastPosition = 2 + inList.getParameterCount();
+
+		final Integer count = jdbcSession.accept(
+				query.bind(
+						new ParameterBindings() {
+							@Override
+							public void bindParameters(PreparedStatement statement) throws SQLException {
+								statement.setInt( 1, 0 );
+								inList.bindParameters( statement );
+								statement.setLong( lastPosition, 4L );
+							}
+						}
+				)
+		);
+		// the even ids above 4, among 1 to 10
+		assertThat( count, is( 3 ) );
+	}
+
+	@Test
+	public void testBucketSizes() {
+		assertThat( InListBindings.bucketSize( 0 ), is( 0 ) );
+		assertThat( InListBindings.bucketSize( 1 ), is( 1 ) );
+		assertThat( InListBindings.bucketSize( 2 ), is( 2 ) );
+		assertThat( InListBindings.bucketSize( 3 ), is( 4 ) );
+		assertThat( InListBindings.bucketSize( 4 ), is( 4 ) );
+		assertThat( InListBindings.bucketSize( 1000 ), is( 1024 ) );
+	}
+
+	@Test
+	public void testArrayBindingResolution() throws Exception {
+		final Connection connection = connectionAccess.obtainConnection();
+		try {
+			assertThat( InListBindings.ArrayBinding.resolve( connection.getMetaData(), "bigint" ), notNullValue() );
+		}
+		finally {
+			connectionAccess.releaseConnection( connection );
+		}
+
+		final DatabaseMetaData unknown = mock( DatabaseMetaData.class );
+		when( unknown.getDatabaseProductName() ).thenReturn( "SomeDatabase" );
+		assertThat( InListBindings.ArrayBinding.resolve( unknown, "bigint" ), nullValue() );
+	}
+
+	private int count(InListBindings inList) {
+		assertTrue( inList.getParameterCount() >= 0 );
+		final PreparedQuery<Integer> query = PreparedQuery.builder(
+				"select count(*) from SOME_TABLE where " + inList.renderPredicate( "id" ),
+				COUNT
+		).build();
+		try {
+			return jdbcSession.accept( query.bind( inList ) );
+		}
+		finally {
+			inList.release();
+		}
+	}
+
+	private static List<Long> ids(int count) {
+		final List<Long> ids = new ArrayList<Long>( count );
+		for ( long id = 1; id <= count; id++ ) {
+			ids.add( id );
+		}
+		return ids;
+	}
+
+	private void execute(String... sqls) throws SQLException {
+		final Connection connection = connectionAccess.obtainConnection();
+		try {
+			final Statement statement = connection.createStatement();
+			for ( String sql : sqls ) {
+				statement.execute( sql );
+			}
+			statement.close();
+		}
+		finally {
+			connectionAccess.releaseConnection( connection );
+		}
+	}
+}
@@ -0,0 +1,331 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * Copyright (c) 2014, Red Hat Inc. or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.  All third-party contributions are
+ * distributed under license by Red Hat Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.hibernate.test.resource.jdbc;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hibernate.HibernateException;
+import org.hibernate.resource.jdbc.InsertOperationSpec;
+import org.hibernate.resource.jdbc.JdbcSession;
+import org.hibernate.resource.jdbc.internal.StandardInsertPreparedStatementBuilderImpl;
+import org.hibernate.resource.jdbc.spi.InsertStatementBuilder;
+import org.hibernate.resource.jdbc.spi.JdbcSessionFactory;
+import org.hibernate.resource.jdbc.spi.ParameterBindings;
+import org.hibernate.resource.jdbc.spi.ParameterBuffer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.hibernate.test.resource.jdbc.common.JdbcSessionContextStandardTestingImpl;
+import org.hibernate.test.resource.jdbc.common.JdbcSessionOwnerTestingImpl;
+import org.hibernate.test.resource.jdbc.common.UrlConnectionAccessTestingImpl;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Andrea Boriero
+ */
+public class InsertOperationSpecTest {
+	private static final String INSERT = "insert into SOME_TABLE (NAME) values (?)";
+
+	private final UrlConnectionAccessTestingImpl connectionAccess = new UrlConnectionAccessTestingImpl(
+			"jdbc:h2:mem:insert;DB_CLOSE_DELAY=-1"
+	);
+
+	private JdbcSessionOwnerTestingImpl owner;
+	private JdbcSession jdbcSession;
+
+	@Before
+	public void setUp() throws Exception {
+		execute( "create table SOME_TABLE (ID bigint auto_increment primary key, NAME varchar(20))" );
+		owner = new JdbcSessionOwnerTestingImpl();
+		owner.setJdbcConnectionAccess( connectionAccess );
+		owner.setJdbcSessionContext(
+				new JdbcSessionContextStandardTestingImpl() {
+					@Override
+					public boolean isGetGeneratedKeysEnabled() {
+						return true;
+					}
+				}
+		);
+		jdbcSession = JdbcSessionFactory.INSTANCE.create( owner );
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		jdbcSession.close();
+		execute( "drop table SOME_TABLE" );
+	}
+
+	@Test
+	public void testGeneratedKeysAreReturned() throws Exception {
+		final long[] keys = jdbcSession.accept( new InsertOperationSpecTestingImpl( rows( 3 ), 1, true, "ID" ) );
+		assertThat( keys.length, is( 3 ) );
+		assertThat( keys[0], is( 1L ) );
+		assertThat( keys[1], is( 2L ) );
+		assertThat( keys[2], is( 3L ) );
+		assertThat( countRows(), is( 3 ) );
+	}
+
+	@Test
+	public void testBatchedInsertWithoutGeneratedKeys() throws Exception {
+		final long[] keys = jdbcSession.accept( new InsertOperationSpecTestingImpl( rows( 5 ), 2, false, null ) );
+		assertThat( keys.length, is( 0 ) );
+		assertThat( countRows(), is( 5 ) );
+	}
+
+	@Test
+	public void testBatchedGeneratedKeysAreReturned() throws Exception {
+		final ResultSet firstBatchKeys = mock( ResultSet.class );
+		when( firstBatchKeys.next() ).thenReturn( true, true, false );
+		when( firstBatchKeys.getLong( 1 ) ).thenReturn( 10L, 11L );
+		final ResultSet secondBatchKeys = mock( ResultSet.class );
+		when( secondBatchKeys.next() ).thenReturn( true, false );
+		when( secondBatchKeys.getLong( 1 ) ).thenReturn( 12L );
+		final PreparedStatement statement = mock( PreparedStatement.class );
+		when( statement.getGeneratedKeys() ).thenReturn( firstBatchKeys, secondBatchKeys );
+		final Connection connection = mock( Connection.class );
+		when( connection.prepareStatement( anyString(), any( String[].class ) ) ).thenReturn( statement );
+
+		final JdbcSession providedConnectionSession = JdbcSessionFactory.INSTANCE.create( owner, connection );
+		try {
+			final long[] keys = providedConnectionSession.accept(
+					new InsertOperationSpecTestingImpl( rows( 3 ), 2, true, "ID" )
+			);
+			assertThat( keys.length, is( 3 ) );
+			assertThat( keys[0], is( 10L ) );
+			assertThat( keys[1], is( 11L ) );
+			assertThat( keys[2], is( 12L ) );
+			verify( statement, times( 3 ) ).addBatch();
+			verify( statement, times( 2 ) ).executeBatch();
+		}
+		finally {
+			providedConnectionSession.close();
+		}
+	}
+
+	@Test
+	public void testMissingBatchedGeneratedKeysAreReported() {
+		// H2 only returns the key generated for the last row of a batch
+		try {
+			jdbcSession.accept( new InsertOperationSpecTestingImpl( rows( 3 ), 3, true, "ID" ) );
+			fail( "Expecting HibernateException as the driver does not return all generated keys" );
+		}
+		catch (HibernateException expected) {
+		}
+	}
+
+	@Test
+	public void testGeneratedKeysMustBeEnabled() {
+		owner.setJdbcSessionContext( JdbcSessionContextStandardTestingImpl.INSTANCE );
+		final JdbcSession disabledSession = JdbcSessionFactory.INSTANCE.create( owner );
+		try {
+			disabledSession.accept( new InsertOperationSpecTestingImpl( rows( 1 ), 1, true, null ) );
+			fail( "Expecting HibernateException as generated keys are not enabled" );
+		}
+		catch (HibernateException expected) {
+		}
+		finally {
+			disabledSession.close();
+		}
+	}
+
+	@Test
+	public void testBatchesAreRewrittenAsMultiRowInserts() throws Exception {
+		final long[] keys = jdbcSession.accept(
+				new InsertOperationSpecTestingImpl( rows( 37 ), 16, false, null ).enableMultiRowRewrite()
+		);
+		assertThat( keys.length, is( 0 ) );
+		assertThat( countRows(), is( 37 ) );
+
+		final Connection connection = connectionAccess.obtainConnection();
+		try {
+			final Statement statement = connection.createStatement();
+			final ResultSet resultSet = statement.executeQuery( "select NAME from SOME_TABLE order by ID" );
+			for ( int i = 0; i < 37; i++ ) {
+				resultSet.next();
+				assertThat( resultSet.getString( 1 ), is( "name" + i ) );
+			}
+			statement.close();
+		}
+		finally {
+			connectionAccess.releaseConnection( connection );
+		}
+	}
+
+	@Test
+	public void testMultiRowInsertsUsePowerOfTwoSizes() throws Exception {
+		final PreparedStatement sixteenRows = mock( PreparedStatement.class );
+		final PreparedStatement fourRows = mock( PreparedStatement.class );
+		final PreparedStatement oneRow = mock( PreparedStatement.class );
+		final Connection connection = mock( Connection.class );
+		when( connection.prepareStatement( multiRowInsert( 16 ) ) ).thenReturn( sixteenRows );
+		when( connection.prepareStatement( multiRowInsert( 4 ) ) ).thenReturn( fourRows );
+		when( connection.prepareStatement( multiRowInsert( 1 ) ) ).thenReturn( oneRow );
+
+		final JdbcSession providedConnectionSession = JdbcSessionFactory.INSTANCE.create( owner, connection );
+		try {
+			providedConnectionSession.accept(
+					new InsertOperationSpecTestingImpl( rows( 37 ), 20, false, null ).enableMultiRowRewrite()
+			);
+			verify( sixteenRows, times( 2 ) ).executeUpdate();
+			verify( sixteenRows ).setString( 16, "name15" );
+			verify( sixteenRows ).setString( 16, "name31" );
+			verify( fourRows ).executeUpdate();
+			verify( fourRows ).setString( 4, "name35" );
+			verify( oneRow ).executeUpdate();
+			verify( oneRow ).setString( 1, "name36" );
+		}
+		finally {
+			providedConnectionSession.close();
+		}
+	}
+
+	private static String multiRowInsert(int rows) {
+		final StringBuilder sql = new StringBuilder( "insert into SOME_TABLE (NAME) values (?)" );
+		for ( int i = 1; i < rows; i++ ) {
+			sql.append( ", (?)" );
+		}
+		return sql.toString();
+	}
+
+	private static List<ParameterBindings> rows(int count) {
+		final List<ParameterBindings> rows = new ArrayList<ParameterBindings>();
+		for ( int i = 0; i < count; i++ ) {
+			rows.add( new ParameterBuffer( 1 ).setString( 1, "name" + i ) );
+		}
+		return rows;
+	}
+
+	private int countRows() throws SQLException {
+		final Connection connection = connectionAccess.obtainConnection();
+		try {
+			final Statement statement = connection.createStatement();
+			final ResultSet resultSet = statement.executeQuery( "select count(*) from SOME_TABLE" );
+			resultSet.next();
+			final int count = resultSet.getInt( 1 );
+			statement.close();
+			return count;
+		}
+		finally {
+			connectionAccess.releaseConnection( connection );
+		}
+	}
+
+	private void execute(String sql) throws SQLException {
+		final Connection connection = connectionAccess.obtainConnection();
+		try {
+			final Statement statement = connection.createStatement();
+			statement.execute( sql );
+			statement.close();
+		}
+		finally {
+			connectionAccess.releaseConnection( connection );
+		}
+	}
+
+	private static class InsertOperationSpecTestingImpl implements InsertOperationSpec {
+		private final List<ParameterBindings> rows;
+		private final int batchSize;
+		private final boolean returnGeneratedKeys;
+		private final String[] generatedKeyColumns;
+		private boolean multiRowRewriteEnabled;
+
+		private InsertOperationSpecTestingImpl(
+				List<ParameterBindings> rows,
+				int batchSize,
+				boolean returnGeneratedKeys,
+				String generatedKeyColumn) {
+			this.rows = rows;
+			this.batchSize = batchSize;
+			this.returnGeneratedKeys = returnGeneratedKeys;
+			this.generatedKeyColumns = generatedKeyColumn == null ? null : new String[] { generatedKeyColumn };
+		}
+
+		@Override
+		public InsertStatementBuilder getInsertStatementBuilder() {
+			return StandardInsertPreparedStatementBuilderImpl.INSTANCE;
+		}
+
+		@Override
+		public String getSql() {
+			return INSERT;
+		}
+
+		@Override
+		public List<ParameterBindings> getParameterBindings() {
+			return rows;
+		}
+
+		@Override
+		public int getBatchSize() {
+			return batchSize;
+		}
+
+		@Override
+		public int getQueryTimeout() {
+			return 0;
+		}
+
+		private InsertOperationSpecTestingImpl enableMultiRowRewrite() {
+			multiRowRewriteEnabled = true;
+			return this;
+		}
+
+		@Override
+		public boolean isMultiRowRewriteEnabled() {
+			return multiRowRewriteEnabled;
+		}
+
+		@Override
+		public boolean isReturnGeneratedKeys() {
+			return returnGeneratedKeys;
+		}
+
+		@Override
+		public String[] getGeneratedKeyColumns() {
+			return generatedKeyColumns;
+		}
+
+		@Override
+		public boolean isIdempotent() {
+			return false;
+		}
+	}
+}
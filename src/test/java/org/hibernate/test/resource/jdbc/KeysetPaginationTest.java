@@ -0,0 +1,327 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * Copyright (c) 2014, Red Hat Inc. or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.  All third-party contributions are
+ * distributed under license by Red Hat Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.hibernate.test.resource.jdbc;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.hibernate.resource.jdbc.JdbcSession;
+import org.hibernate.resource.jdbc.KeysetPageOperationSpec;
+import org.hibernate.resource.jdbc.internal.KeysetPageQuery;
+import org.hibernate.resource.jdbc.internal.StandardQueryPreparedStatementBuilderImpl;
+import org.hibernate.resource.jdbc.spi.JdbcSessionFactory;
+import org.hibernate.resource.jdbc.spi.ParameterBindings;
+import org.hibernate.resource.jdbc.spi.PreparedQuery;
+import org.hibernate.resource.jdbc.spi.QueryStatementBuilder;
+import org.hibernate.resource.jdbc.spi.RowMapper;
+import org.hibernate.resource.jdbc.spi.StatementExecutor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.hibernate.test.resource.jdbc.common.JdbcSessionOwnerTestingImpl;
+import org.hibernate.test.resource.jdbc.common.UrlConnectionAccessTestingImpl;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author Andrea Boriero
+ */
+public class KeysetPaginationTest {
+	private static final int ROW_COUNT = 25;
+
+	private final UrlConnectionAccessTestingImpl connectionAccess = new UrlConnectionAccessTestingImpl(
+			"jdbc:h2:mem:keyset_pagination;DB_CLOSE_DELAY=-1"
+	);
+
+	private JdbcSession jdbcSession;
+
+	@Before
+	public void setUp() throws Exception {
+		final Connection connection = connectionAccess.obtainConnection();
+		try {
+			final Statement statement = connection.createStatement();
+			statement.execute( "create table ITEM (CATEGORY integer, ID bigint, NAME varchar(20), primary key (CATEGORY, ID))" );
+			statement.close();
+			final PreparedStatement insert = connection.prepareStatement( "insert into ITEM values (?, ?, ?)" );
+			for ( int i = 0; i < ROW_COUNT; i++ ) {
+				// interleave the categories, so that pages span several of them
+				insert.setInt( 1, i % 3 );
+				insert.setLong( 2, i );
+				insert.setString( 3, name( i % 3, i ) );
+				insert.addBatch();
+			}
+			insert.executeBatch();
+			insert.close();
+		}
+		finally {
+			connectionAccess.releaseConnection( connection );
+		}
+		final JdbcSessionOwnerTestingImpl owner = new JdbcSessionOwnerTestingImpl();
+		owner.setJdbcConnectionAccess( connectionAccess );
+		jdbcSession = JdbcSessionFactory.INSTANCE.create( owner );
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		jdbcSession.close();
+		final Connection connection = connectionAccess.obtainConnection();
+		try {
+			final Statement statement = connection.createStatement();
+			statement.execute( "drop table ITEM" );
+			statement.close();
+		}
+		finally {
+			connectionAccess.releaseConnection( connection );
+		}
+	}
+
+	@Test
+	public void testSeekPredicateIsAppended() {
+		KeysetPageQuery query = new KeysetPageQuery(
+				new KeysetPageSpec( "select * from ITEM i", false, null, "i.CATEGORY", "i.ID" )
+		);
+		assertThat( query.getSql(), is( "select * from ITEM i order by i.CATEGORY, i.ID" ) );
+		assertThat( query.getKeyLabels()[0], is( "CATEGORY" ) );
+
+		query = new KeysetPageQuery(
+				new KeysetPageSpec(
+						"select * from ITEM where NAME in (select NAME from ITEM where ID > ?)",
+						true,
+						new Object[] { 1, 2L },
+						"CATEGORY",
+						"ID"
+				)
+		);
+		assertThat(
+				query.getSql(),
+				is(
+						"select * from ITEM where (NAME in (select NAME from ITEM where ID > ?))"
+								+ " and (CATEGORY < ? or (CATEGORY = ? and ID < ?)) order by CATEGORY desc, ID desc"
+				)
+		);
+
+		query = new KeysetPageQuery(
+				new KeysetPageSpec( "select * from ITEM i, (select max(ID) from ITEM where ID > 0) m", false, new Object[] { 1L }, "ID" )
+		);
+		assertThat(
+				query.getSql(),
+				is( "select * from ITEM i, (select max(ID) from ITEM where ID > 0) m where (ID > ?) order by ID" )
+		);
+	}
+
+	@Test
+	public void testPagesFollowTheKeyOrder() {
+		assertPages( false );
+	}
+
+	@Test
+	public void testPagesFollowTheDescendingKeyOrder() {
+		assertPages( true );
+	}
+
+	@Test
+	public void testSeekPredicateAppliesToTheWholeWhereClause() {
+		final KeysetPageQuery query = new KeysetPageQuery(
+				new KeysetPageSpec( "select * from ITEM where CATEGORY = 0 or NAME like ?", false, new Object[] { 1L }, "ID" )
+		);
+		assertThat(
+				query.getSql(),
+				is( "select * from ITEM where (CATEGORY = 0 or NAME like ?) and (ID > ?) order by ID" )
+		);
+
+		assertPages( "select CATEGORY, ID, NAME from ITEM where CATEGORY = 0 or NAME like ?", false );
+	}
+
+	private void assertPages(boolean descending) {
+		assertPages( "select CATEGORY, ID, NAME from ITEM where NAME like ?", descending );
+	}
+
+	private void assertPages(String sql, boolean descending) {
+		final List<String> expected = new ArrayList<String>();
+		for ( int category = 0; category < 3; category++ ) {
+			for ( int i = category; i < ROW_COUNT; i += 3 ) {
+				expected.add( name( category, i ) );
+			}
+		}
+		if ( descending ) {
+			Collections.reverse( expected );
+		}
+
+		final List<String> actual = new ArrayList<String>();
+		Object[] token = null;
+		int pages = 0;
+		do {
+			final KeysetPageOperationSpec.Page<String> page = jdbcSession.accept(
+					new KeysetPageSpec(
+							sql,
+							descending,
+							token,
+							"CATEGORY",
+							"ID"
+					)
+			);
+			actual.addAll( page.getRows() );
+			token = page.getContinuationToken();
+			pages++;
+		} while ( token != null && pages < 10 );
+
+		assertThat( pages, is( 3 ) );
+		assertThat( actual, is( expected ) );
+	}
+
+	@Test
+	public void testLastPageHasNoContinuationToken() {
+		final KeysetPageOperationSpec.Page<String> page = jdbcSession.accept(
+				new KeysetPageSpec(
+						"select CATEGORY, ID, NAME from ITEM where NAME like ?",
+						false,
+						new Object[] { 2, 20L },
+						"CATEGORY",
+						"ID"
+				)
+		);
+		assertThat( page.getRows().size(), is( 1 ) );
+		assertThat( page.getRows().get( 0 ), is( name( 2, 23 ) ) );
+		assertThat( page.getContinuationToken(), is( nullValue() ) );
+	}
+
+	private static String name(int category, int i) {
+		return "item-" + category + "-" + i;
+	}
+
+	private static class KeysetPageSpec implements KeysetPageOperationSpec<String> {
+		private final String sql;
+		private final boolean descending;
+		private final Object[] continuationToken;
+		private final String[] keyColumns;
+
+		private KeysetPageSpec(String sql, boolean descending, Object[] continuationToken, String... keyColumns) {
+			this.sql = sql;
+			this.descending = descending;
+			this.continuationToken = continuationToken;
+			this.keyColumns = keyColumns;
+		}
+
+		@Override
+		public String[] getKeyColumns() {
+			return keyColumns;
+		}
+
+		@Override
+		public boolean isDescending() {
+			return descending;
+		}
+
+		@Override
+		public Object[] getContinuationToken() {
+			return continuationToken;
+		}
+
+		@Override
+		public RowMapper<String> getRowMapper() {
+			return new RowMapper<String>() {
+				@Override
+				public String mapRow(ResultSet resultSet) throws SQLException {
+					return resultSet.getString( "NAME" );
+				}
+
+				@Override
+				public boolean fits(ResultSetMetaData metaData) {
+					return true;
+				}
+			};
+		}
+
+		@Override
+		public QueryStatementBuilder<? extends PreparedStatement> getQueryStatementBuilder() {
+			return StandardQueryPreparedStatementBuilderImpl.INSTANCE;
+		}
+
+		@Override
+		public ParameterBindings getParameterBindings() {
+			return new ParameterBindings() {
+				@Override
+				public void bindParameters(PreparedStatement statement) throws SQLException {
+					statement.setString( 1, "item%" );
+				}
+			};
+		}
+
+		@Override
+		public StatementExecutor getStatementExecutor() {
+			return PreparedQuery.EXECUTE_QUERY;
+		}
+
+		@Override
+		public ResultSetType getResultSetType() {
+			return ResultSetType.FORWARD_ONLY;
+		}
+
+		@Override
+		public ResultSetConcurrency getResultSetConcurrency() {
+			return ResultSetConcurrency.READ_ONLY;
+		}
+
+		@Override
+		public int getQueryTimeout() {
+			return 0;
+		}
+
+		@Override
+		public String getSql() {
+			return sql;
+		}
+
+		@Override
+		public int getOffset() {
+			return 0;
+		}
+
+		@Override
+		public int getLimit() {
+			return 10;
+		}
+
+		@Override
+		public int getFetchSize() {
+			return 0;
+		}
+
+		@Override
+		public boolean isIdempotent() {
+			return true;
+		}
+	}
+}
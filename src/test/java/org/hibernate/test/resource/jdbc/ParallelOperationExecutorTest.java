@@ -0,0 +1,245 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * Copyright (c) 2014, Red Hat Inc. or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.  All third-party contributions are
+ * distributed under license by Red Hat Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.hibernate.test.resource.jdbc;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.hibernate.resource.jdbc.PreparedStatementQueryOperationSpec;
+import org.hibernate.resource.jdbc.spi.ParallelOperationExecutor;
+import org.hibernate.resource.jdbc.spi.ParameterBindings;
+import org.hibernate.resource.jdbc.spi.ResultSetProcessor;
+import org.hibernate.resource.jdbc.spi.StatementExecutor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.hibernate.test.resource.jdbc.common.JdbcSessionOwnerTestingImpl;
+import org.hibernate.test.resource.jdbc.common.PreparedStatementQueryOperationSpecTestingImpl;
+import org.hibernate.test.resource.jdbc.common.UrlConnectionAccessTestingImpl;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author Andrea Boriero
+ */
+public class ParallelOperationExecutorTest {
+	private static final String HEAVY_QUERY = "select count(*) from system_range(1, 100000) a, system_range(1, 10000) b";
+
+	private ExecutorService executorService;
+	private ParallelOperationExecutor parallelOperationExecutor;
+
+	@Before
+	public void setUp() {
+		executorService = Executors.newFixedThreadPool( 6 );
+		parallelOperationExecutor = createParallelOperationExecutor( 2 );
+	}
+
+	@After
+	public void tearDown() {
+		parallelOperationExecutor.close();
+		executorService.shutdownNow();
+	}
+
+	@Test
+	public void resultsAreCollectedInOrderWithinTheConcurrencyLimit() {
+		final AtomicInteger running = new AtomicInteger();
+		final AtomicInteger maximumRunning = new AtomicInteger();
+		final List<PreparedStatementQueryOperationSpec<Long>> operations = new ArrayList<PreparedStatementQueryOperationSpec<Long>>();
+		for ( int i = 0; i < 8; i++ ) {
+			operations.add( valueOperation( i, running, maximumRunning ) );
+		}
+
+		final List<Long> results = parallelOperationExecutor.execute( operations );
+
+		for ( int i = 0; i < 8; i++ ) {
+			assertThat( results.get( i ), is( (long) i ) );
+		}
+		assertThat( maximumRunning.get(), is( 2 ) );
+
+		// sessions are pooled across calls
+		assertThat( parallelOperationExecutor.execute( operations ).size(), is( 8 ) );
+	}
+
+	@Test
+	public void failureCancelsRunningSiblings() throws InterruptedException {
+		final RuntimeException failure = new RuntimeException( "failing on purpose" );
+		final AtomicInteger completed = new AtomicInteger();
+		final List<PreparedStatementQueryOperationSpec<Long>> operations = new ArrayList<PreparedStatementQueryOperationSpec<Long>>();
+		operations.add( heavyOperation( PreparedStatementQueryOperationSpecTestingImpl.NO_BINDINGS, completed ) );
+		operations.add( failingOperation( failure, 300, new CountDownLatch( 1 ) ) );
+		operations.add( heavyOperation( PreparedStatementQueryOperationSpecTestingImpl.NO_BINDINGS, completed ) );
+
+		assertSiblingsCancelled( operations, failure, completed );
+	}
+
+	@Test
+	public void failureCancelsSiblingsNotExecutedYet() throws InterruptedException {
+		final RuntimeException failure = new RuntimeException( "failing on purpose" );
+		final AtomicInteger completed = new AtomicInteger();
+		final CountDownLatch failed = new CountDownLatch( 1 );
+		final List<PreparedStatementQueryOperationSpec<Long>> operations = new ArrayList<PreparedStatementQueryOperationSpec<Long>>();
+		// still binding its parameters, so not executed yet, when the failure happens
+		operations.add(
+				heavyOperation(
+						new ParameterBindings() {
+							@Override
+							public void bindParameters(PreparedStatement statement) throws SQLException {
+								try {
+									failed.await();
+								}
+								catch (InterruptedException e) {
+									Thread.currentThread().interrupt();
+								}
+								sleep( 300 );
+							}
+						},
+						completed
+				)
+		);
+		operations.add( failingOperation( failure, 0, failed ) );
+
+		assertSiblingsCancelled( operations, failure, completed );
+	}
+
+	private void assertSiblingsCancelled(
+			List<PreparedStatementQueryOperationSpec<Long>> operations,
+			RuntimeException failure,
+			AtomicInteger completed) throws InterruptedException {
+		// all the operations must run at the same time, whichever gets a permit first
+		parallelOperationExecutor.close();
+		parallelOperationExecutor = createParallelOperationExecutor( operations.size() );
+
+		try {
+			parallelOperationExecutor.execute( operations );
+			fail( "Expecting the failure of the failing operation" );
+		}
+		catch (RuntimeException e) {
+			assertThat( e, sameInstance( failure ) );
+		}
+
+		executorService.shutdown();
+		assertTrue( "Siblings were not cancelled", executorService.awaitTermination( 10, TimeUnit.SECONDS ) );
+		assertThat( completed.get(), is( 0 ) );
+	}
+
+	private ParallelOperationExecutor createParallelOperationExecutor(int maximumConcurrency) {
+		// H2 serializes the statements against a database unless told otherwise
+		final JdbcSessionOwnerTestingImpl owner = new JdbcSessionOwnerTestingImpl();
+		owner.setJdbcConnectionAccess(
+				new UrlConnectionAccessTestingImpl( "jdbc:h2:mem:parallel;MULTI_THREADED=1;DB_CLOSE_DELAY=-1" )
+		);
+		return new ParallelOperationExecutor( owner, executorService, maximumConcurrency );
+	}
+
+	private static PreparedStatementQueryOperationSpec<Long> valueOperation(
+			final long value,
+			final AtomicInteger running,
+			final AtomicInteger maximumRunning) {
+		return new PreparedStatementQueryOperationSpecTestingImpl<Long>(
+				"select ?",
+				new ParameterBindings() {
+					@Override
+					public void bindParameters(PreparedStatement statement) throws SQLException {
+						statement.setLong( 1, value );
+					}
+				},
+				PreparedStatementQueryOperationSpecTestingImpl.EXECUTE_QUERY,
+				new ResultSetProcessor<Long>() {
+					@Override
+					public Long extractResults(ResultSet resultSet) throws SQLException {
+						final int current = running.incrementAndGet();
+						int maximum;
+						while ( current > ( maximum = maximumRunning.get() ) ) {
+							maximumRunning.compareAndSet( maximum, current );
+						}
+						sleep( 100 );
+						running.decrementAndGet();
+
+						resultSet.next();
+						return resultSet.getLong( 1 );
+					}
+				}
+		);
+	}
+
+	private static PreparedStatementQueryOperationSpec<Long> heavyOperation(
+			ParameterBindings parameterBindings,
+			final AtomicInteger completed) {
+		return new PreparedStatementQueryOperationSpecTestingImpl<Long>(
+				HEAVY_QUERY,
+				parameterBindings,
+				PreparedStatementQueryOperationSpecTestingImpl.EXECUTE_QUERY,
+				new ResultSetProcessor<Long>() {
+					@Override
+					public Long extractResults(ResultSet resultSet) throws SQLException {
+						resultSet.next();
+						completed.incrementAndGet();
+						return resultSet.getLong( 1 );
+					}
+				}
+		);
+	}
+
+	private static PreparedStatementQueryOperationSpec<Long> failingOperation(
+			final RuntimeException failure,
+			final long delay,
+			final CountDownLatch failed) {
+		return new PreparedStatementQueryOperationSpecTestingImpl<Long>(
+				"select 1",
+				PreparedStatementQueryOperationSpecTestingImpl.NO_BINDINGS,
+				new StatementExecutor() {
+					@Override
+					public ResultSet execute(PreparedStatement statement) throws SQLException {
+						sleep( delay );
+						failed.countDown();
+						throw failure;
+					}
+				},
+				null
+		);
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep( millis );
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,204 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * Copyright (c) 2014, Red Hat Inc. or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.  All third-party contributions are
+ * distributed under license by Red Hat Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.hibernate.test.resource.jdbc;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+
+import org.hibernate.resource.jdbc.JdbcSession;
+import org.hibernate.resource.jdbc.spi.JdbcSessionFactory;
+import org.hibernate.resource.jdbc.spi.ParameterBuffer;
+import org.hibernate.resource.jdbc.spi.PreparedQuery;
+import org.hibernate.resource.jdbc.spi.ResultSetProcessor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.hibernate.test.resource.jdbc.common.JdbcSessionOwnerTestingImpl;
+import org.hibernate.test.resource.jdbc.common.UrlConnectionAccessTestingImpl;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+
+/**
+ * @author Andrea Boriero
+ */
+public class ParameterBufferTest {
+	private static final ResultSetProcessor<Integer> COUNT_ROWS = new ResultSetProcessor<Integer>() {
+		@Override
+		public Integer extractResults(ResultSet resultSet) throws SQLException {
+			int count = 0;
+			while ( resultSet.next() ) {
+				count++;
+			}
+			return count;
+		}
+	};
+
+	private final UrlConnectionAccessTestingImpl connectionAccess = new UrlConnectionAccessTestingImpl(
+			"jdbc:h2:mem:parameter_buffer;DB_CLOSE_DELAY=-1"
+	);
+
+	private JdbcSession jdbcSession;
+
+	@Before
+	public void setUp() throws Exception {
+		execute(
+				"create table SOME_TABLE (id bigint, amount double, name varchar(20), flag boolean, created timestamp)",
+				"insert into SOME_TABLE values (1, 10.5, 'one', true, '2014-01-01 00:00:00')",
+				"insert into SOME_TABLE values (2, 20.5, 'two', false, '2014-01-02 00:00:00')",
+				"insert into SOME_TABLE values (3, 30.5, null, true, '2014-01-03 00:00:00')"
+		);
+		final JdbcSessionOwnerTestingImpl owner = new JdbcSessionOwnerTestingImpl();
+		owner.setJdbcConnectionAccess( connectionAccess );
+		jdbcSession = JdbcSessionFactory.INSTANCE.create( owner );
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		jdbcSession.close();
+		execute( "drop table SOME_TABLE" );
+	}
+
+	@Test
+	public void testBufferIsReusedAcrossExecutions() {
+		final PreparedQuery<Integer> query = PreparedQuery.builder(
+				"select id from SOME_TABLE where id >= ? and amount > ? and flag = ? and created >= ?",
+				COUNT_ROWS
+		).build();
+		final ParameterBuffer parameters = new ParameterBuffer( 4 );
+
+		parameters.setLong( 1, 1L )
+				.setDouble( 2, 0d )
+				.setBoolean( 3, true )
+				.setTimestamp( 4, Timestamp.valueOf( "2014-01-01 00:00:00" ) );
+		assertThat( jdbcSession.accept( query.bind( parameters ) ), is( 2 ) );
+
+		parameters.setDouble( 2, 15d );
+		assertThat( jdbcSession.accept( query.bind( parameters ) ), is( 1 ) );
+
+		parameters.setBoolean( 3, false );
+		assertThat( jdbcSession.accept( query.bind( parameters ) ), is( 1 ) );
+
+		parameters.setLong( 1, 3L );
+		assertThat( jdbcSession.accept( query.bind( parameters ) ), is( 0 ) );
+	}
+
+	@Test
+	public void testNullValues() {
+		final PreparedQuery<Integer> query = PreparedQuery.builder(
+				"select id from SOME_TABLE where name = ? or (? is null and name is null)",
+				COUNT_ROWS
+		).build();
+		final ParameterBuffer parameters = new ParameterBuffer( 2 );
+
+		parameters.setString( 1, "two" ).setString( 2, "two" );
+		assertThat( jdbcSession.accept( query.bind( parameters ) ), is( 1 ) );
+
+		parameters.setString( 1, null ).setString( 2, null );
+		assertThat( jdbcSession.accept( query.bind( parameters ) ), is( 1 ) );
+	}
+
+	@Test
+	public void testTypedSettersAreUsed() throws Exception {
+		final PreparedStatement statement = mock( PreparedStatement.class );
+		final BigDecimal decimal = new BigDecimal( "1.50" );
+		final byte[] bytes = new byte[] {1, 2};
+		final Object object = new Object();
+
+		new ParameterBuffer( 8 )
+				.setInt( 1, 1 )
+				.setLong( 2, Long.MAX_VALUE )
+				.setDouble( 3, -0.5d )
+				.setBoolean( 4, true )
+				.setBigDecimal( 5, decimal )
+				.setBytes( 6, bytes )
+				.setNull( 7, Types.INTEGER )
+				.setObject( 8, object )
+				.bindParameters( statement );
+
+		verify( statement ).setInt( 1, 1 );
+		verify( statement ).setLong( 2, Long.MAX_VALUE );
+		verify( statement ).setDouble( 3, -0.5d );
+		verify( statement ).setBoolean( 4, true );
+		verify( statement ).setBigDecimal( 5, decimal );
+		verify( statement ).setBytes( 6, bytes );
+		verify( statement ).setNull( 7, Types.INTEGER );
+		verify( statement ).setObject( 8, object );
+		verifyNoMoreInteractions( statement );
+	}
+
+	@Test
+	public void testUnsetAndOutOfRangeParameters() throws Exception {
+		final ParameterBuffer parameters = new ParameterBuffer( 2 );
+		parameters.setInt( 1, 1 );
+		try {
+			parameters.bindParameters( mock( PreparedStatement.class ) );
+			fail( "Expecting IllegalStateException for the unset parameter" );
+		}
+		catch (IllegalStateException expected) {
+		}
+
+		try {
+			parameters.setInt( 3, 1 );
+			fail( "Expecting IndexOutOfBoundsException" );
+		}
+		catch (IndexOutOfBoundsException expected) {
+		}
+
+		parameters.setInt( 2, 2 );
+		parameters.clear();
+		try {
+			parameters.bindParameters( mock( PreparedStatement.class ) );
+			fail( "Expecting IllegalStateException once cleared" );
+		}
+		catch (IllegalStateException expected) {
+		}
+	}
+
+	private void execute(String... sqls) throws SQLException {
+		final Connection connection = connectionAccess.obtainConnection();
+		try {
+			final Statement statement = connection.createStatement();
+			for ( String sql : sqls ) {
+				statement.execute( sql );
+			}
+			statement.close();
+		}
+		finally {
+			connectionAccess.releaseConnection( connection );
+		}
+	}
+}
@@ -0,0 +1,331 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * Copyright (c) 2014, Red Hat Inc. or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.  All third-party contributions are
+ * distributed under license by Red Hat Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.hibernate.test.resource.jdbc;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+
+import org.hibernate.JDBCException;
+import org.hibernate.resource.jdbc.JdbcSession;
+import org.hibernate.resource.jdbc.PreparedStatementQueryOperationSpec;
+import org.hibernate.resource.jdbc.spi.JdbcSessionFactory;
+import org.hibernate.resource.jdbc.spi.PreparedQuery;
+import org.hibernate.resource.jdbc.spi.ResultSetProcessor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.hibernate.test.resource.jdbc.common.JdbcSessionContextStandardTestingImpl;
+import org.hibernate.test.resource.jdbc.common.JdbcSessionOwnerTestingImpl;
+import org.hibernate.test.resource.jdbc.common.UrlConnectionAccessTestingImpl;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Andrea Boriero
+ */
+public class PipelinedQueriesTest {
+	private static final ResultSetProcessor<Object> FIRST_VALUE = new ResultSetProcessor<Object>() {
+		@Override
+		public Object extractResults(ResultSet resultSet) throws SQLException {
+			return resultSet.next() ? resultSet.getObject( 1 ) : null;
+		}
+	};
+
+	private final UrlConnectionAccessTestingImpl connectionAccess = new UrlConnectionAccessTestingImpl(
+			"jdbc:h2:mem:pipelined_queries;DB_CLOSE_DELAY=-1"
+	);
+
+	private JdbcSessionOwnerTestingImpl owner;
+	private JdbcSession jdbcSession;
+
+	@Before
+	public void setUp() throws Exception {
+		execute(
+				"create table SOME_TABLE (ID bigint, NAME varchar(20))",
+				"insert into SOME_TABLE values (1, 'one')",
+				"insert into SOME_TABLE values (2, 'two')"
+		);
+		owner = new JdbcSessionOwnerTestingImpl();
+		owner.setJdbcConnectionAccess( connectionAccess );
+		jdbcSession = JdbcSessionFactory.INSTANCE.create( owner );
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		jdbcSession.close();
+		execute( "drop table SOME_TABLE" );
+	}
+
+	@Test
+	public void testQueriesAreExecutedSequentiallyWithoutMultipleResultsSupport() {
+		// H2 does not support multiple results
+		final PreparedQuery<Object> nameQuery = PreparedQuery.builder(
+				"select NAME from SOME_TABLE where ID = ?",
+				FIRST_VALUE
+		).build();
+		final PreparedQuery<Object> countQuery = PreparedQuery.builder(
+				"select count(*) from SOME_TABLE",
+				FIRST_VALUE
+		).build();
+
+		final List<Object> results = jdbcSession.acceptAll(
+				Arrays.asList( nameQuery.bind( 2 ), countQuery.bind(), nameQuery.bind( 1 ) )
+		);
+		assertThat( results.size(), is( 3 ) );
+		assertThat( results.get( 0 ), is( (Object) "two" ) );
+		assertThat( results.get( 1 ), is( (Object) 2L ) );
+		assertThat( results.get( 2 ), is( (Object) "one" ) );
+	}
+
+	private void enableQueryPacking() {
+		owner.setJdbcSessionContext(
+				new JdbcSessionContextStandardTestingImpl() {
+					@Override
+					public boolean isQueryPackingEnabled() {
+						return true;
+					}
+				}
+		);
+	}
+
+	@Test
+	public void testQueriesAreNotPackedUnlessEnabled() throws Exception {
+		final Connection connection = mockSequentialConnection();
+
+		final List<Object> results = acceptAll( connection );
+		assertThat( results.get( 0 ), is( (Object) "first" ) );
+		assertThat( results.get( 1 ), is( (Object) "second" ) );
+		verify( connection, never() ).prepareStatement( "select A from T where X = ?;\nselect B from T where Y = ?" );
+	}
+
+	@Test
+	public void testRejectedPackedStatementFallsBackToSequentialExecution() throws Exception {
+		enableQueryPacking();
+		final Connection connection = mockSequentialConnection();
+		when( connection.prepareStatement( "select A from T where X = ?;\nselect B from T where Y = ?" ) )
+				.thenThrow( new SQLException( "Syntax error", "42000" ) );
+
+		final List<Object> results = acceptAll( connection );
+		assertThat( results.get( 0 ), is( (Object) "first" ) );
+		assertThat( results.get( 1 ), is( (Object) "second" ) );
+	}
+
+	@Test
+	public void testFailureAfterPackingWorkedIsRethrown() throws Exception {
+		enableQueryPacking();
+		final Connection connection = mockSequentialConnection();
+		final PreparedStatement packedStatement = mockPackedStatement( connection );
+		when( packedStatement.execute() )
+				.thenReturn( true )
+				.thenThrow( new SQLException( "Syntax error", "42000" ) )
+				.thenReturn( true );
+
+		final JdbcSession providedConnectionSession = JdbcSessionFactory.INSTANCE.create( owner, connection );
+		try {
+			acceptAll( providedConnectionSession );
+			try {
+				acceptAll( providedConnectionSession );
+				fail( "Expecting the failure of the packed statement to surface" );
+			}
+			catch (JDBCException expected) {
+			}
+			final List<Object> results = acceptAll( providedConnectionSession );
+			assertThat( results.get( 0 ), is( (Object) "packed" ) );
+			assertThat( results.get( 1 ), is( (Object) "packed" ) );
+		}
+		finally {
+			providedConnectionSession.close();
+		}
+		verify( connection, never() ).prepareStatement( eq( "select A from T where X = ?" ), anyInt(), anyInt() );
+	}
+
+	@Test
+	public void testMissingTableDoesNotDisablePacking() throws Exception {
+		enableQueryPacking();
+		final Connection connection = mockSequentialConnection();
+		final PreparedStatement packedStatement = mockPackedStatement( connection );
+		when( packedStatement.execute() )
+				.thenThrow( new SQLException( "Table not found", "42S02" ) )
+				.thenReturn( true );
+
+		final JdbcSession providedConnectionSession = JdbcSessionFactory.INSTANCE.create( owner, connection );
+		try {
+			try {
+				acceptAll( providedConnectionSession );
+				fail( "Expecting the failure of the packed statement to surface" );
+			}
+			catch (JDBCException expected) {
+			}
+			final List<Object> results = acceptAll( providedConnectionSession );
+			assertThat( results.get( 0 ), is( (Object) "packed" ) );
+			assertThat( results.get( 1 ), is( (Object) "packed" ) );
+		}
+		finally {
+			providedConnectionSession.close();
+		}
+		verify( connection, never() ).prepareStatement( eq( "select A from T where X = ?" ), anyInt(), anyInt() );
+	}
+
+	private static PreparedStatement mockPackedStatement(Connection connection) throws SQLException {
+		final ResultSet resultSet = mock( ResultSet.class );
+		when( resultSet.next() ).thenReturn( true );
+		when( resultSet.getObject( 1 ) ).thenReturn( "packed" );
+		final PreparedStatement packedStatement = mock( PreparedStatement.class );
+		when( packedStatement.getResultSet() ).thenReturn( resultSet );
+		when( packedStatement.getMoreResults() ).thenReturn( true, false, true, false );
+		when( connection.prepareStatement( "select A from T where X = ?;\nselect B from T where Y = ?" ) )
+				.thenReturn( packedStatement );
+		return packedStatement;
+	}
+
+	private static Connection mockSequentialConnection() throws SQLException {
+		final DatabaseMetaData metaData = mock( DatabaseMetaData.class );
+		when( metaData.supportsMultipleResultSets() ).thenReturn( true );
+		final Connection connection = mock( Connection.class );
+		when( connection.getMetaData() ).thenReturn( metaData );
+		final PreparedStatement firstStatement = mockStatement( "first" );
+		final PreparedStatement secondStatement = mockStatement( "second" );
+		when( connection.prepareStatement( eq( "select A from T where X = ?" ), anyInt(), anyInt() ) )
+				.thenReturn( firstStatement );
+		when( connection.prepareStatement( eq( "select B from T where Y = ?" ), anyInt(), anyInt() ) )
+				.thenReturn( secondStatement );
+		return connection;
+	}
+
+	private static PreparedStatement mockStatement(Object value) throws SQLException {
+		final ResultSet resultSet = mock( ResultSet.class );
+		when( resultSet.next() ).thenReturn( true );
+		when( resultSet.getObject( 1 ) ).thenReturn( value );
+		final PreparedStatement statement = mock( PreparedStatement.class );
+		when( statement.executeQuery() ).thenReturn( resultSet );
+		return statement;
+	}
+
+	private List<Object> acceptAll(Connection connection) {
+		final JdbcSession providedConnectionSession = JdbcSessionFactory.INSTANCE.create( owner, connection );
+		try {
+			return acceptAll( providedConnectionSession );
+		}
+		finally {
+			providedConnectionSession.close();
+		}
+	}
+
+	private static List<Object> acceptAll(JdbcSession jdbcSession) {
+		final PreparedQuery<Object> first = PreparedQuery.builder( "select A from T where X = ?", FIRST_VALUE ).build();
+		final PreparedQuery<Object> second = PreparedQuery.builder( "select B from T where Y = ?", FIRST_VALUE ).build();
+
+		return jdbcSession.acceptAll(
+				Arrays.<PreparedStatementQueryOperationSpec<?>>asList( first.bind( 10 ), second.bind( 20 ) )
+		);
+	}
+
+	@Test
+	public void testCompatibleQueriesArePacked() throws Exception {
+		enableQueryPacking();
+		final ResultSet firstResult = mock( ResultSet.class );
+		when( firstResult.next() ).thenReturn( true );
+		when( firstResult.getObject( 1 ) ).thenReturn( "first" );
+		final ResultSet secondResult = mock( ResultSet.class );
+		when( secondResult.next() ).thenReturn( true );
+		when( secondResult.getObject( 1 ) ).thenReturn( "second" );
+		final PreparedStatement packedStatement = mock( PreparedStatement.class );
+		when( packedStatement.execute() ).thenReturn( true );
+		when( packedStatement.getResultSet() ).thenReturn( firstResult, secondResult );
+		when( packedStatement.getMoreResults() ).thenReturn( true, false );
+
+		final ResultSet limitedResult = mock( ResultSet.class );
+		when( limitedResult.next() ).thenReturn( true );
+		when( limitedResult.getObject( 1 ) ).thenReturn( "limited" );
+		final PreparedStatement limitedStatement = mock( PreparedStatement.class );
+		when( limitedStatement.executeQuery() ).thenReturn( limitedResult );
+
+		final DatabaseMetaData metaData = mock( DatabaseMetaData.class );
+		when( metaData.supportsMultipleResultSets() ).thenReturn( true );
+		final Connection connection = mock( Connection.class );
+		when( connection.getMetaData() ).thenReturn( metaData );
+		when( connection.prepareStatement( "select A from T where X = ?;\nselect B from T where Y = ?" ) )
+				.thenReturn( packedStatement );
+		when( connection.prepareStatement( anyString(), anyInt(), anyInt() ) ).thenReturn( limitedStatement );
+
+		final PreparedQuery<Object> first = PreparedQuery.builder( "select A from T where X = ?", FIRST_VALUE ).build();
+		final PreparedQuery<Object> limited = PreparedQuery.builder( "select C from T", FIRST_VALUE )
+				.setLimit( 1 )
+				.build();
+		final PreparedQuery<Object> second = PreparedQuery.builder( "select B from T where Y = ?", FIRST_VALUE ).build();
+
+		final JdbcSession providedConnectionSession = JdbcSessionFactory.INSTANCE.create( owner, connection );
+		try {
+			final List<Object> results = providedConnectionSession.acceptAll(
+					Arrays.<PreparedStatementQueryOperationSpec<?>>asList(
+							first.bind( 10 ),
+							limited.bind(),
+							second.bind( 20 )
+					)
+			);
+			assertThat( results.size(), is( 3 ) );
+			assertThat( results.get( 0 ), is( (Object) "first" ) );
+			assertThat( results.get( 1 ), is( (Object) "limited" ) );
+			assertThat( results.get( 2 ), is( (Object) "second" ) );
+
+			verify( packedStatement ).setObject( 1, 10 );
+			verify( packedStatement ).setObject( 2, 20 );
+			verify( packedStatement, never() ).executeQuery();
+		}
+		finally {
+			providedConnectionSession.close();
+		}
+	}
+
+	private void execute(String... sqls) throws SQLException {
+		final Connection connection = connectionAccess.obtainConnection();
+		try {
+			final Statement statement = connection.createStatement();
+			for ( String sql : sqls ) {
+				statement.execute( sql );
+			}
+			statement.close();
+		}
+		finally {
+			connectionAccess.releaseConnection( connection );
+		}
+	}
+}
@@ -0,0 +1,320 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * Copyright (c) 2014, Red Hat Inc. or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.  All third-party contributions are
+ * distributed under license by Red Hat Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.hibernate.test.resource.jdbc;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import javax.transaction.Status;
+import javax.transaction.TransactionManager;
+
+import org.hibernate.ResourceClosedException;
+import org.hibernate.resource.jdbc.JdbcSession;
+import org.hibernate.resource.jdbc.Operation;
+import org.hibernate.resource.jdbc.spi.LogicalConnectionImplementor;
+import org.hibernate.resource.jdbc.spi.PooledJdbcSessionFactory;
+import org.hibernate.resource.transaction.TransactionCoordinator;
+import org.hibernate.resource.transaction.TransactionCoordinatorBuilderFactory;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.hibernate.test.resource.common.SynchronizationCollectorImpl;
+import org.hibernate.test.resource.jdbc.common.JdbcSessionOwnerTestingImpl;
+import org.hibernate.test.resource.jdbc.common.UrlConnectionAccessTestingImpl;
+import org.hibernate.test.resource.transaction.common.JtaPlatformStandardTestingImpl;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author Andrea Boriero
+ */
+public class PooledJdbcSessionFactoryTest {
+	private final JdbcSessionOwnerTestingImpl owner = new JdbcSessionOwnerTestingImpl();
+	private final PooledJdbcSessionFactory factory = new PooledJdbcSessionFactory( 2 );
+
+	@Before
+	public void setUp() throws SQLException {
+		final UrlConnectionAccessTestingImpl connectionAccess = new UrlConnectionAccessTestingImpl(
+				"jdbc:h2:mem:pooled;DB_CLOSE_DELAY=-1"
+		);
+		owner.setJdbcConnectionAccess( connectionAccess );
+
+		final Connection connection = connectionAccess.obtainConnection();
+		try {
+			final Statement statement = connection.createStatement();
+			statement.execute( "drop table if exists item" );
+			statement.execute( "create table item (id bigint primary key)" );
+			statement.close();
+		}
+		finally {
+			connectionAccess.releaseConnection( connection );
+		}
+	}
+
+	@After
+	public void tearDown() {
+		factory.clear();
+	}
+
+	@Test
+	public void closedSessionsAreReused() {
+		final JdbcSession first = factory.create( owner );
+		insert( first, 1 );
+		first.close();
+		assertThat( factory.getIdleCount(), is( 1 ) );
+
+		final JdbcSession second = factory.create( owner );
+		assertThat( second, not( sameInstance( first ) ) );
+		assertTrue( second.isOpen() );
+		assertThat( factory.getIdleCount(), is( 0 ) );
+		assertFalse( ( (LogicalConnectionImplementor) second.getLogicalConnection() ).isPhysicallyConnected() );
+
+		insert( second, 2 );
+		assertThat( count( second ), is( 2L ) );
+		second.close();
+	}
+
+	@Test
+	public void closedHandleCannotBeUsed() {
+		final JdbcSession first = factory.create( owner );
+		first.close();
+		final JdbcSession second = factory.create( owner );
+
+		assertFalse( first.isOpen() );
+		// closing twice must not release the session now in use by the second handle
+		first.close();
+		assertTrue( second.isOpen() );
+		assertThat( factory.getIdleCount(), is( 0 ) );
+
+		try {
+			first.getLogicalConnection();
+			fail( "Expected ResourceClosedException" );
+		}
+		catch (ResourceClosedException expected) {
+		}
+		try {
+			insert( first, 1 );
+			fail( "Expected ResourceClosedException" );
+		}
+		catch (ResourceClosedException expected) {
+		}
+
+		assertThat( count( second ), is( 0L ) );
+		second.close();
+	}
+
+	@Test
+	public void reusedSessionJoinsTheCurrentJtaTransaction() throws Exception {
+		final JdbcSessionOwnerTestingImpl jtaOwner = new JdbcSessionOwnerTestingImpl();
+		jtaOwner.setTransactionCoordinatorBuilder(
+				TransactionCoordinatorBuilderFactory.INSTANCE.forJta()
+						.setJtaPlatform( JtaPlatformStandardTestingImpl.INSTANCE )
+						.setAutoJoinTransactions( true )
+						.setPerformJtaThreadTracking( false )
+		);
+		final TransactionManager tm = JtaPlatformStandardTestingImpl.INSTANCE.transactionManager();
+
+		tm.begin();
+		final JdbcSession first = factory.create( jtaOwner );
+		assertTrue( first.getTransactionCoordinator().isJoined() );
+		tm.commit();
+		first.close();
+		assertThat( factory.getIdleCount(), is( 1 ) );
+
+		tm.begin();
+		final JdbcSession second = factory.create( jtaOwner );
+		assertThat( factory.getIdleCount(), is( 0 ) );
+		try {
+			assertTrue( second.getTransactionCoordinator().isJoined() );
+			final SynchronizationCollectorImpl localSync = new SynchronizationCollectorImpl();
+			second.getTransactionCoordinator().getLocalSynchronizations().registerSynchronization( localSync );
+
+			tm.commit();
+			assertThat( tm.getStatus(), is( Status.STATUS_NO_TRANSACTION ) );
+			assertThat( localSync.getBeforeCompletionCount(), is( 1 ) );
+			assertThat( localSync.getSuccessfulCompletionCount(), is( 1 ) );
+		}
+		finally {
+			if ( tm.getStatus() != Status.STATUS_NO_TRANSACTION ) {
+				tm.rollback();
+			}
+			second.close();
+		}
+	}
+
+	@Test
+	public void retainedObjectsOfClosedHandleCannotBeUsed() {
+		final JdbcSession first = factory.create( owner );
+		final LogicalConnectionImplementor logicalConnection = (LogicalConnectionImplementor) first.getLogicalConnection();
+		final TransactionCoordinator transactionCoordinator = first.getTransactionCoordinator();
+		first.close();
+		final JdbcSession second = factory.create( owner );
+
+		assertFalse( logicalConnection.isOpen() );
+		try {
+			logicalConnection.getPhysicalConnection();
+			fail( "Expected ResourceClosedException" );
+		}
+		catch (ResourceClosedException expected) {
+		}
+		try {
+			transactionCoordinator.getTransactionDriverControl().begin();
+			fail( "Expected ResourceClosedException" );
+		}
+		catch (ResourceClosedException expected) {
+		}
+
+		assertTrue( second.getLogicalConnection().isOpen() );
+		assertFalse( ( (LogicalConnectionImplementor) second.getLogicalConnection() ).getPhysicalJdbcTransaction().isActive() );
+		second.close();
+	}
+
+	@Test
+	public void reusedSessionSupportsTransactions() {
+		for ( int i = 0; i < 3; i++ ) {
+			final JdbcSession jdbcSession = factory.create( owner );
+			try {
+				jdbcSession.getTransactionCoordinator().getTransactionDriverControl().begin();
+				insert( jdbcSession, i );
+				if ( i == 1 ) {
+					jdbcSession.getTransactionCoordinator().getTransactionDriverControl().rollback();
+				}
+				else {
+					jdbcSession.getTransactionCoordinator().getTransactionDriverControl().commit();
+				}
+			}
+			finally {
+				jdbcSession.close();
+			}
+			assertThat( factory.getIdleCount(), is( 1 ) );
+		}
+
+		final JdbcSession jdbcSession = factory.create( owner );
+		assertThat( count( jdbcSession ), is( 2L ) );
+		jdbcSession.close();
+	}
+
+	@Test
+	public void sessionClosedWithinTransactionIsDiscarded() {
+		final JdbcSession jdbcSession = factory.create( owner );
+		jdbcSession.getTransactionCoordinator().getTransactionDriverControl().begin();
+		insert( jdbcSession, 1 );
+		jdbcSession.close();
+
+		assertThat( factory.getIdleCount(), is( 0 ) );
+	}
+
+	@Test
+	public void idleSessionsAreBoundedPerThread() throws InterruptedException {
+		final List<JdbcSession> sessions = new ArrayList<JdbcSession>();
+		for ( int i = 0; i < 3; i++ ) {
+			sessions.add( factory.create( owner ) );
+		}
+		for ( JdbcSession jdbcSession : sessions ) {
+			jdbcSession.close();
+		}
+		assertThat( factory.getIdleCount(), is( 2 ) );
+
+		final int[] idleCountOnOtherThread = new int[1];
+		final Thread thread = new Thread(
+				new Runnable() {
+					@Override
+					public void run() {
+						idleCountOnOtherThread[0] = factory.getIdleCount();
+					}
+				}
+		);
+		thread.start();
+		thread.join();
+		assertThat( idleCountOnOtherThread[0], is( 0 ) );
+	}
+
+	@Test
+	public void sessionsAreOnlyReusedForTheSameOwnerState() {
+		factory.create( owner ).close();
+
+		final JdbcSessionOwnerTestingImpl otherOwner = new JdbcSessionOwnerTestingImpl();
+		otherOwner.setJdbcConnectionAccess(
+				new UrlConnectionAccessTestingImpl( "jdbc:h2:mem:pooled;DB_CLOSE_DELAY=-1" )
+		);
+		final JdbcSession jdbcSession = factory.create( otherOwner );
+		assertThat( factory.getIdleCount(), is( 1 ) );
+		jdbcSession.close();
+		assertThat( factory.getIdleCount(), is( 2 ) );
+	}
+
+	private void insert(JdbcSession jdbcSession, final long id) {
+		jdbcSession.accept(
+				new Operation<Void>() {
+					@Override
+					public Void perform(JdbcSession jdbcSession) throws SQLException {
+						final PreparedStatement statement = ( (LogicalConnectionImplementor) jdbcSession.getLogicalConnection() )
+								.getPhysicalConnection()
+								.prepareStatement( "insert into item values (?)" );
+						try {
+							statement.setLong( 1, id );
+							statement.executeUpdate();
+						}
+						finally {
+							statement.close();
+						}
+						return null;
+					}
+				}
+		);
+	}
+
+	private long count(JdbcSession jdbcSession) {
+		return jdbcSession.accept(
+				new Operation<Long>() {
+					@Override
+					public Long perform(JdbcSession jdbcSession) throws SQLException {
+						final Statement statement = ( (LogicalConnectionImplementor) jdbcSession.getLogicalConnection() )
+								.getPhysicalConnection()
+								.createStatement();
+						try {
+							final ResultSet resultSet = statement.executeQuery( "select count(*) from item" );
+							resultSet.next();
+							return resultSet.getLong( 1 );
+						}
+						finally {
+							statement.close();
+						}
+					}
+				}
+		);
+	}
+}
@@ -0,0 +1,193 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * Copyright (c) 2014, Red Hat Inc. or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.  All third-party contributions are
+ * distributed under license by Red Hat Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.hibernate.test.resource.jdbc;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.hibernate.resource.jdbc.JdbcSession;
+import org.hibernate.resource.jdbc.spi.JdbcSessionFactory;
+import org.hibernate.resource.jdbc.spi.ParameterBindings;
+import org.hibernate.resource.jdbc.spi.PreparedQuery;
+import org.hibernate.resource.jdbc.spi.ResultSetProcessor;
+import org.hibernate.resource.jdbc.spi.StatementExecutor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.hibernate.test.resource.jdbc.common.JdbcSessionOwnerTestingImpl;
+import org.hibernate.test.resource.jdbc.common.UrlConnectionAccessTestingImpl;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author Andrea Boriero
+ */
+public class PreparedQueryTest {
+	private static final ResultSetProcessor<Integer> COUNT_ROWS = new ResultSetProcessor<Integer>() {
+		@Override
+		public Integer extractResults(ResultSet resultSet) throws SQLException {
+			int count = 0;
+			while ( resultSet.next() ) {
+				count++;
+			}
+			return count;
+		}
+	};
+
+	private static final PreparedQuery<Integer> ROWS_UP_TO = PreparedQuery.builder(
+			"select x from SOME_TABLE where x <= ?",
+			COUNT_ROWS
+	).build();
+
+	private final UrlConnectionAccessTestingImpl connectionAccess = new UrlConnectionAccessTestingImpl(
+			"jdbc:h2:mem:prepared_query;DB_CLOSE_DELAY=-1"
+	);
+
+	private JdbcSession jdbcSession;
+
+	@Before
+	public void setUp() throws Exception {
+		final Connection connection = connectionAccess.obtainConnection();
+		try {
+			final Statement statement = connection.createStatement();
+			statement.execute( "create table SOME_TABLE (x integer)" );
+			statement.execute( "insert into SOME_TABLE select x from system_range(1, 20)" );
+			statement.close();
+		}
+		finally {
+			connectionAccess.releaseConnection( connection );
+		}
+		jdbcSession = createJdbcSession();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		jdbcSession.close();
+		final Connection connection = connectionAccess.obtainConnection();
+		try {
+			final Statement statement = connection.createStatement();
+			statement.execute( "drop table SOME_TABLE" );
+			statement.close();
+		}
+		finally {
+			connectionAccess.releaseConnection( connection );
+		}
+	}
+
+	@Test
+	public void testTemplateIsExecutedWithDifferentParameterValues() {
+		assertThat( jdbcSession.accept( ROWS_UP_TO.bind( 3 ) ), is( 3 ) );
+		assertThat( jdbcSession.accept( ROWS_UP_TO.bind( 7 ) ), is( 7 ) );
+		assertThat( jdbcSession.accept( ROWS_UP_TO.bind( upTo( 12 ) ) ), is( 12 ) );
+	}
+
+	@Test
+	public void testLimitAndFetchSizeAreApplied() {
+		final int[] statementSettings = new int[2];
+		final PreparedQuery<Integer> query = PreparedQuery.builder( "select x from SOME_TABLE", COUNT_ROWS )
+				.setLimit( 4 )
+				.setFetchSize( 5 )
+				.setStatementExecutor(
+						new StatementExecutor() {
+							@Override
+							public ResultSet execute(PreparedStatement statement) throws SQLException {
+								statementSettings[0] = statement.getMaxRows();
+								statementSettings[1] = statement.getFetchSize();
+								return statement.executeQuery();
+							}
+						}
+				)
+				.build();
+
+		assertThat( jdbcSession.accept( query.bind() ), is( 4 ) );
+		assertThat( statementSettings[0], is( 4 ) );
+		assertThat( statementSettings[1], is( 5 ) );
+	}
+
+	@Test
+	public void testTemplateIsSharedAcrossThreads() throws Exception {
+		final ExecutorService executorService = Executors.newFixedThreadPool( 4 );
+		try {
+			final List<Future<Boolean>> futures = new ArrayList<Future<Boolean>>();
+			for ( int i = 0; i < 4; i++ ) {
+				futures.add(
+						executorService.submit(
+								new Callable<Boolean>() {
+									@Override
+									public Boolean call() {
+										final JdbcSession session = createJdbcSession();
+										try {
+											for ( int j = 0; j < 100; j++ ) {
+												final int upTo = j % 20 + 1;
+												if ( session.accept( ROWS_UP_TO.bind( upTo( upTo ) ) ) != upTo ) {
+													return false;
+												}
+											}
+											return true;
+										}
+										finally {
+											session.close();
+										}
+									}
+								}
+						)
+				);
+			}
+			for ( Future<Boolean> future : futures ) {
+				assertThat( future.get( 30, TimeUnit.SECONDS ), is( true ) );
+			}
+		}
+		finally {
+			executorService.shutdownNow();
+		}
+	}
+
+	private static ParameterBindings upTo(final int value) {
+		return new ParameterBindings() {
+			@Override
+			public void bindParameters(PreparedStatement statement) throws SQLException {
+				statement.setInt( 1, value );
+			}
+		};
+	}
+
+	private JdbcSession createJdbcSession() {
+		final JdbcSessionOwnerTestingImpl owner = new JdbcSessionOwnerTestingImpl();
+		owner.setJdbcConnectionAccess( connectionAccess );
+		return JdbcSessionFactory.INSTANCE.create( owner );
+	}
+}
@@ -0,0 +1,241 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * Copyright (c) 2014, Red Hat Inc. or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.  All third-party contributions are
+ * distributed under license by Red Hat Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.hibernate.test.resource.jdbc;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.Arrays;
+
+import org.hibernate.resource.jdbc.JdbcSession;
+import org.hibernate.resource.jdbc.Operation;
+import org.hibernate.resource.jdbc.internal.ConnectionIntentResolverTransactionImpl;
+import org.hibernate.resource.jdbc.internal.JdbcConnectionAccessReadWriteRoutingImpl;
+import org.hibernate.resource.jdbc.internal.ReplicaLagProbeHeartbeatImpl;
+import org.hibernate.resource.jdbc.internal.ReplicaSelectionStrategyLagAwareImpl;
+import org.hibernate.resource.jdbc.spi.JdbcConnectionAccess;
+import org.hibernate.resource.jdbc.spi.JdbcSessionFactory;
+import org.hibernate.resource.jdbc.spi.LogicalConnectionImplementor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.hibernate.test.resource.jdbc.common.JdbcSessionOwnerTestingImpl;
+import org.hibernate.test.resource.jdbc.common.UrlConnectionAccessTestingImpl;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Uses several H2 databases, one acting as primary and the others as replicas.
+ *
+ * @author Andrea Boriero
+ */
+public class ReadWriteRoutingConnectionAccessTest {
+	private static final String PRIMARY = "jdbc:h2:mem:rw_primary;DB_CLOSE_DELAY=-1";
+	private static final String FRESH_REPLICA = "jdbc:h2:mem:rw_replica1;DB_CLOSE_DELAY=-1";
+	private static final String LAGGING_REPLICA = "jdbc:h2:mem:rw_replica2;DB_CLOSE_DELAY=-1";
+
+	private final UrlConnectionAccessTestingImpl primary = new UrlConnectionAccessTestingImpl( PRIMARY );
+	private final UrlConnectionAccessTestingImpl freshReplica = new UrlConnectionAccessTestingImpl( FRESH_REPLICA );
+	private final UrlConnectionAccessTestingImpl laggingReplica = new UrlConnectionAccessTestingImpl( LAGGING_REPLICA );
+
+	private final ConnectionIntentResolverTransactionImpl intentResolver = new ConnectionIntentResolverTransactionImpl();
+	private JdbcConnectionAccessReadWriteRoutingImpl routingAccess;
+	private JdbcSession jdbcSession;
+
+	@Before
+	public void setUp() throws SQLException {
+		writeHeartbeat( PRIMARY, 0 );
+		writeHeartbeat( FRESH_REPLICA, 10 );
+		writeHeartbeat( LAGGING_REPLICA, 60000 );
+
+		routingAccess = new JdbcConnectionAccessReadWriteRoutingImpl(
+				primary,
+				Arrays.<JdbcConnectionAccess>asList( laggingReplica, freshReplica ),
+				new ReplicaSelectionStrategyLagAwareImpl( 5000 ),
+				intentResolver
+		);
+		routingAccess.refreshReplicaLag( new ReplicaLagProbeHeartbeatImpl( "select max(beat) from heartbeat" ) );
+
+		final JdbcSessionOwnerTestingImpl owner = new JdbcSessionOwnerTestingImpl();
+		owner.setJdbcConnectionAccess( routingAccess );
+		jdbcSession = JdbcSessionFactory.INSTANCE.create( owner );
+		intentResolver.setJdbcSession( jdbcSession );
+	}
+
+	@After
+	public void tearDown() {
+		if ( jdbcSession != null ) {
+			jdbcSession.close();
+		}
+	}
+
+	@Test
+	public void readOnlyWorkGoesToReplicaWithinLagBound() {
+		for ( int i = 0; i < 4; i++ ) {
+			intentResolver.markReadOnly();
+			assertThat( connectedUrl(), is( "jdbc:h2:mem:rw_replica1" ) );
+			jdbcSession.close();
+			jdbcSession = newSession();
+		}
+	}
+
+	@Test
+	public void unmarkedWorkGoesToPrimary() {
+		assertThat( intentResolver.isReadOnlyWork(), is( false ) );
+		assertThat( connectedUrl(), is( "jdbc:h2:mem:rw_primary" ) );
+	}
+
+	@Test
+	public void readOnlyStateIsResetOnCompletion() {
+		intentResolver.markReadOnly();
+		jdbcSession.getTransactionCoordinator().getTransactionDriverControl().begin();
+		assertThat( connectedUrl(), is( "jdbc:h2:mem:rw_replica1" ) );
+		jdbcSession.getTransactionCoordinator().getTransactionDriverControl().commit();
+
+		assertThat( intentResolver.isReadOnlyWork(), is( false ) );
+	}
+
+	@Test
+	public void replicaConnectionIsNotReusedAfterReadOnlyTransaction() {
+		intentResolver.markReadOnly();
+		jdbcSession.getTransactionCoordinator().getTransactionDriverControl().begin();
+		assertThat( connectedUrl(), is( "jdbc:h2:mem:rw_replica1" ) );
+		jdbcSession.getTransactionCoordinator().getTransactionDriverControl().commit();
+
+		assertThat( jdbcSession.getLogicalConnection().isPhysicallyConnected(), is( false ) );
+		assertThat( freshReplica.getReleased(), is( freshReplica.getObtained() ) );
+
+		jdbcSession.getTransactionCoordinator().getTransactionDriverControl().begin();
+		assertThat( connectedUrl(), is( "jdbc:h2:mem:rw_primary" ) );
+		jdbcSession.getTransactionCoordinator().getTransactionDriverControl().commit();
+	}
+
+	@Test
+	public void unprobedReplicasAreNotEligible() {
+		jdbcSession.close();
+		routingAccess = new JdbcConnectionAccessReadWriteRoutingImpl(
+				primary,
+				Arrays.<JdbcConnectionAccess>asList( freshReplica ),
+				new ReplicaSelectionStrategyLagAwareImpl( 5000 ),
+				intentResolver
+		);
+		jdbcSession = newSession();
+
+		intentResolver.markReadOnly();
+		assertThat( connectedUrl(), is( "jdbc:h2:mem:rw_primary" ) );
+	}
+
+	@Test
+	public void writtenTransactionCannotBeMarkedReadOnly() {
+		intentResolver.markWritten();
+		try {
+			intentResolver.markReadOnly();
+			fail( "Expecting IllegalStateException" );
+		}
+		catch (IllegalStateException expected) {
+		}
+		assertThat( connectedUrl(), is( "jdbc:h2:mem:rw_primary" ) );
+	}
+
+	@Test
+	public void readOnlyTransactionCannotBeMarkedWritten() {
+		intentResolver.markReadOnly();
+		try {
+			intentResolver.markWritten();
+			fail( "Expecting IllegalStateException" );
+		}
+		catch (IllegalStateException expected) {
+		}
+	}
+
+	@Test
+	public void readOnlyWorkGoesToPrimaryWhenAllReplicasLag() throws SQLException {
+		writeHeartbeat( FRESH_REPLICA, 30000 );
+		routingAccess.refreshReplicaLag( new ReplicaLagProbeHeartbeatImpl( "select max(beat) from heartbeat" ) );
+
+		intentResolver.markReadOnly();
+		assertThat( connectedUrl(), is( "jdbc:h2:mem:rw_primary" ) );
+	}
+
+	@Test
+	public void connectionsAreReleasedToTheirOrigin() {
+		intentResolver.markReadOnly();
+		connectedUrl();
+		jdbcSession.close();
+		jdbcSession = newSession();
+		assertThat( connectedUrl(), is( "jdbc:h2:mem:rw_primary" ) );
+		jdbcSession.close();
+		jdbcSession = null;
+
+		assertThat( freshReplica.getReleased(), is( freshReplica.getObtained() ) );
+		assertThat( primary.getReleased(), is( primary.getObtained() ) );
+		assertThat( laggingReplica.getObtained(), is( 1 ) );
+	}
+
+	private JdbcSession newSession() {
+		final JdbcSessionOwnerTestingImpl owner = new JdbcSessionOwnerTestingImpl();
+		owner.setJdbcConnectionAccess( routingAccess );
+		final JdbcSession session = JdbcSessionFactory.INSTANCE.create( owner );
+		intentResolver.setJdbcSession( session );
+		return session;
+	}
+
+	private String connectedUrl() {
+		return jdbcSession.accept(
+				new Operation<String>() {
+					@Override
+					public String perform(JdbcSession jdbcSession) throws SQLException {
+						final Connection connection = ( (LogicalConnectionImplementor) jdbcSession.getLogicalConnection() )
+								.getPhysicalConnection();
+						return connection.getMetaData().getURL();
+					}
+				}
+		);
+	}
+
+	private static void writeHeartbeat(String url, long lag) throws SQLException {
+		final Connection connection = DriverManager.getConnection( url, "sa", "" );
+		try {
+			final Statement statement = connection.createStatement();
+			statement.execute( "create table if not exists heartbeat (beat timestamp)" );
+			statement.execute( "delete from heartbeat" );
+			statement.close();
+
+			final PreparedStatement insert = connection.prepareStatement( "insert into heartbeat values (?)" );
+			insert.setTimestamp( 1, new Timestamp( System.currentTimeMillis() - lag ) );
+			insert.executeUpdate();
+			insert.close();
+		}
+		finally {
+			connection.close();
+		}
+	}
+}
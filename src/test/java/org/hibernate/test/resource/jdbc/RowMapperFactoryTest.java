@@ -0,0 +1,206 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * Copyright (c) 2014, Red Hat Inc. or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.  All third-party contributions are
+ * distributed under license by Red Hat Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.hibernate.test.resource.jdbc;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+
+import org.hibernate.resource.jdbc.JdbcSession;
+import org.hibernate.resource.jdbc.spi.JdbcSessionFactory;
+import org.hibernate.resource.jdbc.spi.PreparedQuery;
+import org.hibernate.resource.jdbc.spi.ResultSetProcessor;
+import org.hibernate.resource.jdbc.spi.RowMapper;
+import org.hibernate.resource.jdbc.spi.RowMapperFactory;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.hibernate.test.resource.jdbc.common.JdbcSessionOwnerTestingImpl;
+import org.hibernate.test.resource.jdbc.common.UrlConnectionAccessTestingImpl;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Andrea Boriero
+ */
+public class RowMapperFactoryTest {
+	private static final String SQL = "select ID, FIRST_NAME, AGE, SALARY, ACTIVE, NOTE from PERSON where ID >= ? order by ID";
+
+	private final UrlConnectionAccessTestingImpl connectionAccess = new UrlConnectionAccessTestingImpl(
+			"jdbc:h2:mem:row_mapper;DB_CLOSE_DELAY=-1"
+	);
+
+	private JdbcSession jdbcSession;
+
+	@Before
+	public void setUp() throws Exception {
+		execute(
+				"create table PERSON (ID bigint, FIRST_NAME varchar(20), AGE integer, SALARY decimal(10,2), ACTIVE boolean, NOTE varchar(20))",
+				"insert into PERSON values (1, 'Andrea', 30, 100.50, true, 'note')",
+				"insert into PERSON values (2, 'Steve', null, null, null, null)"
+		);
+		final JdbcSessionOwnerTestingImpl owner = new JdbcSessionOwnerTestingImpl();
+		owner.setJdbcConnectionAccess( connectionAccess );
+		jdbcSession = JdbcSessionFactory.INSTANCE.create( owner );
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		jdbcSession.close();
+		execute( "drop table PERSON" );
+	}
+
+	@Test
+	public void testRowsAreMappedToFields() {
+		final PreparedQuery<List<Person>> query = PreparedQuery.builder(
+				SQL,
+				new RowMapperFactory().listProcessor( Person.class, SQL )
+		).build();
+
+		List<Person> persons = jdbcSession.accept( query.bind( 1 ) );
+		assertThat( persons.size(), is( 2 ) );
+
+		final Person andrea = persons.get( 0 );
+		assertThat( andrea.getId(), is( 1L ) );
+		assertThat( andrea.firstName, is( "Andrea" ) );
+		assertThat( andrea.age, is( 30 ) );
+		assertThat( andrea.salary, is( new BigDecimal( "100.50" ) ) );
+		assertThat( andrea.active, is( true ) );
+
+		final Person steve = persons.get( 1 );
+		assertThat( steve.getId(), is( 2L ) );
+		assertThat( steve.firstName, is( "Steve" ) );
+		assertThat( steve.age, is( nullValue() ) );
+		assertThat( steve.salary, is( nullValue() ) );
+		assertThat( steve.active, is( false ) );
+
+		persons = jdbcSession.accept( query.bind( 2 ) );
+		assertThat( persons.size(), is( 1 ) );
+		assertThat( persons.get( 0 ).firstName, is( "Steve" ) );
+	}
+
+	@Test
+	public void testRowMappersAreCachedPerClassAndSql() throws Exception {
+		final RowMapperFactory factory = new RowMapperFactory();
+		final ResultSetMetaData metaData = mock( ResultSetMetaData.class );
+		when( metaData.getColumnCount() ).thenReturn( 1 );
+		when( metaData.getColumnLabel( 1 ) ).thenReturn( "ID" );
+
+		final RowMapper<Person> rowMapper = factory.getRowMapper( Person.class, SQL, metaData );
+		assertThat( factory.getRowMapper( Person.class, SQL, metaData ), is( sameInstance( rowMapper ) ) );
+		assertThat( factory.getRowMapper( Person.class, "select ID from PERSON", metaData ), is( not( sameInstance( rowMapper ) ) ) );
+
+		// a different result shape gets a new mapper
+		when( metaData.getColumnCount() ).thenReturn( 2 );
+		when( metaData.getColumnLabel( 2 ) ).thenReturn( "AGE" );
+		assertThat( factory.getRowMapper( Person.class, SQL, metaData ), is( not( sameInstance( rowMapper ) ) ) );
+	}
+
+	@Test
+	public void testReorderedColumnsGetNewMapper() throws Exception {
+		final RowMapperFactory factory = new RowMapperFactory();
+		final ResultSetMetaData metaData = mock( ResultSetMetaData.class );
+		when( metaData.getColumnCount() ).thenReturn( 2 );
+		when( metaData.getColumnLabel( 1 ) ).thenReturn( "ID" );
+		when( metaData.getColumnLabel( 2 ) ).thenReturn( "AGE" );
+
+		final RowMapper<Person> rowMapper = factory.getRowMapper( Person.class, SQL, metaData );
+		assertThat( rowMapper.fits( metaData ), is( true ) );
+
+		// same width, different order
+		when( metaData.getColumnLabel( 1 ) ).thenReturn( "AGE" );
+		when( metaData.getColumnLabel( 2 ) ).thenReturn( "ID" );
+		assertThat( rowMapper.fits( metaData ), is( false ) );
+		final RowMapper<Person> reordered = factory.getRowMapper( Person.class, SQL, metaData );
+		assertThat( reordered, is( not( sameInstance( rowMapper ) ) ) );
+
+		// same width, different label
+		when( metaData.getColumnLabel( 2 ) ).thenReturn( "FIRST_NAME" );
+		assertThat( factory.getRowMapper( Person.class, SQL, metaData ), is( not( sameInstance( reordered ) ) ) );
+	}
+
+	@Test
+	public void testListProcessorFollowsReorderedColumns() {
+		// one processor serving two statements of the same width
+		final ResultSetProcessor<List<Person>> processor = new RowMapperFactory().listProcessor( Person.class, SQL );
+		final PreparedQuery<List<Person>> query = PreparedQuery.builder(
+				"select ID, AGE from PERSON where ID = ?",
+				processor
+		).build();
+		final PreparedQuery<List<Person>> reorderedQuery = PreparedQuery.builder(
+				"select AGE, ID from PERSON where ID = ?",
+				processor
+		).build();
+
+		for ( PreparedQuery<List<Person>> current : Arrays.asList( query, reorderedQuery ) ) {
+			final Person andrea = jdbcSession.accept( current.bind( 1 ) ).get( 0 );
+			assertThat( andrea.getId(), is( 1L ) );
+			assertThat( andrea.age, is( 30 ) );
+		}
+	}
+
+	private void execute(String... sqls) throws SQLException {
+		final Connection connection = connectionAccess.obtainConnection();
+		try {
+			final Statement statement = connection.createStatement();
+			for ( String sql : sqls ) {
+				statement.execute( sql );
+			}
+			statement.close();
+		}
+		finally {
+			connectionAccess.releaseConnection( connection );
+		}
+	}
+
+	public static class BaseEntity {
+		private long id;
+
+		public long getId() {
+			return id;
+		}
+	}
+
+	public static class Person extends BaseEntity {
+		private String firstName;
+		private Integer age;
+		private BigDecimal salary;
+		private boolean active;
+
+		private Person() {
+		}
+	}
+}
@@ -0,0 +1,206 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * Copyright (c) 2014, Red Hat Inc. or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.  All third-party contributions are
+ * distributed under license by Red Hat Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.hibernate.test.resource.jdbc;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hibernate.resource.jdbc.JdbcSession;
+import org.hibernate.resource.jdbc.spi.AbstractRowResultSetProcessor;
+import org.hibernate.resource.jdbc.spi.ColumnIndexes;
+import org.hibernate.resource.jdbc.spi.JdbcSessionFactory;
+import org.hibernate.resource.jdbc.spi.PreparedQuery;
+import org.hibernate.resource.jdbc.spi.RowAccessor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.hibernate.test.resource.jdbc.common.JdbcSessionOwnerTestingImpl;
+import org.hibernate.test.resource.jdbc.common.UrlConnectionAccessTestingImpl;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Andrea Boriero
+ */
+public class RowResultSetProcessorTest {
+	private final UrlConnectionAccessTestingImpl connectionAccess = new UrlConnectionAccessTestingImpl(
+			"jdbc:h2:mem:row_processor;DB_CLOSE_DELAY=-1"
+	);
+
+	private JdbcSession jdbcSession;
+
+	@Before
+	public void setUp() throws Exception {
+		execute(
+				"create table SOME_TABLE (id bigint, name varchar(20), amount decimal(10,2), active boolean)",
+				"insert into SOME_TABLE values (1, 'one', 1.50, true)",
+				"insert into SOME_TABLE values (2, 'two', 2.50, false)"
+		);
+		final JdbcSessionOwnerTestingImpl owner = new JdbcSessionOwnerTestingImpl();
+		owner.setJdbcConnectionAccess( connectionAccess );
+		jdbcSession = JdbcSessionFactory.INSTANCE.create( owner );
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		jdbcSession.close();
+		execute( "drop table SOME_TABLE" );
+	}
+
+	@Test
+	public void testRowsAreAccessedByLabelAndIndex() {
+		final PreparedQuery<List<String>> query = PreparedQuery.builder(
+				"select id, name, amount, active from SOME_TABLE where id >= ? order by id",
+				new AbstractRowResultSetProcessor<List<String>>() {
+					@Override
+					protected List<String> processRows(RowAccessor rows) throws SQLException {
+						final int nameIndex = rows.indexOf( "name" );
+						final List<String> results = new ArrayList<String>();
+						while ( rows.next() ) {
+							results.add(
+									rows.getLong( "ID" ) + ":" + rows.getString( nameIndex ) + ":"
+											+ rows.getBigDecimal( "Amount" ) + ":" + rows.getBoolean( "active" )
+							);
+						}
+						return results;
+					}
+				}
+		).build();
+
+		List<String> results = jdbcSession.accept( query.bind( 1 ) );
+		assertThat( results.size(), is( 2 ) );
+		assertThat( results.get( 0 ), is( "1:one:1.50:true" ) );
+		assertThat( results.get( 1 ), is( "2:two:2.50:false" ) );
+
+		results = jdbcSession.accept( query.bind( 2 ) );
+		assertThat( results.size(), is( 1 ) );
+		assertThat( results.get( 0 ), is( "2:two:2.50:false" ) );
+	}
+
+	@Test
+	public void testLabelsAreResolvedOnce() throws Exception {
+		final ResultSetMetaData metaData = mock( ResultSetMetaData.class );
+		when( metaData.getColumnCount() ).thenReturn( 2 );
+		when( metaData.getColumnLabel( 1 ) ).thenReturn( "ID" );
+		when( metaData.getColumnLabel( 2 ) ).thenReturn( "NAME" );
+		final ResultSet resultSet = mock( ResultSet.class );
+		when( resultSet.getMetaData() ).thenReturn( metaData );
+
+		final AbstractRowResultSetProcessor<Integer> processor = new AbstractRowResultSetProcessor<Integer>() {
+			@Override
+			protected Integer processRows(RowAccessor rows) throws SQLException {
+				return rows.indexOf( "name" );
+			}
+		};
+		for ( int i = 0; i < 3; i++ ) {
+			assertThat( processor.extractResults( resultSet ), is( 2 ) );
+		}
+		// read to resolve the indexes on the first execution, then only to compare them with the cached ones
+		verify( metaData, times( 3 ) ).getColumnLabel( 1 );
+		verify( metaData, times( 3 ) ).getColumnLabel( 2 );
+
+		// a different shape is resolved again
+		when( metaData.getColumnCount() ).thenReturn( 1 );
+		when( metaData.getColumnLabel( 1 ) ).thenReturn( "NAME" );
+		assertThat( processor.extractResults( resultSet ), is( 1 ) );
+	}
+
+	@Test
+	public void testReorderedColumnsAreResolvedAgain() throws Exception {
+		final ResultSetMetaData metaData = mock( ResultSetMetaData.class );
+		when( metaData.getColumnCount() ).thenReturn( 2 );
+		when( metaData.getColumnLabel( 1 ) ).thenReturn( "ID" );
+		when( metaData.getColumnLabel( 2 ) ).thenReturn( "NAME" );
+		final ResultSet resultSet = mock( ResultSet.class );
+		when( resultSet.getMetaData() ).thenReturn( metaData );
+
+		final AbstractRowResultSetProcessor<Integer> processor = new AbstractRowResultSetProcessor<Integer>() {
+			@Override
+			protected Integer processRows(RowAccessor rows) throws SQLException {
+				return rows.indexOf( "name" );
+			}
+		};
+		assertThat( processor.extractResults( resultSet ), is( 2 ) );
+
+		// same width, different order
+		when( metaData.getColumnLabel( 1 ) ).thenReturn( "NAME" );
+		when( metaData.getColumnLabel( 2 ) ).thenReturn( "ID" );
+		assertThat( processor.extractResults( resultSet ), is( 1 ) );
+
+		final ColumnIndexes columnIndexes = ColumnIndexes.resolve( metaData );
+		assertThat( columnIndexes.matches( metaData ), is( true ) );
+		when( metaData.getColumnLabel( 2 ) ).thenReturn( "TITLE" );
+		assertThat( columnIndexes.matches( metaData ), is( false ) );
+	}
+
+	@Test
+	public void testColumnIndexes() throws Exception {
+		final ResultSetMetaData metaData = mock( ResultSetMetaData.class );
+		when( metaData.getColumnCount() ).thenReturn( 3 );
+		when( metaData.getColumnLabel( 1 ) ).thenReturn( "id" );
+		when( metaData.getColumnLabel( 2 ) ).thenReturn( "Name" );
+		when( metaData.getColumnLabel( 3 ) ).thenReturn( "NAME" );
+		final ColumnIndexes columnIndexes = ColumnIndexes.resolve( metaData );
+
+		assertThat( columnIndexes.getColumnCount(), is( 3 ) );
+		assertThat( columnIndexes.indexOf( "ID" ), is( 1 ) );
+		assertThat( columnIndexes.indexOf( "id" ), is( 1 ) );
+		// like ResultSet#findColumn, the first matching column wins
+		assertThat( columnIndexes.indexOf( "name" ), is( 2 ) );
+		assertThat( columnIndexes.indexOf( "Name" ), is( 2 ) );
+		try {
+			columnIndexes.indexOf( "unknown" );
+			fail( "Expecting SQLException for an unknown label" );
+		}
+		catch (SQLException expected) {
+		}
+	}
+
+	private void execute(String... sqls) throws SQLException {
+		final Connection connection = connectionAccess.obtainConnection();
+		try {
+			final Statement statement = connection.createStatement();
+			for ( String sql : sqls ) {
+				statement.execute( sql );
+			}
+			statement.close();
+		}
+		finally {
+			connectionAccess.releaseConnection( connection );
+		}
+	}
+}
@@ -0,0 +1,236 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * Copyright (c) 2014, Red Hat Inc. or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.  All third-party contributions are
+ * distributed under license by Red Hat Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.hibernate.test.resource.jdbc;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.hibernate.resource.jdbc.JdbcSession;
+import org.hibernate.resource.jdbc.Operation;
+import org.hibernate.resource.jdbc.PreparedStatementQueryOperationSpec;
+import org.hibernate.resource.jdbc.internal.ShardingStrategyConsistentHashImpl;
+import org.hibernate.resource.jdbc.internal.ShardingStrategyRangeImpl;
+import org.hibernate.resource.jdbc.spi.JdbcConnectionAccess;
+import org.hibernate.resource.jdbc.spi.LogicalConnectionImplementor;
+import org.hibernate.resource.jdbc.spi.ResultSetProcessor;
+import org.hibernate.resource.jdbc.spi.ShardResultMerger;
+import org.hibernate.resource.jdbc.spi.ShardedJdbcSessionFactory;
+import org.hibernate.resource.jdbc.spi.ShardingStrategy;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.hibernate.test.resource.jdbc.common.JdbcSessionOwnerTestingImpl;
+import org.hibernate.test.resource.jdbc.common.PreparedStatementQueryOperationSpecTestingImpl;
+import org.hibernate.test.resource.jdbc.common.UrlConnectionAccessTestingImpl;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Uses one H2 database per shard.
+ *
+ * @author Andrea Boriero
+ */
+public class ShardedJdbcSessionFactoryTest {
+	private static final int NUMBER_OF_KEYS = 300;
+
+	private final JdbcSessionOwnerTestingImpl owner = new JdbcSessionOwnerTestingImpl();
+	private final List<JdbcConnectionAccess> shards = new ArrayList<JdbcConnectionAccess>();
+	private ExecutorService executorService;
+
+	@Before
+	public void setUp() throws SQLException {
+		for ( int i = 0; i < 3; i++ ) {
+			final UrlConnectionAccessTestingImpl shard = new UrlConnectionAccessTestingImpl(
+					"jdbc:h2:mem:shard" + i + ";DB_CLOSE_DELAY=-1"
+			);
+			final Connection connection = shard.obtainConnection();
+			try {
+				final Statement statement = connection.createStatement();
+				statement.execute( "drop table if exists item" );
+				statement.execute( "create table item (id bigint primary key)" );
+				statement.close();
+			}
+			finally {
+				shard.releaseConnection( connection );
+			}
+			shards.add( shard );
+		}
+		executorService = Executors.newFixedThreadPool( 3 );
+	}
+
+	@After
+	public void tearDown() {
+		executorService.shutdownNow();
+	}
+
+	@Test
+	public void consistentHashingMovesFewKeysWhenAddingAShard() {
+		final ShardingStrategy strategy = new ShardingStrategyConsistentHashImpl();
+		final int[] distribution = new int[3];
+		int moved = 0;
+		for ( long key = 0; key < NUMBER_OF_KEYS * 10; key++ ) {
+			final int shard = strategy.determineShard( key, 3 );
+			distribution[shard]++;
+			if ( strategy.determineShard( key, 4 ) != shard ) {
+				moved++;
+			}
+		}
+
+		// ideally 1/4 of the keys move to the new shard; a modulo scheme would move 3/4 of them
+		assertTrue( "Moved " + moved + " keys", moved < NUMBER_OF_KEYS * 10 * 0.4 );
+		for ( int count : distribution ) {
+			assertTrue( "Unbalanced distribution " + Arrays.toString( distribution ), count > NUMBER_OF_KEYS * 2 );
+		}
+	}
+
+	@Test
+	public void rangeStrategyAssignsContiguousRanges() {
+		final ShardingStrategy strategy = new ShardingStrategyRangeImpl<Long>( Arrays.asList( 100L, 200L ) );
+
+		assertThat( strategy.determineShard( Long.MIN_VALUE, 3 ), is( 0 ) );
+		assertThat( strategy.determineShard( 99L, 3 ), is( 0 ) );
+		assertThat( strategy.determineShard( 100L, 3 ), is( 1 ) );
+		assertThat( strategy.determineShard( 199L, 3 ), is( 1 ) );
+		assertThat( strategy.determineShard( 200L, 3 ), is( 2 ) );
+		assertThat( strategy.determineShard( Long.MAX_VALUE, 3 ), is( 2 ) );
+	}
+
+	@Test
+	public void shardSessionsAreCachedForTheUnitOfWork() {
+		final ShardedJdbcSessionFactory factory = new ShardedJdbcSessionFactory(
+				shards,
+				new ShardingStrategyRangeImpl<Long>( Arrays.asList( 100L, 200L ) )
+		);
+		final ShardedJdbcSessionFactory.ShardSessions sessions = factory.openShardSessions( owner );
+		final JdbcSession first = sessions.getSession( 150L );
+
+		assertThat( sessions.getSession( 199L ), sameInstance( first ) );
+		assertThat( sessions.getSessionForShard( 1 ), sameInstance( first ) );
+		assertThat( connectedUrl( first ), is( "jdbc:h2:mem:shard1" ) );
+
+		sessions.close();
+		assertThat( first.isOpen(), is( false ) );
+	}
+
+	@Test
+	public void scatterGatherMergesTheResultsOfEveryShard() {
+		final ShardedJdbcSessionFactory factory = new ShardedJdbcSessionFactory(
+				shards,
+				new ShardingStrategyConsistentHashImpl()
+		);
+		final int[] expectedCounts = new int[shards.size()];
+		final ShardedJdbcSessionFactory.ShardSessions sessions = factory.openShardSessions( owner );
+		try {
+			for ( long key = 0; key < NUMBER_OF_KEYS; key++ ) {
+				insert( sessions.getSession( key ), key );
+				expectedCounts[factory.determineShard( key )]++;
+			}
+		}
+		finally {
+			sessions.close();
+		}
+
+		final List<Long> counts = factory.scatterGather( owner, countOperationSpec(), executorService );
+		for ( int i = 0; i < expectedCounts.length; i++ ) {
+			assertThat( counts.get( i ), is( (long) expectedCounts[i] ) );
+		}
+
+		final Long total = factory.scatterGather(
+				owner,
+				countOperationSpec(),
+				executorService,
+				new ShardResultMerger<Long, Long>() {
+					@Override
+					public Long merge(List<Long> shardResults) {
+						long sum = 0;
+						for ( Long shardResult : shardResults ) {
+							sum += shardResult;
+						}
+						return sum;
+					}
+				}
+		);
+		assertThat( total, is( (long) NUMBER_OF_KEYS ) );
+	}
+
+	private static void insert(JdbcSession jdbcSession, final long key) {
+		jdbcSession.accept(
+				new Operation<Void>() {
+					@Override
+					public Void perform(JdbcSession jdbcSession) throws SQLException {
+						final PreparedStatement statement = ( (LogicalConnectionImplementor) jdbcSession.getLogicalConnection() )
+								.getPhysicalConnection()
+								.prepareStatement( "insert into item values (?)" );
+						try {
+							statement.setLong( 1, key );
+							statement.executeUpdate();
+						}
+						finally {
+							statement.close();
+						}
+						return null;
+					}
+				}
+		);
+	}
+
+	private static String connectedUrl(JdbcSession jdbcSession) {
+		return jdbcSession.accept(
+				new Operation<String>() {
+					@Override
+					public String perform(JdbcSession jdbcSession) throws SQLException {
+						return ( (LogicalConnectionImplementor) jdbcSession.getLogicalConnection() ).getPhysicalConnection()
+								.getMetaData()
+								.getURL();
+					}
+				}
+		);
+	}
+
+	private static PreparedStatementQueryOperationSpec<Long> countOperationSpec() {
+		return new PreparedStatementQueryOperationSpecTestingImpl<Long>(
+				"select count(*) from item",
+				new ResultSetProcessor<Long>() {
+					@Override
+					public Long extractResults(ResultSet resultSet) throws SQLException {
+						resultSet.next();
+						return resultSet.getLong( 1 );
+					}
+				}
+		);
+	}
+}
@@ -0,0 +1,249 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * Copyright (c) 2014, Red Hat Inc. or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.  All third-party contributions are
+ * distributed under license by Red Hat Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.hibernate.test.resource.jdbc;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.hibernate.JDBCException;
+import org.hibernate.resource.jdbc.JdbcSession;
+import org.hibernate.resource.jdbc.internal.RetryPolicyStandardImpl;
+import org.hibernate.resource.jdbc.spi.JdbcObserver;
+import org.hibernate.resource.jdbc.spi.JdbcSessionFactory;
+import org.hibernate.resource.jdbc.spi.ResultSetProcessor;
+import org.hibernate.resource.jdbc.spi.RetryPolicy;
+import org.hibernate.resource.jdbc.spi.StatementExecutor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.hibernate.test.resource.jdbc.common.JdbcObserverNoOpImpl;
+import org.hibernate.test.resource.jdbc.common.JdbcSessionContextStandardTestingImpl;
+import org.hibernate.test.resource.jdbc.common.JdbcSessionOwnerTestingImpl;
+import org.hibernate.test.resource.jdbc.common.PreparedStatementQueryOperationSpecTestingImpl;
+import org.hibernate.test.resource.jdbc.common.UrlConnectionAccessTestingImpl;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author Andrea Boriero
+ */
+public class TransientFailureRetryTest {
+	private static final String SERIALIZATION_FAILURE = "40001";
+	private static final String CONNECTION_FAILURE = "08S01";
+
+	private final RetryPolicy retryPolicy = new RetryPolicyStandardImpl( 2, 1, 10 );
+	private final AtomicInteger retries = new AtomicInteger();
+	private final UrlConnectionAccessTestingImpl connectionAccess = new UrlConnectionAccessTestingImpl(
+			"jdbc:h2:mem:retry"
+	);
+
+	private JdbcSession jdbcSession;
+
+	@Before
+	public void setUp() {
+		final JdbcObserver observer = new JdbcObserverNoOpImpl() {
+			@Override
+			public void jdbcOperationRetry() {
+				retries.incrementAndGet();
+			}
+		};
+		final JdbcSessionOwnerTestingImpl owner = new JdbcSessionOwnerTestingImpl();
+		owner.setJdbcConnectionAccess( connectionAccess );
+		owner.setJdbcSessionContext(
+				new JdbcSessionContextStandardTestingImpl() {
+					@Override
+					public RetryPolicy getRetryPolicy() {
+						return retryPolicy;
+					}
+
+					@Override
+					public JdbcObserver getObserver() {
+						return observer;
+					}
+				}
+		);
+		jdbcSession = JdbcSessionFactory.INSTANCE.create( owner );
+	}
+
+	@After
+	public void tearDown() {
+		jdbcSession.close();
+	}
+
+	@Test
+	public void idempotentOperationIsRetriedOnTheSameConnection() {
+		final FailingOperation operation = new FailingOperation( true, SERIALIZATION_FAILURE, 2 );
+
+		assertThat( jdbcSession.accept( operation ), is( 1L ) );
+		assertThat( operation.executions.get(), is( 3 ) );
+		assertThat( retries.get(), is( 2 ) );
+		assertThat( connectionAccess.getObtained(), is( 1 ) );
+	}
+
+	@Test
+	public void lostConnectionIsReplacedBeforeRetrying() {
+		final FailingOperation operation = new FailingOperation( true, CONNECTION_FAILURE, 1 );
+
+		assertThat( jdbcSession.accept( operation ), is( 1L ) );
+		assertThat( retries.get(), is( 1 ) );
+		assertThat( connectionAccess.getObtained(), is( 2 ) );
+		assertThat( connectionAccess.getReleased(), is( 1 ) );
+	}
+
+	@Test
+	public void retriesAreBounded() {
+		final FailingOperation operation = new FailingOperation( true, SERIALIZATION_FAILURE, 5 );
+
+		try {
+			jdbcSession.accept( operation );
+			fail( "Expecting the failure to surface once retries are exhausted" );
+		}
+		catch (JDBCException expected) {
+		}
+		assertThat( operation.executions.get(), is( 3 ) );
+	}
+
+	@Test
+	public void nonIdempotentOperationIsNotRetried() {
+		final FailingOperation operation = new FailingOperation( false, SERIALIZATION_FAILURE, 1 );
+
+		try {
+			jdbcSession.accept( operation );
+			fail( "Expecting the failure to surface" );
+		}
+		catch (JDBCException expected) {
+		}
+		assertThat( operation.executions.get(), is( 1 ) );
+		assertThat( retries.get(), is( 0 ) );
+	}
+
+	@Test
+	public void operationIsNotRetriedWithinATransaction() {
+		final FailingOperation operation = new FailingOperation( true, SERIALIZATION_FAILURE, 1 );
+
+		jdbcSession.getTransactionCoordinator().getTransactionDriverControl().begin();
+		try {
+			jdbcSession.accept( operation );
+			fail( "Expecting the failure to surface" );
+		}
+		catch (JDBCException expected) {
+		}
+		finally {
+			jdbcSession.getTransactionCoordinator().getTransactionDriverControl().rollback();
+		}
+		assertThat( operation.executions.get(), is( 1 ) );
+	}
+
+	@Test
+	public void nonTransientFailureIsNotRetried() {
+		final FailingOperation operation = new FailingOperation( true, "42000", 1 );
+
+		try {
+			jdbcSession.accept( operation );
+			fail( "Expecting the failure to surface" );
+		}
+		catch (JDBCException expected) {
+		}
+		assertThat( operation.executions.get(), is( 1 ) );
+	}
+
+	@Test
+	public void timeoutsAndCancellationsAreNotRetried() {
+		final FailingOperation operation = new FailingOperation( true, "57014", 1 );
+
+		try {
+			jdbcSession.accept( operation );
+			fail( "Expecting the failure to surface" );
+		}
+		catch (JDBCException expected) {
+		}
+		assertThat( operation.executions.get(), is( 1 ) );
+
+		assertFalse( retryPolicy.shouldRetry( new SQLTimeoutException( "Query timed out" ), 1 ) );
+		assertFalse( retryPolicy.shouldRetry( new SQLException( "Query timed out", "HYT00" ), 1 ) );
+		assertTrue( retryPolicy.shouldRetry( new SQLException( "Deadlock", "40001" ), 1 ) );
+	}
+
+	@Test
+	public void retryDelaysAreJitteredWithinExponentialBounds() {
+		final RetryPolicy policy = new RetryPolicyStandardImpl( 10, 100, 1000 );
+		for ( int i = 0; i < 100; i++ ) {
+			assertTrue( policy.getRetryDelay( 1 ) <= 100 );
+			assertTrue( policy.getRetryDelay( 3 ) <= 400 );
+			assertTrue( policy.getRetryDelay( 8 ) <= 1000 );
+		}
+	}
+
+	private static class FailingOperation extends PreparedStatementQueryOperationSpecTestingImpl<Long> {
+		private final boolean idempotent;
+		private final AtomicInteger executions;
+
+		private FailingOperation(boolean idempotent, final String sqlState, final int failures) {
+			this( idempotent, sqlState, failures, new AtomicInteger() );
+		}
+
+		private FailingOperation(
+				boolean idempotent,
+				final String sqlState,
+				final int failures,
+				final AtomicInteger executions) {
+			super(
+					"select 1",
+					NO_BINDINGS,
+					new StatementExecutor() {
+						@Override
+						public ResultSet execute(PreparedStatement statement) throws SQLException {
+							if ( executions.incrementAndGet() <= failures ) {
+								throw new SQLException( "failing on purpose", sqlState );
+							}
+							return statement.executeQuery();
+						}
+					},
+					new ResultSetProcessor<Long>() {
+						@Override
+						public Long extractResults(ResultSet resultSet) throws SQLException {
+							resultSet.next();
+							return resultSet.getLong( 1 );
+						}
+					}
+			);
+			this.idempotent = idempotent;
+			this.executions = executions;
+		}
+
+		@Override
+		public boolean isIdempotent() {
+			return idempotent;
+		}
+	}
+}
@@ -0,0 +1,203 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * Copyright (c) 2014, Red Hat Inc. or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.  All third-party contributions are
+ * distributed under license by Red Hat Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.hibernate.test.resource.jdbc;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.hibernate.resource.jdbc.JdbcSession;
+import org.hibernate.resource.jdbc.ScrollableQueryOperationSpec;
+import org.hibernate.resource.jdbc.spi.JdbcSessionFactory;
+import org.hibernate.resource.jdbc.spi.ParameterBuffer;
+import org.hibernate.resource.jdbc.spi.PreparedQuery;
+import org.hibernate.resource.jdbc.spi.ResultSetProcessor;
+import org.hibernate.resource.jdbc.spi.WindowedScroller;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.hibernate.test.resource.jdbc.common.JdbcSessionOwnerTestingImpl;
+import org.hibernate.test.resource.jdbc.common.UrlConnectionAccessTestingImpl;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author Andrea Boriero
+ */
+public class WindowedScrollerTest {
+	private static final int ROW_COUNT = 100;
+
+	private final UrlConnectionAccessTestingImpl connectionAccess = new UrlConnectionAccessTestingImpl(
+			"jdbc:h2:mem:windowed_scroller;DB_CLOSE_DELAY=-1"
+	);
+
+	private final PreparedQuery<Void> query = PreparedQuery.builder(
+			"select ID from SOME_TABLE where ID >= ? order by ID",
+			new ResultSetProcessor<Void>() {
+				@Override
+				public Void extractResults(ResultSet resultSet) {
+					throw new UnsupportedOperationException();
+				}
+			}
+	).setFetchSize( 10 ).build();
+
+	private JdbcSession jdbcSession;
+	private int executions;
+
+	@Before
+	public void setUp() throws Exception {
+		final Connection connection = connectionAccess.obtainConnection();
+		try {
+			final Statement statement = connection.createStatement();
+			statement.execute( "create table SOME_TABLE (ID bigint primary key)" );
+			statement.close();
+			final PreparedStatement insert = connection.prepareStatement( "insert into SOME_TABLE values (?)" );
+			for ( int i = 1; i <= ROW_COUNT; i++ ) {
+				insert.setLong( 1, i );
+				insert.addBatch();
+			}
+			insert.executeBatch();
+			insert.close();
+		}
+		finally {
+			connectionAccess.releaseConnection( connection );
+		}
+		final JdbcSessionOwnerTestingImpl owner = new JdbcSessionOwnerTestingImpl();
+		owner.setJdbcConnectionAccess( connectionAccess );
+		jdbcSession = JdbcSessionFactory.INSTANCE.create( owner );
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		jdbcSession.close();
+		final Connection connection = connectionAccess.obtainConnection();
+		try {
+			final Statement statement = connection.createStatement();
+			statement.execute( "drop table SOME_TABLE" );
+			statement.close();
+		}
+		finally {
+			connectionAccess.releaseConnection( connection );
+		}
+	}
+
+	@Test
+	public void testScrollingForwardExecutesTheQueryOnce() {
+		final WindowedScroller<Long, Long> scroller = new WindowedScroller<Long, Long>( jdbcSession, source(), 10 );
+		try {
+			for ( long id = 1; id <= ROW_COUNT; id++ ) {
+				assertTrue( scroller.next() );
+				assertThat( scroller.get(), is( id ) );
+			}
+			assertFalse( scroller.next() );
+			assertThat( scroller.getPosition(), is( ROW_COUNT ) );
+
+			// the last rows are still held
+			assertTrue( scroller.previous() );
+			assertThat( scroller.get(), is( (long) ROW_COUNT ) );
+			assertTrue( scroller.moveTo( ROW_COUNT - 10 ) );
+			assertThat( scroller.get(), is( (long) ROW_COUNT - 9 ) );
+			assertThat( executions, is( 1 ) );
+		}
+		finally {
+			scroller.close();
+		}
+	}
+
+	@Test
+	public void testScrollingBackPastTheWindowRequeries() {
+		final WindowedScroller<Long, Long> scroller = new WindowedScroller<Long, Long>( jdbcSession, source(), 10 );
+		try {
+			assertTrue( scroller.moveTo( 55 ) );
+			assertThat( scroller.get(), is( 56L ) );
+
+			for ( long id = 55; id > 40; id-- ) {
+				assertTrue( scroller.previous() );
+				assertThat( scroller.get(), is( id ) );
+			}
+			assertThat( executions, is( 2 ) );
+
+			assertTrue( scroller.moveTo( 5 ) );
+			assertThat( scroller.get(), is( 6L ) );
+			assertThat( executions, is( 3 ) );
+
+			assertTrue( scroller.moveTo( 0 ) );
+			assertFalse( scroller.previous() );
+			assertThat( scroller.getPosition(), is( -1 ) );
+			assertTrue( scroller.next() );
+			assertThat( scroller.get(), is( 1L ) );
+			assertThat( executions, is( 3 ) );
+		}
+		finally {
+			scroller.close();
+		}
+	}
+
+	@Test
+	public void testPositionedAfterLastRow() {
+		final WindowedScroller<Long, Long> scroller = new WindowedScroller<Long, Long>( jdbcSession, source(), 10 );
+		try {
+			assertFalse( scroller.moveTo( ROW_COUNT + 50 ) );
+			try {
+				scroller.get();
+				fail( "Expecting IllegalStateException as the scroller is after the last row" );
+			}
+			catch (IllegalStateException expected) {
+			}
+			assertTrue( scroller.previous() );
+			assertThat( scroller.get(), is( (long) ROW_COUNT ) );
+		}
+		finally {
+			scroller.close();
+		}
+	}
+
+	private WindowedScroller.KeysetSource<Long, Long> source() {
+		return new WindowedScroller.KeysetSource<Long, Long>() {
+			@Override
+			public ScrollableQueryOperationSpec buildQuery(Long fromKey) {
+				executions++;
+				return query.bindScrollable( new ParameterBuffer( 1 ).setLong( 1, fromKey == null ? 0 : fromKey ) );
+			}
+
+			@Override
+			public Long mapRow(ResultSet resultSet) throws SQLException {
+				return resultSet.getLong( 1 );
+			}
+
+			@Override
+			public Long extractKey(Long row) {
+				return row;
+			}
+		};
+	}
+}
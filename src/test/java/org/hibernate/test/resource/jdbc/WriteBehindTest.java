@@ -0,0 +1,343 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * Copyright (c) 2014, Red Hat Inc. or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.  All third-party contributions are
+ * distributed under license by Red Hat Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.hibernate.test.resource.jdbc;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.hibernate.resource.jdbc.DmlOperationFailedException;
+import org.hibernate.resource.jdbc.DmlOperationSpec;
+import org.hibernate.resource.jdbc.JdbcSession;
+import org.hibernate.resource.jdbc.spi.JdbcObserver;
+import org.hibernate.resource.jdbc.spi.JdbcSessionFactory;
+import org.hibernate.resource.jdbc.spi.ParameterBindings;
+import org.hibernate.resource.jdbc.spi.ParameterBuffer;
+import org.hibernate.resource.jdbc.spi.PreparedQuery;
+import org.hibernate.resource.jdbc.spi.ResultSetProcessor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.hibernate.test.resource.jdbc.common.JdbcObserverNoOpImpl;
+import org.hibernate.test.resource.jdbc.common.JdbcSessionContextStandardTestingImpl;
+import org.hibernate.test.resource.jdbc.common.JdbcSessionOwnerTestingImpl;
+import org.hibernate.test.resource.jdbc.common.UrlConnectionAccessTestingImpl;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * @author Andrea Boriero
+ */
+public class WriteBehindTest {
+	private static final String INSERT_A = "insert into TABLE_A (ID, NAME) values (?, ?)";
+	private static final String INSERT_B = "insert into TABLE_B (ID, NAME) values (?, ?)";
+	private static final String UPDATE_A = "update TABLE_A set NAME = ? where ID = ?";
+	private static final String RENAME_ALL_A = "update TABLE_A set NAME = ?";
+	private static final String INSERT_PARENT = "insert into PARENT (ID) values (?)";
+	private static final String INSERT_CHILD = "insert into CHILD (ID, PARENT_ID) values (?, ?)";
+
+	private static final PreparedQuery<String> NAMES_A = PreparedQuery.builder(
+			"select NAME from TABLE_A order by ID",
+			new ResultSetProcessor<String>() {
+				@Override
+				public String extractResults(ResultSet resultSet) throws SQLException {
+					final StringBuilder names = new StringBuilder();
+					while ( resultSet.next() ) {
+						names.append( resultSet.getString( 1 ) ).append( ' ' );
+					}
+					return names.toString().trim();
+				}
+			}
+	).build();
+
+	private final UrlConnectionAccessTestingImpl connectionAccess = new UrlConnectionAccessTestingImpl(
+			"jdbc:h2:mem:write_behind;DB_CLOSE_DELAY=-1"
+	);
+
+	private int batches;
+	private boolean reorderingEnabled;
+	private JdbcSessionOwnerTestingImpl owner;
+	private JdbcSession jdbcSession;
+
+	@Before
+	public void setUp() throws Exception {
+		execute(
+				"create table TABLE_A (ID bigint primary key, NAME varchar(20))",
+				"create table TABLE_B (ID bigint primary key, NAME varchar(20))",
+				"create table PARENT (ID bigint primary key)",
+				"create table CHILD (ID bigint primary key, PARENT_ID bigint references PARENT (ID))"
+		);
+		final JdbcObserver observer = new JdbcObserverNoOpImpl() {
+			@Override
+			public void jdbcExecuteBatchStart() {
+				batches++;
+			}
+		};
+		owner = new JdbcSessionOwnerTestingImpl();
+		owner.setJdbcConnectionAccess( connectionAccess );
+		owner.setJdbcSessionContext(
+				new JdbcSessionContextStandardTestingImpl() {
+					@Override
+					public int getWriteBehindThreshold() {
+						return 10;
+					}
+
+					@Override
+					public boolean isWriteBehindReorderingEnabled() {
+						return reorderingEnabled;
+					}
+
+					@Override
+					public JdbcObserver getObserver() {
+						return observer;
+					}
+				}
+		);
+		jdbcSession = JdbcSessionFactory.INSTANCE.create( owner );
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		jdbcSession.close();
+		execute( "drop table TABLE_A", "drop table TABLE_B", "drop table CHILD", "drop table PARENT" );
+	}
+
+	private void enableReordering() {
+		jdbcSession.close();
+		reorderingEnabled = true;
+		jdbcSession = JdbcSessionFactory.INSTANCE.create( owner );
+	}
+
+	@Test
+	public void testOperationsArePerformedInQueueOrderByDefault() throws Exception {
+		jdbcSession.accept( dml( INSERT_PARENT, 0 ) );
+		jdbcSession.flush();
+
+		jdbcSession.accept( dml( INSERT_CHILD, 0, 0 ) );
+		jdbcSession.accept( dml( INSERT_PARENT, 1 ) );
+		// must not join the first child insert, which would insert it before its parent
+		jdbcSession.accept( dml( INSERT_CHILD, 1, 1 ) );
+		jdbcSession.flush();
+
+		assertThat( countRows( "CHILD" ), is( 2 ) );
+	}
+
+	@Test
+	public void testReorderingMovesOperationsAheadOfOtherTables() throws Exception {
+		enableReordering();
+		jdbcSession.accept( dml( INSERT_PARENT, 0 ) );
+		jdbcSession.flush();
+
+		final DmlOperationSpec orphan = dml( INSERT_CHILD, 1, 1 );
+		jdbcSession.accept( dml( INSERT_CHILD, 0, 0 ) );
+		jdbcSession.accept( dml( INSERT_PARENT, 1 ) );
+		jdbcSession.accept( orphan );
+		try {
+			jdbcSession.flush();
+			fail( "Expecting the child to be batched ahead of its parent" );
+		}
+		catch (DmlOperationFailedException expected) {
+			assertThat( expected.getFailedOperations().contains( orphan ), is( true ) );
+		}
+	}
+
+	@Test
+	public void testOperationsAreBatchedPerSqlBeforeQueries() throws Exception {
+		enableReordering();
+		for ( int i = 1; i <= 4; i++ ) {
+			jdbcSession.accept( dml( INSERT_A, i, "a" + i ) );
+			jdbcSession.accept( dml( INSERT_B, i, "b" + i ) );
+		}
+		assertThat( countRows( "TABLE_A" ) + countRows( "TABLE_B" ), is( 0 ) );
+
+		assertThat( jdbcSession.accept( NAMES_A.bind() ), is( "a1 a2 a3 a4" ) );
+		assertThat( countRows( "TABLE_B" ), is( 4 ) );
+		assertThat( batches, is( 2 ) );
+	}
+
+	@Test
+	public void testThresholdTriggersFlush() throws Exception {
+		for ( int i = 1; i <= 10; i++ ) {
+			jdbcSession.accept( dml( INSERT_A, i, "a" + i ) );
+		}
+		assertThat( countRows( "TABLE_A" ), is( 10 ) );
+		assertThat( batches, is( 1 ) );
+	}
+
+	@Test
+	public void testOrderIsPreservedWithinTable() {
+		jdbcSession.accept( dml( INSERT_A, 1, "first" ) );
+		jdbcSession.accept( dml( RENAME_ALL_A, "renamed" ) );
+		// must not join the first insert, which would have the rename apply to it
+		jdbcSession.accept( dml( INSERT_A, 2, "second" ) );
+		jdbcSession.accept( dml( INSERT_B, 1, "b" ) );
+		jdbcSession.flush();
+
+		assertThat( jdbcSession.accept( NAMES_A.bind() ), is( "renamed second" ) );
+	}
+
+	@Test
+	public void testQueuedOperationsAreFlushedOnCommit() throws Exception {
+		jdbcSession.getTransactionCoordinator().getTransactionDriverControl().begin();
+		jdbcSession.accept( dml( INSERT_A, 1, "a1" ) );
+		jdbcSession.accept( dml( INSERT_A, 2, "a2" ) );
+		jdbcSession.getTransactionCoordinator().getTransactionDriverControl().commit();
+
+		assertThat( countRows( "TABLE_A" ), is( 2 ) );
+	}
+
+	@Test
+	public void testQueuedOperationsAreFlushedOnClose() throws Exception {
+		jdbcSession.accept( dml( INSERT_A, 1, "a1" ) );
+		jdbcSession.accept( dml( INSERT_A, 2, "a2" ) );
+		jdbcSession.close();
+
+		assertThat( countRows( "TABLE_A" ), is( 2 ) );
+	}
+
+	@Test
+	public void testOperationsQueuedWithinActiveTransactionAreDiscardedOnClose() throws Exception {
+		jdbcSession.getTransactionCoordinator().getTransactionDriverControl().begin();
+		jdbcSession.accept( dml( INSERT_A, 1, "a1" ) );
+		jdbcSession.close();
+
+		assertThat( countRows( "TABLE_A" ), is( 0 ) );
+	}
+
+	@Test
+	public void testFailedOperationsAreReported() {
+		final DmlOperationSpec duplicate = dml( INSERT_A, 1, "duplicate" );
+		jdbcSession.accept( dml( INSERT_A, 1, "a1" ) );
+		jdbcSession.accept( duplicate );
+		jdbcSession.accept( dml( INSERT_A, 3, "a3" ) );
+		try {
+			jdbcSession.flush();
+			fail( "Expecting DmlOperationFailedException for the duplicate key" );
+		}
+		catch (DmlOperationFailedException expected) {
+			assertThat( expected.getFailedOperations().contains( duplicate ), is( true ) );
+			assertThat( expected.getFailedOperations().get( 0 ), is( sameInstance( duplicate ) ) );
+		}
+	}
+
+	@Test
+	public void testOperationsAfterAFailedBatchAreReported() throws Exception {
+		final DmlOperationSpec insertB1 = dml( INSERT_B, 1, "b1" );
+		final DmlOperationSpec insertB2 = dml( INSERT_B, 2, "b2" );
+		jdbcSession.accept( dml( INSERT_A, 1, "a1" ) );
+		jdbcSession.accept( dml( INSERT_A, 1, "duplicate" ) );
+		jdbcSession.accept( dml( RENAME_ALL_A, "renamed" ) );
+		jdbcSession.accept( insertB1 );
+		jdbcSession.accept( insertB2 );
+		try {
+			jdbcSession.flush();
+			fail( "Expecting DmlOperationFailedException for the duplicate key" );
+		}
+		catch (DmlOperationFailedException expected) {
+			assertThat( expected.getUnexecutedOperations().size(), is( 3 ) );
+			assertThat( expected.getUnexecutedOperations().contains( insertB1 ), is( true ) );
+			assertThat( expected.getUnexecutedOperations().contains( insertB2 ), is( true ) );
+		}
+		assertThat( countRows( "TABLE_B" ), is( 0 ) );
+	}
+
+	@Test
+	public void testUnexpectedRowCountsAreReported() {
+		final DmlOperationSpec missing = dml( UPDATE_A, "none", 42 );
+		jdbcSession.accept( dml( INSERT_A, 1, "a1" ) );
+		jdbcSession.accept( dml( UPDATE_A, "renamed", 1 ) );
+		jdbcSession.accept( missing );
+		try {
+			jdbcSession.flush();
+			fail( "Expecting DmlOperationFailedException for the missing row" );
+		}
+		catch (DmlOperationFailedException expected) {
+			assertThat( expected.getFailedOperations().size(), is( 1 ) );
+			assertThat( expected.getFailedOperations().get( 0 ), is( sameInstance( missing ) ) );
+		}
+	}
+
+	private static DmlOperationSpec dml(final String sql, final Object... values) {
+		final ParameterBuffer parameters = new ParameterBuffer( values.length );
+		for ( int i = 0; i < values.length; i++ ) {
+			parameters.setObject( i + 1, values[i] );
+		}
+		return new DmlOperationSpec() {
+			@Override
+			public String getSql() {
+				return sql;
+			}
+
+			@Override
+			public ParameterBindings getParameterBindings() {
+				return parameters;
+			}
+
+			@Override
+			public int getExpectedRowCount() {
+				return 1;
+			}
+
+			@Override
+			public boolean isIdempotent() {
+				return false;
+			}
+		};
+	}
+
+	private int countRows(String table) throws SQLException {
+		final Connection connection = connectionAccess.obtainConnection();
+		try {
+			final Statement statement = connection.createStatement();
+			final ResultSet resultSet = statement.executeQuery( "select count(*) from " + table );
+			resultSet.next();
+			final int count = resultSet.getInt( 1 );
+			statement.close();
+			return count;
+		}
+		finally {
+			connectionAccess.releaseConnection( connection );
+		}
+	}
+
+	private void execute(String... sqls) throws SQLException {
+		final Connection connection = connectionAccess.obtainConnection();
+		try {
+			final Statement statement = connection.createStatement();
+			for ( String sql : sqls ) {
+				statement.execute( sql );
+			}
+			statement.close();
+		}
+		finally {
+			connectionAccess.releaseConnection( connection );
+		}
+	}
+}
@@ -66,6 +66,14 @@ public class JdbcObserverNoOpImpl implements JdbcObserver {
 	public void jdbcExecuteStatementEnd() {
 	}
 
+	@Override
+	public void jdbcStatementCancelledOnTimeout() {
+	}
+
+	@Override
+	public void jdbcOperationRetry() {
+	}
+
 	@Override
 	public void jdbcExecuteBatchStart() {
 	}
@@ -26,8 +26,10 @@ package org.hibernate.test.resource.jdbc.common;
 import org.hibernate.ConnectionReleaseMode;
 import org.hibernate.engine.jdbc.spi.SqlExceptionHelper;
 import org.hibernate.engine.jdbc.spi.SqlStatementLogger;
+import org.hibernate.resource.jdbc.spi.AdmissionController;
 import org.hibernate.resource.jdbc.spi.JdbcObserver;
 import org.hibernate.resource.jdbc.spi.JdbcSessionContext;
+import org.hibernate.resource.jdbc.spi.RetryPolicy;
 import org.hibernate.resource.jdbc.spi.StatementInspector;
 
 /**
@@ -57,6 +59,36 @@ public class JdbcSessionContextStandardTestingImpl implements JdbcSessionContext
 		return -1;
 	}
 
+	@Override
+	public long getStatementSoftTimeout() {
+		return 0;
+	}
+
+	@Override
+	public RetryPolicy getRetryPolicy() {
+		return null;
+	}
+
+	@Override
+	public AdmissionController getAdmissionController() {
+		return null;
+	}
+
+	@Override
+	public int getWriteBehindThreshold() {
+		return 0;
+	}
+
+	@Override
+	public boolean isWriteBehindReorderingEnabled() {
+		return false;
+	}
+
+	@Override
+	public boolean isQueryPackingEnabled() {
+		return false;
+	}
+
 	@Override
 	public ConnectionReleaseMode getConnectionReleaseMode() {
 		return ConnectionReleaseMode.ON_CLOSE;
@@ -0,0 +1,135 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * Copyright (c) 2014, Red Hat Inc. or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.  All third-party contributions are
+ * distributed under license by Red Hat Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.hibernate.test.resource.jdbc.common;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.hibernate.resource.jdbc.PreparedStatementQueryOperationSpec;
+import org.hibernate.resource.jdbc.internal.StandardQueryPreparedStatementBuilderImpl;
+import org.hibernate.resource.jdbc.spi.ParameterBindings;
+import org.hibernate.resource.jdbc.spi.QueryStatementBuilder;
+import org.hibernate.resource.jdbc.spi.ResultSetProcessor;
+import org.hibernate.resource.jdbc.spi.StatementExecutor;
+
+/**
+ * Forward-only, read-only PreparedStatementQueryOperationSpec executing {@link PreparedStatement#executeQuery()}.
+ *
+ * @author Andrea Boriero
+ */
+public class PreparedStatementQueryOperationSpecTestingImpl<R> implements PreparedStatementQueryOperationSpec<R> {
+	public static final ParameterBindings NO_BINDINGS = new ParameterBindings() {
+		@Override
+		public void bindParameters(PreparedStatement statement) throws SQLException {
+		}
+	};
+
+	public static final StatementExecutor EXECUTE_QUERY = new StatementExecutor() {
+		@Override
+		public ResultSet execute(PreparedStatement statement) throws SQLException {
+			return statement.executeQuery();
+		}
+	};
+
+	private final String sql;
+	private final ParameterBindings parameterBindings;
+	private final StatementExecutor statementExecutor;
+	private final ResultSetProcessor<R> resultSetProcessor;
+
+	public PreparedStatementQueryOperationSpecTestingImpl(String sql, ResultSetProcessor<R> resultSetProcessor) {
+		this( sql, NO_BINDINGS, EXECUTE_QUERY, resultSetProcessor );
+	}
+
+	public PreparedStatementQueryOperationSpecTestingImpl(
+			String sql,
+			ParameterBindings parameterBindings,
+			StatementExecutor statementExecutor,
+			ResultSetProcessor<R> resultSetProcessor) {
+		this.sql = sql;
+		this.parameterBindings = parameterBindings;
+		this.statementExecutor = statementExecutor;
+		this.resultSetProcessor = resultSetProcessor;
+	}
+
+	@Override
+	public ResultSetProcessor<R> getResultSetProcessor() {
+		return resultSetProcessor;
+	}
+
+	@Override
+	public boolean isIdempotent() {
+		return false;
+	}
+
+	@Override
+	public QueryStatementBuilder<? extends PreparedStatement> getQueryStatementBuilder() {
+		return StandardQueryPreparedStatementBuilderImpl.INSTANCE;
+	}
+
+	@Override
+	public ParameterBindings getParameterBindings() {
+		return parameterBindings;
+	}
+
+	@Override
+	public StatementExecutor getStatementExecutor() {
+		return statementExecutor;
+	}
+
+	@Override
+	public ResultSetType getResultSetType() {
+		return ResultSetType.FORWARD_ONLY;
+	}
+
+	@Override
+	public ResultSetConcurrency getResultSetConcurrency() {
+		return ResultSetConcurrency.READ_ONLY;
+	}
+
+	@Override
+	public int getQueryTimeout() {
+		return 0;
+	}
+
+	@Override
+	public String getSql() {
+		return sql;
+	}
+
+	@Override
+	public int getOffset() {
+		return 0;
+	}
+
+	@Override
+	public int getLimit() {
+		return 0;
+	}
+
+	@Override
+	public int getFetchSize() {
+		return 0;
+	}
+}
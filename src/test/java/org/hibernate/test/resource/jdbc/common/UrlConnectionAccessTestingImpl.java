@@ -0,0 +1,71 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * Copyright (c) 2014, Red Hat Inc. or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.  All third-party contributions are
+ * distributed under license by Red Hat Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.hibernate.test.resource.jdbc.common;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+
+import org.hibernate.resource.jdbc.spi.JdbcConnectionAccess;
+
+/**
+ * JdbcConnectionAccess against an arbitrary (H2) url, counting obtained and released connections.
+ *
+ * @author Andrea Boriero
+ */
+public class UrlConnectionAccessTestingImpl implements JdbcConnectionAccess {
+	private final String url;
+	private int obtained;
+	private int released;
+
+	public UrlConnectionAccessTestingImpl(String url) {
+		this.url = url;
+		try {
+			Class.forName( "org.h2.Driver" );
+		}
+		catch (ClassNotFoundException e) {
+			throw new IllegalStateException( e );
+		}
+	}
+
+	@Override
+	public synchronized Connection obtainConnection() throws SQLException {
+		obtained++;
+		return DriverManager.getConnection( url, "sa", "" );
+	}
+
+	@Override
+	public synchronized void releaseConnection(Connection connection) throws SQLException {
+		released++;
+		connection.close();
+	}
+
+	public synchronized int getObtained() {
+		return obtained;
+	}
+
+	public synchronized int getReleased() {
+		return released;
+	}
+}
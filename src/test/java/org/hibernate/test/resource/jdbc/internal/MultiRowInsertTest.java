@@ -0,0 +1,69 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * Copyright (c) 2014, Red Hat Inc. or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.  All third-party contributions are
+ * distributed under license by Red Hat Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.hibernate.test.resource.jdbc.internal;
+
+import org.hibernate.resource.jdbc.internal.MultiRowInsert;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author Andrea Boriero
+ */
+public class MultiRowInsertTest {
+
+	@Test
+	public void testRowsAreRepeated() {
+		final MultiRowInsert insert = MultiRowInsert.parse( "insert into T (A, B) values (?, upper(?)) " );
+		assertThat( insert.getParameterCount(), is( 2 ) );
+		assertThat( insert.getSql( 1 ), is( "insert into T (A, B) values (?, upper(?))" ) );
+		assertThat( insert.getSql( 3 ), is( "insert into T (A, B) values (?, upper(?)), (?, upper(?)), (?, upper(?))" ) );
+	}
+
+	@Test
+	public void testStatementSizesArePowersOfTwo() {
+		final MultiRowInsert insert = MultiRowInsert.parse( "insert into T (A, B) values (?, ?)" );
+		assertThat( insert.getMaxRows( 100 ), is( 64 ) );
+		assertThat( insert.getMaxRows( 1 ), is( 1 ) );
+		// bounded by the number of parameters
+		assertThat( insert.getMaxRows( 5000 ), is( 512 ) );
+
+		assertThat( MultiRowInsert.getStatementRows( 100, 64 ), is( 64 ) );
+		assertThat( MultiRowInsert.getStatementRows( 36, 64 ), is( 32 ) );
+		assertThat( MultiRowInsert.getStatementRows( 3, 64 ), is( 2 ) );
+		assertThat( MultiRowInsert.getStatementRows( 1, 64 ), is( 1 ) );
+	}
+
+	@Test
+	public void testUnsupportedInsertsAreNotRewritten() {
+		assertThat( MultiRowInsert.parse( "insert into T (A) select A from S where B = ?" ), is( nullValue() ) );
+		assertThat( MultiRowInsert.parse( "insert into T (A) values (?) on conflict do nothing" ), is( nullValue() ) );
+		assertThat( MultiRowInsert.parse( "insert into T (A) values (?), (?)" ), is( nullValue() ) );
+		assertThat( MultiRowInsert.parse( "insert into T (A) values (1)" ), is( nullValue() ) );
+		assertThat( MultiRowInsert.parse( "update T set A = ?" ), is( nullValue() ) );
+	}
+}
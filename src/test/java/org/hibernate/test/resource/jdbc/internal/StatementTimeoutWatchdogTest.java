@@ -0,0 +1,113 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * Copyright (c) 2014, Red Hat Inc. or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.  All third-party contributions are
+ * distributed under license by Red Hat Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.hibernate.test.resource.jdbc.internal;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.hibernate.resource.jdbc.ResourceRegistry;
+import org.hibernate.resource.jdbc.internal.ResourceRegistryStandardImpl;
+import org.hibernate.resource.jdbc.internal.StatementTimeoutWatchdog;
+import org.hibernate.resource.jdbc.spi.JdbcObserver;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+/**
+ * @author Andrea Boriero
+ */
+public class StatementTimeoutWatchdogTest {
+	private final StatementTimeoutWatchdog watchdog = new StatementTimeoutWatchdog( 5, 8 );
+	private final JdbcObserver observer = mock( JdbcObserver.class );
+
+	@Test
+	public void shouldCancelStatementAfterDeadlineExpires() throws SQLException {
+		Statement statement = mock( Statement.class );
+
+		StatementTimeoutWatchdog.Timeout handle = watchdog.watch( statement, 20, observer );
+
+		verify( statement, timeout( 2000 ) ).cancel();
+		verify( observer, timeout( 2000 ) ).jdbcStatementCancelledOnTimeout();
+		assertThat( handle.isExpired(), is( true ) );
+		assertThat( handle.cancel(), is( false ) );
+	}
+
+	@Test
+	public void shouldCancelStatementWhoseDeadlineSpansSeveralRounds() throws SQLException {
+		Statement statement = mock( Statement.class );
+
+		// 8 buckets of 5ms, so 150ms needs several turns of the wheel
+		watchdog.watch( statement, 150, observer );
+
+		verify( statement, timeout( 2000 ) ).cancel();
+	}
+
+	@Test
+	public void shouldNotCancelWithdrawnStatement() throws Exception {
+		Statement statement = mock( Statement.class );
+
+		StatementTimeoutWatchdog.Timeout handle = watchdog.watch( statement, 20, observer );
+		assertThat( handle.cancel(), is( true ) );
+
+		Thread.sleep( 200 );
+
+		verify( statement, never() ).cancel();
+		verify( observer, never() ).jdbcStatementCancelledOnTimeout();
+		assertThat( handle.isExpired(), is( false ) );
+	}
+
+	@Test
+	public void shouldWatchStatementsRegisteredAsCancelable() throws SQLException {
+		ResourceRegistry registry = new ResourceRegistryStandardImpl( observer, 20 );
+		Statement statement = mock( Statement.class );
+
+		registry.register( statement, true );
+
+		verify( statement, timeout( 2000 ) ).cancel();
+		verify( observer, timeout( 2000 ) ).jdbcStatementCancelledOnTimeout();
+	}
+
+	@Test
+	public void shouldStopWatchingReleasedStatements() throws Exception {
+		ResourceRegistry registry = new ResourceRegistryStandardImpl( observer, 50 );
+		Statement cancelable = mock( Statement.class );
+		Statement notCancelable = mock( Statement.class );
+
+		registry.register( cancelable, true );
+		registry.register( notCancelable, false );
+		registry.release( cancelable );
+
+		Thread.sleep( 250 );
+
+		verify( cancelable, never() ).cancel();
+		verify( notCancelable, never() ).cancel();
+		verify( observer, never() ).jdbcStatementCancelledOnTimeout();
+	}
+}
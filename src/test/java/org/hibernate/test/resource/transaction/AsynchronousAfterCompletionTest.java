@@ -0,0 +1,213 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * Copyright (c) 2014, Red Hat Inc. or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.  All third-party contributions are
+ * distributed under license by Red Hat Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.hibernate.test.resource.transaction;
+
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+
+import org.hibernate.resource.transaction.AsynchronousSynchronization;
+import org.hibernate.resource.transaction.TransactionCoordinator;
+import org.hibernate.resource.transaction.TransactionCoordinatorBuilderFactory;
+import org.hibernate.resource.transaction.TransactionCoordinatorResourceLocalBuilder;
+import org.hibernate.resource.transaction.internal.AfterCompletionDispatcherExecutorImpl;
+
+import org.hibernate.test.resource.common.SynchronizationCollectorImpl;
+import org.hibernate.test.resource.transaction.common.DataStoreTransactionAccessTestingImpl;
+import org.hibernate.test.resource.transaction.common.JtaPlatformStandardTestingImpl;
+import org.hibernate.test.resource.transaction.common.TransactionCoordinatorOwnerTestingImpl;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNot.not;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Andrea Boriero
+ */
+public class AsynchronousAfterCompletionTest {
+	private AfterCompletionDispatcherExecutorImpl dispatcher;
+
+	@Before
+	public void setUp() {
+		dispatcher = new AfterCompletionDispatcherExecutorImpl( 2, 16 );
+	}
+
+	@After
+	public void tearDown() {
+		dispatcher.close( 5000 );
+	}
+
+	@Test
+	public void testResourceLocalCommitDoesNotWaitForAsynchronousSynchronizations() throws Exception {
+		final TransactionCoordinatorResourceLocalBuilder builder = TransactionCoordinatorBuilderFactory.INSTANCE.forResourceLocal();
+		builder.setAfterCompletionDispatcher( dispatcher );
+		final TransactionCoordinator transactionCoordinator = builder.buildTransactionCoordinator(
+				new DataStoreTransactionAccessTestingImpl()
+		);
+
+		assertCommitDoesNotWaitForAsynchronousSynchronizations( transactionCoordinator );
+	}
+
+	@Test
+	public void testJtaCommitDoesNotWaitForAsynchronousSynchronizations() throws Exception {
+		final TransactionCoordinator transactionCoordinator = TransactionCoordinatorBuilderFactory.INSTANCE.forJta()
+				.setJtaPlatform( JtaPlatformStandardTestingImpl.INSTANCE )
+				.setPerformJtaThreadTracking( false )
+				.setAfterCompletionDispatcher( dispatcher )
+				.buildTransactionCoordinator( new TransactionCoordinatorOwnerTestingImpl() );
+
+		assertCommitDoesNotWaitForAsynchronousSynchronizations( transactionCoordinator );
+	}
+
+	private void assertCommitDoesNotWaitForAsynchronousSynchronizations(TransactionCoordinator transactionCoordinator)
+			throws Exception {
+		final SynchronizationCollectorImpl synchronous = new SynchronizationCollectorImpl();
+		final BlockingSynchronization asynchronous = new BlockingSynchronization();
+		transactionCoordinator.getLocalSynchronizations().registerSynchronization( asynchronous );
+		transactionCoordinator.getLocalSynchronizations().registerSynchronization( synchronous );
+
+		transactionCoordinator.getTransactionDriverControl().begin();
+		transactionCoordinator.getTransactionDriverControl().commit();
+
+		// the synchronous Synchronization was notified although the asynchronous one, registered first, is blocked
+		assertThat( asynchronous.beforeCompletionCount, is( 1 ) );
+		assertThat( synchronous.getSuccessfulCompletionCount(), is( 1 ) );
+		assertTrue( asynchronous.entered.await( 5, TimeUnit.SECONDS ) );
+		assertThat( dispatcher.flush( 50 ), is( false ) );
+
+		asynchronous.release.countDown();
+		assertThat( dispatcher.flush( 5000 ), is( true ) );
+		assertThat( asynchronous.status, is( Status.STATUS_COMMITTED ) );
+		assertThat( asynchronous.notifyingThread, is( not( Thread.currentThread() ) ) );
+	}
+
+	@Test
+	public void testFailingAsynchronousSynchronizationDoesNotAffectOthers() throws Exception {
+		final TransactionCoordinatorResourceLocalBuilder builder = TransactionCoordinatorBuilderFactory.INSTANCE.forResourceLocal();
+		builder.setAfterCompletionDispatcher( dispatcher );
+		final TransactionCoordinator transactionCoordinator = builder.buildTransactionCoordinator(
+				new DataStoreTransactionAccessTestingImpl()
+		);
+
+		final BlockingSynchronization asynchronous = new BlockingSynchronization();
+		asynchronous.release.countDown();
+		transactionCoordinator.getLocalSynchronizations().registerSynchronization(
+				new AsynchronousSynchronization() {
+					@Override
+					public void beforeCompletion() {
+					}
+
+					@Override
+					public void afterCompletion(int status) {
+						throw new RuntimeException( "Intentional failure" );
+					}
+				}
+		);
+		transactionCoordinator.getLocalSynchronizations().registerSynchronization( asynchronous );
+
+		transactionCoordinator.getTransactionDriverControl().begin();
+		transactionCoordinator.getTransactionDriverControl().commit();
+
+		assertThat( dispatcher.flush( 5000 ), is( true ) );
+		assertThat( asynchronous.status, is( Status.STATUS_COMMITTED ) );
+	}
+
+	@Test
+	public void testFullQueueNotifiesOnDispatchingThread() throws Exception {
+		final AfterCompletionDispatcherExecutorImpl bounded = new AfterCompletionDispatcherExecutorImpl( 1, 1 );
+		try {
+			final BlockingSynchronization blocking = new BlockingSynchronization();
+			bounded.dispatch( Collections.<Synchronization>singletonList( blocking ), Status.STATUS_COMMITTED );
+			assertTrue( blocking.entered.await( 5, TimeUnit.SECONDS ) );
+
+			// fills the queue
+			final BlockingSynchronization queued = new BlockingSynchronization();
+			queued.release.countDown();
+			bounded.dispatch( Collections.<Synchronization>singletonList( queued ), Status.STATUS_COMMITTED );
+
+			final BlockingSynchronization overflowing = new BlockingSynchronization();
+			overflowing.release.countDown();
+			bounded.dispatch( Collections.<Synchronization>singletonList( overflowing ), Status.STATUS_COMMITTED );
+			assertThat( overflowing.notifyingThread, is( Thread.currentThread() ) );
+
+			blocking.release.countDown();
+			assertThat( bounded.flush( 5000 ), is( true ) );
+			assertThat( queued.status, is( Status.STATUS_COMMITTED ) );
+		}
+		finally {
+			bounded.close( 5000 );
+		}
+	}
+
+	@Test
+	public void testCloseWaitsForDispatchedSynchronizations() throws Exception {
+		final BlockingSynchronization blocking = new BlockingSynchronization();
+		dispatcher.dispatch( Collections.<Synchronization>singletonList( blocking ), Status.STATUS_ROLLEDBACK );
+		assertTrue( blocking.entered.await( 5, TimeUnit.SECONDS ) );
+
+		assertThat( dispatcher.close( 50 ), is( false ) );
+		blocking.release.countDown();
+		assertThat( dispatcher.close( 5000 ), is( true ) );
+		assertThat( blocking.status, is( Status.STATUS_ROLLEDBACK ) );
+
+		// once closed, Synchronizations are notified on the dispatching thread
+		final BlockingSynchronization late = new BlockingSynchronization();
+		late.release.countDown();
+		dispatcher.dispatch( Collections.<Synchronization>singletonList( late ), Status.STATUS_COMMITTED );
+		assertThat( late.notifyingThread, is( Thread.currentThread() ) );
+	}
+
+	private static class BlockingSynchronization implements AsynchronousSynchronization {
+		private final CountDownLatch entered = new CountDownLatch( 1 );
+		private final CountDownLatch release = new CountDownLatch( 1 );
+
+		private int beforeCompletionCount;
+		private volatile int status = -1;
+		private volatile Thread notifyingThread;
+
+		@Override
+		public void beforeCompletion() {
+			beforeCompletionCount++;
+		}
+
+		@Override
+		public void afterCompletion(int status) {
+			notifyingThread = Thread.currentThread();
+			entered.countDown();
+			try {
+				release.await( 5, TimeUnit.SECONDS );
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			this.status = status;
+		}
+	}
+}
@@ -0,0 +1,190 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * Copyright (c) 2014, Red Hat Inc. or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.  All third-party contributions are
+ * distributed under license by Red Hat Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.hibernate.test.resource.transaction;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.transaction.Status;
+
+import org.hibernate.HibernateException;
+import org.hibernate.resource.transaction.backend.jta.internal.synchronization.SynchronizationCallbackCoordinatorTrackingImpl;
+import org.hibernate.resource.transaction.backend.jta.internal.synchronization.SynchronizationCallbackTarget;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Drives many transactions through SynchronizationCallbackCoordinatorTrackingImpl from several application threads,
+ * while a shared "reaper" thread rolls back (and commits) some of them, checking the HHH-7910 semantics hold: a
+ * rollback from another thread is delayed until the application thread processes it, everything else is handled
+ * immediately, and each transaction completes exactly once.
+ *
+ * @author Andrea Boriero
+ */
+public class SynchronizationCallbackCoordinatorTrackingStressTest {
+	private static final int APPLICATION_THREADS = 4;
+	private static final int TRANSACTIONS_PER_THREAD = 1000;
+
+	private ExecutorService applicationThreads;
+	private ExecutorService reaperThread;
+
+	@Before
+	public void setUp() {
+		applicationThreads = Executors.newFixedThreadPool( APPLICATION_THREADS );
+		reaperThread = Executors.newSingleThreadExecutor();
+	}
+
+	@After
+	public void tearDown() {
+		applicationThreads.shutdownNow();
+		reaperThread.shutdownNow();
+	}
+
+	@Test
+	public void testReaperRollbacksUnderLoad() throws Exception {
+		final List<Future<Void>> futures = new ArrayList<Future<Void>>();
+		for ( int i = 0; i < APPLICATION_THREADS; i++ ) {
+			futures.add(
+					applicationThreads.submit(
+							new Callable<Void>() {
+								@Override
+								public Void call() throws Exception {
+									runTransactions();
+									return null;
+								}
+							}
+					)
+			);
+		}
+		for ( Future<Void> future : futures ) {
+			future.get( 60, TimeUnit.SECONDS );
+		}
+	}
+
+	private void runTransactions() throws Exception {
+		final CountingTarget target = new CountingTarget();
+		final SynchronizationCallbackCoordinatorTrackingImpl coordinator = new SynchronizationCallbackCoordinatorTrackingImpl(
+				target
+		);
+
+		for ( int i = 0; i < TRANSACTIONS_PER_THREAD; i++ ) {
+			target.reset();
+			coordinator.synchronizationRegistered();
+
+			switch ( i % 3 ) {
+				case 0: {
+					// rolled back by the reaper : the application thread has to pick the completion up itself
+					reaperThread.submit( afterCompletion( coordinator, Status.STATUS_ROLLEDBACK ) );
+					awaitDelayedCompletion( coordinator );
+					assertCompletedOnce( target, false, Thread.currentThread() );
+					break;
+				}
+				case 1: {
+					// rolled back on the application thread : handled immediately
+					coordinator.afterCompletion( Status.STATUS_ROLLEDBACK );
+					coordinator.processAnyDelayedAfterCompletion();
+					assertCompletedOnce( target, false, Thread.currentThread() );
+					break;
+				}
+				default: {
+					// committed from the reaper : commits are never delayed
+					final Thread reaper = reaperThread.submit( afterCompletion( coordinator, Status.STATUS_COMMITTED ) )
+							.get( 10, TimeUnit.SECONDS );
+					coordinator.processAnyDelayedAfterCompletion();
+					assertCompletedOnce( target, true, reaper );
+				}
+			}
+		}
+	}
+
+	private static Callable<Thread> afterCompletion(
+			final SynchronizationCallbackCoordinatorTrackingImpl coordinator,
+			final int status) {
+		return new Callable<Thread>() {
+			@Override
+			public Thread call() {
+				coordinator.afterCompletion( status );
+				return Thread.currentThread();
+			}
+		};
+	}
+
+	private static void awaitDelayedCompletion(SynchronizationCallbackCoordinatorTrackingImpl coordinator) {
+		final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos( 10 );
+		while ( System.nanoTime() < deadline ) {
+			try {
+				coordinator.processAnyDelayedAfterCompletion();
+			}
+			catch (HibernateException expected) {
+				return;
+			}
+			Thread.yield();
+		}
+		fail( "Rollback from the reaper thread was never seen by the application thread" );
+	}
+
+	private static void assertCompletedOnce(CountingTarget target, boolean successful, Thread expectedThread) {
+		assertThat( target.completions.get(), is( 1 ) );
+		assertThat( target.successful, is( successful ) );
+		assertThat( target.completingThread, is( expectedThread ) );
+	}
+
+	private static class CountingTarget implements SynchronizationCallbackTarget {
+		private final AtomicInteger completions = new AtomicInteger();
+		private volatile boolean successful;
+		private volatile Thread completingThread;
+
+		private void reset() {
+			completions.set( 0 );
+			completingThread = null;
+		}
+
+		@Override
+		public boolean isActive() {
+			return true;
+		}
+
+		@Override
+		public void beforeCompletion() {
+		}
+
+		@Override
+		public void afterCompletion(boolean successful) {
+			this.successful = successful;
+			this.completingThread = Thread.currentThread();
+			completions.incrementAndGet();
+		}
+	}
+}
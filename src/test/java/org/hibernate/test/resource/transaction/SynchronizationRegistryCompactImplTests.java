@@ -0,0 +1,234 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * Copyright (c) 2014, Red Hat Inc. or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.  All third-party contributions are
+ * distributed under license by Red Hat Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.hibernate.test.resource.transaction;
+
+import java.util.ArrayList;
+import java.util.List;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+
+import org.hibernate.resource.transaction.LocalSynchronizationException;
+import org.hibernate.resource.transaction.NullSynchronizationException;
+import org.hibernate.resource.transaction.SynchronizationRegistry;
+import org.hibernate.resource.transaction.internal.SynchronizationRegistryCompactImpl;
+
+import org.hibernate.test.resource.common.SynchronizationCollectorImpl;
+import org.hibernate.test.resource.common.SynchronizationErrorImpl;
+import org.junit.Test;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit tests for SynchronizationRegistryCompactImpl.
+ *
+ * @author Andrea Boriero
+ */
+public class SynchronizationRegistryCompactImplTests {
+	@Test
+	public void basicUsageTests() {
+		final SynchronizationRegistryCompactImpl registry = new SynchronizationRegistryCompactImpl();
+		try {
+			registry.registerSynchronization( null );
+			fail( "Was expecting NullSynchronizationException, but call succeeded" );
+		}
+		catch (NullSynchronizationException expected) {
+			// expected behavior
+		}
+
+		final SynchronizationCollectorImpl synchronization = new SynchronizationCollectorImpl();
+		assertEquals( 0, registry.getNumberOfRegisteredSynchronizations() );
+		registry.registerSynchronization( synchronization );
+		assertEquals( 1, registry.getNumberOfRegisteredSynchronizations() );
+		registry.registerSynchronization( synchronization );
+		assertEquals( 1, registry.getNumberOfRegisteredSynchronizations() );
+
+		registry.notifySynchronizationsBeforeTransactionCompletion();
+		assertEquals( 1, synchronization.getBeforeCompletionCount() );
+
+		registry.notifySynchronizationsAfterTransactionCompletion( Status.STATUS_COMMITTED );
+		assertEquals( 1, synchronization.getSuccessfulCompletionCount() );
+		assertEquals( 0, synchronization.getFailedCompletionCount() );
+
+		// after completion should clear registered synchronizations
+		assertEquals( 0, registry.getNumberOfRegisteredSynchronizations() );
+
+		synchronization.reset();
+		registry.registerSynchronization( synchronization );
+		registry.notifySynchronizationsAfterTransactionCompletion( Status.STATUS_ROLLEDBACK );
+		assertEquals( 0, synchronization.getBeforeCompletionCount() );
+		assertEquals( 0, synchronization.getSuccessfulCompletionCount() );
+		assertEquals( 1, synchronization.getFailedCompletionCount() );
+		assertEquals( 0, registry.getNumberOfRegisteredSynchronizations() );
+	}
+
+	@Test
+	public void testRegistrationOrderIsPreservedAcrossGrowthAndReuse() {
+		final SynchronizationRegistryCompactImpl registry = new SynchronizationRegistryCompactImpl();
+		final List<Integer> notified = new ArrayList<Integer>();
+
+		for ( int transaction = 0; transaction < 3; transaction++ ) {
+			// enough to force the initial array to grow a couple of times
+			for ( int i = 0; i < 20; i++ ) {
+				registry.registerSynchronization( new OrderRecordingSynchronization( i, notified ) );
+			}
+			assertEquals( 20, registry.getNumberOfRegisteredSynchronizations() );
+
+			registry.notifySynchronizationsBeforeTransactionCompletion();
+			registry.notifySynchronizationsAfterTransactionCompletion( Status.STATUS_COMMITTED );
+
+			assertThat( notified.size(), is( 40 ) );
+			for ( int i = 0; i < 20; i++ ) {
+				assertThat( notified.get( i ), is( i ) );
+				assertThat( notified.get( 20 + i ), is( i ) );
+			}
+			assertEquals( 0, registry.getNumberOfRegisteredSynchronizations() );
+			notified.clear();
+		}
+	}
+
+	@Test
+	public void testDuplicatesAreDetectedByIdentity() {
+		final SynchronizationRegistryCompactImpl registry = new SynchronizationRegistryCompactImpl();
+		final List<Integer> notified = new ArrayList<Integer>();
+		final OrderRecordingSynchronization synchronization = new OrderRecordingSynchronization( 1, notified );
+
+		registry.registerSynchronization( synchronization );
+		registry.registerSynchronization( new OrderRecordingSynchronization( 2, notified ) );
+		registry.registerSynchronization( synchronization );
+		assertEquals( 2, registry.getNumberOfRegisteredSynchronizations() );
+
+		registry.notifySynchronizationsBeforeTransactionCompletion();
+		assertThat( notified.size(), is( 2 ) );
+		assertThat( notified.get( 0 ), is( 1 ) );
+		assertThat( notified.get( 1 ), is( 2 ) );
+	}
+
+	@Test
+	public void testPhasesAreNotifiedInAscendingOrder() {
+		final SynchronizationRegistryCompactImpl registry = new SynchronizationRegistryCompactImpl();
+		final List<Integer> notified = new ArrayList<Integer>();
+
+		registry.registerSynchronization( new OrderRecordingSynchronization( 4, notified ), SynchronizationRegistry.LATE_PHASE );
+		registry.registerSynchronization( new OrderRecordingSynchronization( 2, notified ) );
+		registry.registerSynchronization( new OrderRecordingSynchronization( 0, notified ), SynchronizationRegistry.EARLY_PHASE );
+		registry.registerSynchronization( new OrderRecordingSynchronization( 3, notified ) );
+		registry.registerSynchronization( new OrderRecordingSynchronization( 1, notified ), SynchronizationRegistry.EARLY_PHASE );
+		registry.registerSynchronization( new OrderRecordingSynchronization( 5, notified ), SynchronizationRegistry.LATE_PHASE );
+
+		registry.notifySynchronizationsBeforeTransactionCompletion();
+		registry.notifySynchronizationsAfterTransactionCompletion( Status.STATUS_COMMITTED );
+
+		assertThat( notified.size(), is( 12 ) );
+		for ( int i = 0; i < 6; i++ ) {
+			assertThat( notified.get( i ), is( i ) );
+			assertThat( notified.get( 6 + i ), is( i ) );
+		}
+	}
+
+	@Test
+	public void testRegistrationFromBeforeCompletion() {
+		final SynchronizationRegistryCompactImpl registry = new SynchronizationRegistryCompactImpl();
+		final List<Integer> notified = new ArrayList<Integer>();
+		final OrderRecordingSynchronization early = new OrderRecordingSynchronization( 0, notified );
+		final OrderRecordingSynchronization late = new OrderRecordingSynchronization( 2, notified );
+
+		registry.registerSynchronization(
+				new OrderRecordingSynchronization( 1, notified ) {
+					@Override
+					public void beforeCompletion() {
+						super.beforeCompletion();
+						registry.registerSynchronization( early, SynchronizationRegistry.EARLY_PHASE );
+						registry.registerSynchronization( late, SynchronizationRegistry.LATE_PHASE );
+					}
+				}
+		);
+
+		registry.notifySynchronizationsBeforeTransactionCompletion();
+		// the early phase was already notified, the late one was not
+		assertThat( notified.size(), is( 2 ) );
+		assertThat( notified.get( 0 ), is( 1 ) );
+		assertThat( notified.get( 1 ), is( 2 ) );
+
+		notified.clear();
+		registry.notifySynchronizationsAfterTransactionCompletion( Status.STATUS_COMMITTED );
+		assertThat( notified.size(), is( 3 ) );
+		for ( int i = 0; i < 3; i++ ) {
+			assertThat( notified.get( i ), is( i ) );
+		}
+	}
+
+	@Test
+	public void testUserSynchronizationExceptions() {
+		// exception in beforeCompletion
+		SynchronizationRegistryCompactImpl registry = new SynchronizationRegistryCompactImpl();
+		Synchronization synchronization = new SynchronizationErrorImpl( true, false );
+		registry.registerSynchronization( synchronization );
+		try {
+			registry.notifySynchronizationsBeforeTransactionCompletion();
+			fail( "Expecting LocalSynchronizationException, but call succeeded" );
+		}
+		catch (LocalSynchronizationException expected) {
+			// expected
+		}
+		// a failing beforeCompletion does not clear the registry
+		assertEquals( 1, registry.getNumberOfRegisteredSynchronizations() );
+
+		// exception in afterCompletion
+		registry = new SynchronizationRegistryCompactImpl();
+		synchronization = new SynchronizationErrorImpl( false, true );
+		registry.registerSynchronization( synchronization );
+		try {
+			registry.notifySynchronizationsAfterTransactionCompletion( Status.STATUS_COMMITTED );
+			fail( "Expecting LocalSynchronizationException, but call succeeded" );
+		}
+		catch (LocalSynchronizationException expected) {
+			// expected
+		}
+		// ... but a failing afterCompletion does
+		assertEquals( 0, registry.getNumberOfRegisteredSynchronizations() );
+	}
+
+	private static class OrderRecordingSynchronization implements Synchronization {
+		private final int id;
+		private final List<Integer> notified;
+
+		private OrderRecordingSynchronization(int id, List<Integer> notified) {
+			this.id = id;
+			this.notified = notified;
+		}
+
+		@Override
+		public void beforeCompletion() {
+			notified.add( id );
+		}
+
+		@Override
+		public void afterCompletion(int status) {
+			notified.add( id );
+		}
+	}
+}
@@ -23,11 +23,14 @@
  */
 package org.hibernate.test.resource.transaction;
 
+import java.util.ArrayList;
+import java.util.List;
 import javax.transaction.Status;
 import javax.transaction.Synchronization;
 
 import org.hibernate.resource.transaction.NullSynchronizationException;
 import org.hibernate.resource.transaction.LocalSynchronizationException;
+import org.hibernate.resource.transaction.SynchronizationRegistry;
 import org.hibernate.resource.transaction.internal.SynchronizationRegistryStandardImpl;
 
 import org.hibernate.test.resource.common.SynchronizationCollectorImpl;
@@ -102,6 +105,30 @@ public class SynchronizationRegistryStandardImplTests {
 		}
 	}
 
+	@Test
+	public void testPhasesAreNotifiedInAscendingOrder() {
+		final SynchronizationRegistryStandardImpl registry = new SynchronizationRegistryStandardImpl();
+		final List<Integer> notified = new ArrayList<Integer>();
+
+		registry.registerSynchronization( new PhaseRecordingSynchronization( 2, notified ), SynchronizationRegistry.LATE_PHASE );
+		registry.registerSynchronization( new PhaseRecordingSynchronization( 1, notified ) );
+		final PhaseRecordingSynchronization early = new PhaseRecordingSynchronization( 0, notified );
+		registry.registerSynchronization( early, SynchronizationRegistry.EARLY_PHASE );
+		// already registered in another phase
+		registry.registerSynchronization( early, SynchronizationRegistry.LATE_PHASE );
+		assertEquals( 3, registry.getNumberOfRegisteredSynchronizations() );
+
+		registry.notifySynchronizationsBeforeTransactionCompletion();
+		registry.notifySynchronizationsAfterTransactionCompletion( Status.STATUS_COMMITTED );
+
+		assertEquals( 6, notified.size() );
+		for ( int i = 0; i < 3; i++ ) {
+			assertEquals( Integer.valueOf( i ), notified.get( i ) );
+			assertEquals( Integer.valueOf( i ), notified.get( 3 + i ) );
+		}
+		assertEquals( 0, registry.getNumberOfRegisteredSynchronizations() );
+	}
+
 	@Test
 	public void testUserSynchronizationExceptions() {
 		// exception in beforeCompletion
@@ -137,4 +164,24 @@ public class SynchronizationRegistryStandardImplTests {
 		}
 
 	}
+
+	private static class PhaseRecordingSynchronization implements Synchronization {
+		private final int id;
+		private final List<Integer> notified;
+
+		private PhaseRecordingSynchronization(int id, List<Integer> notified) {
+			this.id = id;
+			this.notified = notified;
+		}
+
+		@Override
+		public void beforeCompletion() {
+			notified.add( id );
+		}
+
+		@Override
+		public void afterCompletion(int status) {
+			notified.add( id );
+		}
+	}
 }